@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.action.URIAction;
+import com.linecorp.bot.model.message.FlexMessage;
+import com.linecorp.bot.model.message.flex.component.Box;
+import com.linecorp.bot.model.message.flex.component.Button;
+import com.linecorp.bot.model.message.flex.component.FlexComponent;
+import com.linecorp.bot.model.message.flex.component.Image;
+import com.linecorp.bot.model.message.flex.component.Separator;
+import com.linecorp.bot.model.message.flex.component.Text;
+import com.linecorp.bot.model.message.flex.container.Bubble;
+import com.linecorp.bot.model.message.flex.container.Carousel;
+import com.linecorp.bot.model.message.flex.unit.FlexFontSize;
+import com.linecorp.bot.model.message.flex.unit.FlexLayout;
+import com.linecorp.bot.model.message.flex.unit.FlexMarginSize;
+import com.linecorp.bot.model.objectmapper.ModelCodecRegistry;
+import com.linecorp.bot.model.objectmapper.ModelObjectMapper;
+
+/**
+ * Compares {@link ModelObjectMapper} with the shared {@link ModelCodecRegistry} writer
+ * on a 10 bubble carousel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageSerializeBenchmark {
+    private PushMessage pushMessage;
+    private ObjectWriter modelObjectWriter;
+    private ObjectWriter clientObjectWriter;
+
+    @Setup
+    public void setUp() {
+        final List<Bubble> bubbles = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            bubbles.add(createBubble(i));
+        }
+        pushMessage = new PushMessage("U0123456789abcdef0123456789abcdef",
+                                      new FlexMessage("carousel", new Carousel(bubbles)));
+
+        modelObjectWriter = ModelObjectMapper.createNewObjectMapper().writer();
+        clientObjectWriter = ModelCodecRegistry.getInstance().writerFor(PushMessage.class);
+    }
+
+    private static Bubble createBubble(final int index) {
+        final List<FlexComponent> contents = new ArrayList<>();
+        contents.add(Text.builder()
+                         .text("Item " + index)
+                         .size(FlexFontSize.XL)
+                         .weight(Text.TextWeight.BOLD)
+                         .build());
+        contents.add(Separator.builder().margin(FlexMarginSize.MD).build());
+        for (int i = 0; i < 5; ++i) {
+            contents.add(Box.builder()
+                            .layout(FlexLayout.BASELINE)
+                            .spacing(FlexMarginSize.SM)
+                            .contents(Arrays.asList(
+                                    Text.builder().text("Label").size(FlexFontSize.SM).flex(1).build(),
+                                    Text.builder().text("Value " + i).size(FlexFontSize.SM).flex(5).wrap(true)
+                                        .build()))
+                            .build());
+        }
+
+        return Bubble.builder()
+                     .hero(Image.builder()
+                                .url("https://example.com/" + index + ".png")
+                                .size(Image.ImageSize.FULL_WIDTH)
+                                .aspectRatio(Image.ImageAspectRatio.R20TO13)
+                                .build())
+                     .body(Box.builder().layout(FlexLayout.VERTICAL).contents(contents).build())
+                     .footer(Box.builder()
+                                .layout(FlexLayout.VERTICAL)
+                                .contents(Arrays.asList(
+                                        Button.builder()
+                                              .style(Button.ButtonStyle.LINK)
+                                              .action(new URIAction("WEBSITE", "https://example.com", null))
+                                              .build()))
+                                .build())
+                     .build();
+    }
+
+    @Benchmark
+    public byte[] modelObjectMapper() throws IOException {
+        return modelObjectWriter.writeValueAsBytes(pushMessage);
+    }
+
+    @Benchmark
+    public byte[] clientObjectMapper() throws IOException {
+        return clientObjectWriter.writeValueAsBytes(pushMessage);
+    }
+}
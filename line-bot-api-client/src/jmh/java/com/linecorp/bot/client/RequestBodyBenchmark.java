@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.linecorp.bot.model.Multicast;
+import com.linecorp.bot.model.message.TextMessage;
+
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import retrofit2.Converter;
+
+/**
+ * Compares buffered and streaming request bodies on a multicast to 10,000 users.
+ *
+ * <p>Run with {@code -prof gc} to see allocation per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBodyBenchmark {
+    private Multicast multicast;
+    private Converter<Multicast, RequestBody> bufferedConverter;
+    private Converter<Multicast, RequestBody> streamingConverter;
+    private BufferedSink sink;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        final Set<String> to = new HashSet<>();
+        for (int i = 0; i < 10_000; ++i) {
+            to.add(String.format("U%032x", i));
+        }
+        multicast = new Multicast(to, new TextMessage("hello"));
+
+        final Annotation[] annotations = new Annotation[0];
+        bufferedConverter = (Converter<Multicast, RequestBody>) ModelCodecConverterFactory
+                .create(false).requestBodyConverter(Multicast.class, annotations, annotations, null);
+        streamingConverter = (Converter<Multicast, RequestBody>) ModelCodecConverterFactory
+                .create(true).requestBodyConverter(Multicast.class, annotations, annotations, null);
+        sink = Okio.buffer(Okio.blackhole());
+    }
+
+    @Benchmark
+    public BufferedSink buffered() throws IOException {
+        bufferedConverter.convert(multicast).writeTo(sink);
+        return sink;
+    }
+
+    @Benchmark
+    public BufferedSink streaming() throws IOException {
+        streamingConverter.convert(multicast).writeTo(sink);
+        return sink;
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Timeout;
+
+/**
+ * {@link Call.Factory} which limits API requests of a channel by rate and concurrency.
+ *
+ * <p>Requests over the limits wait in the queue of this limiter, not in the dispatcher shared by all
+ * channels. So a busy channel occupies at most {@code maxConcurrentRequests} slots of the shared dispatcher,
+ * and requests of other channels don't wait behind its backlog.
+ *
+ * <p>The rate limit allows a burst of up to one second worth of requests.
+ */
+class ChannelCallLimiter implements Call.Factory {
+    private final Call.Factory delegate;
+    private final int maxConcurrentRequests;
+
+    /**
+     * Interval between requests. {@code 0} if the rate is unlimited.
+     */
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final ScheduledExecutorService timer;
+
+    // Guarded by this.
+    private final Deque<LimitedCall> queue = new ArrayDeque<>();
+    private int inFlight;
+    private long nextPermitNanos;
+    private boolean drainScheduled;
+
+    ChannelCallLimiter(final Call.Factory delegate, final double requestsPerSecond,
+                       final int maxConcurrentRequests, final ScheduledExecutorService timer) {
+        if (requestsPerSecond < 0 || maxConcurrentRequests <= 0) {
+            throw new IllegalArgumentException("Invalid limits: requestsPerSecond = " + requestsPerSecond
+                                               + ", maxConcurrentRequests = " + maxConcurrentRequests);
+        }
+        this.delegate = delegate;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        intervalNanos = requestsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond) : 0;
+        burstNanos = intervalNanos * Math.max(0, (long) requestsPerSecond - 1);
+        this.timer = timer;
+        nextPermitNanos = System.nanoTime() - burstNanos;
+    }
+
+    @Override
+    public Call newCall(final Request request) {
+        return new LimitedCall(delegate.newCall(request));
+    }
+
+    /**
+     * Returns the number of requests waiting for the limits.
+     */
+    synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    private void submit(final LimitedCall call) {
+        synchronized (this) {
+            queue.add(call);
+        }
+        drain();
+    }
+
+    private void release() {
+        synchronized (this) {
+            --inFlight;
+        }
+        drain();
+    }
+
+    private void drain() {
+        final List<LimitedCall> ready = new ArrayList<>();
+        synchronized (this) {
+            while (inFlight < maxConcurrentRequests && !queue.isEmpty()) {
+                final long waitNanos = reservePermit(System.nanoTime());
+                if (waitNanos > 0) {
+                    scheduleDrain(waitNanos);
+                    break;
+                }
+                ++inFlight;
+                ready.add(queue.poll());
+            }
+        }
+        ready.forEach(LimitedCall::start);
+    }
+
+    /**
+     * Take a permit of the rate limit.
+     *
+     * @return {@code 0} if taken. Otherwise nanoseconds until the next permit.
+     */
+    private long reservePermit(final long now) {
+        if (intervalNanos == 0) {
+            return 0;
+        }
+        if (now - burstNanos - nextPermitNanos > 0) {
+            nextPermitNanos = now - burstNanos;
+        }
+        final long waitNanos = nextPermitNanos - now;
+        if (waitNanos > 0) {
+            return waitNanos;
+        }
+        nextPermitNanos += intervalNanos;
+        return 0;
+    }
+
+    private void scheduleDrain(final long delayNanos) {
+        if (drainScheduled) {
+            return;
+        }
+        drainScheduled = true;
+        timer.schedule(() -> {
+            synchronized (this) {
+                drainScheduled = false;
+            }
+            drain();
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private final class LimitedCall implements Call {
+        private final Call call;
+
+        // Guarded by this.
+        private boolean executed;
+        private Runnable starter;
+
+        LimitedCall(final Call call) {
+            this.call = call;
+        }
+
+        @Override
+        public Request request() {
+            return call.request();
+        }
+
+        @Override
+        public Response execute() throws IOException {
+            final CountDownLatch started = new CountDownLatch(1);
+            markExecuted(started::countDown);
+            submit(this);
+            try {
+                started.await();
+            } catch (InterruptedException e) {
+                call.cancel();
+                abandon();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the channel limits");
+            }
+            try {
+                return call.execute();
+            } finally {
+                release();
+            }
+        }
+
+        @Override
+        public void enqueue(final Callback responseCallback) {
+            markExecuted(() -> call.enqueue(new Callback() {
+                @Override
+                public void onFailure(final Call ignored, final IOException e) {
+                    try {
+                        responseCallback.onFailure(LimitedCall.this, e);
+                    } finally {
+                        release();
+                    }
+                }
+
+                @Override
+                public void onResponse(final Call ignored, final Response response) throws IOException {
+                    try {
+                        responseCallback.onResponse(LimitedCall.this, response);
+                    } finally {
+                        release();
+                    }
+                }
+            }));
+            submit(this);
+        }
+
+        private synchronized void markExecuted(final Runnable starter) {
+            if (executed) {
+                throw new IllegalStateException("Already Executed");
+            }
+            executed = true;
+            this.starter = starter;
+        }
+
+        void start() {
+            final Runnable starter;
+            synchronized (this) {
+                starter = this.starter;
+            }
+            starter.run();
+        }
+
+        /**
+         * Give up a call of {@link #execute()} which won't run. Its slot is released if it has been taken
+         * from the queue already.
+         */
+        private void abandon() {
+            final boolean queued;
+            synchronized (ChannelCallLimiter.this) {
+                queued = queue.remove(this);
+            }
+            if (!queued) {
+                release();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            call.cancel();
+            final boolean queued;
+            synchronized (ChannelCallLimiter.this) {
+                queued = queue.remove(this);
+                if (queued) {
+                    ++inFlight;
+                }
+            }
+            if (queued) {
+                // Let the canceled call fail, without waiting for the limits.
+                start();
+            }
+        }
+
+        @Override
+        public synchronized boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return call.isCanceled();
+        }
+
+        @Override
+        public Timeout timeout() {
+            return call.timeout();
+        }
+
+        @SuppressWarnings("MethodDoesntCallSuperMethod")
+        @Override
+        public Call clone() {
+            return new LimitedCall(call.clone());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.ToString;
+import lombok.Value;
+
+/**
+ * Configuration of a channel served by a multi-channel bot server.
+ *
+ * @see ChannelRegistry
+ * @see LineMessagingClientPool
+ */
+@Value
+@Builder(toBuilder = true)
+public class ChannelConfiguration {
+    /**
+     * Identifier of the channel. Webhooks to {@code <callback path>/<channelId>} are routed to this channel.
+     */
+    @NonNull
+    String channelId;
+
+    /**
+     * User ID of the bot, i.e. {@code destination} of webhooks to this channel. {@code null} if webhooks are
+     * routed by path only.
+     */
+    String destination;
+
+    @NonNull
+    @ToString.Exclude
+    String channelSecret;
+
+    @NonNull
+    @ToString.Exclude
+    ChannelTokenSupplier channelTokenSupplier;
+
+    /**
+     * Maximum number of API requests per second of this channel. Requests over the limit wait in the queue of
+     * this channel. {@code 0} means unlimited.
+     */
+    double requestsPerSecond;
+
+    /**
+     * Maximum number of API requests of this channel in flight.
+     */
+    @Builder.Default
+    int maxConcurrentRequests = LineMessagingClientPool.DEFAULT_MAX_CONCURRENT_REQUESTS_PER_CHANNEL;
+
+    public static class ChannelConfigurationBuilder {
+        /**
+         * Set fixed channel token. This overwrites {@link #channelTokenSupplier(ChannelTokenSupplier)}.
+         */
+        public ChannelConfigurationBuilder channelToken(final String channelToken) {
+            return channelTokenSupplier(FixedChannelTokenSupplier.of(channelToken));
+        }
+    }
+}
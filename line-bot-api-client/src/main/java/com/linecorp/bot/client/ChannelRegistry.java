@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Source of {@link ChannelConfiguration}s of a multi-channel bot server.
+ *
+ * <p>Implement it to load channels from a database or a configuration service. Lookups are made for every
+ * webhook request and every new client, so cache results if loading is slow.
+ */
+public interface ChannelRegistry {
+    /**
+     * Create a {@link ChannelRegistry} of fixed channels.
+     */
+    static ChannelRegistry of(final Collection<ChannelConfiguration> channels) {
+        return new FixedChannelRegistry(channels);
+    }
+
+    /**
+     * Returns the channel of given ID.
+     */
+    Optional<ChannelConfiguration> findById(String channelId);
+
+    /**
+     * Returns the channel whose {@link ChannelConfiguration#getDestination()} is given user ID.
+     */
+    Optional<ChannelConfiguration> findByDestination(String destination);
+}
@@ -22,7 +22,6 @@ import java.io.IOException;
 import java.util.function.Function;
 
 import com.fasterxml.jackson.databind.InjectableValues;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 
 import com.linecorp.bot.client.exception.BadRequestException;
@@ -34,12 +33,14 @@ import com.linecorp.bot.client.exception.NotFoundException;
 import com.linecorp.bot.client.exception.TooManyRequestsException;
 import com.linecorp.bot.client.exception.UnauthorizedException;
 import com.linecorp.bot.model.error.ErrorResponse;
+import com.linecorp.bot.model.objectmapper.ModelCodecRegistry;
 
 import okhttp3.ResponseBody;
 import retrofit2.Response;
 
 class ExceptionConverter implements Function<Response<?>, LineMessagingException> {
-    public static final ObjectReader OBJECT_READER = new ObjectMapper().readerFor(ErrorResponse.class);
+    public static final ObjectReader OBJECT_READER =
+            ModelCodecRegistry.getInstance().readerFor(ErrorResponse.class);
 
     @Override
     public LineMessagingException apply(Response<?> response) {
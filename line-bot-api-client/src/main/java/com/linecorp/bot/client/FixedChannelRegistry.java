@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import lombok.ToString;
+
+/**
+ * {@link ChannelRegistry} of fixed channels.
+ */
+@ToString
+class FixedChannelRegistry implements ChannelRegistry {
+    private final Map<String, ChannelConfiguration> byId = new HashMap<>();
+    private final Map<String, ChannelConfiguration> byDestination = new HashMap<>();
+
+    FixedChannelRegistry(final Collection<ChannelConfiguration> channels) {
+        for (ChannelConfiguration channel : channels) {
+            if (byId.put(channel.getChannelId(), channel) != null) {
+                throw new IllegalArgumentException("Duplicate channelId: " + channel.getChannelId());
+            }
+            if (channel.getDestination() != null
+                && byDestination.put(channel.getDestination(), channel) != null) {
+                throw new IllegalArgumentException("Duplicate destination: " + channel.getDestination());
+            }
+        }
+    }
+
+    @Override
+    public Optional<ChannelConfiguration> findById(final String channelId) {
+        return Optional.ofNullable(byId.get(channelId));
+    }
+
+    @Override
+    public Optional<ChannelConfiguration> findByDestination(final String destination) {
+        return Optional.ofNullable(byDestination.get(destination));
+    }
+}
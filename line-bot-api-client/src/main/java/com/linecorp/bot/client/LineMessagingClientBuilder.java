@@ -24,11 +24,6 @@ import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
-
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.ToString;
@@ -39,11 +34,12 @@ import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import okhttp3.logging.HttpLoggingInterceptor.Level;
 import retrofit2.Retrofit;
-import retrofit2.converter.jackson.JacksonConverterFactory;
 
 @ToString
 @Accessors(fluent = true)
 public class LineMessagingClientBuilder {
+    private static final Logger WIRE_LOGGER = LoggerFactory.getLogger("com.linecorp.bot.client.wire");
+
     /**
      * Use {@link LineMessagingClient#builder(String)} to create instance.
      *
@@ -107,6 +103,21 @@ public class LineMessagingClientBuilder {
     @Setter
     private Retrofit.Builder retrofitBuilder;
 
+    /**
+     * Serialize request bodies directly into the connection instead of into a {@code byte[]} first.
+     *
+     * <p>It reduces peak memory of huge requests such as {@code Multicast} to thousands of users.
+     * Request bodies are sent with chunked transfer encoding. Ignored if {@link #retrofitBuilder} is
+     * specified.
+     *
+     * <p>Request bodies are only logged to {@code com.linecorp.bot.client.wire} logger if it's enabled
+     * on {@link #build()}, because logging buffers the whole body.
+     *
+     * <p>Default = {@code false}.
+     */
+    @Setter
+    private boolean streamingRequestBody;
+
     /**
      * Add authentication header.
      *
@@ -174,7 +185,9 @@ public class LineMessagingClientBuilder {
         if (additionalInterceptors != null) {
             additionalInterceptors.forEach(okHttpClientBuilder::addInterceptor);
         }
-        okHttpClientBuilder.addInterceptor(buildLoggingInterceptor());
+        if (!streamingRequestBody || WIRE_LOGGER.isInfoEnabled()) {
+            okHttpClientBuilder.addInterceptor(buildLoggingInterceptor());
+        }
 
         // Set timeout.
         okHttpClientBuilder
@@ -185,7 +198,7 @@ public class LineMessagingClientBuilder {
         final OkHttpClient okHttpClient = okHttpClientBuilder.build();
 
         if (retrofitBuilder == null) {
-            retrofitBuilder = createDefaultRetrofitBuilder();
+            retrofitBuilder = createDefaultRetrofitBuilder(streamingRequestBody);
         }
         retrofitBuilder.client(okHttpClient);
         retrofitBuilder.baseUrl(apiEndPoint);
@@ -201,24 +214,17 @@ public class LineMessagingClientBuilder {
     }
 
     static Interceptor buildLoggingInterceptor() {
-        final Logger slf4jLogger = LoggerFactory.getLogger("com.linecorp.bot.client.wire");
-
-        return new HttpLoggingInterceptor(slf4jLogger::info)
+        return new HttpLoggingInterceptor(WIRE_LOGGER::info)
                 .setLevel(Level.BODY);
     }
 
-    // TODO: Split this method.
     static Retrofit.Builder createDefaultRetrofitBuilder() {
-        final ObjectMapper objectMapper = new ObjectMapper()
-                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
-                // Register ParameterNamesModule to read parameter name from lombok generated constructor.
-                .registerModule(new ParameterNamesModule())
-                // Register JSR-310(java.time.temporal.*) module and read number as millsec.
-                .registerModule(new JavaTimeModule())
-                .configure(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS, false);
+        return createDefaultRetrofitBuilder(false);
+    }
 
+    static Retrofit.Builder createDefaultRetrofitBuilder(final boolean streamingRequestBody) {
         return new Retrofit.Builder()
-                .addConverterFactory(JacksonConverterFactory.create(objectMapper));
+                .addConverterFactory(ModelCodecConverterFactory.create(streamingRequestBody));
     }
 
     /**
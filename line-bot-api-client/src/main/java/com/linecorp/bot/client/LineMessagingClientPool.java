@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import lombok.Getter;
+import lombok.NonNull;
+import okhttp3.OkHttpClient;
+import retrofit2.Retrofit;
+
+/**
+ * {@link LineMessagingClient}s of channels in a {@link ChannelRegistry}.
+ *
+ * <p>All clients share one connection pool and dispatcher, so serving more channels doesn't add threads or
+ * connections. Each channel has its own rate and concurrency limits configured by
+ * {@link ChannelConfiguration}. Requests over the limits wait in the queue of the channel, so a channel sending
+ * a burst of messages doesn't delay messages of other channels.
+ *
+ * <pre>{@code
+ * LineMessagingClientPool pool = LineMessagingClientPool.builder(channelRegistry).build();
+ * pool.get(channelId).replyMessage(...);
+ * }</pre>
+ *
+ * @see LineMessagingClientPoolBuilder
+ */
+public class LineMessagingClientPool implements AutoCloseable {
+    /**
+     * Default of {@link ChannelConfiguration#getMaxConcurrentRequests()}.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS_PER_CHANNEL = 8;
+
+    @Getter
+    private final ChannelRegistry channelRegistry;
+    private final String apiEndPoint;
+    private final OkHttpClient okHttpClient;
+    private final ScheduledThreadPoolExecutor limiterTimer;
+    private final ConcurrentMap<String, LineMessagingClient> clients = new ConcurrentHashMap<>();
+
+    LineMessagingClientPool(final ChannelRegistry channelRegistry, final String apiEndPoint,
+                            final OkHttpClient okHttpClient) {
+        this.channelRegistry = channelRegistry;
+        this.apiEndPoint = apiEndPoint;
+        this.okHttpClient = okHttpClient;
+        limiterTimer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "line-bot-channel-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        limiterTimer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Create a new {@link LineMessagingClientPoolBuilder} of channels in given registry.
+     */
+    public static LineMessagingClientPoolBuilder builder(@NonNull final ChannelRegistry channelRegistry) {
+        return new LineMessagingClientPoolBuilder(channelRegistry);
+    }
+
+    /**
+     * Returns the client of given channel.
+     *
+     * <p>The client is created on the first call, and cached until {@link #invalidate(String)}.
+     *
+     * @throws IllegalArgumentException if the channel isn't in the registry.
+     */
+    public LineMessagingClient get(@NonNull final String channelId) {
+        final LineMessagingClient client = clients.get(channelId);
+        if (client != null) {
+            return client;
+        }
+        return clients.computeIfAbsent(channelId, this::createClient);
+    }
+
+    /**
+     * Discard the cached client of given channel, e.g. when its configuration is changed.
+     * Requests already sent by the old client are completed as usual.
+     */
+    public void invalidate(@NonNull final String channelId) {
+        clients.remove(channelId);
+    }
+
+    /**
+     * Shut down the shared dispatcher and connection pool. Pending requests fail.
+     */
+    @Override
+    public void close() {
+        clients.clear();
+        limiterTimer.shutdownNow();
+        okHttpClient.dispatcher().executorService().shutdown();
+        okHttpClient.connectionPool().evictAll();
+    }
+
+    private LineMessagingClient createClient(final String channelId) {
+        final ChannelConfiguration channel = channelRegistry.findById(channelId).orElseThrow(
+                () -> new IllegalArgumentException("Unknown channel: " + channelId));
+
+        final OkHttpClient channelClient =
+                okHttpClient.newBuilder()
+                            .addInterceptor(LineMessagingClientBuilder.buildAuthenticationInterceptor(
+                                    channel.getChannelTokenSupplier()))
+                            .addInterceptor(LineMessagingClientBuilder.buildLoggingInterceptor())
+                            .build();
+        final ChannelCallLimiter limiter =
+                new ChannelCallLimiter(channelClient, channel.getRequestsPerSecond(),
+                                       channel.getMaxConcurrentRequests(), limiterTimer);
+
+        final Retrofit retrofit = LineMessagingClientBuilder.createDefaultRetrofitBuilder()
+                                                            .callFactory(limiter)
+                                                            .baseUrl(apiEndPoint)
+                                                            .build();
+        return new LineMessagingClientImpl(retrofit.create(LineMessagingService.class));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.util.concurrent.TimeUnit;
+
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+@ToString
+@Accessors(fluent = true)
+public class LineMessagingClientPoolBuilder {
+    private final ChannelRegistry channelRegistry;
+
+    /**
+     * Use {@link LineMessagingClientPool#builder(ChannelRegistry)} to create instance.
+     */
+    LineMessagingClientPoolBuilder(final ChannelRegistry channelRegistry) {
+        this.channelRegistry = channelRegistry;
+    }
+
+    /**
+     * API Endpoint.
+     *
+     * <p>Default value = {@value LineClientConstants#DEFAULT_API_END_POINT}.
+     */
+    @Setter
+    private String apiEndPoint = LineClientConstants.DEFAULT_API_END_POINT;
+
+    /**
+     * Connection timeout.
+     *
+     * <p>Default value = {@value LineClientConstants#DEFAULT_CONNECT_TIMEOUT_MILLIS}ms.
+     */
+    @Setter
+    private long connectTimeout = LineClientConstants.DEFAULT_CONNECT_TIMEOUT_MILLIS;
+
+    /**
+     * Read timeout.
+     *
+     * <p>Default value = {@value LineClientConstants#DEFAULT_READ_TIMEOUT_MILLIS}ms.
+     */
+    @Setter
+    private long readTimeout = LineClientConstants.DEFAULT_READ_TIMEOUT_MILLIS;
+
+    /**
+     * Write timeout.
+     *
+     * <p>Default value = {@value LineClientConstants#DEFAULT_WRITE_TIMEOUT_MILLIS}ms.
+     */
+    @Setter
+    private long writeTimeout = LineClientConstants.DEFAULT_WRITE_TIMEOUT_MILLIS;
+
+    /**
+     * Maximum number of API requests in flight of all channels.
+     *
+     * <p>Default value = {@code 256}.
+     */
+    @Setter
+    private int maxRequests = 256;
+
+    /**
+     * Creates a new {@link LineMessagingClientPool}.
+     */
+    public LineMessagingClientPool build() {
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        // All channels call the same host.
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+
+        final OkHttpClient okHttpClient =
+                new OkHttpClient.Builder()
+                        .dispatcher(dispatcher)
+                        .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                        .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                        .writeTimeout(writeTimeout, TimeUnit.MILLISECONDS)
+                        .build();
+        return new LineMessagingClientPool(channelRegistry, apiEndPoint, okHttpClient);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import com.linecorp.bot.model.objectmapper.ModelCodecRegistry;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Retrofit {@link Converter.Factory} backed by the shared {@link ModelCodecRegistry}.
+ *
+ * <p>Same behavior as {@code JacksonConverterFactory}, but every client in the process shares readers and
+ * writers instead of having its own {@code ObjectMapper}.
+ *
+ * <p>If {@code streaming} is enabled, request bodies are {@link StreamingJsonRequestBody}, which serializes
+ * directly into the socket. Otherwise values are serialized into {@code byte[]} first.
+ */
+class ModelCodecConverterFactory extends Converter.Factory {
+    static final MediaType MEDIA_TYPE = MediaType.get("application/json; charset=UTF-8");
+
+    private final ModelCodecRegistry registry;
+    private final boolean streaming;
+
+    ModelCodecConverterFactory(final ModelCodecRegistry registry, final boolean streaming) {
+        this.registry = registry;
+        this.streaming = streaming;
+    }
+
+    static ModelCodecConverterFactory create() {
+        return create(false);
+    }
+
+    static ModelCodecConverterFactory create(final boolean streaming) {
+        return new ModelCodecConverterFactory(ModelCodecRegistry.getInstance(), streaming);
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(
+            final Type type, final Annotation[] annotations, final Retrofit retrofit) {
+        final ObjectReader reader = registry.readerFor(type);
+        return value -> {
+            try {
+                return reader.readValue(value.charStream());
+            } finally {
+                value.close();
+            }
+        };
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(
+            final Type type, final Annotation[] parameterAnnotations, final Annotation[] methodAnnotations,
+            final Retrofit retrofit) {
+        final ObjectWriter writer = registry.writerFor(type);
+        if (streaming) {
+            final ObjectWriter streamingWriter = writer.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            return value -> new StreamingJsonRequestBody(streamingWriter, value);
+        }
+        return value -> RequestBody.create(MEDIA_TYPE, writer.writeValueAsBytes(value));
+    }
+}
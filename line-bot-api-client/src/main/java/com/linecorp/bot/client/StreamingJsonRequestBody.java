@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import lombok.AllArgsConstructor;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * {@link RequestBody} which serializes the value into the socket sink while the request is being written.
+ *
+ * <p>No intermediate {@code byte[]} is created, so peak memory of a huge {@code Multicast} or flex message
+ * doesn't double. Content length is unknown (it costs a full serialization), so the request is sent with
+ * chunked transfer encoding. The value is serialized again on every {@link #writeTo(BufferedSink)}, e.g.
+ * on retry.
+ */
+@AllArgsConstructor
+class StreamingJsonRequestBody extends RequestBody {
+    /**
+     * Writer which doesn't close the target, i.e. the sink owned by OkHttp.
+     */
+    private final ObjectWriter writer;
+    private final Object value;
+
+    @Override
+    public MediaType contentType() {
+        return ModelCodecConverterFactory.MEDIA_TYPE;
+    }
+
+    @Override
+    public long contentLength() {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(final BufferedSink sink) throws IOException {
+        writer.writeValue(sink.outputStream(), value);
+    }
+}
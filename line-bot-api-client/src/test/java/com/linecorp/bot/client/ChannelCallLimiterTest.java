@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class ChannelCallLimiterTest {
+    private final CountDownLatch busyLatch = new CountDownLatch(1);
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final OkHttpClient okHttpClient = new OkHttpClient();
+    private MockWebServer mockWebServer;
+    private ChannelCallLimiter target;
+
+    @Before
+    public void setUp() throws Exception {
+        mockWebServer = new MockWebServer();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(final RecordedRequest request) throws InterruptedException {
+                if ("/busy".equals(request.getPath())) {
+                    busyLatch.await();
+                }
+                return new MockResponse().setBody("{}");
+            }
+        });
+        mockWebServer.start();
+        target = new ChannelCallLimiter(okHttpClient, 0, 1, timer);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        busyLatch.countDown();
+        timer.shutdownNow();
+        okHttpClient.dispatcher().executorService().shutdown();
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    public void interruptedExecuteReleasesSlot() throws Exception {
+        final CompletableFuture<Response> busy = new CompletableFuture<>();
+        target.newCall(request("/busy")).enqueue(new Callback() {
+            @Override
+            public void onFailure(final Call call, final IOException e) {
+                busy.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(final Call call, final Response response) {
+                busy.complete(response);
+            }
+        });
+
+        // Waits in the queue for the busy call.
+        final AtomicReference<Throwable> thrown = new AtomicReference<>();
+        final Thread thread = new Thread(() -> {
+            try {
+                target.newCall(request("/queued")).execute().close();
+            } catch (IOException e) {
+                thrown.set(e);
+            }
+        });
+        thread.start();
+        while (target.getQueuedCount() == 0) {
+            Thread.sleep(10);
+        }
+        thread.interrupt();
+        thread.join(SECONDS.toMillis(1));
+        assertThat(thrown.get()).isInstanceOf(InterruptedIOException.class);
+        assertThat(target.getQueuedCount()).isZero();
+
+        busyLatch.countDown();
+        busy.get(1, SECONDS).close();
+
+        // The only slot is available again.
+        final CompletableFuture<Integer> later = CompletableFuture.supplyAsync(() -> {
+            try (Response response = target.newCall(request("/later")).execute()) {
+                return response.code();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(later.get(1, SECONDS)).isEqualTo(200);
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+    }
+
+    private Request request(final String path) {
+        return new Request.Builder().url(mockWebServer.url(path)).build();
+    }
+}
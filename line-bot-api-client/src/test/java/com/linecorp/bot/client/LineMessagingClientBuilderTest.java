@@ -19,11 +19,33 @@ package com.linecorp.bot.client;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.util.Arrays;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.action.MessageAction;
+import com.linecorp.bot.model.action.PostbackAction;
+import com.linecorp.bot.model.action.URIAction;
+import com.linecorp.bot.model.message.FlexMessage;
+import com.linecorp.bot.model.message.TemplateMessage;
+import com.linecorp.bot.model.message.TextMessage;
+import com.linecorp.bot.model.message.flex.component.Box;
+import com.linecorp.bot.model.message.flex.component.Button;
+import com.linecorp.bot.model.message.flex.component.Text;
+import com.linecorp.bot.model.message.flex.container.Bubble;
+import com.linecorp.bot.model.message.flex.container.Carousel;
+import com.linecorp.bot.model.message.flex.unit.FlexFontSize;
+import com.linecorp.bot.model.message.flex.unit.FlexLayout;
+import com.linecorp.bot.model.message.flex.unit.FlexMarginSize;
+import com.linecorp.bot.model.message.template.ConfirmTemplate;
+import com.linecorp.bot.model.objectmapper.ModelCodecRegistry;
+import com.linecorp.bot.model.objectmapper.ModelObjectMapper;
+
+import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.RecordedRequest;
 
 public class LineMessagingClientBuilderTest extends AbstractWiremockTest {
@@ -70,4 +92,62 @@ public class LineMessagingClientBuilderTest extends AbstractWiremockTest {
           .hasMessageContaining("channelTokenSupplier");
     }
 
+    @Test
+    public void testStreamingRequestBody() throws Exception {
+        lineMessagingClient = new LineMessagingClientBuilder()
+                .channelToken("MOCKED_TOKEN")
+                .apiEndPoint("http://localhost:" + mockWebServer.getPort())
+                .streamingRequestBody(true)
+                .build();
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+        final PushMessage pushMessage = new PushMessage("TO", new TextMessage("hello"));
+
+        // Do
+        lineMessagingClient.pushMessage(pushMessage).get();
+
+        // Verify
+        final RecordedRequest recordedRequest = mockWebServer.takeRequest();
+        assertThat(recordedRequest.getHeader("Transfer-Encoding"))
+                .isEqualTo("chunked");
+        assertThat(recordedRequest.getHeader("Content-Type"))
+                .isEqualTo("application/json; charset=UTF-8");
+        assertThat(recordedRequest.getBody().readUtf8())
+                .isEqualTo(ModelObjectMapper.createNewObjectMapper().writeValueAsString(pushMessage));
+    }
+
+    @Test
+    public void testSharedCodecSerializesSameAsModelObjectMapper() throws Exception {
+        final Bubble bubble = Bubble
+                .builder()
+                .body(Box.builder()
+                         .layout(FlexLayout.VERTICAL)
+                         .spacing(FlexMarginSize.SM)
+                         .contents(Arrays.asList(
+                                 Text.builder()
+                                     .text("Brown Cafe")
+                                     .size(FlexFontSize.XL)
+                                     .weight(Text.TextWeight.BOLD)
+                                     .build(),
+                                 Button.builder()
+                                       .style(Button.ButtonStyle.LINK)
+                                       .action(new URIAction("CALL", "tel:000000", null))
+                                       .build()))
+                         .build())
+                .build();
+        final PushMessage pushMessage = new PushMessage("TO", Arrays.asList(
+                new TextMessage("hello"),
+                new TemplateMessage("confirm", new ConfirmTemplate("Do it?",
+                                                                   new MessageAction("Yes", "Yes!"),
+                                                                   new PostbackAction("No", "no"))),
+                new FlexMessage("carousel", new Carousel(Arrays.asList(bubble, bubble)))));
+
+        // Do
+        final String actual = ModelCodecRegistry.getInstance()
+                                                .writerFor(PushMessage.class)
+                                                .writeValueAsString(pushMessage);
+
+        // Verify
+        assertThat(actual)
+                .isEqualTo(ModelObjectMapper.createNewObjectMapper().writeValueAsString(pushMessage));
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.message.TextMessage;
+import com.linecorp.bot.model.response.BotApiResponse;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class LineMessagingClientPoolTest {
+    private static final PushMessage PUSH_MESSAGE = new PushMessage("userId", new TextMessage("text"));
+
+    private final CountDownLatch busyLatch = new CountDownLatch(1);
+    private MockWebServer mockWebServer;
+    private LineMessagingClientPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        mockWebServer = new MockWebServer();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(final RecordedRequest request) throws InterruptedException {
+                if ("Bearer busy".equals(request.getHeader("Authorization"))) {
+                    busyLatch.await();
+                }
+                return new MockResponse().setBody("{}");
+            }
+        });
+        mockWebServer.start();
+
+        final ChannelRegistry channelRegistry = ChannelRegistry.of(Arrays.asList(
+                ChannelConfiguration.builder().channelId("1").channelSecret("secret").channelToken("token1")
+                                    .build(),
+                ChannelConfiguration.builder().channelId("2").channelSecret("secret").channelToken("token2")
+                                    .requestsPerSecond(2)
+                                    .build(),
+                ChannelConfiguration.builder().channelId("busy").channelSecret("secret").channelToken("busy")
+                                    .maxConcurrentRequests(1)
+                                    .build()));
+        pool = LineMessagingClientPool.builder(channelRegistry)
+                                      .apiEndPoint("http://localhost:" + mockWebServer.getPort())
+                                      .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        busyLatch.countDown();
+        pool.close();
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    public void channelToken() throws Exception {
+        assertThat(pool.get("1")).isSameAs(pool.get("1"));
+
+        pool.get("1").pushMessage(PUSH_MESSAGE).get(1, SECONDS);
+        assertThat(mockWebServer.takeRequest().getHeader("Authorization")).isEqualTo("Bearer token1");
+
+        pool.get("2").pushMessage(PUSH_MESSAGE).get(1, SECONDS);
+        assertThat(mockWebServer.takeRequest().getHeader("Authorization")).isEqualTo("Bearer token2");
+    }
+
+    @Test
+    public void unknownChannel() {
+        assertThatThrownBy(() -> pool.get("unknown"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void busyChannelDoesNotBlockOthers() throws Exception {
+        final CompletableFuture<BotApiResponse> busy1 = pool.get("busy").pushMessage(PUSH_MESSAGE);
+        final CompletableFuture<BotApiResponse> busy2 = pool.get("busy").pushMessage(PUSH_MESSAGE);
+
+        pool.get("1").pushMessage(PUSH_MESSAGE).get(1, SECONDS);
+        // The 2nd request of the busy channel waits for the 1st one.
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+        assertThat(busy2).isNotDone();
+
+        busyLatch.countDown();
+        busy1.get(1, SECONDS);
+        busy2.get(1, SECONDS);
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void requestsPerSecond() throws Exception {
+        final long start = System.nanoTime();
+        CompletableFuture.allOf(pool.get("2").pushMessage(PUSH_MESSAGE),
+                                pool.get("2").pushMessage(PUSH_MESSAGE),
+                                pool.get("2").pushMessage(PUSH_MESSAGE))
+                         .get(2, SECONDS);
+
+        // 2 requests in a burst, and the 3rd after 500ms.
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(SECONDS.toNanos(1) * 4 / 10);
+    }
+
+    @Test
+    public void duplicateChannel() {
+        final ChannelConfiguration channel =
+                ChannelConfiguration.builder().channelId("1").channelSecret("secret").channelToken("token")
+                                    .build();
+        assertThatThrownBy(() -> ChannelRegistry.of(Arrays.asList(channel, channel)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.message;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import com.linecorp.bot.model.ReplyMessage;
+import com.linecorp.bot.model.message.flex.component.Box;
+import com.linecorp.bot.model.message.flex.component.FlexComponent;
+import com.linecorp.bot.model.message.flex.component.Text;
+import com.linecorp.bot.model.message.flex.container.Bubble;
+import com.linecorp.bot.model.message.flex.container.Carousel;
+import com.linecorp.bot.model.message.flex.unit.FlexLayout;
+import com.linecorp.bot.model.objectmapper.ModelCodecRegistry;
+
+/**
+ * Compares serializing a reply of a 10 bubble carousel with replying with a {@link PreparedMessage}
+ * or a message looked up from {@link PreparedMessageCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreparedMessageBenchmark {
+    private ObjectWriter writer;
+    private FlexMessage message;
+    private PreparedMessage preparedMessage;
+    private PreparedMessageCache cache;
+
+    @Setup
+    public void setUp() {
+        final List<Bubble> bubbles = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            final List<FlexComponent> contents = new ArrayList<>();
+            for (int j = 0; j < 5; ++j) {
+                contents.add(Text.builder().text("Item " + i + '-' + j).wrap(true).build());
+            }
+            bubbles.add(Bubble.builder()
+                              .body(Box.builder().layout(FlexLayout.VERTICAL).contents(contents).build())
+                              .build());
+        }
+        message = new FlexMessage("menu", new Carousel(bubbles));
+
+        writer = ModelCodecRegistry.getInstance().writerFor(ReplyMessage.class);
+        preparedMessage = PreparedMessage.of(message);
+        cache = new PreparedMessageCache(16);
+    }
+
+    @Benchmark
+    public byte[] message() throws IOException {
+        return writer.writeValueAsBytes(new ReplyMessage("token", Collections.singletonList(message)));
+    }
+
+    @Benchmark
+    public byte[] preparedMessage() throws IOException {
+        return writer.writeValueAsBytes(new ReplyMessage("token",
+                                                         Collections.singletonList(preparedMessage)));
+    }
+
+    @Benchmark
+    public byte[] cachedPreparedMessage() throws IOException {
+        return writer.writeValueAsBytes(new ReplyMessage("token",
+                                                         Collections.singletonList(cache.get(message))));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.objectmapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import com.linecorp.bot.model.event.CallbackRequest;
+
+/**
+ * Compares reflective bean deserializers with {@link EventModule} on a typical webhook payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDeserializeBenchmark {
+    private static final String EVENT =
+            "{\"replyToken\":\"nHuyWiB7yP5Zw52FIkcQobQuGDXCTA\",\"type\":\"message\","
+            + "\"timestamp\":1462629479859,"
+            + "\"source\":{\"type\":\"group\",\"groupId\":\"C1234567890\",\"userId\":\"U1234567890\"},"
+            + "\"message\":{\"id\":\"325708\",\"type\":\"text\",\"text\":\"Hello, world\"}}";
+
+    private byte[] payload;
+    private ObjectReader defaultReader;
+    private ObjectReader eventModuleReader;
+
+    @Setup
+    public void setUp() {
+        final StringBuilder sb = new StringBuilder("{\"destination\":\"Uab012345678901234567890123456789\","
+                                                   + "\"events\":[");
+        for (int i = 0; i < 10; ++i) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(EVENT);
+        }
+        sb.append("]}");
+        payload = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        defaultReader = ModelObjectMapper.createNewObjectMapper()
+                                         .readerFor(CallbackRequest.class);
+        eventModuleReader = ModelObjectMapper.registerEventModule(ModelObjectMapper.createNewObjectMapper())
+                                             .readerFor(CallbackRequest.class);
+    }
+
+    @Benchmark
+    public CallbackRequest defaultDeserializer() throws IOException {
+        return defaultReader.readValue(payload);
+    }
+
+    @Benchmark
+    public CallbackRequest eventModule() throws IOException {
+        return eventModuleReader.readValue(payload);
+    }
+}
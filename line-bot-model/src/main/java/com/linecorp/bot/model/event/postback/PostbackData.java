@@ -0,0 +1,146 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.event.postback;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.EqualsAndHashCode;
+
+/**
+ * {@link PostbackContent#getData() Postback data} parsed as a query string, e.g.
+ * {@code action=buy&itemId=123}.
+ *
+ * <p>Parsing scans the data once without regular expressions. Names and values are percent-decoded only
+ * if they contain {@code %} or {@code +}. If a name appears more than once, {@link #get(String)} returns
+ * the first value.
+ */
+@EqualsAndHashCode
+public final class PostbackData {
+    private static final PostbackData EMPTY = new PostbackData(new String[0], new String[0]);
+
+    private final String[] names;
+
+    /**
+     * Values of {@link #names}. Empty string for a name without {@code =}.
+     */
+    private final String[] values;
+
+    private PostbackData(final String[] names, final String[] values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    /**
+     * Parse given postback data. Empty for {@code null}.
+     */
+    public static PostbackData parse(final String data) {
+        if (data == null || data.isEmpty()) {
+            return EMPTY;
+        }
+
+        int count = 1;
+        for (int i = 0; i < data.length(); ++i) {
+            if (data.charAt(i) == '&') {
+                ++count;
+            }
+        }
+
+        final String[] names = new String[count];
+        final String[] values = new String[count];
+        int size = 0;
+        int start = 0;
+        while (start <= data.length()) {
+            int end = data.indexOf('&', start);
+            if (end < 0) {
+                end = data.length();
+            }
+            if (end > start) {
+                final int separator = data.indexOf('=', start);
+                if (separator >= 0 && separator < end) {
+                    names[size] = decode(data.substring(start, separator));
+                    values[size] = decode(data.substring(separator + 1, end));
+                } else {
+                    names[size] = decode(data.substring(start, end));
+                    values[size] = "";
+                }
+                ++size;
+            }
+            start = end + 1;
+        }
+
+        return size == count ? new PostbackData(names, values)
+                             : new PostbackData(Arrays.copyOf(names, size), Arrays.copyOf(values, size));
+    }
+
+    private static String decode(final String component) {
+        if (component.indexOf('%') < 0 && component.indexOf('+') < 0) {
+            return component;
+        }
+        try {
+            return URLDecoder.decode(component, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            // Not encoded by the bot. Use as is.
+            return component;
+        }
+    }
+
+    /**
+     * Returns the first value of given name. {@code null} if the name doesn't exist.
+     */
+    public String get(final String name) {
+        for (int i = 0; i < names.length; ++i) {
+            if (names[i].equals(name)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns {@code true} if given name exists.
+     */
+    public boolean has(final String name) {
+        return get(name) != null;
+    }
+
+    /**
+     * Returns number of name value pairs.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns name value pairs in order. The first value wins if a name appears more than once.
+     */
+    public Map<String, String> toMap() {
+        final Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; ++i) {
+            map.putIfAbsent(names[i], values[i]);
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "PostbackData" + toMap();
+    }
+}
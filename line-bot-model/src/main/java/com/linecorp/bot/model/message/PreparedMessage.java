@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.message;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import com.linecorp.bot.model.message.quickreply.QuickReply;
+import com.linecorp.bot.model.objectmapper.ModelCodecRegistry;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * {@link Message} serialized into JSON in advance.
+ *
+ * <p>Use it for messages sent again and again, e.g. welcome messages, menus and canned answers.
+ * It can be used anywhere a {@link Message} is accepted, e.g. {@code ReplyMessage}, {@code PushMessage}
+ * and {@code Multicast}. Its JSON is copied into the request as is, so only the reply token or recipients
+ * are serialized for each request.
+ *
+ * <pre>{@code
+ * private static final PreparedMessage WELCOME = PreparedMessage.of(createWelcomeFlexMessage());
+ *
+ * client.replyMessage(new ReplyMessage(replyToken, WELCOME));
+ * }</pre>
+ *
+ * <p>Serialization only. Deserialized messages are always one of the concrete types.
+ *
+ * @see PreparedMessageCache
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@JsonSerialize(using = PreparedMessage.Serializer.class)
+public class PreparedMessage implements Message {
+    /**
+     * Original message.
+     */
+    private final Message message;
+
+    /**
+     * JSON of {@link #message}, including {@code type} property.
+     */
+    private final SerializedString json;
+
+    /**
+     * Serialize given message into JSON.
+     *
+     * <p>Returns given message as is if it's already a {@link PreparedMessage}.
+     */
+    public static PreparedMessage of(@NonNull final Message message) {
+        if (message instanceof PreparedMessage) {
+            return (PreparedMessage) message;
+        }
+        try {
+            final String json = ModelCodecRegistry.getInstance()
+                                                  .writerFor(Message.class)
+                                                  .writeValueAsString(message);
+            return new PreparedMessage(message, new SerializedString(json));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Serialize each of given messages into JSON.
+     *
+     * @return Immutable list of {@link PreparedMessage}, in the same order.
+     */
+    public static List<Message> ofAll(@NonNull final List<? extends Message> messages) {
+        final List<Message> preparedMessages = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            preparedMessages.add(of(message));
+        }
+        return Collections.unmodifiableList(preparedMessages);
+    }
+
+    @Override
+    public QuickReply getQuickReply() {
+        return message.getQuickReply();
+    }
+
+    static class Serializer extends StdSerializer<PreparedMessage> {
+        private static final long serialVersionUID = 1L;
+
+        Serializer() {
+            super(PreparedMessage.class);
+        }
+
+        @Override
+        public void serialize(final PreparedMessage value, final JsonGenerator gen,
+                              final SerializerProvider provider) throws IOException {
+            // UTF-8 bytes are cached in SerializedString after first use.
+            gen.writeRawValue(value.getJson());
+        }
+
+        @Override
+        public void serializeWithType(final PreparedMessage value, final JsonGenerator gen,
+                                      final SerializerProvider provider, final TypeSerializer typeSer)
+                throws IOException {
+            // Type id is already included in the JSON.
+            serialize(value, gen, provider);
+        }
+    }
+}
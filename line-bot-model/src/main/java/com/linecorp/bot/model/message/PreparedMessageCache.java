@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.NonNull;
+
+/**
+ * Bounded LRU cache of {@link PreparedMessage}.
+ *
+ * <p>Use it when same messages are rebuilt for each request, e.g. created from templates. Messages are
+ * looked up by {@link Object#equals(Object)}, which is cheaper than serializing them again. If you can
+ * hold the message itself, use {@link PreparedMessage#of(Message)} directly instead.
+ *
+ * <p>This class is thread safe.
+ */
+public class PreparedMessageCache {
+    private final Map<Message, PreparedMessage> cache;
+
+    /**
+     * Create new instance.
+     *
+     * @param maxSize Maximum number of messages to keep. Least recently used one is evicted first.
+     */
+    public PreparedMessageCache(final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        cache = new LinkedHashMap<Message, PreparedMessage>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Message, PreparedMessage> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns cached {@link PreparedMessage} of given message, serializing it on cache miss.
+     */
+    public PreparedMessage get(@NonNull final Message message) {
+        if (message instanceof PreparedMessage) {
+            return (PreparedMessage) message;
+        }
+        synchronized (cache) {
+            final PreparedMessage cached = cache.get(message);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // Serialize outside of lock. Concurrent misses of same message may serialize it twice.
+        final PreparedMessage preparedMessage = PreparedMessage.of(message);
+        synchronized (cache) {
+            cache.put(message, preparedMessage);
+        }
+        return preparedMessage;
+    }
+
+    /**
+     * Returns cached {@link PreparedMessage}s of given messages.
+     *
+     * @return Immutable list of {@link PreparedMessage}, in the same order.
+     */
+    public List<Message> getAll(@NonNull final List<? extends Message> messages) {
+        final List<Message> preparedMessages = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            preparedMessages.add(get(message));
+        }
+        return Collections.unmodifiableList(preparedMessages);
+    }
+
+    /**
+     * Returns number of cached messages.
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+}
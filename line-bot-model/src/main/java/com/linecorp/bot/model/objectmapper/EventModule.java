@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.objectmapper;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import com.linecorp.bot.model.event.CallbackRequest;
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.message.MessageContent;
+import com.linecorp.bot.model.event.source.Source;
+
+/**
+ * Jackson module which reads webhook payloads ({@link CallbackRequest}, {@link Event}, {@link MessageContent}
+ * and {@link Source}) without reflection.
+ *
+ * <p>Default bean deserializers buffer tokens until the {@code type} property is found and call
+ * {@code @JsonCreator} constructors reflectively. Deserializers in this module read the payload in one pass
+ * and call constructors directly. Timestamps are read as epoch milliseconds without {@code JavaTimeModule}.
+ *
+ * @see ModelObjectMapper#registerEventModule(com.fasterxml.jackson.databind.ObjectMapper)
+ */
+public class EventModule extends SimpleModule {
+    private static final long serialVersionUID = 1L;
+
+    public EventModule() {
+        super(EventModule.class.getSimpleName());
+
+        addDeserializer(CallbackRequest.class, new CallbackRequestDeserializer());
+        addDeserializer(Event.class, new EventDeserializer());
+        addDeserializer(MessageContent.class, new MessageContentDeserializer());
+        addDeserializer(Source.class, new SourceDeserializer());
+    }
+
+    static class CallbackRequestDeserializer extends StdDeserializer<CallbackRequest> {
+        private static final long serialVersionUID = 1L;
+
+        CallbackRequestDeserializer() {
+            super(CallbackRequest.class);
+        }
+
+        @Override
+        public CallbackRequest deserialize(final JsonParser p, final DeserializationContext ctxt)
+                throws IOException {
+            return EventReader.readCallbackRequest(p);
+        }
+    }
+
+    static class EventDeserializer extends StdDeserializer<Event> {
+        private static final long serialVersionUID = 1L;
+
+        EventDeserializer() {
+            super(Event.class);
+        }
+
+        @Override
+        public Event deserialize(final JsonParser p, final DeserializationContext ctxt) throws IOException {
+            return EventReader.readEvent(p);
+        }
+
+        @Override
+        public Object deserializeWithType(final JsonParser p, final DeserializationContext ctxt,
+                                          final TypeDeserializer typeDeserializer) throws IOException {
+            // Type id is resolved by EventReader itself. Don't let Jackson buffer the object.
+            return deserialize(p, ctxt);
+        }
+    }
+
+    static class MessageContentDeserializer extends StdDeserializer<MessageContent> {
+        private static final long serialVersionUID = 1L;
+
+        MessageContentDeserializer() {
+            super(MessageContent.class);
+        }
+
+        @Override
+        public MessageContent deserialize(final JsonParser p, final DeserializationContext ctxt)
+                throws IOException {
+            return EventReader.readMessageContent(p);
+        }
+
+        @Override
+        public Object deserializeWithType(final JsonParser p, final DeserializationContext ctxt,
+                                          final TypeDeserializer typeDeserializer) throws IOException {
+            return deserialize(p, ctxt);
+        }
+    }
+
+    static class SourceDeserializer extends StdDeserializer<Source> {
+        private static final long serialVersionUID = 1L;
+
+        SourceDeserializer() {
+            super(Source.class);
+        }
+
+        @Override
+        public Source deserialize(final JsonParser p, final DeserializationContext ctxt) throws IOException {
+            return EventReader.readSource(p);
+        }
+
+        @Override
+        public Object deserializeWithType(final JsonParser p, final DeserializationContext ctxt,
+                                          final TypeDeserializer typeDeserializer) throws IOException {
+            return deserialize(p, ctxt);
+        }
+    }
+}
@@ -0,0 +1,572 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.objectmapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+import com.linecorp.bot.model.event.AccountLinkEvent;
+import com.linecorp.bot.model.event.BeaconEvent;
+import com.linecorp.bot.model.event.CallbackRequest;
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.FollowEvent;
+import com.linecorp.bot.model.event.JoinEvent;
+import com.linecorp.bot.model.event.LeaveEvent;
+import com.linecorp.bot.model.event.MemberJoinedEvent;
+import com.linecorp.bot.model.event.MemberJoinedEvent.JoinedMembers;
+import com.linecorp.bot.model.event.MemberLeftEvent;
+import com.linecorp.bot.model.event.MemberLeftEvent.LeftMembers;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.PostbackEvent;
+import com.linecorp.bot.model.event.ThingsEvent;
+import com.linecorp.bot.model.event.UnfollowEvent;
+import com.linecorp.bot.model.event.UnknownEvent;
+import com.linecorp.bot.model.event.beacon.BeaconContent;
+import com.linecorp.bot.model.event.link.LinkContent;
+import com.linecorp.bot.model.event.message.AudioMessageContent;
+import com.linecorp.bot.model.event.message.ContentProvider;
+import com.linecorp.bot.model.event.message.FileMessageContent;
+import com.linecorp.bot.model.event.message.ImageMessageContent;
+import com.linecorp.bot.model.event.message.LocationMessageContent;
+import com.linecorp.bot.model.event.message.MessageContent;
+import com.linecorp.bot.model.event.message.StickerMessageContent;
+import com.linecorp.bot.model.event.message.TextMessageContent;
+import com.linecorp.bot.model.event.message.UnknownMessageContent;
+import com.linecorp.bot.model.event.message.VideoMessageContent;
+import com.linecorp.bot.model.event.postback.PostbackContent;
+import com.linecorp.bot.model.event.source.GroupSource;
+import com.linecorp.bot.model.event.source.RoomSource;
+import com.linecorp.bot.model.event.source.Source;
+import com.linecorp.bot.model.event.source.UnknownSource;
+import com.linecorp.bot.model.event.source.UserSource;
+import com.linecorp.bot.model.event.things.ThingsContent;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Streaming reader for webhook payloads.
+ *
+ * <p>Every polymorphic object ({@link Event}, {@link MessageContent} and {@link Source}) is read in a single
+ * pass: all known properties are collected into locals and the concrete class is chosen by {@code type}
+ * after the closing brace. So the position of {@code type} in the object doesn't matter and no token is
+ * buffered. Unknown properties are skipped.
+ *
+ * <p>Every method expects the parser to be positioned on the first token of the value.
+ *
+ * @see EventModule
+ */
+@UtilityClass
+class EventReader {
+    CallbackRequest readCallbackRequest(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        String destination = null;
+        List<Event> events = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            switch (name) {
+                case "destination":
+                    destination = readText(p);
+                    break;
+                case "events":
+                    events = readEvents(p);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return new CallbackRequest(events, destination);
+    }
+
+    private List<Event> readEvents(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        expectStartArray(p);
+
+        final List<Event> events = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            events.add(readEvent(p));
+        }
+        return events;
+    }
+
+    Event readEvent(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        String type = null;
+        String replyToken = null;
+        Source source = null;
+        Instant timestamp = null;
+        MessageContent message = null;
+        PostbackContent postback = null;
+        BeaconContent beacon = null;
+        LinkContent link = null;
+        ThingsContent things = null;
+        List<Source> joined = null;
+        List<Source> left = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            switch (name) {
+                case "type":
+                    type = readText(p);
+                    break;
+                case "replyToken":
+                    replyToken = readText(p);
+                    break;
+                case "source":
+                    source = readSource(p);
+                    break;
+                case "timestamp":
+                    timestamp = readInstant(p);
+                    break;
+                case "message":
+                    message = readMessageContent(p);
+                    break;
+                case "postback":
+                    postback = readPostbackContent(p);
+                    break;
+                case "beacon":
+                    beacon = readBeaconContent(p);
+                    break;
+                case "link":
+                    link = readLinkContent(p);
+                    break;
+                case "things":
+                    things = readThingsContent(p);
+                    break;
+                case "joined":
+                    joined = readMembers(p);
+                    break;
+                case "left":
+                    left = readMembers(p);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+
+        if (type == null) {
+            return new UnknownEvent(null, source, timestamp);
+        }
+        switch (type) {
+            case "message":
+                return new MessageEvent<>(replyToken, source, message, timestamp);
+            case "unfollow":
+                return new UnfollowEvent(source, timestamp);
+            case "follow":
+                return new FollowEvent(replyToken, source, timestamp);
+            case "join":
+                return new JoinEvent(replyToken, source, timestamp);
+            case "leave":
+                return new LeaveEvent(source, timestamp);
+            case "postback":
+                return new PostbackEvent(replyToken, source, postback, timestamp);
+            case "beacon":
+                return new BeaconEvent(replyToken, source, timestamp, beacon);
+            case "accountLink":
+                return new AccountLinkEvent(replyToken, source, timestamp, link);
+            case "things":
+                return new ThingsEvent(replyToken, source, things, timestamp);
+            case "memberJoined":
+                return new MemberJoinedEvent(replyToken, source,
+                                             joined == null ? null : new JoinedMembers(joined),
+                                             timestamp);
+            case "memberLeft":
+                return new MemberLeftEvent(source,
+                                           left == null ? null : new LeftMembers(left),
+                                           timestamp);
+            default:
+                return new UnknownEvent(type, source, timestamp);
+        }
+    }
+
+    MessageContent readMessageContent(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        String type = null;
+        String id = null;
+        String text = null;
+        ContentProvider contentProvider = null;
+        Integer duration = null;
+        String fileName = null;
+        int fileSize = 0;
+        String title = null;
+        String address = null;
+        double latitude = 0;
+        double longitude = 0;
+        String packageId = null;
+        String stickerId = null;
+        String url = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            switch (name) {
+                case "type":
+                    type = readText(p);
+                    break;
+                case "id":
+                    id = readText(p);
+                    break;
+                case "text":
+                    text = readText(p);
+                    break;
+                case "contentProvider":
+                    contentProvider = readContentProvider(p);
+                    break;
+                case "duration":
+                    duration = p.getCurrentToken() == JsonToken.VALUE_NULL ? null : p.getValueAsInt();
+                    break;
+                case "fileName":
+                    fileName = readText(p);
+                    break;
+                case "fileSize":
+                    fileSize = p.getValueAsInt();
+                    break;
+                case "title":
+                    title = readText(p);
+                    break;
+                case "address":
+                    address = readText(p);
+                    break;
+                case "latitude":
+                    latitude = p.getValueAsDouble();
+                    break;
+                case "longitude":
+                    longitude = p.getValueAsDouble();
+                    break;
+                case "packageId":
+                    packageId = readText(p);
+                    break;
+                case "stickerId":
+                    stickerId = readText(p);
+                    break;
+                case "url":
+                    url = readText(p);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+
+        if (type == null) {
+            return new UnknownMessageContent(id);
+        }
+        switch (type) {
+            case "text":
+                return new TextMessageContent(id, text);
+            case "image":
+                return new ImageMessageContent(id, contentProvider);
+            case "location":
+                return new LocationMessageContent(id, title, address, latitude, longitude);
+            case "audio":
+                return new AudioMessageContent(id, duration, contentProvider);
+            case "video":
+                return new VideoMessageContent(id, url, contentProvider);
+            case "sticker":
+                return new StickerMessageContent(id, packageId, stickerId);
+            case "file":
+                return new FileMessageContent(id, fileName, fileSize);
+            default:
+                return new UnknownMessageContent(id);
+        }
+    }
+
+    Source readSource(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        String type = null;
+        String userId = null;
+        String groupId = null;
+        String roomId = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            switch (name) {
+                case "type":
+                    type = readText(p);
+                    break;
+                case "userId":
+                    userId = readText(p);
+                    break;
+                case "groupId":
+                    groupId = readText(p);
+                    break;
+                case "roomId":
+                    roomId = readText(p);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+
+        if (type == null) {
+            return new UnknownSource();
+        }
+        switch (type) {
+            case "user":
+                return new UserSource(userId);
+            case "group":
+                return new GroupSource(groupId, userId);
+            case "room":
+                return new RoomSource(userId, roomId);
+            default:
+                return new UnknownSource();
+        }
+    }
+
+    private List<Source> readMembers(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        List<Source> members = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            if ("members".equals(name) && p.getCurrentToken() != JsonToken.VALUE_NULL) {
+                expectStartArray(p);
+                members = new ArrayList<>();
+                while (p.nextToken() != JsonToken.END_ARRAY) {
+                    members.add(readSource(p));
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return members;
+    }
+
+    private ContentProvider readContentProvider(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        String type = null;
+        String originalContentUrl = null;
+        String previewImageUrl = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            switch (name) {
+                case "type":
+                    type = readText(p);
+                    break;
+                case "originalContentUrl":
+                    originalContentUrl = readText(p);
+                    break;
+                case "previewImageUrl":
+                    previewImageUrl = readText(p);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return new ContentProvider(type, originalContentUrl, previewImageUrl);
+    }
+
+    private PostbackContent readPostbackContent(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        String data = null;
+        Map<String, String> params = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            if ("data".equals(name)) {
+                data = readText(p);
+            } else if ("params".equals(name) && p.getCurrentToken() != JsonToken.VALUE_NULL) {
+                params = new LinkedHashMap<>();
+                for (String key = firstFieldName(p); key != null; key = p.nextFieldName()) {
+                    p.nextToken();
+                    params.put(key, readText(p));
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new PostbackContent(data, params);
+    }
+
+    private BeaconContent readBeaconContent(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        String hwid = null;
+        String type = null;
+        String deviceMessage = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            switch (name) {
+                case "hwid":
+                    hwid = readText(p);
+                    break;
+                case "type":
+                    type = readText(p);
+                    break;
+                case "dm":
+                    deviceMessage = readText(p);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return new BeaconContent(hwid, type, deviceMessage);
+    }
+
+    private LinkContent readLinkContent(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        LinkContent.Result result = null;
+        String nonce = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            if ("result".equals(name)) {
+                result = readLinkResult(p);
+            } else if ("nonce".equals(name)) {
+                nonce = readText(p);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new LinkContent(result, nonce);
+    }
+
+    private LinkContent.Result readLinkResult(final JsonParser p) throws IOException {
+        final String value = readText(p);
+        if (value == null) {
+            return null;
+        }
+        switch (value) {
+            case "ok":
+                return LinkContent.Result.OK;
+            case "failed":
+                return LinkContent.Result.FAILED;
+            default:
+                throw JsonMappingException.from(p, "Unknown link result: " + value);
+        }
+    }
+
+    private ThingsContent readThingsContent(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        String deviceId = null;
+        ThingsContent.ThingsType type = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            if ("deviceId".equals(name)) {
+                deviceId = readText(p);
+            } else if ("type".equals(name)) {
+                type = readThingsType(p);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new ThingsContent(deviceId, type);
+    }
+
+    private ThingsContent.ThingsType readThingsType(final JsonParser p) throws IOException {
+        final String value = readText(p);
+        if (value == null) {
+            return null;
+        }
+        switch (value) {
+            case "link":
+                return ThingsContent.ThingsType.LINK;
+            case "unlink":
+                return ThingsContent.ThingsType.UNLINK;
+            default:
+                throw JsonMappingException.from(p, "Unknown things type: " + value);
+        }
+    }
+
+    /**
+     * Read epoch milliseconds as {@link Instant}.
+     *
+     * <p>Same as {@code JavaTimeModule} with {@code READ_DATE_TIMESTAMPS_AS_NANOSECONDS = false}, a decimal
+     * number is read as seconds with fraction and a string is read as ISO-8601 instant.
+     */
+    Instant readInstant(final JsonParser p) throws IOException {
+        switch (p.getCurrentToken()) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_NUMBER_INT:
+                return Instant.ofEpochMilli(p.getLongValue());
+            case VALUE_NUMBER_FLOAT:
+                final BigDecimal value = p.getDecimalValue();
+                final long seconds = value.longValue();
+                final int nanos = value.subtract(BigDecimal.valueOf(seconds)).movePointRight(9).intValue();
+                return Instant.ofEpochSecond(seconds, nanos);
+            case VALUE_STRING:
+                return Instant.parse(p.getText().trim());
+            default:
+                throw new JsonParseException(p, "Unexpected token for timestamp: " + p.getCurrentToken());
+        }
+    }
+
+    private String readText(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_STRING) {
+            return p.getText();
+        }
+        p.skipChildren();
+        return p.getValueAsString();
+    }
+
+    /**
+     * Returns the first property name of the current object, or {@code null} if it is empty. The parser may
+     * be on the {@code START_OBJECT} or, when called by Jackson mid-object, on the first {@code FIELD_NAME}.
+     */
+    private String firstFieldName(final JsonParser p) throws IOException {
+        switch (p.getCurrentToken()) {
+            case START_OBJECT:
+                return p.nextFieldName();
+            case FIELD_NAME:
+                return p.getCurrentName();
+            case END_OBJECT:
+                return null;
+            default:
+                throw new JsonParseException(p, "Expected START_OBJECT but " + p.getCurrentToken());
+        }
+    }
+
+    private void expectStartArray(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(p, "Expected START_ARRAY but " + p.getCurrentToken());
+        }
+    }
+}
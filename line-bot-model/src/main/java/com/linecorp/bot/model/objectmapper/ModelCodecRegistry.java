@@ -0,0 +1,229 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.objectmapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+import com.linecorp.bot.liff.LiffView;
+import com.linecorp.bot.liff.request.LiffAppAddRequest;
+import com.linecorp.bot.liff.response.LiffAppAddResponse;
+import com.linecorp.bot.liff.response.LiffAppsResponse;
+import com.linecorp.bot.model.Broadcast;
+import com.linecorp.bot.model.Multicast;
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.ReplyMessage;
+import com.linecorp.bot.model.action.Action;
+import com.linecorp.bot.model.error.ErrorResponse;
+import com.linecorp.bot.model.event.CallbackRequest;
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.message.MessageContent;
+import com.linecorp.bot.model.event.source.Source;
+import com.linecorp.bot.model.message.Message;
+import com.linecorp.bot.model.message.TextMessage;
+import com.linecorp.bot.model.message.flex.component.FlexComponent;
+import com.linecorp.bot.model.message.flex.container.FlexContainer;
+import com.linecorp.bot.model.message.imagemap.ImagemapAction;
+import com.linecorp.bot.model.message.template.Template;
+import com.linecorp.bot.model.oauth.ChannelAccessTokenException;
+import com.linecorp.bot.model.oauth.IssueChannelAccessTokenResponse;
+import com.linecorp.bot.model.profile.MembersIdsResponse;
+import com.linecorp.bot.model.profile.UserProfileResponse;
+import com.linecorp.bot.model.response.BotApiResponse;
+import com.linecorp.bot.model.response.IssueLinkTokenResponse;
+import com.linecorp.bot.model.response.MessageQuotaResponse;
+import com.linecorp.bot.model.response.NumberOfMessagesResponse;
+import com.linecorp.bot.model.response.QuotaConsumptionResponse;
+import com.linecorp.bot.model.richmenu.RichMenu;
+import com.linecorp.bot.model.richmenu.RichMenuBlukLinkRequest;
+import com.linecorp.bot.model.richmenu.RichMenuBlukUnlinkRequest;
+import com.linecorp.bot.model.richmenu.RichMenuIdResponse;
+import com.linecorp.bot.model.richmenu.RichMenuListResponse;
+import com.linecorp.bot.model.richmenu.RichMenuResponse;
+
+/**
+ * Process-wide registry of {@link ObjectReader} and {@link ObjectWriter} for LINE model types.
+ *
+ * <p>All clients and the webhook parser share the same {@link ObjectMapper}s, so serializer and
+ * deserializer caches are built once per process instead of once per component. Readers and writers are
+ * immutable and cached per type.
+ *
+ * <p>The shared mappers have same configuration as {@link ModelObjectMapper}, plus {@link AfterburnerModule}
+ * for writers. They are never exposed, because configuring them would affect every component.
+ * Readers of {@link #fastEventReaderFor(Type)} have {@link EventModule} in addition, and are used only if
+ * a component opts in to it.
+ * Use {@link ModelObjectMapper#createNewObjectMapper()} if you need your own configuration.
+ */
+public final class ModelCodecRegistry {
+    private static final ModelCodecRegistry INSTANCE = new ModelCodecRegistry(
+            ModelObjectMapper.createNewObjectMapper(),
+            ModelObjectMapper.registerEventModule(ModelObjectMapper.createNewObjectMapper()),
+            ModelObjectMapper.createNewObjectMapper()
+                             // Access model properties by generated bytecode instead of reflection.
+                             // Not used for reading, because generated classes can't call package private
+                             // constructors of lombok builders on Java 9+.
+                             .registerModule(new AfterburnerModule()));
+
+    /**
+     * Polymorphic roots. All {@link JsonSubTypes} of them are warmed up.
+     */
+    private static final List<Class<?>> POLYMORPHIC_TYPES = Arrays.asList(
+            Message.class, Action.class, FlexComponent.class, FlexContainer.class, Template.class,
+            ImagemapAction.class, Event.class, MessageContent.class, Source.class);
+
+    /**
+     * Polymorphic roots of webhook payloads, which are read by {@link EventModule} in case of
+     * {@link #fastEventReaderFor(Type)}. Unlike messages sent by bots, their properties are all optional.
+     */
+    private static final List<Class<?>> WEBHOOK_TYPES = Arrays.asList(
+            Event.class, MessageContent.class, Source.class);
+
+    private static final List<Class<?>> REQUEST_TYPES = Arrays.asList(
+            ReplyMessage.class, PushMessage.class, Multicast.class, Broadcast.class, RichMenu.class,
+            RichMenuBlukLinkRequest.class, RichMenuBlukUnlinkRequest.class, LiffAppAddRequest.class,
+            LiffView.class);
+
+    private static final List<Class<?>> RESPONSE_TYPES = Arrays.asList(
+            BotApiResponse.class, ErrorResponse.class, UserProfileResponse.class, MembersIdsResponse.class,
+            MessageQuotaResponse.class, QuotaConsumptionResponse.class, NumberOfMessagesResponse.class,
+            IssueLinkTokenResponse.class, RichMenuIdResponse.class, RichMenuResponse.class,
+            RichMenuListResponse.class, LiffAppAddResponse.class, LiffAppsResponse.class,
+            IssueChannelAccessTokenResponse.class, ChannelAccessTokenException.class);
+
+    private static final byte[] WARM_UP_CALLBACK_REQUEST = (
+            "{\"destination\":\"U00000000000000000000000000000000\",\"events\":["
+            + "{\"type\":\"message\",\"replyToken\":\"r\",\"timestamp\":0,"
+            + "\"source\":{\"type\":\"user\",\"userId\":\"U0\"},"
+            + "\"message\":{\"type\":\"text\",\"id\":\"0\",\"text\":\"warm up\"}},"
+            + "{\"type\":\"postback\",\"replyToken\":\"r\",\"timestamp\":0,"
+            + "\"source\":{\"type\":\"group\",\"groupId\":\"C0\",\"userId\":\"U0\"},"
+            + "\"postback\":{\"data\":\"a=b\",\"params\":{}}}]}").getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper readerMapper;
+    private final ObjectMapper fastEventReaderMapper;
+    private final ObjectMapper writerMapper;
+    private final ConcurrentMap<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<JavaType, ObjectReader> fastEventReaders = new ConcurrentHashMap<>();
+    private final ConcurrentMap<JavaType, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    private ModelCodecRegistry(final ObjectMapper readerMapper, final ObjectMapper fastEventReaderMapper,
+                               final ObjectMapper writerMapper) {
+        this.readerMapper = readerMapper;
+        this.fastEventReaderMapper = fastEventReaderMapper;
+        this.writerMapper = writerMapper;
+    }
+
+    /**
+     * Returns the shared registry.
+     */
+    public static ModelCodecRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a cached {@link ObjectReader} for given type.
+     */
+    public ObjectReader readerFor(final Type type) {
+        return readers.computeIfAbsent(constructType(type), readerMapper::readerFor);
+    }
+
+    /**
+     * Returns a cached {@link ObjectReader} for given type, which reads webhook payloads by {@link EventModule}
+     * instead of the default bean deserializers. Other types are read as same as {@link #readerFor(Type)}.
+     */
+    public ObjectReader fastEventReaderFor(final Type type) {
+        return fastEventReaders.computeIfAbsent(constructType(type), fastEventReaderMapper::readerFor);
+    }
+
+    /**
+     * Returns a cached {@link ObjectWriter} for given type.
+     */
+    public ObjectWriter writerFor(final Type type) {
+        return writers.computeIfAbsent(constructType(type), writerMapper::writerFor);
+    }
+
+    private JavaType constructType(final Type type) {
+        return readerMapper.getTypeFactory().constructType(type);
+    }
+
+    /**
+     * Build serializers and deserializers of all model types ahead of the first request.
+     *
+     * <p>Readers and writers of every request, response and polymorphic model type are created. A synthetic
+     * instance of every webhook event, message content and source type is read by both
+     * {@link #readerFor(Type)} and {@link #fastEventReaderFor(Type)} and written back, and so are a synthetic
+     * webhook payload and message. It's safe to call this method more than once.
+     */
+    public void warmUp() {
+        REQUEST_TYPES.forEach(this::writerFor);
+        RESPONSE_TYPES.forEach(this::readerFor);
+        try {
+            for (Class<?> polymorphicType : POLYMORPHIC_TYPES) {
+                readerFor(polymorphicType);
+                final JsonSubTypes subTypes = polymorphicType.getAnnotation(JsonSubTypes.class);
+                if (subTypes == null) {
+                    continue;
+                }
+                for (JsonSubTypes.Type subType : subTypes.value()) {
+                    if (WEBHOOK_TYPES.contains(polymorphicType)) {
+                        warmUpWebhookType(polymorphicType, subType);
+                    } else {
+                        writerFor(subType.value());
+                    }
+                }
+            }
+
+            readerFor(CallbackRequest.class).readValue(WARM_UP_CALLBACK_REQUEST);
+            fastEventReaderFor(CallbackRequest.class).readValue(WARM_UP_CALLBACK_REQUEST);
+            writerFor(ReplyMessage.class).writeValueAsBytes(new ReplyMessage("r", new TextMessage("warm up")));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Read an instance of given subtype which has only the type property, and write it back.
+     */
+    private void warmUpWebhookType(final Class<?> polymorphicType, final JsonSubTypes.Type subType)
+            throws IOException {
+        final JsonTypeName typeName = subType.value().getAnnotation(JsonTypeName.class);
+        final String name = !subType.name().isEmpty() ? subType.name()
+                                                      : typeName != null ? typeName.value() : null;
+        if (name == null) {
+            writerFor(subType.value());
+            return;
+        }
+        final byte[] json = ("{\"type\":\"" + name + "\"}").getBytes(StandardCharsets.UTF_8);
+        final Object instance = readerFor(polymorphicType).readValue(json);
+        fastEventReaderFor(polymorphicType).readValue(json);
+        writerFor(subType.value()).writeValueAsBytes(instance);
+    }
+}
@@ -36,4 +36,16 @@ public class ModelObjectMapper {
     public ObjectMapper createNewObjectMapper() {
         return OBJECT_MAPPER.copy();
     }
+
+    /**
+     * Register {@link EventModule} to given {@link ObjectMapper}.
+     *
+     * <p>Webhook payloads ({@link com.linecorp.bot.model.event.CallbackRequest} and its contents) are read
+     * by streaming deserializers instead of reflective bean deserializers. Other types are not affected.
+     *
+     * @return given {@link ObjectMapper} for chaining.
+     */
+    public ObjectMapper registerEventModule(final ObjectMapper objectMapper) {
+        return objectMapper.registerModule(new EventModule());
+    }
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.event.postback;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class PostbackDataTest {
+    @Test
+    public void parseTest() {
+        final PostbackData target = PostbackData.parse("action=buy&itemId=123&flag&&action=sell&empty=");
+
+        assertThat(target.size()).isEqualTo(5);
+        assertThat(target.get("action")).isEqualTo("buy");
+        assertThat(target.get("itemId")).isEqualTo("123");
+        assertThat(target.get("flag")).isEmpty();
+        assertThat(target.get("empty")).isEmpty();
+        assertThat(target.get("missing")).isNull();
+        assertThat(target.has("flag")).isTrue();
+        assertThat(target.toMap()).containsOnlyKeys("action", "itemId", "flag", "empty");
+    }
+
+    @Test
+    public void decodeTest() {
+        final PostbackData target = PostbackData.parse("message=hello+world%21&name=%E3%81%82&raw=100%");
+
+        assertThat(target.get("message")).isEqualTo("hello world!");
+        assertThat(target.get("name")).isEqualTo("あ");
+        assertThat(target.get("raw")).isEqualTo("100%");
+    }
+
+    @Test
+    public void emptyTest() {
+        assertThat(PostbackData.parse(null).size()).isZero();
+        assertThat(PostbackData.parse("").size()).isZero();
+        assertThat(PostbackData.parse("&").size()).isZero();
+        assertThat(PostbackData.parse("a=1")).isEqualTo(PostbackData.parse("a=1"));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.linecorp.bot.model.Multicast;
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.ReplyMessage;
+import com.linecorp.bot.model.objectmapper.ModelCodecRegistry;
+import com.linecorp.bot.model.testutil.TestUtil;
+
+public class PreparedMessageTest {
+    private final ObjectMapper objectMapper = TestUtil.objectMapperWithProductionConfiguration(false);
+    private final List<Message> messages = Arrays.asList(new TextMessage("hello"),
+                                                         new ExampleFlexMessageSupplier().get());
+
+    @Test
+    public void sameJsonAsOriginalMessagesTest() throws JsonProcessingException {
+        final List<Message> preparedMessages = PreparedMessage.ofAll(messages);
+
+        assertThat(objectMapper.writeValueAsString(new ReplyMessage("token", preparedMessages)))
+                .isEqualTo(objectMapper.writeValueAsString(new ReplyMessage("token", messages)));
+        assertThat(objectMapper.writeValueAsString(new PushMessage("to", preparedMessages)))
+                .isEqualTo(objectMapper.writeValueAsString(new PushMessage("to", messages)));
+        assertThat(objectMapper.writeValueAsString(
+                new Multicast(Collections.singleton("to"), preparedMessages)))
+                .isEqualTo(objectMapper.writeValueAsString(
+                        new Multicast(Collections.singleton("to"), messages)));
+        assertThat(ModelCodecRegistry.getInstance()
+                                     .writerFor(ReplyMessage.class)
+                                     .writeValueAsString(new ReplyMessage("token", preparedMessages)))
+                .isEqualTo(objectMapper.writeValueAsString(new ReplyMessage("token", messages)));
+    }
+
+    @Test
+    public void ofPreparedMessageTest() {
+        final PreparedMessage preparedMessage = PreparedMessage.of(new TextMessage("hello"));
+
+        assertThat(PreparedMessage.of(preparedMessage)).isSameAs(preparedMessage);
+    }
+
+    @Test
+    public void cacheTest() {
+        final PreparedMessageCache target = new PreparedMessageCache(2);
+
+        final PreparedMessage hello = target.get(new TextMessage("hello"));
+        assertThat(target.get(new TextMessage("hello"))).isSameAs(hello);
+
+        target.get(new TextMessage("world"));
+        target.get(new TextMessage("hello"));
+        target.get(new TextMessage("!"));
+
+        // "world" is least recently used.
+        assertThat(target.size()).isEqualTo(2);
+        assertThat(target.get(new TextMessage("hello"))).isSameAs(hello);
+        assertThat(target.getAll(messages)).containsExactlyElementsOf(PreparedMessage.ofAll(messages));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.objectmapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.linecorp.bot.model.event.CallbackRequest;
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.message.TextMessageContent;
+import com.linecorp.bot.model.event.source.RoomSource;
+
+public class EventModuleTest {
+    private static final List<String> CALLBACK_RESOURCES = Arrays.asList(
+            "account_link.json", "beacon.json", "beacon_with_dm.json", "file.json", "follow.json",
+            "image.json", "join.json", "leave.json", "line-things-link.json", "line-things-unlink.json",
+            "location.json", "member_joined.json", "member_left.json", "postback.json", "sticker.json",
+            "text-group.json", "text-user.json", "unfollow.json", "unknown.json");
+
+    private final ObjectMapper defaultMapper = ModelObjectMapper.createNewObjectMapper();
+    private final ObjectMapper eventModuleMapper =
+            ModelObjectMapper.registerEventModule(ModelObjectMapper.createNewObjectMapper());
+
+    @Test
+    public void sameResultAsDefaultDeserializerTest() throws IOException {
+        for (String resource : CALLBACK_RESOURCES) {
+            final CallbackRequest expected = read(defaultMapper, resource);
+            final CallbackRequest actual = read(eventModuleMapper, resource);
+
+            assertThat(actual)
+                    .as(resource)
+                    .isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void typePropertyAtLastTest() throws IOException {
+        final String json = "{\"replyToken\":\"token\","
+                            + "\"source\":{\"roomId\":\"R1\",\"userId\":\"U1\",\"type\":\"room\"},"
+                            + "\"timestamp\":1462629479859,"
+                            + "\"message\":{\"id\":\"1\",\"text\":\"hello\",\"type\":\"text\"},"
+                            + "\"type\":\"message\"}";
+
+        final Event event = eventModuleMapper.readValue(json, Event.class);
+
+        assertThat(event).isEqualTo(new MessageEvent<>("token",
+                                                       new RoomSource("U1", "R1"),
+                                                       new TextMessageContent("1", "hello"),
+                                                       Instant.ofEpochMilli(1462629479859L)));
+        assertThat(event).isEqualTo(defaultMapper.readValue(json, Event.class));
+    }
+
+    @Test
+    public void decimalTimestampTest() throws IOException {
+        final String json = "{\"type\":\"leave\",\"timestamp\":1462629479.859}";
+
+        assertThat(eventModuleMapper.readValue(json, Event.class).getTimestamp())
+                .isEqualTo(Instant.ofEpochMilli(1462629479859L))
+                .isEqualTo(defaultMapper.readValue(json, Event.class).getTimestamp());
+    }
+
+    private static CallbackRequest read(ObjectMapper objectMapper, String resource) throws IOException {
+        try (InputStream inputStream =
+                     EventModuleTest.class.getClassLoader().getResourceAsStream("callback/" + resource)) {
+            return objectMapper.readValue(inputStream, CallbackRequest.class);
+        }
+    }
+}
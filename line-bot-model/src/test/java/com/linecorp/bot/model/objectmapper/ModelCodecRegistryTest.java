@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.objectmapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import com.linecorp.bot.model.ReplyMessage;
+import com.linecorp.bot.model.event.CallbackRequest;
+import com.linecorp.bot.model.message.Message;
+import com.linecorp.bot.model.message.TextMessage;
+
+public class ModelCodecRegistryTest {
+    private final ModelCodecRegistry target = ModelCodecRegistry.getInstance();
+
+    @Test
+    public void warmUpTest() {
+        target.warmUp();
+        target.warmUp();
+    }
+
+    @Test
+    public void cachedPerTypeTest() {
+        assertThat(target.readerFor(CallbackRequest.class))
+                .isSameAs(target.readerFor(CallbackRequest.class));
+        assertThat(target.writerFor(ReplyMessage.class))
+                .isSameAs(target.writerFor(ReplyMessage.class));
+        assertThat(target.writerFor(new TypeReference<List<Message>>() {}.getType()))
+                .isSameAs(target.writerFor(new TypeReference<List<Message>>() {}.getType()));
+    }
+
+    @Test
+    public void fastEventReaderTest() throws IOException {
+        final String json = "{\"destination\":\"U0\",\"events\":[{\"type\":\"follow\",\"replyToken\":\"r\","
+                            + "\"timestamp\":1462629479859,\"source\":{\"type\":\"user\",\"userId\":\"U1\"}}]}";
+
+        // EventModule is opt-in.
+        assertThat(target.fastEventReaderFor(CallbackRequest.class))
+                .isNotSameAs(target.readerFor(CallbackRequest.class))
+                .isSameAs(target.fastEventReaderFor(CallbackRequest.class));
+        assertThat(target.readerFor(CallbackRequest.class).<CallbackRequest>readValue(json))
+                .isEqualTo(target.fastEventReaderFor(CallbackRequest.class).<CallbackRequest>readValue(json));
+    }
+
+    @Test
+    public void sameResultAsModelObjectMapperTest() throws IOException {
+        final ReplyMessage replyMessage =
+                new ReplyMessage("token", Collections.singletonList(new TextMessage("hello")));
+
+        assertThat(target.writerFor(ReplyMessage.class).writeValueAsString(replyMessage))
+                .isEqualTo(ModelObjectMapper.createNewObjectMapper().writeValueAsString(replyMessage));
+    }
+}
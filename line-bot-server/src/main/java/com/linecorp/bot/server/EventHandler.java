@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.server;
+
+import java.util.List;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.message.Message;
+
+/**
+ * Handler of webhook events of type {@code E}.
+ *
+ * @param <E> type of events.
+ * @see LineBotServerBuilder#handler(Class, EventHandler)
+ */
+@FunctionalInterface
+public interface EventHandler<E extends Event> {
+    /**
+     * Handle given event.
+     *
+     * @return messages to reply. {@code null} or empty list for no reply.
+     */
+    List<Message> handle(E event) throws Exception;
+}
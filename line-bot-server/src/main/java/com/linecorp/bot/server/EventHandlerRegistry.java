@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.linecorp.bot.model.event.Event;
+
+/**
+ * Registry of {@link EventHandler}s keyed by event type.
+ *
+ * <p>The handler of the event class itself or its nearest super class is used. Otherwise, the handler of the
+ * first registered interface which the event implements is used. The result is cached per event class, so
+ * lookup is a hash lookup after the first event of each class.
+ */
+class EventHandlerRegistry {
+    private final Map<Class<?>, EventHandler<?>> handlers;
+    private final ConcurrentMap<Class<?>, Optional<EventHandler<Event>>> cache = new ConcurrentHashMap<>();
+
+    EventHandlerRegistry(final Map<Class<?>, EventHandler<?>> handlers) {
+        this.handlers = new LinkedHashMap<>(handlers);
+    }
+
+    /**
+     * Returns the handler of given event. Empty if no handler is registered for its type.
+     */
+    Optional<EventHandler<Event>> lookup(final Event event) {
+        return cache.computeIfAbsent(event.getClass(), this::find);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<EventHandler<Event>> find(final Class<?> eventClass) {
+        for (Class<?> type = eventClass; type != null; type = type.getSuperclass()) {
+            final EventHandler<?> handler = handlers.get(type);
+            if (handler != null) {
+                return Optional.of((EventHandler<Event>) handler);
+            }
+        }
+        for (Map.Entry<Class<?>, EventHandler<?>> entry : handlers.entrySet()) {
+            if (entry.getKey().isAssignableFrom(eventClass)) {
+                return Optional.of((EventHandler<Event>) entry.getValue());
+            }
+        }
+        return Optional.empty();
+    }
+}
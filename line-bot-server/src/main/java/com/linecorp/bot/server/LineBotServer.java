@@ -0,0 +1,262 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import com.linecorp.bot.client.LineMessagingClient;
+import com.linecorp.bot.client.LineSignatureValidator;
+import com.linecorp.bot.model.ReplyMessage;
+import com.linecorp.bot.model.event.CallbackRequest;
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.ReplyEvent;
+import com.linecorp.bot.model.message.Message;
+import com.linecorp.bot.servlet.LineBotCallbackException;
+import com.linecorp.bot.servlet.LineBotCallbackRequestParser;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Minimal webhook server on the JDK HTTP server ({@code com.sun.net.httpserver}), without Spring.
+ *
+ * <pre>
+ * LineBotServer server = LineBotServer.builder(channelSecret)
+ *                                     .lineMessagingClient(client)
+ *                                     .handler(MessageEvent.class, event -&gt; ...)
+ *                                     .build();
+ * server.start();
+ * </pre>
+ *
+ * <p>Requests are accepted on a single dispatcher thread and processed on a bounded pool of worker threads,
+ * which read the body, validate the signature, parse it, respond {@code 200 OK} and call handlers of the
+ * events. Requests are responded {@code 503 Service Unavailable} if the pool and its queue are full, and
+ * {@code 413 Payload Too Large} if the body is larger than the limit.
+ */
+@Slf4j
+public class LineBotServer implements AutoCloseable {
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private final LineBotServerBuilder config;
+    private final LineBotCallbackRequestParser callbackRequestParser;
+    private final EventHandlerRegistry handlerRegistry;
+    private HttpServer httpServer;
+    private ThreadPoolExecutor workers;
+
+    LineBotServer(final LineBotServerBuilder config) {
+        Preconditions.checkArgument(config.workerThreads() > 0, "workerThreads should be positive");
+        Preconditions.checkArgument(config.maxQueuedRequests() > 0, "maxQueuedRequests should be positive");
+        Preconditions.checkArgument(config.maxRequestSize() > 0, "maxRequestSize should be positive");
+        this.config = config;
+        callbackRequestParser = new LineBotCallbackRequestParser(config.lineSignatureValidator());
+        handlerRegistry = new EventHandlerRegistry(config.handlers());
+    }
+
+    /**
+     * Create a new {@link LineBotServerBuilder} with given channel secret.
+     */
+    public static LineBotServerBuilder builder(@NonNull final String channelSecret) {
+        return new LineBotServerBuilder(
+                new LineSignatureValidator(channelSecret.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Start listening.
+     */
+    public synchronized void start() throws IOException {
+        Preconditions.checkState(httpServer == null, "Already started");
+        workers = new ThreadPoolExecutor(config.workerThreads(), config.workerThreads(),
+                                         0, TimeUnit.MILLISECONDS,
+                                         new ArrayBlockingQueue<>(config.maxQueuedRequests()),
+                                         newThreadFactory());
+        httpServer = HttpServer.create(new InetSocketAddress(config.port()), config.backlog());
+        // Handled on the dispatcher thread, to respond 503 without queueing.
+        httpServer.createContext(config.path(), this::accept);
+        httpServer.start();
+        log.info("Started LINE bot server: port = {}, path = {}", getPort(), config.path());
+    }
+
+    /**
+     * Returns the port of this server. It's useful if the server listens on an ephemeral port.
+     */
+    public synchronized int getPort() {
+        Preconditions.checkState(httpServer != null, "Not started");
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Stop listening, and wait for processing requests to complete up to 1 second.
+     */
+    @Override
+    public synchronized void close() {
+        if (httpServer == null) {
+            return;
+        }
+        httpServer.stop(1);
+        workers.shutdown();
+        try {
+            workers.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        httpServer = null;
+    }
+
+    private void accept(final HttpExchange exchange) {
+        try {
+            workers.execute(() -> process(exchange));
+        } catch (RejectedExecutionException e) {
+            respond(exchange, 503);
+        }
+    }
+
+    private void process(final HttpExchange exchange) {
+        final CallbackRequest callbackRequest;
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405);
+                return;
+            }
+            final byte[] body = readBody(exchange);
+            if (body == null) {
+                respond(exchange, 413);
+                return;
+            }
+            callbackRequest = callbackRequestParser
+                    .handle(exchange.getRequestHeaders().getFirst("X-Line-Signature"), body);
+        } catch (LineBotCallbackException e) {
+            log.info("LINE Bot callback exception: {}", e.getMessage());
+            respond(exchange, 400);
+            return;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to read webhook request: {}", e.getMessage(), e);
+            respond(exchange, 400);
+            return;
+        }
+
+        respond(exchange, 200);
+        callbackRequest.getEvents().forEach(this::dispatch);
+    }
+
+    /**
+     * Returns the request body. {@code null} if it's larger than {@link LineBotServerBuilder#maxRequestSize()}.
+     */
+    private byte[] readBody(final HttpExchange exchange) throws IOException {
+        final int limit = config.maxRequestSize();
+        final String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        final long length = contentLength != null ? Long.parseLong(contentLength) : -1;
+        if (length > limit) {
+            return null;
+        }
+
+        // Sized by Content-Length, so the body is read without copying in most cases.
+        byte[] buffer = new byte[length >= 0 ? (int) length : Math.min(limit, INITIAL_BUFFER_SIZE)];
+        int size = 0;
+        try (InputStream in = exchange.getRequestBody()) {
+            while (true) {
+                if (size == buffer.length) {
+                    final int next = in.read();
+                    if (next < 0) {
+                        return buffer;
+                    }
+                    if (size >= limit) {
+                        return null;
+                    }
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(limit, Math.max(size * 2L,
+                                                                                  INITIAL_BUFFER_SIZE)));
+                    buffer[size++] = (byte) next;
+                    continue;
+                }
+                final int read = in.read(buffer, size, buffer.length - size);
+                if (read < 0) {
+                    return Arrays.copyOf(buffer, size);
+                }
+                size += read;
+            }
+        }
+    }
+
+    private void respond(final HttpExchange exchange, final int status) {
+        try {
+            if (!config.keepAlive()) {
+                exchange.getResponseHeaders().set("Connection", "close");
+            }
+            exchange.sendResponseHeaders(status, -1);
+        } catch (IOException e) {
+            log.debug("Failed to respond: {}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void dispatch(final Event event) {
+        final EventHandler<Event> handler = handlerRegistry.lookup(event).orElse(null);
+        if (handler == null) {
+            log.debug("No handler for event: {}", event);
+            return;
+        }
+
+        final List<Message> messages;
+        try {
+            messages = handler.handle(event);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return;
+        }
+        if (messages != null && !messages.isEmpty()) {
+            reply(event, messages);
+        }
+    }
+
+    private void reply(final Event event, final List<Message> messages) {
+        final LineMessagingClient client = config.lineMessagingClient();
+        if (client == null || !(event instanceof ReplyEvent)) {
+            log.warn("Can't reply to event: {}", event);
+            return;
+        }
+        client.replyMessage(new ReplyMessage(((ReplyEvent) event).getReplyToken(), messages))
+              .whenComplete((response, throwable) -> {
+                  if (throwable != null) {
+                      log.warn("Reply message failed: {}", throwable.getMessage(), throwable);
+                  }
+              });
+    }
+
+    private static ThreadFactory newThreadFactory() {
+        final AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, "line-bot-server-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
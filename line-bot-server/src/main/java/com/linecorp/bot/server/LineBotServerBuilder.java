@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.linecorp.bot.client.LineMessagingClient;
+import com.linecorp.bot.client.LineSignatureValidator;
+import com.linecorp.bot.model.event.Event;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+import lombok.experimental.PackagePrivate;
+
+@ToString
+@Getter(AccessLevel.PACKAGE)
+@Accessors(fluent = true)
+public class LineBotServerBuilder {
+    private final LineSignatureValidator lineSignatureValidator;
+    private final Map<Class<?>, EventHandler<?>> handlers = new LinkedHashMap<>();
+
+    /**
+     * Use {@link LineBotServer#builder(String)} to create instance.
+     */
+    @PackagePrivate
+    LineBotServerBuilder(final LineSignatureValidator lineSignatureValidator) {
+        this.lineSignatureValidator = lineSignatureValidator;
+    }
+
+    /**
+     * Port to listen. {@code 0} for an ephemeral port. See {@link LineBotServer#getPort()}.
+     *
+     * <p>Default value = {@value}.
+     */
+    @Setter
+    private int port = 8080;
+
+    /**
+     * Path of the webhook endpoint.
+     *
+     * <p>Default value = {@value}.
+     */
+    @Setter
+    @NonNull
+    private String path = "/callback";
+
+    /**
+     * Number of threads which read, validate and parse requests and call handlers.
+     *
+     * <p>Default value = number of available processors.
+     */
+    @Setter
+    private int workerThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximum number of requests waiting for a worker thread. Requests over this limit are responded
+     * {@code 503 Service Unavailable} immediately.
+     *
+     * <p>Default value = {@value}.
+     */
+    @Setter
+    private int maxQueuedRequests = 1000;
+
+    /**
+     * Maximum size of a request body in bytes. Larger requests are responded
+     * {@code 413 Payload Too Large} without reading the body.
+     *
+     * <p>Default value = {@value} (1MiB).
+     */
+    @Setter
+    private int maxRequestSize = 1024 * 1024;
+
+    /**
+     * Keep connections alive after responses.
+     *
+     * <p>Idle connections are closed after {@code sun.net.httpserver.idleInterval} seconds, which is a
+     * system property of the JDK HTTP server.
+     *
+     * <p>Default value = {@value}.
+     */
+    @Setter
+    private boolean keepAlive = true;
+
+    /**
+     * Maximum number of pending connections. {@code 0} for the system default.
+     *
+     * <p>Default value = {@value}.
+     */
+    @Setter
+    private int backlog;
+
+    /**
+     * Client to reply messages returned by handlers. Returned messages are ignored if {@code null}.
+     */
+    @Setter
+    private LineMessagingClient lineMessagingClient;
+
+    /**
+     * Register a handler of events of given type.
+     *
+     * @see EventHandlerRegistry
+     */
+    public <E extends Event> LineBotServerBuilder handler(@NonNull final Class<E> eventType,
+                                                          @NonNull final EventHandler<? super E> handler) {
+        handlers.put(eventType, handler);
+        return this;
+    }
+
+    /**
+     * Creates a new {@link LineBotServer}. Call {@link LineBotServer#start()} to start it.
+     */
+    public LineBotServer build() {
+        return new LineBotServer(this);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.server;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.linecorp.bot.client.LineMessagingClient;
+import com.linecorp.bot.client.LineSignatureValidator;
+import com.linecorp.bot.model.ReplyMessage;
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.message.TextMessageContent;
+import com.linecorp.bot.model.message.TextMessage;
+import com.linecorp.bot.model.response.BotApiResponse;
+
+public class LineBotServerTest {
+    private static final String PAYLOAD =
+            "{\"events\":[{\"type\":\"message\",\"replyToken\":\"replyToken\",\"timestamp\":0,"
+            + "\"source\":{\"type\":\"user\",\"userId\":\"userId\"},"
+            + "\"message\":{\"type\":\"text\",\"id\":\"1\",\"text\":\"hello\"}},"
+            + "{\"type\":\"follow\",\"replyToken\":\"replyToken\",\"timestamp\":0,"
+            + "\"source\":{\"type\":\"user\",\"userId\":\"userId\"}}]}";
+
+    private final LineSignatureValidator lineSignatureValidator =
+            new LineSignatureValidator("SECRET".getBytes(StandardCharsets.US_ASCII));
+    private final LineMessagingClient lineMessagingClient = mock(LineMessagingClient.class);
+    private LineBotServer target;
+
+    @Before
+    public void setUp() throws IOException {
+        when(lineMessagingClient.replyMessage(any()))
+                .thenReturn(CompletableFuture.completedFuture(new BotApiResponse("success", null)));
+        target = LineBotServer.builder("SECRET")
+                              .port(0)
+                              .maxRequestSize(1024)
+                              .lineMessagingClient(lineMessagingClient)
+                              .handler(MessageEvent.class, event -> singletonList(
+                                      new TextMessage(((TextMessageContent) event.getMessage()).getText())))
+                              .handler(Event.class, event -> null)
+                              .build();
+        target.start();
+    }
+
+    @After
+    public void tearDown() {
+        target.close();
+    }
+
+    @Test
+    public void replyTest() throws IOException {
+        final byte[] body = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+
+        // Do
+        final int status = post(sign(body), body);
+
+        // Verify
+        assertThat(status).isEqualTo(200);
+        verify(lineMessagingClient, timeout(1_000))
+                .replyMessage(new ReplyMessage("replyToken", new TextMessage("hello")));
+    }
+
+    @Test
+    public void invalidSignatureTest() throws IOException {
+        final byte[] body = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+
+        assertThat(post(sign(new byte[0]), body)).isEqualTo(400);
+        assertThat(post(null, body)).isEqualTo(400);
+    }
+
+    @Test
+    public void tooLargeRequestTest() throws IOException {
+        final byte[] body = new byte[1025];
+
+        assertThat(post(sign(body), body)).isEqualTo(413);
+    }
+
+    private String sign(final byte[] body) {
+        return Base64.getEncoder().encodeToString(lineSignatureValidator.generateSignature(body));
+    }
+
+    private int post(final String signature, final byte[] body) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection)
+                new URL("http://localhost:" + target.getPort() + "/callback").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        if (signature != null) {
+            connection.setRequestProperty("X-Line-Signature", signature);
+        }
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        return connection.getResponseCode();
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.servlet;
+
+import com.linecorp.bot.client.ChannelConfiguration;
+import com.linecorp.bot.model.event.CallbackRequest;
+
+import lombok.Value;
+
+/**
+ * {@link CallbackRequest} with the channel it's sent to.
+ *
+ * @see MultiChannelCallbackRequestParser
+ */
+@Value
+public class ChannelCallbackRequest {
+    ChannelConfiguration channel;
+    CallbackRequest callbackRequest;
+}
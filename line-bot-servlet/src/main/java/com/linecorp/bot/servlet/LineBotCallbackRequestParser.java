@@ -21,20 +21,22 @@ import java.nio.charset.StandardCharsets;
 
 import javax.servlet.http.HttpServletRequest;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.io.ByteStreams;
 
 import com.linecorp.bot.client.LineSignatureValidator;
 import com.linecorp.bot.model.event.CallbackRequest;
-import com.linecorp.bot.model.objectmapper.ModelObjectMapper;
+import com.linecorp.bot.model.objectmapper.ModelCodecRegistry;
+import com.linecorp.bot.servlet.WebhookMetrics.Stage;
 
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class LineBotCallbackRequestParser {
-    private final ObjectMapper objectMapper = ModelObjectMapper.createNewObjectMapper();
+    private final ObjectReader callbackRequestReader;
     private final LineSignatureValidator lineSignatureValidator;
+    private final WebhookMetrics webhookMetrics;
 
     /**
      * Create new instance.
@@ -43,7 +45,38 @@ public class LineBotCallbackRequestParser {
      */
     public LineBotCallbackRequestParser(
             @NonNull LineSignatureValidator lineSignatureValidator) {
+        this(lineSignatureValidator, WebhookMetrics.NOOP);
+    }
+
+    /**
+     * Create new instance.
+     *
+     * @param lineSignatureValidator LINE messaging API's signature validator
+     * @param webhookMetrics Receives timings of reading, verifying and parsing requests.
+     */
+    public LineBotCallbackRequestParser(
+            @NonNull LineSignatureValidator lineSignatureValidator,
+            @NonNull WebhookMetrics webhookMetrics) {
+        this(lineSignatureValidator, webhookMetrics, false);
+    }
+
+    /**
+     * Create new instance.
+     *
+     * @param lineSignatureValidator LINE messaging API's signature validator
+     * @param webhookMetrics Receives timings of reading, verifying and parsing requests.
+     * @param fastEventParsing {@code true} to parse requests by
+     *                         {@link ModelCodecRegistry#fastEventReaderFor(java.lang.reflect.Type)}.
+     */
+    public LineBotCallbackRequestParser(
+            @NonNull LineSignatureValidator lineSignatureValidator,
+            @NonNull WebhookMetrics webhookMetrics,
+            boolean fastEventParsing) {
         this.lineSignatureValidator = lineSignatureValidator;
+        this.webhookMetrics = webhookMetrics;
+        callbackRequestReader = fastEventParsing
+                                ? ModelCodecRegistry.getInstance().fastEventReaderFor(CallbackRequest.class)
+                                : ModelCodecRegistry.getInstance().readerFor(CallbackRequest.class);
     }
 
     /**
@@ -58,8 +91,10 @@ public class LineBotCallbackRequestParser {
     public CallbackRequest handle(HttpServletRequest req) throws LineBotCallbackException, IOException {
         // validate signature
         String signature = req.getHeader("X-Line-Signature");
+        final long startNanos = System.nanoTime();
         final byte[] json = ByteStreams.toByteArray(req.getInputStream());
-        return handle(signature, new String(json, StandardCharsets.UTF_8));
+        webhookMetrics.recordStage(Stage.READ, System.nanoTime() - startNanos);
+        return handle(signature, json);
     }
 
     /**
@@ -74,20 +109,40 @@ public class LineBotCallbackRequestParser {
      */
     public CallbackRequest handle(String signature, String payload)
             throws LineBotCallbackException, IOException {
+        return handle(signature, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse request.
+     *
+     * @param signature X-Line-Signature header.
+     * @param json Request body.
+     *
+     * @return Parsed result.
+     *
+     * @throws LineBotCallbackException There's an error around signature.
+     */
+    public CallbackRequest handle(String signature, byte[] json)
+            throws LineBotCallbackException, IOException {
         // validate signature
         if (signature == null || signature.length() == 0) {
             throw new LineBotCallbackException("Missing 'X-Line-Signature' header");
         }
 
-        log.debug("got: {}", payload);
-
-        final byte[] json = payload.getBytes(StandardCharsets.UTF_8);
+        if (log.isDebugEnabled()) {
+            log.debug("got: {}", new String(json, StandardCharsets.UTF_8));
+        }
 
-        if (!lineSignatureValidator.validateSignature(json, signature)) {
+        final long verifyStartNanos = System.nanoTime();
+        final boolean valid = lineSignatureValidator.validateSignature(json, signature);
+        final long parseStartNanos = System.nanoTime();
+        webhookMetrics.recordStage(Stage.VERIFY, parseStartNanos - verifyStartNanos);
+        if (!valid) {
             throw new LineBotCallbackException("Invalid API signature");
         }
 
-        final CallbackRequest callbackRequest = objectMapper.readValue(json, CallbackRequest.class);
+        final CallbackRequest callbackRequest = callbackRequestReader.readValue(json);
+        webhookMetrics.recordStage(Stage.PARSE, System.nanoTime() - parseStartNanos);
         if (callbackRequest == null || callbackRequest.getEvents() == null) {
             throw new LineBotCallbackException("Invalid content");
         }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.servlet;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.http.HttpServletRequest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.io.ByteStreams;
+
+import com.linecorp.bot.client.ChannelConfiguration;
+import com.linecorp.bot.client.ChannelRegistry;
+import com.linecorp.bot.client.LineSignatureValidator;
+import com.linecorp.bot.model.event.CallbackRequest;
+import com.linecorp.bot.model.objectmapper.ModelCodecRegistry;
+import com.linecorp.bot.servlet.WebhookMetrics.Stage;
+
+import lombok.NonNull;
+
+/**
+ * Parses webhooks of channels in a {@link ChannelRegistry}.
+ *
+ * <p>A webhook is routed to the channel of given channel ID, e.g. taken from the request path. Without a
+ * channel ID, it's routed by {@code destination} of the webhook, then verified with the secret of the channel.
+ */
+public class MultiChannelCallbackRequestParser {
+    private final JsonFactory jsonFactory =
+            ModelCodecRegistry.getInstance().readerFor(CallbackRequest.class).getFactory();
+    private final ChannelRegistry channelRegistry;
+    private final WebhookMetrics webhookMetrics;
+    private final boolean fastEventParsing;
+    private final ConcurrentMap<String, LineBotCallbackRequestParser> parsers = new ConcurrentHashMap<>();
+
+    public MultiChannelCallbackRequestParser(@NonNull ChannelRegistry channelRegistry) {
+        this(channelRegistry, WebhookMetrics.NOOP);
+    }
+
+    /**
+     * Create new instance.
+     *
+     * @param webhookMetrics Receives timings of reading, verifying and parsing requests.
+     */
+    public MultiChannelCallbackRequestParser(@NonNull ChannelRegistry channelRegistry,
+                                             @NonNull WebhookMetrics webhookMetrics) {
+        this(channelRegistry, webhookMetrics, false);
+    }
+
+    /**
+     * Create new instance.
+     *
+     * @param webhookMetrics Receives timings of reading, verifying and parsing requests.
+     * @param fastEventParsing {@code true} to parse requests by
+     *                         {@link ModelCodecRegistry#fastEventReaderFor(java.lang.reflect.Type)}.
+     */
+    public MultiChannelCallbackRequestParser(@NonNull ChannelRegistry channelRegistry,
+                                             @NonNull WebhookMetrics webhookMetrics,
+                                             boolean fastEventParsing) {
+        this.channelRegistry = channelRegistry;
+        this.webhookMetrics = webhookMetrics;
+        this.fastEventParsing = fastEventParsing;
+    }
+
+    /**
+     * Parse request.
+     *
+     * @param channelId Channel ID of the request. {@code null} to route by {@code destination}.
+     * @param req HTTP servlet request.
+     *
+     * @return Parsed result.
+     *
+     * @throws LineBotCallbackException The channel is unknown, or there's an error around signature.
+     */
+    public ChannelCallbackRequest handle(String channelId, HttpServletRequest req)
+            throws LineBotCallbackException, IOException {
+        final String signature = req.getHeader("X-Line-Signature");
+        final long startNanos = System.nanoTime();
+        final byte[] json = ByteStreams.toByteArray(req.getInputStream());
+        webhookMetrics.recordStage(Stage.READ, System.nanoTime() - startNanos);
+        return handle(channelId, signature, json);
+    }
+
+    /**
+     * Parse request.
+     *
+     * @param channelId Channel ID of the request. {@code null} to route by {@code destination}.
+     * @param signature X-Line-Signature header.
+     * @param json Request body.
+     *
+     * @return Parsed result.
+     *
+     * @throws LineBotCallbackException The channel is unknown, or there's an error around signature.
+     */
+    public ChannelCallbackRequest handle(String channelId, String signature, byte[] json)
+            throws LineBotCallbackException, IOException {
+        final ChannelConfiguration channel;
+        if (channelId != null) {
+            channel = channelRegistry.findById(channelId).orElseThrow(
+                    () -> new LineBotCallbackException("Unknown channel: " + channelId));
+        } else {
+            final String destination = readDestination(json);
+            if (destination == null) {
+                throw new LineBotCallbackException("Missing destination");
+            }
+            channel = channelRegistry.findByDestination(destination).orElseThrow(
+                    () -> new LineBotCallbackException("Unknown destination: " + destination));
+        }
+
+        final LineBotCallbackRequestParser parser = parsers.computeIfAbsent(
+                channel.getChannelSecret(),
+                secret -> new LineBotCallbackRequestParser(
+                        new LineSignatureValidator(secret.getBytes(StandardCharsets.UTF_8)), webhookMetrics,
+                        fastEventParsing));
+        return new ChannelCallbackRequest(channel, parser.handle(signature, json));
+    }
+
+    /**
+     * Returns the top level {@code destination} field without parsing events.
+     */
+    private String readDestination(byte[] json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                if ("destination".equals(name)) {
+                    return value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.servlet;
+
+import java.lang.reflect.Method;
+
+import com.linecorp.bot.model.event.Event;
+
+/**
+ * Receives timings of the webhook pipeline, e.g. to publish them to a metrics library.
+ *
+ * <p>All methods do nothing by default, and {@link #NOOP} is used unless an implementation is given.
+ * Implementations are called on request and handler threads, so they must be thread-safe and fast.
+ */
+public interface WebhookMetrics {
+    /**
+     * Records nothing.
+     */
+    WebhookMetrics NOOP = new WebhookMetrics() {};
+
+    /**
+     * Record how long a stage of a webhook request took.
+     */
+    default void recordStage(Stage stage, long durationNanos) {
+    }
+
+    /**
+     * Record how long a handler method took to process an event, until it returned or threw.
+     *
+     * @param error {@code null} if the handler method returned normally.
+     */
+    default void recordHandler(Method handler, Class<? extends Event> eventType, long durationNanos,
+                               Throwable error) {
+    }
+
+    /**
+     * Record how long a reply API call took, until its response.
+     *
+     * @param error {@code null} if the call succeeded.
+     */
+    default void recordReply(Class<? extends Event> eventType, long durationNanos, Throwable error) {
+    }
+
+    /**
+     * Record how long a reply API call took, until its response, with the handler method which returned the
+     * messages. Calls {@link #recordReply(Class, long, Throwable)} by default.
+     *
+     * @param handler {@code null} if unknown.
+     * @param error {@code null} if the call succeeded.
+     */
+    default void recordReply(Method handler, Class<? extends Event> eventType, long durationNanos,
+                             Throwable error) {
+        recordReply(eventType, durationNanos, error);
+    }
+
+    /**
+     * Record how long it took from the timestamp of an event until its reply was sent. Reply tokens expire
+     * by this latency.
+     */
+    default void recordReplyLatency(Class<? extends Event> eventType, long latencyNanos) {
+    }
+
+    /**
+     * Stage of a webhook request.
+     */
+    enum Stage {
+        /**
+         * Reading the request body.
+         */
+        READ,
+
+        /**
+         * Verifying {@code X-Line-Signature} of the request body.
+         */
+        VERIFY,
+
+        /**
+         * Deserializing the request body.
+         */
+        PARSE,
+
+        /**
+         * Passing events to handler methods, or to the executor of asynchronous handling.
+         */
+        DISPATCH,
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.servlet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import org.junit.Test;
+
+import com.linecorp.bot.client.ChannelConfiguration;
+import com.linecorp.bot.client.ChannelRegistry;
+import com.linecorp.bot.client.LineSignatureValidator;
+
+public class MultiChannelCallbackRequestParserTest {
+    private static final byte[] JSON = ("{\"events\":[{\"type\":\"unknown\"}],\"destination\":\"U2\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final MultiChannelCallbackRequestParser parser = new MultiChannelCallbackRequestParser(
+            ChannelRegistry.of(Arrays.asList(
+                    ChannelConfiguration.builder().channelId("1").destination("U1")
+                                        .channelSecret("SECRET1").channelToken("token1").build(),
+                    ChannelConfiguration.builder().channelId("2").destination("U2")
+                                        .channelSecret("SECRET2").channelToken("token2").build())));
+
+    @Test
+    public void routeByChannelId() throws Exception {
+        final ChannelCallbackRequest request = parser.handle("1", sign("SECRET1"), JSON);
+
+        assertThat(request.getChannel().getChannelId()).isEqualTo("1");
+        assertThat(request.getCallbackRequest().getEvents()).hasSize(1);
+    }
+
+    @Test
+    public void routeByDestination() throws Exception {
+        final ChannelCallbackRequest request = parser.handle(null, sign("SECRET2"), JSON);
+
+        assertThat(request.getChannel().getChannelId()).isEqualTo("2");
+        assertThat(request.getCallbackRequest().getDestination()).isEqualTo("U2");
+    }
+
+    @Test
+    public void unknownChannel() {
+        assertThatThrownBy(() -> parser.handle("3", sign("SECRET1"), JSON))
+                .isInstanceOf(LineBotCallbackException.class)
+                .hasMessage("Unknown channel: 3");
+    }
+
+    @Test
+    public void signedWithSecretOfAnotherChannel() {
+        assertThatThrownBy(() -> parser.handle(null, sign("SECRET1"), JSON))
+                .isInstanceOf(LineBotCallbackException.class)
+                .hasMessage("Invalid API signature");
+    }
+
+    private static String sign(final String channelSecret) {
+        final LineSignatureValidator validator =
+                new LineSignatureValidator(channelSecret.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(validator.generateSignature(JSON));
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Generates {@code LineMessageHandlerRegistry} of each {@code @LineMessageHandler} class.
+ *
+ * <p>Handler methods annotated with {@code @EventMapping}, {@code @TextMapping} or {@code @PostbackMapping}
+ * (directly or as a meta-annotation) are registered, including ones inherited from super classes. Methods
+ * taking an event are called directly by generated code. Other methods, e.g. private ones, batch handlers and
+ * {@code @PostbackMapping} methods, are registered without an invoker and called by method handles.
+ *
+ * <p>Mappings of methods annotated directly, i.e. priorities, event types and conditions, are registered too.
+ * Ones of methods mapped by meta-annotations, batch handlers and Kotlin {@code suspend} functions are resolved
+ * by reflection at runtime.
+ *
+ * <p>Annotations are referred by name, so that this processor doesn't depend on line-bot-spring-boot.
+ */
+@SupportedAnnotationTypes(LineMessageHandlerProcessor.LINE_MESSAGE_HANDLER)
+public class LineMessageHandlerProcessor extends AbstractProcessor {
+    static final String LINE_MESSAGE_HANDLER = "com.linecorp.bot.spring.boot.annotation.LineMessageHandler";
+    static final String CLASS_NAME_SUFFIX = "_LineMessageHandlerRegistry";
+
+    private static final String REGISTRY = "com.linecorp.bot.spring.boot.support.LineMessageHandlerRegistry";
+    private static final String MAPPING = REGISTRY + ".Mapping";
+    private static final String EVENT = "com.linecorp.bot.model.event.Event";
+    private static final String MESSAGE_CONTENT = "com.linecorp.bot.model.event.message.MessageContent";
+    private static final String PACKAGE_ANNOTATION = "com.linecorp.bot.spring.boot.annotation.";
+    private static final String EVENT_MAPPING = PACKAGE_ANNOTATION + "EventMapping";
+    private static final String TEXT_MAPPING = PACKAGE_ANNOTATION + "TextMapping";
+    private static final String POSTBACK_MAPPING = PACKAGE_ANNOTATION + "PostbackMapping";
+    private static final List<String> HANDLER_ANNOTATIONS = Arrays.asList(EVENT_MAPPING, TEXT_MAPPING);
+    private static final List<String> MAPPING_ANNOTATIONS =
+            Arrays.asList(EVENT_MAPPING, TEXT_MAPPING, POSTBACK_MAPPING);
+
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS && isAccessible((TypeElement) element)) {
+                    generate((TypeElement) element);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if given class can be referred from a class in the same package.
+     * Handler methods of other classes are collected by reflection.
+     */
+    private static boolean isAccessible(final TypeElement type) {
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            final TypeElement current = (TypeElement) element;
+            if (current.getModifiers().contains(Modifier.PRIVATE)
+                || current.getNestingKind() == NestingKind.LOCAL
+                || current.getNestingKind() == NestingKind.ANONYMOUS
+                || current.getNestingKind() == NestingKind.MEMBER
+                   && !current.getModifiers().contains(Modifier.STATIC)
+                   && !current.getEnclosingElement().getKind().isInterface()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void generate(final TypeElement type) {
+        final PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        final String packageName = packageElement.getQualifiedName().toString();
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        final String simpleName = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1)
+                                            .replace('$', '_') + CLASS_NAME_SUFFIX;
+        final String className = packageName.isEmpty() ? simpleName : packageName + '.' + simpleName;
+        if (!generated.add(className)) {
+            return;
+        }
+
+        final String handlerType = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+        try (PrintWriter writer = new PrintWriter(
+                processingEnv.getFiler().createSourceFile(className, type).openWriter())) {
+            writer.println("// Generated by " + LineMessageHandlerProcessor.class.getName() + ". Do not edit.");
+            if (!packageName.isEmpty()) {
+                writer.println("package " + packageName + ';');
+            }
+            writer.println();
+            writer.println("@SuppressWarnings({ \"deprecation\", \"rawtypes\", \"unchecked\" })");
+            writer.println("public final class " + simpleName);
+            writer.println("        implements " + REGISTRY + '<' + handlerType + "> {");
+            writer.println("    @Override");
+            writer.println("    public void register(final " + handlerType + " handler,");
+            writer.println("                         final Registrar registrar) {");
+            for (ExecutableElement method : findHandlerMethods(type)) {
+                writeRegistration(writer, type, method);
+            }
+            writer.println("    }");
+            writer.println('}');
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Kind.ERROR, "Can't generate " + className + ": " + e,
+                                                     type);
+        }
+    }
+
+    private void writeRegistration(final PrintWriter writer, final TypeElement type,
+                                   final ExecutableElement method) {
+        final String name = method.getSimpleName().toString();
+        final String parameterTypes = method.getParameters().stream()
+                                            .map(parameter -> erasure(parameter) + ".class")
+                                            .collect(Collectors.joining(", "));
+        writer.println("        registrar.add(\"" + name + "\", new Class<?>[] { " + parameterTypes + " },");
+        if (!isDirectlyCallable(type, method)) {
+            writer.println("                      null,");
+        } else {
+            final String call = "handler." + name + "((" + erasure(method.getParameters().get(0)) + ") event)";
+            if (method.getReturnType().getKind() == TypeKind.VOID) {
+                writer.println("                      event -> {");
+                writer.println("                          " + call + ';');
+                writer.println("                          return null;");
+                writer.println("                      },");
+            } else {
+                writer.println("                      event -> " + call + ',');
+            }
+        }
+        writer.println("                      " + mapping(method) + ");");
+    }
+
+    /**
+     * Returns an expression creating {@code Mapping} of given handler method, or {@code null} if it's
+     * resolved by reflection at runtime.
+     */
+    private String mapping(final ExecutableElement method) {
+        AnnotationMirror mapping = null;
+        for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+            final TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (MAPPING_ANNOTATIONS.contains(annotationType.getQualifiedName().toString())) {
+                if (mapping != null) {
+                    // Multiple mappings are reported at runtime.
+                    return "null";
+                }
+                mapping = annotation;
+            } else if (hasAnnotation(annotationType, MAPPING_ANNOTATIONS)) {
+                // Attributes of a meta-annotation may be overridden.
+                return "null";
+            }
+        }
+        if (mapping == null) {
+            return "null";
+        }
+
+        final Map<String, AnnotationValue> values = new HashMap<>();
+        processingEnv.getElementUtils().getElementValuesWithDefaults(mapping).forEach(
+                (attribute, value) -> values.put(attribute.getSimpleName().toString(), value));
+        final int priority = (Integer) values.get("priority").getValue();
+        final String annotationName =
+                ((TypeElement) mapping.getAnnotationType().asElement()).getQualifiedName().toString();
+        if (POSTBACK_MAPPING.equals(annotationName)) {
+            return MAPPING + ".postback(" + priority + ", " + strings(values.get("value")) + ')';
+        }
+
+        if (method.getParameters().size() != 1
+            || method.getParameters().get(0).asType().getKind() != TypeKind.DECLARED) {
+            return "null";
+        }
+        final DeclaredType parameterType = (DeclaredType) method.getParameters().get(0).asType();
+        final TypeElement eventType = (TypeElement) parameterType.asElement();
+        if (!isSubtype(parameterType, EVENT)) {
+            // Batch handlers taking List of events.
+            return "null";
+        }
+        final String contentType;
+        if (parameterType.getTypeArguments().isEmpty()) {
+            contentType = "null";
+        } else if (parameterType.getTypeArguments().size() == 1
+                   && parameterType.getTypeArguments().get(0).getKind() == TypeKind.DECLARED
+                   && isSubtype(parameterType.getTypeArguments().get(0), MESSAGE_CONTENT)) {
+            contentType = processingEnv.getTypeUtils().erasure(parameterType.getTypeArguments().get(0))
+                          + ".class";
+        } else {
+            return "null";
+        }
+        final String types = eventType.getQualifiedName() + ".class, " + contentType;
+
+        if (TEXT_MAPPING.equals(annotationName)) {
+            return MAPPING + ".text(" + priority + ", " + types + ", " + strings(values.get("prefix")) + ", "
+                   + strings(values.get("contains")) + ", " + strings(values.get("regex")) + ')';
+        }
+        return MAPPING + ".event(" + eventPriority(priority, eventType, contentType) + ", " + types + ')';
+    }
+
+    /**
+     * Resolves default priority of {@code @EventMapping} by the event type, as same as runtime.
+     */
+    private int eventPriority(final int priority, final TypeElement eventType, final String contentType) {
+        if (priority != eventMappingConstant("DEFAULT_PRIORITY_VALUE")) {
+            return priority;
+        }
+        if (eventType.getQualifiedName().contentEquals(EVENT)) {
+            return eventMappingConstant("DEFAULT_PRIORITY_FOR_EVENT_IFACE");
+        }
+        if (!"null".equals(contentType)) {
+            return eventMappingConstant("DEFAULT_PRIORITY_FOR_PARAMETRIZED_TYPE");
+        }
+        return eventType.getKind().isInterface() ? eventMappingConstant("DEFAULT_PRIORITY_FOR_IFACE")
+                                                 : eventMappingConstant("DEFAULT_PRIORITY_FOR_CLASS");
+    }
+
+    private int eventMappingConstant(final String name) {
+        final TypeElement eventMapping = processingEnv.getElementUtils().getTypeElement(EVENT_MAPPING);
+        for (VariableElement field : ElementFilter.fieldsIn(eventMapping.getEnclosedElements())) {
+            if (field.getSimpleName().contentEquals(name)) {
+                return (Integer) field.getConstantValue();
+            }
+        }
+        throw new IllegalStateException("Constant not found: " + EVENT_MAPPING + '.' + name);
+    }
+
+    private boolean isSubtype(final TypeMirror type, final String superTypeName) {
+        final TypeElement superType = processingEnv.getElementUtils().getTypeElement(superTypeName);
+        return superType != null
+               && processingEnv.getTypeUtils().isSubtype(processingEnv.getTypeUtils().erasure(type),
+                                                         superType.asType());
+    }
+
+    /**
+     * Returns an expression of {@code String[]} of given annotation value.
+     */
+    private String strings(final AnnotationValue value) {
+        @SuppressWarnings("unchecked")
+        final List<? extends AnnotationValue> elements = (List<? extends AnnotationValue>) value.getValue();
+        if (elements.isEmpty()) {
+            return "new String[0]";
+        }
+        return elements.stream()
+                       .map(element -> processingEnv.getElementUtils()
+                                                    .getConstantExpression(element.getValue()))
+                       .collect(Collectors.joining(", ", "new String[] { ", " }"));
+    }
+
+    private String erasure(final VariableElement parameter) {
+        return processingEnv.getTypeUtils().erasure(parameter.asType()).toString();
+    }
+
+    /**
+     * Returns {@code true} if given handler method can be called by generated code with an event.
+     */
+    private boolean isDirectlyCallable(final TypeElement type, final ExecutableElement method) {
+        if (method.getModifiers().contains(Modifier.PRIVATE)
+            || method.getModifiers().contains(Modifier.STATIC)
+            || method.getParameters().size() != 1
+            || !hasAnnotation(method, HANDLER_ANNOTATIONS)) {
+            return false;
+        }
+        if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+            final PackageElement declaringPackage =
+                    processingEnv.getElementUtils().getPackageOf(method.getEnclosingElement());
+            if (!declaringPackage.equals(processingEnv.getElementUtils().getPackageOf(type))) {
+                return false;
+            }
+        }
+
+        // Batch handlers taking List of events aren't, because List isn't an event.
+        return isSubtype(method.getParameters().get(0).asType(), EVENT);
+    }
+
+    /**
+     * Returns handler methods of given class and its super classes, except overridden ones.
+     */
+    private List<ExecutableElement> findHandlerMethods(final TypeElement type) {
+        final List<ExecutableElement> handlerMethods = new ArrayList<>();
+        final List<ExecutableElement> seen = new ArrayList<>();
+        final Elements elements = processingEnv.getElementUtils();
+        for (TypeElement current = type; current != null; current = getSuperclass(current)) {
+            for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+                final boolean overridden =
+                        seen.stream().anyMatch(overrider -> elements.overrides(overrider, method, type));
+                seen.add(method);
+                if (!overridden && hasAnnotation(method, MAPPING_ANNOTATIONS)) {
+                    handlerMethods.add(method);
+                }
+            }
+        }
+        return handlerMethods;
+    }
+
+    private TypeElement getSuperclass(final TypeElement type) {
+        final TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        final TypeElement element = (TypeElement) processingEnv.getTypeUtils().asElement(superclass);
+        return element.getQualifiedName().contentEquals(Object.class.getName()) ? null : element;
+    }
+
+    /**
+     * Returns {@code true} if given element is annotated with one of given annotations, directly or as a
+     * meta-annotation.
+     */
+    private static boolean hasAnnotation(final Element element, final List<String> annotationNames) {
+        return hasAnnotation(element, annotationNames, new HashSet<>());
+    }
+
+    private static boolean hasAnnotation(final Element element, final List<String> annotationNames,
+                                         final Set<String> visited) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            final TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            final String name = annotationType.getQualifiedName().toString();
+            if (annotationNames.contains(name)) {
+                return true;
+            }
+            if (!name.startsWith("java.lang.annotation.") && visited.add(name)
+                && hasAnnotation(annotationType, annotationNames, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.processor;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.linecorp.bot.model.event.BeaconEvent;
+import com.linecorp.bot.model.event.FollowEvent;
+import com.linecorp.bot.model.event.JoinEvent;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.message.TextMessageContent;
+import com.linecorp.bot.model.event.source.UserSource;
+import com.linecorp.bot.spring.boot.support.LineMessageHandlerRegistry;
+import com.linecorp.bot.spring.boot.support.LineMessageHandlerRegistry.Invoker;
+import com.linecorp.bot.spring.boot.support.LineMessageHandlerRegistry.Mapping;
+import com.linecorp.bot.spring.boot.support.LineMessageHandlerRegistry.Registrar;
+
+public class LineMessageHandlerProcessorTest {
+    private static final String BASE_HANDLER = String.join(
+            "\n",
+            "package test;",
+            "import com.linecorp.bot.model.event.*;",
+            "import com.linecorp.bot.spring.boot.annotation.*;",
+            "public class BaseHandler {",
+            "    @EventMapping public void overridden(Event event) {}",
+            "    @EventMapping public String inherited(BeaconEvent event) { return \"inherited\"; }",
+            "}");
+
+    private static final String HANDLER = String.join(
+            "\n",
+            "package test;",
+            "import java.util.List;",
+            "import com.linecorp.bot.model.event.*;",
+            "import com.linecorp.bot.model.event.message.*;",
+            "import com.linecorp.bot.spring.boot.annotation.*;",
+            "@LineMessageHandler",
+            "public class EchoHandler extends BaseHandler {",
+            "    @EventMapping public String text(MessageEvent<TextMessageContent> event) { return \"text\"; }",
+            "    @EventMapping String follow(FollowEvent event) { return \"follow\"; }",
+            "    @EventMapping public void unfollow(UnfollowEvent event) {}",
+            "    @EventMapping private void join(JoinEvent event) {}",
+            "    @EventMapping public void batch(List<LeaveEvent> events) {}",
+            "    @PostbackMapping(\"action=buy\") public void buy(PostbackEvent event) {}",
+            "    @TextMapping(prefix = \"/help\") public void help(MessageEvent<TextMessageContent> event) {}",
+            "    @Override public void overridden(Event event) {}",
+            "    public void notHandler(Event event) {}",
+            "    @LineMessageHandler",
+            "    public static class Nested {",
+            "        @EventMapping public void follow(FollowEvent event) {}",
+            "    }",
+            "}");
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void registerHandlerMethods() throws Throwable {
+        final ClassLoader classLoader = compile();
+        final Map<String, Invoker> methods = register(classLoader, "test.EchoHandler");
+
+        assertThat(methods).containsOnlyKeys("text", "follow", "unfollow", "join", "batch", "buy", "help",
+                                             "inherited");
+        assertThat(methods.get("join")).isNull();
+        assertThat(methods.get("batch")).isNull();
+        assertThat(methods.get("buy")).isNull();
+        assertThat(methods.get("help")).isNotNull();
+        assertThat(methods.get("inherited")).isNotNull();
+
+        final FollowEvent event = new FollowEvent("replyToken", new UserSource("userId"), Instant.EPOCH);
+        assertThat(methods.get("follow").invoke(event)).isEqualTo("follow");
+    }
+
+    @Test
+    public void nestedClass() throws Throwable {
+        final ClassLoader classLoader = compile();
+        final Map<String, Invoker> methods = register(classLoader, "test.EchoHandler$Nested");
+
+        assertThat(methods).containsOnlyKeys("follow");
+        final FollowEvent event = new FollowEvent("replyToken", new UserSource("userId"), Instant.EPOCH);
+        assertThat(methods.get("follow").invoke(event)).isNull();
+    }
+
+    @Test
+    public void registerMappings() throws Exception {
+        final ClassLoader classLoader = compile();
+        final Object handler = classLoader.loadClass("test.EchoHandler").getConstructor().newInstance();
+        final Map<String, Mapping> mappings = new LinkedHashMap<>();
+        registry(classLoader, "test.EchoHandler").register(handler, new Registrar() {
+            @Override
+            public void add(final String methodName, final Class<?>[] parameterTypes, final Invoker invoker) {
+                throw new AssertionError("Registered without mapping: " + methodName);
+            }
+
+            @Override
+            public void add(final String methodName, final Class<?>[] parameterTypes, final Invoker invoker,
+                            final Mapping mapping) {
+                mappings.put(methodName, mapping);
+            }
+        });
+
+        assertThat(mappings.get("text")).isEqualTo(
+                Mapping.event(300, MessageEvent.class, TextMessageContent.class));
+        assertThat(mappings.get("follow")).isEqualTo(Mapping.event(200, FollowEvent.class, null));
+        assertThat(mappings.get("join")).isEqualTo(Mapping.event(200, JoinEvent.class, null));
+        assertThat(mappings.get("inherited")).isEqualTo(Mapping.event(200, BeaconEvent.class, null));
+        assertThat(mappings.get("buy")).isEqualTo(Mapping.postback(0, new String[] { "action=buy" }));
+        assertThat(mappings.get("help")).isEqualTo(
+                Mapping.text(0, MessageEvent.class, TextMessageContent.class,
+                             new String[] { "/help" }, new String[0], new String[0]));
+        // Batch handlers are mapped by reflection.
+        assertThat(mappings).containsKey("batch");
+        assertThat(mappings.get("batch")).isNull();
+    }
+
+    private ClassLoader compile() throws Exception {
+        final File output = temporaryFolder.newFolder();
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final List<String> options = Arrays.asList(
+                "-classpath", System.getProperty("java.class.path"), "-d", output.getPath());
+        final JavaCompiler.CompilationTask task = compiler.getTask(
+                null, null, null, options, null,
+                Arrays.asList(new Source("test/BaseHandler", BASE_HANDLER),
+                              new Source("test/EchoHandler", HANDLER)));
+        task.setProcessors(singletonList(new LineMessageHandlerProcessor()));
+        assertThat(task.call()).isTrue();
+
+        return new URLClassLoader(new URL[] { output.toURI().toURL() }, getClass().getClassLoader());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Invoker> register(final ClassLoader classLoader, final String handlerClassName)
+            throws Exception {
+        final Object handler = classLoader.loadClass(handlerClassName).getConstructor().newInstance();
+        final LineMessageHandlerRegistry<Object> registry =
+                (LineMessageHandlerRegistry<Object>) classLoader
+                        .loadClass(handlerClassName.replace('$', '_')
+                                   + LineMessageHandlerProcessor.CLASS_NAME_SUFFIX)
+                        .getConstructor().newInstance();
+
+        final Map<String, Invoker> methods = new LinkedHashMap<>();
+        registry.register(handler, (methodName, parameterTypes, invoker) -> methods.put(methodName, invoker));
+        return methods;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static LineMessageHandlerRegistry<Object> registry(final ClassLoader classLoader,
+                                                               final String handlerClassName)
+            throws Exception {
+        return (LineMessageHandlerRegistry<Object>) classLoader
+                .loadClass(handlerClassName.replace('$', '_') + LineMessageHandlerProcessor.CLASS_NAME_SUFFIX)
+                .getConstructor().newInstance();
+    }
+
+    private static class Source extends SimpleJavaFileObject {
+        private final String content;
+
+        Source(final String name, final String content) {
+            super(URI.create("string:///" + name + Kind.SOURCE.extension), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.webflux;
+
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import com.linecorp.bot.client.LineSignatureValidator;
+import com.linecorp.bot.spring.boot.LineBotAutoConfiguration;
+import com.linecorp.bot.spring.boot.LineBotProperties;
+
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Webhook endpoint on Spring WebFlux, e.g. on Reactor Netty.
+ *
+ * <p>Replaces {@link com.linecorp.bot.spring.boot.LineBotWebMvcConfigurer} and
+ * {@link com.linecorp.bot.spring.boot.support.LineMessageHandlerSupport}, which are disabled without
+ * Spring MVC. Clients are still exposed by {@link LineBotAutoConfiguration}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@AutoConfigureAfter(LineBotAutoConfiguration.class)
+@Import(ReactiveLineMessageHandlerSupport.class)
+public class LineBotWebFluxAutoConfiguration {
+    @Autowired
+    private LineBotProperties lineBotProperties;
+
+    /**
+     * Expose {@link LineSignatureValidator} as {@link Bean}.
+     */
+    @Bean
+    @ConditionalOnMissingBean(LineSignatureValidator.class)
+    public LineSignatureValidator lineSignatureValidator() {
+        return new LineSignatureValidator(
+                lineBotProperties.getChannelSecret().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Expose the {@link Scheduler} dispatching events as {@link Bean}, bounded by
+     * {@code line.bot.handler.async-executor.threads} and {@code queue-capacity}.
+     */
+    @Bean(name = ReactiveLineMessageHandlerSupport.HANDLER_SCHEDULER_BEAN_NAME, destroyMethod = "dispose")
+    @ConditionalOnMissingBean(name = ReactiveLineMessageHandlerSupport.HANDLER_SCHEDULER_BEAN_NAME)
+    public Scheduler lineBotHandlerScheduler() {
+        return ReactiveLineMessageHandlerSupport.newHandlerScheduler(
+                lineBotProperties.getHandler().getAsyncExecutor());
+    }
+
+    /**
+     * Expose {@link ReactiveCallbackRequestParser} as {@link Bean}.
+     */
+    @Bean
+    public ReactiveCallbackRequestParser reactiveCallbackRequestParser(
+            final LineSignatureValidator lineSignatureValidator) {
+        return new ReactiveCallbackRequestParser(lineSignatureValidator,
+                                                 lineBotProperties.isFastEventParsing());
+    }
+}
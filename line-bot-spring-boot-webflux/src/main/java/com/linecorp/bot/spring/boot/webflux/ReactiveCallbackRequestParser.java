@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.webflux;
+
+import java.io.IOException;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import com.linecorp.bot.client.LineSignatureValidator;
+import com.linecorp.bot.model.event.CallbackRequest;
+import com.linecorp.bot.model.objectmapper.ModelCodecRegistry;
+import com.linecorp.bot.servlet.LineBotCallbackException;
+
+import lombok.NonNull;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link com.linecorp.bot.servlet.LineBotCallbackRequestParser}.
+ *
+ * <p>The request body is joined from {@link DataBuffer}s as they arrive, and the signature is validated and
+ * the payload is parsed on the thread which receives the last buffer. No thread waits for the body.
+ */
+public class ReactiveCallbackRequestParser {
+    private final ObjectReader callbackRequestReader;
+    private final LineSignatureValidator lineSignatureValidator;
+
+    /**
+     * Create new instance.
+     *
+     * @param lineSignatureValidator LINE messaging API's signature validator
+     */
+    public ReactiveCallbackRequestParser(@NonNull LineSignatureValidator lineSignatureValidator) {
+        this(lineSignatureValidator, false);
+    }
+
+    /**
+     * Create new instance.
+     *
+     * @param lineSignatureValidator LINE messaging API's signature validator
+     * @param fastEventParsing {@code true} to parse requests by
+     *                         {@link ModelCodecRegistry#fastEventReaderFor(java.lang.reflect.Type)}.
+     */
+    public ReactiveCallbackRequestParser(@NonNull LineSignatureValidator lineSignatureValidator,
+                                         boolean fastEventParsing) {
+        this.lineSignatureValidator = lineSignatureValidator;
+        callbackRequestReader = fastEventParsing
+                                ? ModelCodecRegistry.getInstance().fastEventReaderFor(CallbackRequest.class)
+                                : ModelCodecRegistry.getInstance().readerFor(CallbackRequest.class);
+    }
+
+    /**
+     * Parse request.
+     *
+     * @param signature X-Line-Signature header.
+     * @param body Request body.
+     *
+     * @return Parsed result. Fails with {@link LineBotCallbackException} if there's an error around
+     *         signature or content.
+     */
+    public Mono<CallbackRequest> parse(final String signature, final Publisher<DataBuffer> body) {
+        if (signature == null || signature.isEmpty()) {
+            return Mono.error(new LineBotCallbackException("Missing 'X-Line-Signature' header"));
+        }
+
+        return DataBufferUtils.join(body)
+                              .switchIfEmpty(Mono.error(new LineBotCallbackException("Invalid content")))
+                              .handle((buffer, sink) -> {
+                                  final byte[] json = new byte[buffer.readableByteCount()];
+                                  buffer.read(json);
+                                  DataBufferUtils.release(buffer);
+                                  try {
+                                      sink.next(parse(signature, json));
+                                  } catch (LineBotCallbackException | IOException e) {
+                                      sink.error(e);
+                                  }
+                              });
+    }
+
+    private CallbackRequest parse(final String signature, final byte[] json)
+            throws LineBotCallbackException, IOException {
+        if (!lineSignatureValidator.validateSignature(json, signature)) {
+            throw new LineBotCallbackException("Invalid API signature");
+        }
+
+        final CallbackRequest callbackRequest = callbackRequestReader.readValue(json);
+        if (callbackRequest == null || callbackRequest.getEvents() == null) {
+            throw new LineBotCallbackException("Invalid content");
+        }
+        return callbackRequest;
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.webflux;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+import com.linecorp.bot.client.LineMessagingClient;
+import com.linecorp.bot.model.ReplyMessage;
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.ReplyEvent;
+import com.linecorp.bot.model.event.message.MessageContent;
+import com.linecorp.bot.model.message.Message;
+import com.linecorp.bot.servlet.LineBotCallbackException;
+import com.linecorp.bot.spring.boot.LineBotProperties.AsyncExecutor;
+import com.linecorp.bot.spring.boot.annotation.EventMapping;
+import com.linecorp.bot.spring.boot.annotation.LineMessageHandler;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactive dispatcher for LINE Message Event Handling.
+ *
+ * <p>Handler methods are collected by the same rules as
+ * {@link com.linecorp.bot.spring.boot.support.LineMessageHandlerSupport}, i.e. methods annotated with
+ * {@link EventMapping} in classes annotated with {@link LineMessageHandler}. In addition to the return
+ * types supported there, handler methods may return {@link Mono} or {@link Flux} of {@link Message}s.
+ *
+ * <p>The webhook request is acknowledged as soon as events are parsed, and events are dispatched on the
+ * bounded {@link Scheduler} bean named {@value #HANDLER_SCHEDULER_BEAN_NAME}. Handler methods returning
+ * {@link Publisher} must not block. Other handler methods may block, so each call is scheduled on the
+ * scheduler separately. Replies are sent when the returned value completes, without blocking any thread.
+ */
+@Slf4j
+@Beta
+@RestController
+@ConditionalOnProperty(name = "line.bot.handler.enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveLineMessageHandlerSupport implements DisposableBean {
+    /**
+     * Name of {@link Scheduler} bean to dispatch events on. A scheduler bounded by the defaults of
+     * {@link AsyncExecutor} is used if there's no such bean.
+     */
+    public static final String HANDLER_SCHEDULER_BEAN_NAME = "lineBotHandlerScheduler";
+    private static final String SIGNATURE_HEADER = "X-Line-Signature";
+    private static final Comparator<HandlerMethod> HANDLER_METHOD_PRIORITY_COMPARATOR =
+            Comparator.comparing(HandlerMethod::getPriority).reversed();
+
+    private final LineMessagingClient lineMessagingClient;
+    private final ReactiveCallbackRequestParser callbackRequestParser;
+    private final ConfigurableApplicationContext applicationContext;
+
+    volatile List<HandlerMethod> eventConsumerList = emptyList();
+
+    private volatile Scheduler handlerScheduler;
+
+    /**
+     * {@code true} if {@link #handlerScheduler} is the default one, which is disposed with this bean.
+     */
+    private boolean ownedHandlerScheduler;
+
+    @Autowired
+    public ReactiveLineMessageHandlerSupport(
+            final LineMessagingClient lineMessagingClient,
+            final ReactiveCallbackRequestParser callbackRequestParser,
+            final ConfigurableApplicationContext applicationContext) {
+        this.lineMessagingClient = lineMessagingClient;
+        this.callbackRequestParser = callbackRequestParser;
+        this.applicationContext = applicationContext;
+
+        applicationContext.addApplicationListener(event -> {
+            if (event instanceof ContextRefreshedEvent) {
+                refresh();
+            }
+        });
+    }
+
+    @VisibleForTesting
+    void refresh() {
+        final Map<String, Object> handlerBeanMap =
+                applicationContext.getBeansWithAnnotation(LineMessageHandler.class);
+
+        final List<HandlerMethod> collect = handlerBeanMap
+                .values().stream()
+                .flatMap(bean -> Arrays.stream(ReflectionUtils.getUniqueDeclaredMethods(bean.getClass()))
+                                       .map(method -> createHandlerMethod(bean, method))
+                                       .filter(Objects::nonNull))
+                .sorted(HANDLER_METHOD_PRIORITY_COMPARATOR)
+                .collect(Collectors.toList());
+
+        if (handlerScheduler == null) {
+            if (applicationContext.containsBean(HANDLER_SCHEDULER_BEAN_NAME)) {
+                handlerScheduler = applicationContext.getBean(HANDLER_SCHEDULER_BEAN_NAME, Scheduler.class);
+            } else {
+                handlerScheduler = newHandlerScheduler(new AsyncExecutor());
+                ownedHandlerScheduler = true;
+            }
+        }
+
+        log.info("Registered LINE Messaging API event handler: count = {}", collect.size());
+        collect.forEach(item -> log.info("Mapped \"{}\" onto {}",
+                                         item.getSupportType(), item.getHandler().toGenericString()));
+        eventConsumerList = collect;
+    }
+
+    /**
+     * Create a {@link Scheduler} of {@link AsyncExecutor#getThreads()} threads, which rejects tasks beyond
+     * {@link AsyncExecutor#getQueueCapacity()}.
+     */
+    static Scheduler newHandlerScheduler(final AsyncExecutor properties) {
+        return Schedulers.fromExecutorService(new ThreadPoolExecutor(
+                properties.getThreads(), properties.getThreads(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                new CustomizableThreadFactory("line-bot-handler-")));
+    }
+
+    @Override
+    public void destroy() {
+        if (ownedHandlerScheduler) {
+            handlerScheduler.dispose();
+        }
+    }
+
+    private static HandlerMethod createHandlerMethod(final Object consumer, final Method method) {
+        final EventMapping mapping = AnnotatedElementUtils.getMergedAnnotation(method, EventMapping.class);
+        if (mapping == null) {
+            return null;
+        }
+
+        Preconditions.checkState(method.getParameterCount() == 1,
+                                 "Number of parameter should be 1. But %s", method);
+        final Type type = method.getGenericParameterTypes()[0];
+        final ResolvableType eventType = ResolvableType.forType(type);
+        Preconditions.checkState(Event.class.isAssignableFrom(eventType.resolve(Object.class)),
+                                 "Handler argument type should BE-A Event. But %s", type);
+
+        ReflectionUtils.makeAccessible(method);
+        final MethodHandle invoker;
+        try {
+            invoker = MethodHandles.lookup()
+                                   .unreflect(method)
+                                   .bindTo(consumer)
+                                   .asType(MethodType.methodType(Object.class, Event.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Can't access handler method: " + method, e);
+        }
+
+        final Class<?> messageContentType = MessageEvent.class.isAssignableFrom(eventType.resolve(Object.class))
+                                            ? eventType.resolveGeneric(0)
+                                            : null;
+        return new HandlerMethod(eventType, messageContentType, method, invoker, getPriority(mapping, type),
+                                 Publisher.class.isAssignableFrom(method.getReturnType()));
+    }
+
+    private static int getPriority(final EventMapping mapping, final Type type) {
+        if (mapping.priority() != EventMapping.DEFAULT_PRIORITY_VALUE) {
+            return mapping.priority();
+        }
+        if (type == Event.class) {
+            return EventMapping.DEFAULT_PRIORITY_FOR_EVENT_IFACE;
+        }
+        if (type instanceof ParameterizedType) {
+            return EventMapping.DEFAULT_PRIORITY_FOR_PARAMETRIZED_TYPE;
+        }
+        return ((Class<?>) type).isInterface() ? EventMapping.DEFAULT_PRIORITY_FOR_IFACE
+                                               : EventMapping.DEFAULT_PRIORITY_FOR_CLASS;
+    }
+
+    /**
+     * Respond {@code 200} once events are parsed, and dispatch them without waiting for handler methods.
+     */
+    @PostMapping("${line.bot.handler.path:/callback}")
+    public Mono<ResponseEntity<String>> callback(final ServerHttpRequest request) {
+        return callbackRequestParser
+                .parse(request.getHeaders().getFirst(SIGNATURE_HEADER), request.getBody())
+                .doOnNext(callbackRequest -> dispatch(callbackRequest.getEvents())
+                        .subscribeOn(handlerScheduler)
+                        .subscribe(null, t -> log.error("Failed to dispatch events: {}", t.getMessage(), t)))
+                .thenReturn(ResponseEntity.ok().<String>build())
+                .onErrorResume(LineBotCallbackException.class, e -> {
+                    log.info("LINE Bot callback exception: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().body(e.getMessage()));
+                });
+    }
+
+    /**
+     * Dispatch given events to handler methods concurrently.
+     *
+     * @return {@link Mono} which completes when all replies are sent.
+     */
+    public Mono<Void> dispatch(final List<Event> events) {
+        return Flux.fromIterable(events)
+                   .flatMap(this::dispatch)
+                   .then();
+    }
+
+    /**
+     * Dispatch given event to the handler method, and reply messages of the return value.
+     * Errors are logged, not propagated.
+     */
+    public Mono<Void> dispatch(final Event event) {
+        final HandlerMethod handlerMethod = eventConsumerList.stream()
+                                                             .filter(item -> item.test(event))
+                                                             .findFirst()
+                                                             .orElse(null);
+        if (handlerMethod == null) {
+            log.error("Unsupported event type. {}", event);
+            return Mono.empty();
+        }
+
+        return invoke(handlerMethod, event)
+                .filter(messages -> !messages.isEmpty())
+                .flatMap(messages -> reply(event, messages))
+                .onErrorResume(t -> {
+                    log.error(t.getMessage(), t);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<List<Message>> invoke(final HandlerMethod handlerMethod, final Event event) {
+        if (handlerMethod.isReactive()) {
+            return Mono.defer(() -> toMessages(handlerMethod.invoke(event)));
+        }
+        return Mono.fromCallable(() -> handlerMethod.invoke(event))
+                   .subscribeOn(handlerScheduler)
+                   .flatMap(ReactiveLineMessageHandlerSupport::toMessages);
+    }
+
+    private static Mono<List<Message>> toMessages(final Object returnValue) {
+        if (returnValue == null) {
+            return Mono.empty();
+        }
+        if (returnValue instanceof Mono) {
+            return ((Mono<?>) returnValue).map(ReactiveLineMessageHandlerSupport::toMessageList);
+        }
+        if (returnValue instanceof Publisher) {
+            return Flux.from((Publisher<?>) returnValue)
+                       .collectList()
+                       .map(ReactiveLineMessageHandlerSupport::toMessageList);
+        }
+        if (returnValue instanceof CompletableFuture) {
+            return Mono.fromFuture((CompletableFuture<?>) returnValue)
+                       .map(ReactiveLineMessageHandlerSupport::toMessageList);
+        }
+        return Mono.just(toMessageList(returnValue));
+    }
+
+    private static List<Message> toMessageList(final Object value) {
+        if (value instanceof Message) {
+            return singletonList((Message) value);
+        }
+        if (value instanceof List) {
+            final List<?> list = (List<?>) value;
+            for (int i = 0; i < list.size(); ++i) {
+                Preconditions.checkArgument(list.get(i) instanceof Message,
+                                            "List contains not Message type object. index = %s in %s",
+                                            i, list);
+            }
+            @SuppressWarnings("unchecked")
+            final List<Message> messages = (List<Message>) list;
+            return messages;
+        }
+        return emptyList();
+    }
+
+    private Mono<Void> reply(final Event event, final List<Message> messages) {
+        if (!(event instanceof ReplyEvent)) {
+            log.warn("Can't reply to event without reply token: {}", event);
+            return Mono.empty();
+        }
+
+        final ReplyMessage replyMessage = new ReplyMessage(((ReplyEvent) event).getReplyToken(), messages);
+        return Mono.defer(() -> Mono.fromFuture(lineMessagingClient.replyMessage(replyMessage)))
+                   .doOnNext(response -> log.debug("Reply message success. response = {}", response))
+                   .then();
+    }
+
+    @Value
+    static class HandlerMethod {
+        ResolvableType supportType;
+
+        /**
+         * {@code null} unless the handler method takes {@code MessageEvent<? extends MessageContent>}.
+         */
+        Class<?> messageContentType;
+        Method handler;
+
+        /**
+         * {@code (Event)Object} type, bound to the handler bean.
+         */
+        MethodHandle invoker;
+        int priority;
+
+        /**
+         * {@code true} if the handler method returns {@link Publisher}.
+         */
+        boolean reactive;
+
+        boolean test(final Event event) {
+            if (!supportType.resolve(Object.class).isInstance(event)) {
+                return false;
+            }
+            if (messageContentType == null || messageContentType == MessageContent.class) {
+                return true;
+            }
+            final MessageContent content = ((MessageEvent<?>) event).getMessage();
+            return content != null && messageContentType.isInstance(content);
+        }
+
+        Object invoke(final Event event) {
+            try {
+                return (Object) invoker.invokeExact(event);
+            } catch (Throwable t) {
+                throw Exceptions.propagate(t);
+            }
+        }
+    }
+}
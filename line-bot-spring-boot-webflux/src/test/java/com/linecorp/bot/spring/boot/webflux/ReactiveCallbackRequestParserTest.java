@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.webflux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import org.junit.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import com.linecorp.bot.client.LineSignatureValidator;
+import com.linecorp.bot.model.event.CallbackRequest;
+import com.linecorp.bot.model.event.FollowEvent;
+import com.linecorp.bot.servlet.LineBotCallbackException;
+
+import reactor.core.publisher.Flux;
+
+public class ReactiveCallbackRequestParserTest {
+    private static final byte[] PAYLOAD =
+            ("{\"events\":[{\"type\":\"follow\",\"replyToken\":\"replyToken\",\"timestamp\":0,"
+             + "\"source\":{\"type\":\"user\",\"userId\":\"userId\"}}]}").getBytes(StandardCharsets.UTF_8);
+
+    private final LineSignatureValidator lineSignatureValidator =
+            new LineSignatureValidator("SECRET".getBytes(StandardCharsets.UTF_8));
+    private final ReactiveCallbackRequestParser target =
+            new ReactiveCallbackRequestParser(lineSignatureValidator);
+
+    @Test
+    public void parseTest() {
+        final String signature =
+                Base64.getEncoder().encodeToString(lineSignatureValidator.generateSignature(PAYLOAD));
+
+        // Do
+        final CallbackRequest callbackRequest = target.parse(signature, split(PAYLOAD)).block();
+
+        // Verify
+        assertThat(callbackRequest.getEvents()).hasSize(1);
+        assertThat(callbackRequest.getEvents().get(0)).isInstanceOf(FollowEvent.class);
+    }
+
+    @Test
+    public void missingHeaderTest() {
+        assertThatThrownBy(() -> target.parse(null, split(PAYLOAD)).block())
+                .hasCauseInstanceOf(LineBotCallbackException.class)
+                .hasMessageContaining("Missing 'X-Line-Signature' header");
+    }
+
+    @Test
+    public void invalidSignatureTest() {
+        assertThatThrownBy(() -> target.parse("SSSSIGNATURE", split(PAYLOAD)).block())
+                .hasCauseInstanceOf(LineBotCallbackException.class)
+                .hasMessageContaining("Invalid API signature");
+    }
+
+    /**
+     * Split given payload into two {@link DataBuffer}s, as if it's received in two chunks.
+     */
+    private static Flux<DataBuffer> split(final byte[] payload) {
+        final DefaultDataBufferFactory factory = new DefaultDataBufferFactory();
+        final int half = payload.length / 2;
+        return Flux.just(factory.wrap(Arrays.copyOfRange(payload, 0, half)),
+                         factory.wrap(Arrays.copyOfRange(payload, half, payload.length)));
+    }
+}
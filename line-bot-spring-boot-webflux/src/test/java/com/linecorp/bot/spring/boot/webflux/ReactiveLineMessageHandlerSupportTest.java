@@ -0,0 +1,195 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.webflux;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.reactivestreams.Publisher;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import com.linecorp.bot.client.LineMessagingClient;
+import com.linecorp.bot.model.ReplyMessage;
+import com.linecorp.bot.model.event.CallbackRequest;
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.FollowEvent;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.message.TextMessageContent;
+import com.linecorp.bot.model.event.source.UserSource;
+import com.linecorp.bot.model.message.TextMessage;
+import com.linecorp.bot.model.response.BotApiResponse;
+import com.linecorp.bot.spring.boot.annotation.EventMapping;
+import com.linecorp.bot.spring.boot.annotation.LineMessageHandler;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ReactiveLineMessageHandlerSupportTest {
+    @Rule
+    public final MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private ConfigurableApplicationContext applicationContext;
+
+    @Mock
+    private LineMessagingClient lineMessagingClient;
+
+    @Mock
+    private ReactiveCallbackRequestParser callbackRequestParser;
+
+    @InjectMocks
+    private ReactiveLineMessageHandlerSupport target;
+
+    @Before
+    public void setUp() {
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", new ReactiveHandler()));
+        when(lineMessagingClient.replyMessage(any()))
+                .thenReturn(CompletableFuture.completedFuture(new BotApiResponse("", null)));
+        target.refresh();
+    }
+
+    @After
+    public void tearDown() {
+        target.destroy();
+    }
+
+    @Test
+    public void replyByMonoTest() {
+        // Do
+        target.dispatch(createTextMessage("mono")).block();
+
+        // Verify
+        verify(lineMessagingClient).replyMessage(new ReplyMessage("replyToken", new TextMessage("mono")));
+    }
+
+    @Test
+    public void replyByFluxTest() {
+        // Do
+        target.dispatch(createTextMessage("flux")).block();
+
+        // Verify
+        verify(lineMessagingClient).replyMessage(
+                new ReplyMessage("replyToken", Arrays.asList(new TextMessage("1"), new TextMessage("2"))));
+    }
+
+    @Test
+    public void replyByBlockingHandlerTest() {
+        // Do
+        target.dispatch(new FollowEvent("replyToken", new UserSource("userId"), Instant.EPOCH)).block();
+
+        // Verify
+        verify(lineMessagingClient).replyMessage(new ReplyMessage("replyToken", new TextMessage("follow")));
+    }
+
+    @Test
+    public void handlerErrorTest() {
+        // Do
+        target.dispatch(createTextMessage("error")).block();
+
+        // Verify
+        verify(lineMessagingClient, never()).replyMessage(any());
+    }
+
+    @Test
+    public void callbackRespondsBeforeHandlersCompleteTest() throws InterruptedException {
+        final BlockingHandler handler = new BlockingHandler();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", handler));
+        target.refresh();
+        final ServerHttpRequest request = mock(ServerHttpRequest.class);
+        when(request.getHeaders()).thenReturn(new HttpHeaders());
+        final Event event = new FollowEvent("replyToken", new UserSource("userId"), Instant.EPOCH);
+        when(callbackRequestParser.parse(any(), any()))
+                .thenReturn(Mono.just(new CallbackRequest(singletonList(event), "destination")));
+
+        // Do
+        final ResponseEntity<String> response = target.callback(request).block(Duration.ofSeconds(1));
+
+        // Verify: acknowledged while the handler method is still running.
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(handler.started.await(1, TimeUnit.SECONDS)).isTrue();
+        verify(lineMessagingClient, never()).replyMessage(any());
+        handler.blocker.countDown();
+        verify(lineMessagingClient, timeout(1000))
+                .replyMessage(new ReplyMessage("replyToken", new TextMessage("done")));
+    }
+
+    private static MessageEvent<TextMessageContent> createTextMessage(final String text) {
+        return new MessageEvent<>("replyToken", new UserSource("userId"), new TextMessageContent("id", text),
+                                  Instant.EPOCH);
+    }
+
+    @LineMessageHandler
+    public static class ReactiveHandler {
+        @EventMapping
+        public Publisher<TextMessage> handleText(MessageEvent<TextMessageContent> event) {
+            switch (event.getMessage().getText()) {
+                case "mono":
+                    return Mono.just(new TextMessage("mono"));
+                case "flux":
+                    return Flux.just(new TextMessage("1"), new TextMessage("2"));
+                default:
+                    return Flux.error(new IllegalStateException("Handler failure"));
+            }
+        }
+
+        @EventMapping
+        public TextMessage handleEvent(Event event) {
+            return new TextMessage("follow");
+        }
+    }
+
+    @LineMessageHandler
+    public static class BlockingHandler {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch blocker = new CountDownLatch(1);
+
+        @EventMapping
+        public TextMessage handleEvent(Event event) throws InterruptedException {
+            started.countDown();
+            blocker.await();
+            return new TextMessage("done");
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.UnfollowEvent;
+import com.linecorp.bot.model.event.message.TextMessageContent;
+import com.linecorp.bot.model.event.source.UserSource;
+import com.linecorp.bot.spring.boot.annotation.EventMapping;
+import com.linecorp.bot.spring.boot.annotation.LineMessageHandler;
+import com.linecorp.bot.spring.boot.support.LineMessageHandlerSupport.HandlerMethod;
+
+/**
+ * Dispatch cost of a text message event with 1, 20 and 200 handler methods.
+ *
+ * <p>The matching handler has the lowest priority, so {@code linearScan}, which is the former
+ * implementation, tests every handler method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerDispatchBenchmark {
+    @Param({ "1", "20", "200" })
+    public int handlers;
+
+    private final MessageEvent<TextMessageContent> event =
+            new MessageEvent<>("replyToken", new UserSource("userId"),
+                               new TextMessageContent("id", "text"), Instant.EPOCH);
+
+    private GenericApplicationContext applicationContext;
+    private LineMessageHandlerSupport lineMessageHandlerSupport;
+
+    @Setup
+    public void setUp() {
+        applicationContext = new GenericApplicationContext();
+        for (int i = 1; i < handlers; ++i) {
+            applicationContext.registerBean("unfollow" + i, UnfollowHandler.class, UnfollowHandler::new);
+        }
+        applicationContext.registerBean("text", TextHandler.class, TextHandler::new);
+        lineMessageHandlerSupport = new LineMessageHandlerSupport(null, applicationContext);
+        applicationContext.refresh();
+    }
+
+    @TearDown
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public void dispatch() {
+        lineMessageHandlerSupport.dispatch(event);
+    }
+
+    @Benchmark
+    public Object linearScan() throws Exception {
+        final HandlerMethod handlerMethod = lineMessageHandlerSupport
+                .eventConsumerList
+                .stream()
+                .filter(consumer -> consumer.getSupportType().test(event))
+                .findFirst()
+                .orElseThrow(() -> new UnsupportedOperationException("Unsupported event type. " + event));
+        return handlerMethod.getHandler().invoke(handlerMethod.getObject(), event);
+    }
+
+    @LineMessageHandler
+    public static class UnfollowHandler {
+        @EventMapping(priority = 1000)
+        public void handle(UnfollowEvent event) {
+        }
+    }
+
+    @LineMessageHandler
+    public static class TextHandler {
+        @EventMapping(priority = 0)
+        public void handle(MessageEvent<TextMessageContent> event) {
+        }
+    }
+}
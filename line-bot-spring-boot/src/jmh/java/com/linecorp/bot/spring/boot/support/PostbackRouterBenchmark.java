@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.linecorp.bot.model.event.postback.PostbackData;
+
+/**
+ * Routing cost of postback data with 10 and 100 actions.
+ *
+ * <p>{@code splitChain} is the typical hand written routing, which parses the data with
+ * {@link String#split(String)} and compares the action with every mapping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostbackRouterBenchmark {
+    @Param({ "10", "100" })
+    public int actions;
+
+    private String data;
+    private String[] names;
+    private PostbackRouter<String> router;
+
+    @Setup
+    public void setUp() {
+        final PostbackRouter.Builder<String> builder = PostbackRouter.builder();
+        names = new String[actions];
+        for (int i = 0; i < actions; ++i) {
+            names[i] = "action" + i;
+            builder.add(new String[] { "action=" + names[i] }, 0, names[i]);
+        }
+        router = builder.build();
+        data = "action=" + names[actions - 1] + "&itemId=12345&page=2";
+    }
+
+    @Benchmark
+    public String splitChain() {
+        final Map<String, String> params = new HashMap<>();
+        for (String pair : data.split("&")) {
+            final String[] nameValue = pair.split("=", 2);
+            params.put(nameValue[0], nameValue.length > 1 ? nameValue[1] : "");
+        }
+        final String action = params.get("action");
+        for (String name : names) {
+            if (name.equals(action)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public String router() {
+        return router.route(PostbackData.parse(data));
+    }
+}
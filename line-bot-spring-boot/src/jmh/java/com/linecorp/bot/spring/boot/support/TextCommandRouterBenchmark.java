@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.linecorp.bot.spring.boot.support.TextCommandRouter.Kind;
+
+/**
+ * Routing cost of a text message with 10 and 100 commands, half prefixes and half keywords.
+ *
+ * <p>The text matches only the last keyword, so {@code indexOfChain}, which is the typical hand written
+ * routing, tests every command.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextCommandRouterBenchmark {
+    @Param({ "10", "100" })
+    public int commands;
+
+    private final String text = "Could you show me the latest keyword" + 99 + " for this channel, please?";
+    private final List<String> prefixes = new ArrayList<>();
+    private final List<String> keywords = new ArrayList<>();
+    private TextCommandRouter<String> router;
+
+    @Setup
+    public void setUp() {
+        final TextCommandRouter.Builder<String> builder = TextCommandRouter.builder();
+        for (int i = 0; i < commands / 2; ++i) {
+            prefixes.add("/command" + i);
+            builder.add(Kind.PREFIX, "/command" + i, 0, "prefix" + i);
+        }
+        for (int i = commands / 2; i > 0; --i) {
+            final String keyword = "keyword" + (100 - i);
+            keywords.add(keyword);
+            builder.add(Kind.CONTAINS, keyword, 0, keyword);
+        }
+        router = builder.build();
+    }
+
+    @Benchmark
+    public String indexOfChain() {
+        for (String prefix : prefixes) {
+            if (text.startsWith(prefix)) {
+                return prefix;
+            }
+        }
+        for (String keyword : keywords) {
+            if (text.contains(keyword)) {
+                return keyword;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public String router() {
+        return router.route(text);
+    }
+}
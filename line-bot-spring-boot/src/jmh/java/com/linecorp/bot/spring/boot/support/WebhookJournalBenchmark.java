@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import com.linecorp.bot.model.event.CallbackRequest;
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.objectmapper.ModelCodecRegistry;
+import com.linecorp.bot.spring.boot.LineBotProperties.Journal;
+import com.linecorp.bot.spring.boot.LineBotProperties.Journal.FsyncPolicy;
+
+/**
+ * Overhead of {@link WebhookJournal} on parsing a webhook request with a text message, from 4 threads.
+ *
+ * <p>Compare {@code appendToJournal} of each {@link FsyncPolicy} with {@code parseOnly}. In case of
+ * {@link FsyncPolicy#ALWAYS}, the result depends on the disk, and concurrent appends share a force.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class WebhookJournalBenchmark {
+    private static final ObjectReader READER =
+            ModelCodecRegistry.getInstance().readerFor(CallbackRequest.class);
+    private static final byte[] BODY =
+            ("{\"destination\":\"U0123456789abcdef0123456789abcdef\",\"events\":[{\"type\":\"message\","
+             + "\"replyToken\":\"nHuyWiB7yP5Zw52FIkcQobQuGDXCTA\",\"source\":{\"type\":\"user\","
+             + "\"userId\":\"U4af4980629abcdef0123456789abcdef\"},\"timestamp\":1462629479859,"
+             + "\"message\":{\"id\":\"325708\",\"type\":\"text\",\"text\":\"Hello, world\"}}]}")
+                    .getBytes(StandardCharsets.UTF_8);
+
+    @Param({ "NEVER", "INTERVAL", "ALWAYS" })
+    public FsyncPolicy fsyncPolicy;
+
+    private Path directory;
+    private WebhookJournal journal;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("line-bot-journal");
+        final Journal properties = new Journal();
+        properties.setDirectory(directory.toString());
+        properties.setFsyncPolicy(fsyncPolicy);
+        journal = new WebhookJournal(properties);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<Event> parseOnly() throws IOException {
+        return READER.<CallbackRequest>readValue(BODY).getEvents();
+    }
+
+    @Benchmark
+    public List<Event> appendToJournal() throws IOException {
+        final List<Event> events = READER.<CallbackRequest>readValue(BODY).getEvents();
+        journal.append(null, BODY, events);
+        events.forEach(journal::complete);
+        return events;
+    }
+}
@@ -50,6 +50,17 @@ public class BotPropertiesValidator implements ConstraintValidator<ValidBotPrope
 
     @Override
     public boolean isValid(LineBotProperties value, ConstraintValidatorContext context) {
+        if (value.getChannelSecret() == null) {
+            // Only multiple channels are configured.
+            if (!value.getChannels().isEmpty()) {
+                return true;
+            }
+            context.buildConstraintViolationWithTemplate("channelSecret is null")
+                   .addPropertyNode("channelSecret")
+                   .addConstraintViolation();
+            return false;
+        }
+
         switch (value.getChannelTokenSupplyMode()) {
             case FIXED:
                 if (value.getChannelToken() != null) {
@@ -16,19 +16,51 @@
 
 package com.linecorp.bot.spring.boot;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 
+import com.linecorp.bot.client.ChannelConfiguration;
 import com.linecorp.bot.client.ChannelManagementSyncClient;
+import com.linecorp.bot.client.ChannelRegistry;
 import com.linecorp.bot.client.ChannelTokenSupplier;
 import com.linecorp.bot.client.FixedChannelTokenSupplier;
 import com.linecorp.bot.client.LineMessagingClient;
+import com.linecorp.bot.client.LineMessagingClientPool;
+import com.linecorp.bot.model.objectmapper.ModelCodecRegistry;
+import com.linecorp.bot.servlet.MultiChannelCallbackRequestParser;
+import com.linecorp.bot.servlet.WebhookMetrics;
+import com.linecorp.bot.spring.boot.LineBotProperties.Channel;
+import com.linecorp.bot.spring.boot.LineBotProperties.Deduplication;
+import com.linecorp.bot.spring.boot.support.AsyncEventDispatcher;
+import com.linecorp.bot.spring.boot.support.ChannelClientResolver;
+import com.linecorp.bot.spring.boot.support.EventDeduplicationStore;
+import com.linecorp.bot.spring.boot.support.EventDeduplicator;
+import com.linecorp.bot.spring.boot.support.InMemoryEventDeduplicationStore;
 import com.linecorp.bot.spring.boot.support.LineMessageHandlerSupport;
+import com.linecorp.bot.spring.boot.support.LoadShedder;
+import com.linecorp.bot.spring.boot.support.MicrometerWebhookGauges;
+import com.linecorp.bot.spring.boot.support.MicrometerWebhookMetrics;
+import com.linecorp.bot.spring.boot.support.ReplyCoalescer;
+import com.linecorp.bot.spring.boot.support.ReplyDeadlineTracker;
+import com.linecorp.bot.spring.boot.support.SenderThrottle;
+import com.linecorp.bot.spring.boot.support.WebhookJournal;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Also refers {@link LineBotWebMvcBeans} for web only beans definition.
@@ -47,15 +79,18 @@ public class LineBotAutoConfiguration {
      */
     @Bean
     @ConditionalOnMissingBean(ChannelTokenSupplier.class)
+    @ConditionalOnProperty(prefix = "line.bot", name = "channel-secret")
     public ChannelTokenSupplier channelTokenSupplier() {
         final String channelToken = lineBotProperties.getChannelToken();
         return FixedChannelTokenSupplier.of(channelToken);
     }
 
     /**
-     * Expose {@link LineMessagingClient} as {@link Bean}.
+     * Expose {@link LineMessagingClient} as {@link Bean}
+     * in case of {@code line.bot.channel-secret} is configured.
      */
     @Bean
+    @ConditionalOnProperty(prefix = "line.bot", name = "channel-secret")
     public LineMessagingClient lineMessagingClient(
             final ChannelTokenSupplier channelTokenSupplier) {
         return LineMessagingClient
@@ -68,12 +103,225 @@ public class LineBotAutoConfiguration {
     }
 
     /**
-     * Expose {@link ChannelManagementSyncClient} as {@link Bean}.
+     * Expose {@link ChannelManagementSyncClient} as {@link Bean}
+     * in case of {@code line.bot.channel-secret} is configured.
      */
     @Bean
+    @ConditionalOnProperty(prefix = "line.bot", name = "channel-secret")
     public ChannelManagementSyncClient channelManagementClient(
             final ChannelTokenSupplier channelTokenSupplier) {
         return ChannelManagementSyncClient.builder(channelTokenSupplier)
                                           .build();
     }
+
+    /**
+     * Expose {@link ChannelRegistry} of {@code line.bot.channels} as {@link Bean}
+     * in case of no other definition for {@link ChannelRegistry} type.
+     */
+    @Bean
+    @ConditionalOnMissingBean(ChannelRegistry.class)
+    @ConditionalOnProperty(name = "line.bot.channels[0].channel-id")
+    public ChannelRegistry channelRegistry() {
+        return ChannelRegistry.of(lineBotProperties.getChannels().stream()
+                                                   .map(LineBotAutoConfiguration::toChannelConfiguration)
+                                                   .collect(Collectors.toList()));
+    }
+
+    private static ChannelConfiguration toChannelConfiguration(final Channel channel) {
+        return ChannelConfiguration.builder()
+                                   .channelId(channel.getChannelId())
+                                   .destination(channel.getDestination())
+                                   .channelSecret(channel.getChannelSecret())
+                                   .channelToken(channel.getChannelToken())
+                                   .requestsPerSecond(channel.getRequestsPerSecond())
+                                   .maxConcurrentRequests(channel.getMaxConcurrentRequests())
+                                   .build();
+    }
+
+    /**
+     * Expose {@link LineMessagingClientPool} of channels in {@link ChannelRegistry} as {@link Bean}.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnBean(ChannelRegistry.class)
+    public LineMessagingClientPool lineMessagingClientPool(final ChannelRegistry channelRegistry) {
+        return LineMessagingClientPool.builder(channelRegistry)
+                                      .apiEndPoint(lineBotProperties.getApiEndPoint())
+                                      .connectTimeout(lineBotProperties.getConnectTimeout())
+                                      .readTimeout(lineBotProperties.getReadTimeout())
+                                      .writeTimeout(lineBotProperties.getWriteTimeout())
+                                      .build();
+    }
+
+    /**
+     * Expose {@link MultiChannelCallbackRequestParser} as {@link Bean}
+     * in case of {@link ChannelRegistry} is available.
+     */
+    @Bean
+    @ConditionalOnBean(ChannelRegistry.class)
+    public MultiChannelCallbackRequestParser multiChannelCallbackRequestParser(
+            final ChannelRegistry channelRegistry, final Optional<WebhookMetrics> webhookMetrics) {
+        return new MultiChannelCallbackRequestParser(channelRegistry,
+                                                     webhookMetrics.orElse(WebhookMetrics.NOOP),
+                                                     lineBotProperties.isFastEventParsing());
+    }
+
+    /**
+     * Expose {@link ChannelClientResolver} as {@link Bean}
+     * in case of {@link LineMessagingClientPool} is available.
+     */
+    @Bean
+    @ConditionalOnBean(LineMessagingClientPool.class)
+    public ChannelClientResolver channelClientResolver(final LineMessagingClientPool lineMessagingClientPool) {
+        return new ChannelClientResolver(lineMessagingClientPool);
+    }
+
+    /**
+     * Expose warmed up {@link ModelCodecRegistry} as {@link Bean}
+     * in case of {@code line.bot.codec-warm-up=true}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "line.bot.codec-warm-up", havingValue = "true")
+    public ModelCodecRegistry modelCodecRegistry() {
+        final ModelCodecRegistry modelCodecRegistry = ModelCodecRegistry.getInstance();
+        modelCodecRegistry.warmUp();
+        return modelCodecRegistry;
+    }
+
+    /**
+     * Expose {@link AsyncEventDispatcher} as {@link Bean} in case of {@code line.bot.handler.async=true}.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "line.bot.handler.async", havingValue = "true")
+    public AsyncEventDispatcher asyncEventDispatcher() {
+        return new AsyncEventDispatcher(lineBotProperties.getHandler().getAsyncExecutor());
+    }
+
+    /**
+     * Expose {@link ReplyCoalescer} as {@link Bean} in case of {@code line.bot.handler.reply-coalescing=true}.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "line.bot.handler.reply-coalescing", havingValue = "true")
+    public ReplyCoalescer replyCoalescer(
+            final Optional<LineMessagingClient> lineMessagingClient,
+            final Optional<ReplyDeadlineTracker> replyDeadlineTracker) {
+        final long windowMillis = lineBotProperties.getHandler().getReplyCoalescingWindowMillis();
+        return new ReplyCoalescer(lineMessagingClient.orElse(null), Duration.ofMillis(windowMillis),
+                                  replyDeadlineTracker.orElse(null));
+    }
+
+    /**
+     * Expose {@link ReplyDeadlineTracker} as {@link Bean}
+     * in case of {@code line.bot.handler.reply-deadline.enabled=true}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "line.bot.handler.reply-deadline.enabled", havingValue = "true")
+    public ReplyDeadlineTracker replyDeadlineTracker() {
+        return new ReplyDeadlineTracker(lineBotProperties.getHandler().getReplyDeadline());
+    }
+
+    /**
+     * Expose {@link InMemoryEventDeduplicationStore} as {@link Bean}
+     * in case of {@code line.bot.handler.deduplication.enabled=true} and no other definition for
+     * {@link EventDeduplicationStore} type.
+     */
+    @Bean
+    @ConditionalOnMissingBean(EventDeduplicationStore.class)
+    @ConditionalOnProperty(name = "line.bot.handler.deduplication.enabled", havingValue = "true")
+    public EventDeduplicationStore eventDeduplicationStore() {
+        final Deduplication deduplication = lineBotProperties.getHandler().getDeduplication();
+        return new InMemoryEventDeduplicationStore(Duration.ofMillis(deduplication.getWindowMillis()),
+                                                   deduplication.getMaxEntries());
+    }
+
+    /**
+     * Expose {@link EventDeduplicator} as {@link Bean}
+     * in case of {@code line.bot.handler.deduplication.enabled=true}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "line.bot.handler.deduplication.enabled", havingValue = "true")
+    public EventDeduplicator eventDeduplicator(final EventDeduplicationStore eventDeduplicationStore) {
+        return new EventDeduplicator(eventDeduplicationStore);
+    }
+
+    /**
+     * Expose {@link SenderThrottle} as {@link Bean} in case of {@code line.bot.handler.throttle.enabled=true}.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "line.bot.handler.throttle.enabled", havingValue = "true")
+    public SenderThrottle senderThrottle() {
+        return new SenderThrottle(lineBotProperties.getHandler().getThrottle());
+    }
+
+    /**
+     * Expose {@link WebhookJournal} as {@link Bean} in case of {@code line.bot.handler.journal.enabled=true}.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "line.bot.handler.journal.enabled", havingValue = "true")
+    public WebhookJournal webhookJournal() throws IOException {
+        return new WebhookJournal(lineBotProperties.getHandler().getJournal(),
+                                  lineBotProperties.isFastEventParsing());
+    }
+
+    /**
+     * Expose {@link LoadShedder} as {@link Bean}
+     * in case of {@code line.bot.handler.load-shedding.enabled=true}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "line.bot.handler.load-shedding.enabled", havingValue = "true")
+    public LoadShedder loadShedder(final Optional<AsyncEventDispatcher> asyncEventDispatcher) {
+        return new LoadShedder(lineBotProperties.getHandler().getLoadShedding(),
+                               asyncEventDispatcher.orElse(null));
+    }
+
+    /**
+     * Expose {@link MicrometerWebhookMetrics} as {@link Bean} in case of Micrometer is on the classpath and
+     * there's a {@link MeterRegistry} bean, unless another {@link WebhookMetrics} is defined.
+     * {@link MicrometerWebhookGauges} are bound to the registry as well.
+     */
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    static class MicrometerConfiguration {
+        @Bean
+        @ConditionalOnMissingBean(WebhookMetrics.class)
+        public WebhookMetrics webhookMetrics(final ObjectProvider<MeterRegistry> meterRegistry) {
+            final MeterRegistry registry = meterRegistry.getIfUnique();
+            return registry != null ? new MicrometerWebhookMetrics(registry) : WebhookMetrics.NOOP;
+        }
+
+        /**
+         * Bind {@link MicrometerWebhookGauges} of available components once all singletons are created.
+         */
+        @Bean
+        public SmartInitializingSingleton micrometerWebhookGauges(
+                final ObjectProvider<MeterRegistry> meterRegistry,
+                final ObjectProvider<LoadShedder> loadShedder,
+                final ObjectProvider<AsyncEventDispatcher> asyncEventDispatcher,
+                final ObjectProvider<ReplyDeadlineTracker> replyDeadlineTracker,
+                final ObjectProvider<LineMessageHandlerSupport> lineMessageHandlerSupport) {
+            return () -> {
+                final MeterRegistry registry = meterRegistry.getIfUnique();
+                if (registry == null) {
+                    return;
+                }
+                // ObjectProvider#ifAvailable() isn't available on Spring 4.3.
+                final MicrometerWebhookGauges gauges = new MicrometerWebhookGauges(registry);
+                final LoadShedder shedder = loadShedder.getIfAvailable();
+                if (shedder != null) {
+                    gauges.bindTo(shedder);
+                }
+                final AsyncEventDispatcher dispatcher = asyncEventDispatcher.getIfAvailable();
+                if (dispatcher != null) {
+                    gauges.bindTo(dispatcher);
+                }
+                final ReplyDeadlineTracker tracker = replyDeadlineTracker.getIfAvailable();
+                if (tracker != null) {
+                    gauges.bindTo(tracker);
+                }
+                final LineMessageHandlerSupport support = lineMessageHandlerSupport.getIfAvailable();
+                if (support != null) {
+                    gauges.bindTo(support);
+                }
+            };
+        }
+    }
 }
@@ -17,14 +17,22 @@
 package com.linecorp.bot.spring.boot;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
 import com.linecorp.bot.client.LineClientConstants;
+import com.linecorp.bot.client.LineMessagingClientPool;
 import com.linecorp.bot.spring.boot.BotPropertiesValidator.ValidBotProperties;
 import com.linecorp.bot.spring.boot.annotation.EventMapping;
 import com.linecorp.bot.spring.boot.annotation.LineMessageHandler;
@@ -51,12 +59,23 @@ public class LineBotProperties {
     private String channelToken;
 
     /**
-     * Channel secret.
+     * Channel secret. Required unless {@link #channels} are configured.
      */
     @Valid
-    @NotNull
     private String channelSecret;
 
+    /**
+     * Channels served by this application, in addition to or instead of the single channel configured by
+     * {@link #channelSecret} and {@link #channelToken}.
+     *
+     * <p>Webhooks to {@code <handler path>/<channelId>} are routed to the channel of the ID. Webhooks to the
+     * handler path are routed by {@code destination} of the webhook, unless the single channel is configured.
+     * Replies to events use the client of the channel.
+     */
+    @Valid
+    @NotNull
+    private List<Channel> channels = new ArrayList<>();
+
     @Valid
     @NotNull
     private String apiEndPoint = LineClientConstants.DEFAULT_API_END_POINT;
@@ -82,6 +101,23 @@ public class LineBotProperties {
     @NotNull
     private long writeTimeout = LineClientConstants.DEFAULT_WRITE_TIMEOUT_MILLIS;
 
+    /**
+     * Flag to build JSON serializers and deserializers of all model types on startup,
+     * instead of on the first webhook or API call.
+     *
+     * <p>Default: {@code false}
+     */
+    private boolean codecWarmUp;
+
+    /**
+     * Flag to parse webhook requests by the hand-written deserializers of {@code EventModule}, instead of
+     * the default bean deserializers of Jackson. It reads events in one pass without reflection, but
+     * is stricter about unexpected payloads.
+     *
+     * <p>Default: {@code false}
+     */
+    private boolean fastEventParsing;
+
     /**
      * Configuration for {@link LineMessageHandler} and {@link EventMapping}.
      */
@@ -89,6 +125,44 @@ public class LineBotProperties {
     @NotNull
     private Handler handler = new Handler();
 
+    @Data
+    public static class Channel {
+        /**
+         * Channel ID.
+         */
+        @NotNull
+        String channelId;
+
+        /**
+         * User ID of the bot, i.e. {@code destination} of webhooks to this channel.
+         */
+        String destination;
+
+        /**
+         * Channel secret.
+         */
+        @NotNull
+        String channelSecret;
+
+        /**
+         * Channel access token.
+         */
+        @NotNull
+        String channelToken;
+
+        /**
+         * Maximum number of API requests per second of this channel. {@code 0} means unlimited.
+         */
+        @Min(0)
+        double requestsPerSecond;
+
+        /**
+         * Maximum number of API requests of this channel in flight.
+         */
+        @Min(1)
+        int maxConcurrentRequests = LineMessagingClientPool.DEFAULT_MAX_CONCURRENT_REQUESTS_PER_CHANNEL;
+    }
+
     @Data
     public static class Handler {
         /**
@@ -103,6 +177,405 @@ public class LineBotProperties {
          */
         @NotNull
         URI path = URI.create("/callback");
+
+        /**
+         * Flag to acknowledge webhook requests before handler methods complete.
+         *
+         * <p>If enabled, the webhook returns {@code 200} as soon as the signature is validated and events
+         * are parsed. Events are processed on a bounded executor configured by {@link #asyncExecutor}.
+         *
+         * <p>Default: {@code false}
+         */
+        boolean async;
+
+        /**
+         * Executor used when {@link #async} is enabled. On WebFlux, it bounds the scheduler which handler
+         * methods are called on.
+         */
+        @Valid
+        @NotNull
+        AsyncExecutor asyncExecutor = new AsyncExecutor();
+
+        /**
+         * Flag to merge messages for the same reply token into one reply API call.
+         *
+         * <p>Messages from the return value of the handler method and from {@code ReplySink}s are held until
+         * the handler method completes, or up to {@link #replyCoalescingWindowMillis}. Messages which don't
+         * fit in the reply are pushed.
+         *
+         * <p>Default: {@code false}
+         */
+        boolean replyCoalescing;
+
+        /**
+         * Maximum time in milliseconds to hold a reply when {@link #replyCoalescing} is enabled.
+         */
+        @Min(0)
+        long replyCoalescingWindowMillis = 500;
+
+        /**
+         * Deadline of reply tokens.
+         */
+        @Valid
+        @NotNull
+        ReplyDeadline replyDeadline = new ReplyDeadline();
+
+        /**
+         * De-duplication of redelivered events.
+         */
+        @Valid
+        @NotNull
+        Deduplication deduplication = new Deduplication();
+
+        /**
+         * Per sender limit of message and postback events.
+         */
+        @Valid
+        @NotNull
+        Throttle throttle = new Throttle();
+
+        /**
+         * Journal of webhook requests to process them again after restart.
+         */
+        @Valid
+        @NotNull
+        Journal journal = new Journal();
+
+        /**
+         * Rejection of webhook requests when the bot is overloaded.
+         */
+        @Valid
+        @NotNull
+        LoadShedding loadShedding = new LoadShedding();
+    }
+
+    @Data
+    public static class LoadShedding {
+        /**
+         * Flag to reject webhook requests with {@code 503} before parsing them when the bot is overloaded,
+         * so that LINE platform redelivers them later.
+         *
+         * <p>Default: {@code false}
+         */
+        boolean enabled;
+
+        /**
+         * Number of webhook requests in flight at which all requests are rejected.
+         */
+        @Min(1)
+        int maxInFlightRequests = 200;
+
+        /**
+         * Number of events waiting for {@code line.bot.handler.async} executor at which all requests are
+         * rejected. Keep it below {@code queue-capacity} to reject requests before the queue is full.
+         */
+        @Min(1)
+        int maxQueueDepth = 800;
+
+        /**
+         * Recent latency of handler methods in milliseconds at which all requests are rejected.
+         */
+        @Min(1)
+        long maxHandlerLatencyMillis = TimeUnit.SECONDS.toMillis(5);
+
+        /**
+         * Handler latency is ignored if no handler method completed within this window in milliseconds.
+         */
+        @Min(1)
+        long latencyWindowMillis = TimeUnit.SECONDS.toMillis(10);
+
+        /**
+         * Pressure, i.e. ratio to the maximums above, at which requests start to be rejected. The rejection
+         * probability rises linearly from {@code 0} at this pressure to {@code 1} at pressure {@code 1}.
+         */
+        @DecimalMin("0")
+        @DecimalMax(value = "1", inclusive = false)
+        double sheddingThreshold = 0.8;
+    }
+
+    @Data
+    public static class Journal {
+        /**
+         * Flag to record webhook requests in a journal, and replay ones not processed yet on startup.
+         * Useful with {@code line.bot.handler.async} not to lose acknowledged events.
+         *
+         * <p>Default: {@code false}
+         */
+        boolean enabled;
+
+        /**
+         * Directory of journal files.
+         */
+        @NotNull
+        String directory = "line-bot-journal";
+
+        /**
+         * Size of a segment file in bytes.
+         */
+        @Min(1)
+        @Max(Integer.MAX_VALUE)
+        long segmentSizeBytes = 64L * 1024 * 1024;
+
+        /**
+         * When to force records to the disk.
+         */
+        @NotNull
+        FsyncPolicy fsyncPolicy = FsyncPolicy.INTERVAL;
+
+        /**
+         * Interval in milliseconds to force records in case of {@link FsyncPolicy#INTERVAL}.
+         */
+        @Min(1)
+        long flushIntervalMillis = TimeUnit.SECONDS.toMillis(1);
+
+        /**
+         * How long in milliseconds to keep segment files whose records are all processed, e.g. for offline
+         * reprocessing.
+         */
+        @Min(0)
+        long retentionMillis = TimeUnit.HOURS.toMillis(24);
+
+        public enum FsyncPolicy {
+            /**
+             * Force records before acknowledging the webhook. Concurrent requests share one force.
+             */
+            ALWAYS,
+
+            /**
+             * Force records every {@code flushIntervalMillis}. Records survive a crash of the process,
+             * but ones in the last interval may be lost on a crash of the OS.
+             */
+            INTERVAL,
+
+            /**
+             * Leave it to the OS.
+             */
+            NEVER,
+        }
+    }
+
+    @Data
+    public static class Throttle {
+        /**
+         * Flag to limit message and postback events per sender, i.e. user, group or room.
+         *
+         * <p>Default: {@code false}
+         */
+        boolean enabled;
+
+        /**
+         * Sustained number of events per second of a sender.
+         */
+        @DecimalMin(value = "0", inclusive = false)
+        double eventsPerSecond = 1;
+
+        /**
+         * Number of events of a sender allowed in a burst.
+         */
+        @Min(1)
+        int burst = 10;
+
+        /**
+         * What to do with events over the limit.
+         */
+        @NotNull
+        OverLimitPolicy overLimitPolicy = OverLimitPolicy.DROP;
+
+        /**
+         * Maximum time in milliseconds to delay an event in case of {@link OverLimitPolicy#DELAY}. Events
+         * which would wait longer are dropped.
+         */
+        @Min(0)
+        long maxDelayMillis = TimeUnit.SECONDS.toMillis(5);
+
+        public enum OverLimitPolicy {
+            /**
+             * Drop events.
+             */
+            DROP,
+
+            /**
+             * Dispatch events when the sender has a token again, up to {@code maxDelayMillis} later.
+             * Reply tokens may expire meanwhile.
+             */
+            DELAY,
+
+            /**
+             * Pass events to {@code ThrottledEventHandler} bean instead of handler methods.
+             */
+            FALLBACK,
+        }
+    }
+
+    @Data
+    public static class Deduplication {
+        /**
+         * Flag to drop events which have been received already, e.g. redelivered because the webhook
+         * responded slowly.
+         *
+         * <p>Default: {@code false}
+         */
+        boolean enabled;
+
+        /**
+         * Minimum time in milliseconds to remember received events.
+         */
+        @Min(1)
+        long windowMillis = TimeUnit.MINUTES.toMillis(10);
+
+        /**
+         * Maximum number of events to remember in the default in-memory store. Older events are forgotten
+         * earlier than {@link #windowMillis} if more events arrive.
+         */
+        @Min(2)
+        int maxEntries = 100_000;
+    }
+
+    @Data
+    public static class ReplyDeadline {
+        /**
+         * Flag to stop replying with reply tokens which have expired, e.g. while events are waiting
+         * in the queue of {@code line.bot.handler.async}.
+         *
+         * <p>Default: {@code false}
+         */
+        boolean enabled;
+
+        /**
+         * How long in milliseconds a reply token is valid from the timestamp of the event.
+         */
+        @Min(1)
+        long tokenTtlMillis = TimeUnit.MINUTES.toMillis(1);
+
+        /**
+         * A reply token is regarded as expired this many milliseconds earlier than {@link #tokenTtlMillis},
+         * to allow for the latency of the reply API call and clock difference.
+         */
+        @Min(0)
+        long safetyMarginMillis = TimeUnit.SECONDS.toMillis(2);
+
+        /**
+         * What to do with a reply whose token has expired.
+         */
+        @NotNull
+        ExpiredReplyPolicy expiredReplyPolicy = ExpiredReplyPolicy.PUSH;
+
+        public enum ExpiredReplyPolicy {
+            /**
+             * Push messages to the source of the event instead.
+             */
+            PUSH,
+
+            /**
+             * Drop messages.
+             */
+            DROP,
+
+            /**
+             * Don't invoke the handler method at all. Use it only if handler methods do nothing but reply.
+             */
+            SKIP_HANDLER,
+        }
+    }
+
+    @Data
+    public static class AsyncExecutor {
+        /**
+         * Type of threads processing events.
+         */
+        @NotNull
+        ThreadType threadType = ThreadType.PLATFORM;
+
+        /**
+         * Number of threads processing events. It's the maximum concurrency in case of
+         * {@link ThreadType#VIRTUAL}, so set it much larger, e.g. {@code 10000}.
+         */
+        @Min(1)
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+
+        /**
+         * Maximum number of events waiting for a thread.
+         *
+         * <p>In case of {@link QueueFullPolicy#REJECT}, a webhook request with more events than this is
+         * accepted only while the queue is empty.
+         */
+        @Min(1)
+        int queueCapacity = 1000;
+
+        /**
+         * What to do when the queue is full.
+         */
+        @NotNull
+        QueueFullPolicy queueFullPolicy = QueueFullPolicy.BLOCK;
+
+        /**
+         * How long in milliseconds to wait for queued events on shutdown.
+         */
+        @Min(0)
+        long shutdownTimeoutMillis = TimeUnit.SECONDS.toMillis(10);
+
+        /**
+         * Flag to process events of the same source (user, group or room) one by one in arrival order.
+         *
+         * <p>Events are partitioned by {@code Source.getSenderId()} into {@link #partitions} serial lanes.
+         * Each lane has {@link #laneCapacity} capacity instead of {@link #queueCapacity}, and
+         * {@link #queueFullPolicy} is applied per lane.
+         *
+         * <p>Default: {@code false}
+         */
+        boolean orderedBySource;
+
+        /**
+         * Number of partitions when {@link #orderedBySource} is enabled. Sources in different
+         * partitions are processed concurrently.
+         */
+        @Min(1)
+        int partitions = 256;
+
+        /**
+         * Maximum number of events waiting in a partition when {@link #orderedBySource} is enabled.
+         *
+         * <p>In case of {@link QueueFullPolicy#REJECT}, a webhook request with more events of a partition
+         * than this is accepted only while the partition has no waiting event.
+         */
+        @Min(1)
+        int laneCapacity = 100;
+
+        /**
+         * Executor model of handler methods. Handler methods are invoked on the webhook request thread
+         * unless {@code line.bot.handler.async} is enabled.
+         */
+        public enum ThreadType {
+            /**
+             * Bounded pool of platform threads.
+             */
+            PLATFORM,
+
+            /**
+             * A new virtual thread per event, and up to {@code threads} of them run at once.
+             * Suitable for handlers blocking on I/O.
+             *
+             * <p>Requires Java 21 or later. Falls back to {@link #PLATFORM} on older JVMs.
+             */
+            VIRTUAL,
+        }
+
+        public enum QueueFullPolicy {
+            /**
+             * Block webhook request until the queue has room.
+             */
+            BLOCK,
+
+            /**
+             * Reject webhook request with {@code 503 Service Unavailable}. LINE platform may redeliver it.
+             */
+            REJECT,
+
+            /**
+             * Drop the oldest event in the queue.
+             */
+            DROP_OLDEST,
+        }
     }
 
     public enum ChannelTokenSupplyMode {
@@ -17,8 +17,10 @@
 package com.linecorp.bot.spring.boot;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
@@ -26,6 +28,7 @@ import org.springframework.stereotype.Component;
 
 import com.linecorp.bot.client.LineSignatureValidator;
 import com.linecorp.bot.servlet.LineBotCallbackRequestParser;
+import com.linecorp.bot.servlet.WebhookMetrics;
 import com.linecorp.bot.spring.boot.interceptor.LineBotServerInterceptor;
 import com.linecorp.bot.spring.boot.support.LineBotServerArgumentProcessor;
 
@@ -37,20 +40,26 @@ public class LineBotWebMvcBeans {
     private LineBotProperties lineBotProperties;
 
     /**
-     * Expose {@link LineSignatureValidator} as {@link Bean}.
+     * Expose {@link LineSignatureValidator} as {@link Bean}
+     * in case of {@code line.bot.channel-secret} is configured.
      */
     @Bean
+    @ConditionalOnProperty(prefix = "line.bot", name = "channel-secret")
     public LineSignatureValidator lineSignatureValidator() {
         return new LineSignatureValidator(
                 lineBotProperties.getChannelSecret().getBytes(StandardCharsets.US_ASCII));
     }
 
     /**
-     * Expose {@link LineBotCallbackRequestParser} as {@link Bean}.
+     * Expose {@link LineBotCallbackRequestParser} as {@link Bean}
+     * in case of {@code line.bot.channel-secret} is configured.
      */
     @Bean
+    @ConditionalOnProperty(prefix = "line.bot", name = "channel-secret")
     public LineBotCallbackRequestParser lineBotCallbackRequestParser(
-            LineSignatureValidator lineSignatureValidator) {
-        return new LineBotCallbackRequestParser(lineSignatureValidator);
+            LineSignatureValidator lineSignatureValidator, Optional<WebhookMetrics> webhookMetrics) {
+        return new LineBotCallbackRequestParser(lineSignatureValidator,
+                                                webhookMetrics.orElse(WebhookMetrics.NOOP),
+                                                lineBotProperties.isFastEventParsing());
     }
 }
@@ -19,6 +19,7 @@ package com.linecorp.bot.spring.boot;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -33,6 +34,7 @@ import com.linecorp.bot.spring.boot.support.LineBotServerArgumentProcessor;
 @Configuration
 @Import(LineBotWebMvcBeans.class)
 @ConditionalOnWebApplication
+@ConditionalOnClass(name = "org.springframework.web.servlet.DispatcherServlet")
 public class LineBotWebMvcConfigurer
         extends org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter {
     @Autowired
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Isolates an {@link EventMapping @EventMapping} method on its own bounded pool of threads, so that
+ * a slow handler can't occupy all the threads processing events.
+ *
+ * <p>Events dispatched to the annotated method are run on at most {@link #maxConcurrency()} threads
+ * dedicated to the method, and up to {@link #queueSize()} events wait for them. The thread which
+ * dispatched the event returns immediately. If the queue is full, or the method doesn't complete within
+ * {@link #timeoutMillis()}, the {@link #fallback()} method is called instead.
+ *
+ * <pre>
+ * &#64;EventMapping
+ * &#64;Bulkhead(maxConcurrency = 4, queueSize = 16, timeoutMillis = 10_000, fallback = "busy")
+ * public TextMessage handleImage(MessageEvent&lt;ImageMessageContent&gt; event) { ... }
+ *
+ * public TextMessage busy(MessageEvent&lt;ImageMessageContent&gt; event, Throwable cause) {
+ *     return new TextMessage("Sorry, I'm busy now. Please try again later.");
+ * }
+ * </pre>
+ */
+@Beta
+@Target({ ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Bulkhead {
+    /**
+     * Maximum number of events processed by the method concurrently.
+     */
+    int maxConcurrency();
+
+    /**
+     * Maximum number of events waiting for a thread. Default = {@code 0}, i.e. no waiting.
+     */
+    int queueSize() default 0;
+
+    /**
+     * Timeout in milliseconds from dispatch, including waiting in the queue. The thread running the method
+     * is interrupted on timeout. Default = {@code 0}, i.e. no timeout.
+     */
+    long timeoutMillis() default 0;
+
+    /**
+     * Name of the method in the same bean, called when the event is rejected or timed out.
+     *
+     * <p>It takes the same event parameter as the handler method, and optionally a {@link Throwable}
+     * parameter which receives the cause. The return value is handled as same as the return value of
+     * the handler method, e.g. sent as a reply. It's called on the dispatching thread on rejection,
+     * and on a timer thread on timeout, so it should be quick.
+     *
+     * <p>Default = {@code ""}, i.e. the event is dropped and logged.
+     */
+    String fallback() default "";
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Configures micro-batching of an {@link EventMapping @EventMapping} method which takes a {@code List}
+ * of events.
+ *
+ * <p>A handler method whose parameter is {@code List<E>}, e.g. {@code List<Event>} or
+ * {@code List<MessageEvent<TextMessageContent>>}, receives events matched by {@code E} in one call.
+ * Priority and type matching are the same as a method taking {@code E}. The return value is ignored.
+ *
+ * <p>Without this annotation, matched events of each webhook request are delivered together, up to
+ * {@value #DEFAULT_MAX_SIZE} events per call.
+ *
+ * <pre>
+ * &#64;EventMapping
+ * &#64;EventBatch(windowMillis = 200, maxSize = 500)
+ * public void save(List&lt;MessageEvent&lt;TextMessageContent&gt;&gt; events) {
+ *     repository.bulkInsert(events);
+ * }
+ * </pre>
+ */
+@Beta
+@Target({ ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface EventBatch {
+    int DEFAULT_MAX_SIZE = 100;
+
+    /**
+     * How long to wait for more events, across webhook requests, after the first event of a batch.
+     * Default = {@code 0}, i.e. events of each webhook request are delivered without waiting.
+     */
+    long windowMillis() default 0;
+
+    /**
+     * Maximum number of events per call. A batch is delivered as soon as it's full.
+     */
+    int maxSize() default DEFAULT_MAX_SIZE;
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Indicates that an annotated method handles postback events whose data matches given conditions.
+ *
+ * <p>Postback data is parsed once as a query string, e.g. {@code action=buy&itemId=123}, and matched by
+ * hash lookups instead of parsing it in every handler method. A postback event which matches no mapping
+ * is dispatched to {@link EventMapping @EventMapping} methods.
+ *
+ * <p>Parameters of the method can be the {@code PostbackEvent}, the parsed {@code PostbackData}, and
+ * {@link PostbackParam @PostbackParam} strings, in any order.
+ *
+ * <pre>
+ * &#64;PostbackMapping("action=buy")
+ * public TextMessage buy(PostbackEvent event, &#64;PostbackParam("itemId") String itemId) { ... }
+ * </pre>
+ *
+ * <p>If more than one mapping matches, the one with the bigger {@link #priority()} is used. Within the
+ * same priority, the one with more conditions is used.
+ */
+@Beta
+@Target({ ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PostbackMapping {
+    /**
+     * Conditions on postback data. All of them must be satisfied. {@code name=value} matches the value
+     * of the name, and {@code name} matches existence of the name.
+     */
+    String[] value();
+
+    /**
+     * Priority of this mapping. Bigger one is preferred.
+     */
+    int priority() default 0;
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Indicates that an annotated method handles text messages matching given patterns.
+ *
+ * <p>The method takes {@code MessageEvent<TextMessageContent>} like an {@link EventMapping @EventMapping}
+ * method. Patterns of all methods are compiled into one automaton on startup, and each text message is
+ * routed by scanning the text once, however many patterns there are. A text message which matches no
+ * pattern is dispatched to {@link EventMapping @EventMapping} methods.
+ *
+ * <pre>
+ * &#64;TextMapping(prefix = "/help")
+ * public TextMessage help(MessageEvent&lt;TextMessageContent&gt; event) { ... }
+ *
+ * &#64;TextMapping(contains = { "thanks", "thank you" })
+ * public StickerMessage thanks(MessageEvent&lt;TextMessageContent&gt; event) { ... }
+ * </pre>
+ *
+ * <p>If more than one pattern matches, the one with the bigger {@link #priority()} is used. Within the same
+ * priority, {@link #prefix()} wins over {@link #contains()}, which wins over {@link #regex()}, and a longer
+ * pattern wins over a shorter one. Matching is case sensitive.
+ */
+@Beta
+@Target({ ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TextMapping {
+    /**
+     * Matches text starting with one of them.
+     */
+    String[] prefix() default {};
+
+    /**
+     * Matches text containing one of them.
+     */
+    String[] contains() default {};
+
+    /**
+     * Matches text which matches one of them entirely.
+     */
+    String[] regex() default {};
+
+    /**
+     * Priority of patterns of this method. Bigger one is preferred.
+     */
+    int priority() default 0;
+}
@@ -16,7 +16,9 @@
 
 package com.linecorp.bot.spring.boot.interceptor;
 
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -27,22 +29,63 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.servlet.ModelAndView;
 
+import com.google.common.io.ByteStreams;
+
 import com.linecorp.bot.model.event.CallbackRequest;
+import com.linecorp.bot.servlet.ChannelCallbackRequest;
 import com.linecorp.bot.servlet.LineBotCallbackException;
 import com.linecorp.bot.servlet.LineBotCallbackRequestParser;
+import com.linecorp.bot.servlet.MultiChannelCallbackRequestParser;
+import com.linecorp.bot.servlet.WebhookMetrics;
+import com.linecorp.bot.servlet.WebhookMetrics.Stage;
 import com.linecorp.bot.spring.boot.annotation.LineBotMessages;
+import com.linecorp.bot.spring.boot.support.ChannelClientResolver;
 import com.linecorp.bot.spring.boot.support.LineBotServerArgumentProcessor;
+import com.linecorp.bot.spring.boot.support.LoadShedder;
+import com.linecorp.bot.spring.boot.support.WebhookJournal;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Component
 @Slf4j
 public class LineBotServerInterceptor implements HandlerInterceptor {
-    @Autowired
+    /**
+     * Path variable of the channel ID, e.g. {@code /callback/{channelId}}.
+     */
+    private static final String CHANNEL_ID_VARIABLE = "channelId";
+
+    /**
+     * Request attribute set while the request is admitted by {@link LoadShedder}.
+     */
+    private static final String ADMITTED_ATTRIBUTE = LineBotServerInterceptor.class.getName() + ".admitted";
+
+    /**
+     * {@code null} if only {@code line.bot.channels} are configured.
+     */
+    @Autowired(required = false)
     private LineBotCallbackRequestParser lineBotCallbackRequestParser;
 
+    /**
+     * {@code null} unless {@code line.bot.channels} are configured.
+     */
+    @Autowired(required = false)
+    private MultiChannelCallbackRequestParser multiChannelCallbackRequestParser;
+
+    @Autowired(required = false)
+    private ChannelClientResolver channelClientResolver;
+
+    @Autowired(required = false)
+    private WebhookJournal webhookJournal;
+
+    @Autowired(required = false)
+    private LoadShedder loadShedder;
+
+    @Autowired(required = false)
+    private WebhookMetrics webhookMetrics = WebhookMetrics.NOOP;
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
             throws Exception {
@@ -54,9 +97,14 @@ public class LineBotServerInterceptor implements HandlerInterceptor {
         MethodParameter[] methodParameters = hm.getMethodParameters();
         for (MethodParameter methodParameter : methodParameters) {
             if (methodParameter.getParameterAnnotation(LineBotMessages.class) != null) {
+                if (loadShedder != null && !admit(request, response)) {
+                    return false;
+                }
+                boolean parsed = false;
                 try {
-                    CallbackRequest callbackRequest = lineBotCallbackRequestParser.handle(request);
+                    CallbackRequest callbackRequest = parse(request);
                     LineBotServerArgumentProcessor.setValue(request, callbackRequest);
+                    parsed = true;
                     return true;
                 } catch (LineBotCallbackException e) {
                     log.info("LINE Bot callback exception: {}", e.getMessage());
@@ -65,12 +113,79 @@ public class LineBotServerInterceptor implements HandlerInterceptor {
                         writer.println(e.getMessage());
                     }
                     return false;
+                } finally {
+                    if (!parsed) {
+                        // afterCompletion() isn't called.
+                        release(request);
+                    }
                 }
             }
         }
         return true;
     }
 
+    /**
+     * Admit the request by {@link LoadShedder}, or reject it with {@code 503} without reading the body.
+     */
+    private boolean admit(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!loadShedder.tryAcquire()) {
+            log.debug("Rejected webhook request. Pressure: {}", loadShedder.getPressure());
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return false;
+        }
+        request.setAttribute(ADMITTED_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    private void release(HttpServletRequest request) {
+        if (request.getAttribute(ADMITTED_ATTRIBUTE) != null) {
+            request.removeAttribute(ADMITTED_ATTRIBUTE);
+            loadShedder.release();
+        }
+    }
+
+    /**
+     * Parse the webhook of the single channel, or of the channel of the path variable or the destination.
+     */
+    private CallbackRequest parse(HttpServletRequest request) throws Exception {
+        final String channelId = getChannelId(request);
+        final String signature = request.getHeader("X-Line-Signature");
+        final long startNanos = System.nanoTime();
+        final byte[] json = ByteStreams.toByteArray(request.getInputStream());
+        webhookMetrics.recordStage(Stage.READ, System.nanoTime() - startNanos);
+
+        final CallbackRequest callbackRequest;
+        final String boundChannelId;
+        if (multiChannelCallbackRequestParser == null
+            || channelId == null && lineBotCallbackRequestParser != null) {
+            if (channelId != null || lineBotCallbackRequestParser == null) {
+                throw new LineBotCallbackException("Unknown channel: " + channelId);
+            }
+            callbackRequest = lineBotCallbackRequestParser.handle(signature, json);
+            boundChannelId = null;
+        } else {
+            final ChannelCallbackRequest channelCallbackRequest =
+                    multiChannelCallbackRequestParser.handle(channelId, signature, json);
+            callbackRequest = channelCallbackRequest.getCallbackRequest();
+            boundChannelId = channelCallbackRequest.getChannel().getChannelId();
+            if (channelClientResolver != null) {
+                channelClientResolver.bind(boundChannelId, callbackRequest.getEvents());
+            }
+        }
+
+        if (webhookJournal != null) {
+            webhookJournal.append(boundChannelId, json, callbackRequest.getEvents());
+        }
+        return callbackRequest;
+    }
+
+    private static String getChannelId(HttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        final Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        return variables != null ? variables.get(CHANNEL_ID_VARIABLE) : null;
+    }
+
     @Override
     public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
                            ModelAndView modelAndView) throws Exception {
@@ -80,5 +195,6 @@ public class LineBotServerInterceptor implements HandlerInterceptor {
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
                                 Exception ex)
             throws Exception {
+        release(request);
     }
 }
@@ -0,0 +1,440 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.spring.boot.LineBotProperties.AsyncExecutor;
+import com.linecorp.bot.spring.boot.LineBotProperties.AsyncExecutor.QueueFullPolicy;
+import com.linecorp.bot.spring.boot.LineBotProperties.AsyncExecutor.ThreadType;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dispatch events on a bounded thread pool, so that the webhook request is acknowledged before
+ * handler methods complete.
+ *
+ * <p>The queue is bounded by permits of {@link AsyncExecutor#getQueueCapacity()}, which are taken when
+ * events are enqueued and returned when they start. Permits for all events of a webhook request are taken
+ * at once in case of {@link QueueFullPolicy#REJECT REJECT}, so a request is enqueued entirely or not at all.
+ * A request with more events than the capacity takes all permits, so it's accepted only while the queue is
+ * empty. Otherwise LINE would redeliver it forever.
+ * Events dropped by {@link QueueFullPolicy#DROP_OLDEST DROP_OLDEST} policy are passed to
+ * {@link #setDroppedEventHandler(Consumer)}.
+ *
+ * <p>Enabled by {@code line.bot.handler.async=true}.
+ *
+ * @see AsyncExecutor
+ */
+@Slf4j
+public class AsyncEventDispatcher {
+    private static final String THREAD_NAME_PREFIX = "line-bot-handler-";
+
+    private final ExecutorService executor;
+
+    /**
+     * Tasks waiting for a thread. The queue of the thread pool in case of platform threads.
+     */
+    private final BlockingQueue<Runnable> queue;
+
+    private final boolean virtualThreads;
+
+    /**
+     * Bounds running virtual threads by {@link AsyncExecutor#getThreads()}. {@code null} in case of platform
+     * threads.
+     */
+    private final Semaphore concurrency;
+
+    private final int threads;
+    private final int queueCapacity;
+    private final QueueFullPolicy queueFullPolicy;
+    private final Duration shutdownTimeout;
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+
+    /**
+     * Room in the queue. {@code null} if {@link AsyncExecutor#isOrderedBySource()} is enabled.
+     */
+    private final Semaphore capacity;
+
+    /**
+     * Non-null if {@link AsyncExecutor#isOrderedBySource()} is enabled.
+     */
+    private final SourceOrderedLanes lanes;
+
+    private volatile Consumer<Event> droppedEventHandler = event -> {};
+
+    /**
+     * Create new instance.
+     */
+    public AsyncEventDispatcher(final AsyncExecutor properties) {
+        this(properties, virtualThreadExecutor(properties.getThreadType()));
+    }
+
+    /**
+     * Create new instance running tasks on {@code virtualThreadExecutor}, which starts a thread per task,
+     * if present.
+     */
+    AsyncEventDispatcher(final AsyncExecutor properties,
+                         final Optional<ExecutorService> virtualThreadExecutor) {
+        queueFullPolicy = properties.getQueueFullPolicy();
+        shutdownTimeout = Duration.ofMillis(properties.getShutdownTimeoutMillis());
+        threads = properties.getThreads();
+        queueCapacity = properties.getQueueCapacity();
+
+        virtualThreads = virtualThreadExecutor.isPresent();
+        if (virtualThreads) {
+            // A virtual thread is started per task, and waits for concurrency before taking the oldest one.
+            executor = virtualThreadExecutor.get();
+            queue = new LinkedBlockingQueue<>();
+            concurrency = new Semaphore(threads);
+        } else {
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    new CustomizableThreadFactory(THREAD_NAME_PREFIX));
+            pool.prestartAllCoreThreads();
+            executor = pool;
+            queue = pool.getQueue();
+            concurrency = null;
+        }
+
+        if (properties.isOrderedBySource()) {
+            // Executor's queue only holds lanes, up to the number of partitions.
+            // Events are bounded and queue full policy is applied per lane.
+            lanes = new SourceOrderedLanes(this::submit, properties.getPartitions(),
+                                           properties.getLaneCapacity(), queueFullPolicy,
+                                           rejectedCount, droppedCount, this::handleDropped);
+            capacity = null;
+        } else {
+            // Executor's queue is unbounded. Events are bounded by permits of capacity instead.
+            lanes = null;
+            capacity = new Semaphore(queueCapacity);
+        }
+    }
+
+    private static Optional<ExecutorService> virtualThreadExecutor(final ThreadType threadType) {
+        if (threadType != ThreadType.VIRTUAL) {
+            return Optional.empty();
+        }
+        final Optional<ExecutorService> executor = VirtualThreads.newThreadPerTaskExecutor(THREAD_NAME_PREFIX);
+        if (!executor.isPresent()) {
+            log.warn("Virtual threads are not supported by this JVM. Using platform threads instead.");
+        }
+        return executor;
+    }
+
+    /**
+     * Set a handler of events dropped by {@link QueueFullPolicy#DROP_OLDEST DROP_OLDEST} policy, e.g. to
+     * checkpoint them. It's called on the thread enqueueing a new event.
+     */
+    public void setDroppedEventHandler(final Consumer<Event> droppedEventHandler) {
+        this.droppedEventHandler = droppedEventHandler;
+    }
+
+    /**
+     * Enqueue given events to be processed by {@code handler}.
+     *
+     * <p>If {@link AsyncExecutor#isOrderedBySource()} is enabled, events of the same source are processed
+     * in given order.
+     *
+     * @throws RejectedExecutionException the queue is full and the policy is
+     *         {@link QueueFullPolicy#REJECT REJECT}. No event is enqueued then. Events more than the capacity
+     *         are rejected only if the queue isn't empty.
+     */
+    public void dispatch(final List<Event> events, final Consumer<Event> handler) {
+        final List<EventTask> tasks = new ArrayList<>(events.size());
+        for (Event event : events) {
+            tasks.add(new EventTask(event, handler));
+        }
+        if (lanes != null) {
+            lanes.execute(tasks);
+            return;
+        }
+
+        if (queueFullPolicy == QueueFullPolicy.REJECT) {
+            // Tasks beyond the capacity are enqueued without a permit.
+            final int permits = Math.min(tasks.size(), queueCapacity);
+            if (!capacity.tryAcquire(permits)) {
+                rejectedCount.increment();
+                throw new RejectedExecutionException("Event queue is full");
+            }
+            for (int i = 0; i < tasks.size(); ++i) {
+                try {
+                    submit(new QueuedTask(tasks.get(i), i < permits));
+                } catch (RejectedExecutionException e) {
+                    // Shutting down.
+                    capacity.release(Math.max(permits - i, 0));
+                    throw e;
+                }
+            }
+            return;
+        }
+        tasks.forEach(this::enqueue);
+    }
+
+    /**
+     * Run given task on the executor. The queue full policy is applied as same as events, but source order
+     * is not kept.
+     *
+     * @throws RejectedExecutionException the queue is full and the policy is
+     *         {@link QueueFullPolicy#REJECT REJECT}.
+     */
+    public void execute(final Runnable task) {
+        if (lanes != null) {
+            submit(task);
+        } else if (queueFullPolicy == QueueFullPolicy.REJECT) {
+            if (!capacity.tryAcquire()) {
+                rejectedCount.increment();
+                throw new RejectedExecutionException("Event queue is full");
+            }
+            executeAcquired(task);
+        } else {
+            enqueue(task);
+        }
+    }
+
+    /**
+     * Enqueue a task by {@link QueueFullPolicy#BLOCK BLOCK} or {@link QueueFullPolicy#DROP_OLDEST DROP_OLDEST}
+     * policy.
+     */
+    private void enqueue(final Runnable task) {
+        if (queueFullPolicy == QueueFullPolicy.BLOCK) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Executor has been shut down");
+            }
+            try {
+                capacity.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for queue", e);
+            }
+        } else {
+            while (!capacity.tryAcquire()) {
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("Executor has been shut down");
+                }
+                // Take over the permit of the oldest task. It may have started meanwhile, then try again.
+                final Runnable dropped = queue.poll();
+                if (dropped != null) {
+                    droppedCount.increment();
+                    log.warn("Event queue is full. Dropped oldest event: {}", dropped);
+                    handleDropped(dropped);
+                    break;
+                }
+            }
+        }
+        executeAcquired(task);
+    }
+
+    /**
+     * Pass events of a dropped task to {@link #setDroppedEventHandler(Consumer)}.
+     */
+    private void handleDropped(final Runnable task) {
+        final Runnable unwrapped = task instanceof QueuedTask ? ((QueuedTask) task).task : task;
+        if (!(unwrapped instanceof EventsTask)) {
+            return;
+        }
+        for (Event event : ((EventsTask) unwrapped).getEvents()) {
+            try {
+                droppedEventHandler.accept(event);
+            } catch (RuntimeException e) {
+                log.error("Dropped event handler failed: {}", event, e);
+            }
+        }
+    }
+
+    private void executeAcquired(final Runnable task) {
+        try {
+            submit(new QueuedTask(task, true));
+        } catch (RejectedExecutionException e) {
+            capacity.release();
+            throw e;
+        }
+    }
+
+    private void submit(final Runnable task) {
+        if (!virtualThreads) {
+            executor.execute(task);
+            return;
+        }
+        queue.add(task);
+        try {
+            executor.execute(this::runNext);
+        } catch (RejectedExecutionException e) {
+            // Shutting down. The task may have been taken by a running thread already.
+            if (queue.remove(task)) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Body of a virtual thread. Runs the oldest task once a permit of concurrency is available.
+     */
+    private void runNext() {
+        try {
+            concurrency.acquire();
+        } catch (InterruptedException e) {
+            // Shut down forcibly.
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            final Runnable task = queue.poll();
+            if (task != null) {
+                task.run();
+            }
+        } finally {
+            concurrency.release();
+        }
+    }
+
+    /**
+     * Returns {@code true} if {@link #shutdown()} has been called, so that no more events are accepted.
+     */
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    /**
+     * Returns {@code true} if events are processed by virtual threads.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Returns number of events waiting in the queue.
+     */
+    public int getQueueSize() {
+        return lanes != null ? lanes.getPendingCount() : queue.size();
+    }
+
+    /**
+     * Returns number of source partitions which have waiting or running events.
+     * Always {@code 0} unless {@link AsyncExecutor#isOrderedBySource()} is enabled.
+     */
+    public int getActiveLaneCount() {
+        return lanes != null ? lanes.getLaneCount() : 0;
+    }
+
+    /**
+     * Returns number of events being processed.
+     */
+    public int getActiveCount() {
+        if (virtualThreads) {
+            return threads - concurrency.availablePermits();
+        }
+        return ((ThreadPoolExecutor) executor).getActiveCount();
+    }
+
+    /**
+     * Returns how long the oldest event in the queue has been waiting. {@link Duration#ZERO} if the queue
+     * is empty.
+     */
+    public Duration getOldestEventAge() {
+        if (lanes != null) {
+            return lanes.getOldestEventAge();
+        }
+        final Runnable head = queue.peek();
+        if (!(head instanceof QueuedTask)) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(System.nanoTime() - ((QueuedTask) head).enqueuedAt);
+    }
+
+    /**
+     * Returns number of rejected webhook requests by {@link QueueFullPolicy#REJECT REJECT} policy.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Returns number of dropped events by {@link QueueFullPolicy#DROP_OLDEST DROP_OLDEST} policy.
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Stop accepting events and wait for queued events up to {@link AsyncExecutor#getShutdownTimeoutMillis()}.
+     */
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            final int remaining = queue.size();
+            executor.shutdownNow();
+            queue.clear();
+            log.warn("Event queue didn't drain in {}. {} events are discarded.", shutdownTimeout, remaining);
+        }
+    }
+
+    /**
+     * A task processing events, whose events are passed to {@link #setDroppedEventHandler(Consumer)} if it's
+     * dropped from the queue.
+     */
+    interface EventsTask extends Runnable {
+        List<Event> getEvents();
+    }
+
+    /**
+     * A task in the queue, which returns its permit of the capacity when it starts.
+     */
+    private final class QueuedTask implements Runnable {
+        private final Runnable task;
+        private final long enqueuedAt = System.nanoTime();
+
+        /**
+         * {@code false} if the task is beyond the capacity in an oversized request.
+         */
+        private final boolean permit;
+
+        QueuedTask(final Runnable task, final boolean permit) {
+            this.task = task;
+            this.permit = permit;
+        }
+
+        @Override
+        public void run() {
+            if (permit) {
+                capacity.release();
+            }
+            task.run();
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.MapMaker;
+
+import com.linecorp.bot.client.LineMessagingClient;
+import com.linecorp.bot.client.LineMessagingClientPool;
+import com.linecorp.bot.model.event.Event;
+
+import lombok.NonNull;
+
+/**
+ * Resolves the channel which an event is sent to, and its client, when {@code line.bot.channels} are
+ * configured.
+ *
+ * <p>Replies by return values of handler methods are sent with the client of the channel. Handler methods
+ * sending other API requests can inject this bean:
+ *
+ * <pre>
+ * &#64;EventMapping
+ * public void handle(FollowEvent event) {
+ *     channelClientResolver.getClient(event).ifPresent(client -&gt; client.pushMessage(...));
+ * }
+ * </pre>
+ */
+public class ChannelClientResolver {
+    private final LineMessagingClientPool lineMessagingClientPool;
+
+    /**
+     * Channel IDs of events in process. Events are compared by identity, and removed once collected.
+     */
+    private final ConcurrentMap<Event, String> channelIds = new MapMaker().weakKeys().makeMap();
+
+    public ChannelClientResolver(@NonNull final LineMessagingClientPool lineMessagingClientPool) {
+        this.lineMessagingClientPool = lineMessagingClientPool;
+    }
+
+    /**
+     * Bind events of a webhook to the channel it's sent to.
+     */
+    public void bind(@NonNull final String channelId, final List<Event> events) {
+        events.forEach(event -> channelIds.put(event, channelId));
+    }
+
+    /**
+     * Returns ID of the channel which given event is sent to, or empty if the event is sent to the single
+     * channel configured by {@code line.bot.channel-secret}.
+     */
+    public Optional<String> getChannelId(final Event event) {
+        return Optional.ofNullable(channelIds.get(event));
+    }
+
+    /**
+     * Returns the client of the channel which given event is sent to.
+     *
+     * @see #getChannelId(Event)
+     */
+    public Optional<LineMessagingClient> getClient(final Event event) {
+        return getChannelId(event).map(lineMessagingClientPool::get);
+    }
+
+    /**
+     * Returns the client for given event.
+     *
+     * @param resolver nullable.
+     * @param defaultClient client of the single channel. nullable.
+     *
+     * @throws IllegalStateException if there's no client for the event.
+     */
+    static LineMessagingClient resolve(final ChannelClientResolver resolver, final Event event,
+                                       final LineMessagingClient defaultClient) {
+        if (resolver != null) {
+            final Optional<LineMessagingClient> client = resolver.getClient(event);
+            if (client.isPresent()) {
+                return client.get();
+            }
+        }
+        if (defaultClient == null) {
+            throw new IllegalStateException("No channel of the event: " + event);
+        }
+        return defaultClient;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+/**
+ * Remembers fingerprints of events seen by {@link EventDeduplicator}.
+ *
+ * <p>{@link InMemoryEventDeduplicationStore} is used by default. Define a bean of this type backed by a shared
+ * store, e.g. Redis {@code SET key value NX PX window}, to drop events redelivered to another instance of the
+ * application.
+ */
+public interface EventDeduplicationStore {
+    /**
+     * Record given fingerprint, and remember it at least for the de-duplication window.
+     *
+     * @return {@code true} if it's not recorded yet, i.e. the event is seen for the first time.
+     */
+    boolean markSeen(String fingerprint);
+
+    /**
+     * Forget given fingerprint, e.g. when the event is rejected and should be processed on redelivery.
+     */
+    void forget(String fingerprint);
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.ReplyEvent;
+import com.linecorp.bot.model.event.source.Source;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Drops events which LINE platform redelivered, e.g. because the webhook was slow to respond.
+ *
+ * <p>An event is identified by its type, source, timestamp, reply token and message ID. Fingerprints are
+ * recorded in {@link EventDeduplicationStore} when the webhook arrives, so an event whose handler method failed
+ * isn't processed again on redelivery.
+ *
+ * <p>Enabled by {@code line.bot.handler.deduplication.enabled=true}.
+ */
+@Slf4j
+public class EventDeduplicator {
+    private final EventDeduplicationStore store;
+    private final LongAdder duplicateCount = new LongAdder();
+
+    public EventDeduplicator(@NonNull final EventDeduplicationStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Returns events seen for the first time.
+     */
+    public List<Event> filter(final List<Event> events) {
+        final List<Event> firstSeen = new ArrayList<>(events.size());
+        for (Event event : events) {
+            if (store.markSeen(fingerprint(event))) {
+                firstSeen.add(event);
+            } else {
+                duplicateCount.increment();
+                log.debug("Dropped duplicate event: {}", event);
+            }
+        }
+        return firstSeen;
+    }
+
+    /**
+     * Forget given events, so that they are processed when redelivered.
+     */
+    public void forget(final List<Event> events) {
+        events.forEach(event -> store.forget(fingerprint(event)));
+    }
+
+    /**
+     * Returns number of dropped events.
+     */
+    public long getDuplicateCount() {
+        return duplicateCount.sum();
+    }
+
+    @VisibleForTesting
+    static String fingerprint(final Event event) {
+        final StringBuilder key = new StringBuilder(128).append(event.getClass().getName());
+        final Source source = event.getSource();
+        if (source != null) {
+            key.append('|').append(source.getSenderId()).append('|').append(source.getUserId());
+        }
+        key.append('|').append(event.getTimestamp() != null ? event.getTimestamp().toEpochMilli() : null);
+        if (event instanceof ReplyEvent) {
+            key.append('|').append(((ReplyEvent) event).getReplyToken());
+        }
+        if (event instanceof MessageEvent && ((MessageEvent<?>) event).getMessage() != null) {
+            key.append('|').append(((MessageEvent<?>) event).getMessage().getId());
+        }
+        return Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8).toString();
+    }
+}
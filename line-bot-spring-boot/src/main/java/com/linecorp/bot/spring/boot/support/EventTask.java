@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.linecorp.bot.model.event.Event;
+
+import lombok.Getter;
+
+/**
+ * An event waiting for {@link AsyncEventDispatcher}.
+ */
+@Getter
+class EventTask implements AsyncEventDispatcher.EventsTask {
+    private final Event event;
+    private final Consumer<Event> handler;
+    private final long enqueuedAt = System.nanoTime();
+
+    EventTask(final Event event, final Consumer<Event> handler) {
+        this.event = event;
+        this.handler = handler;
+    }
+
+    @Override
+    public List<Event> getEvents() {
+        return Collections.singletonList(event);
+    }
+
+    @Override
+    public void run() {
+        handler.accept(event);
+    }
+
+    @Override
+    public String toString() {
+        return event.toString();
+    }
+}
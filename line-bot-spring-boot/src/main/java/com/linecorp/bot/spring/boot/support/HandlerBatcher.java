@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.spring.boot.annotation.EventBatch;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Groups events of a handler method taking {@code List} of events.
+ *
+ * @see EventBatch
+ */
+@Slf4j
+class HandlerBatcher {
+    private final String name;
+
+    /**
+     * {@code (List)Object}.
+     */
+    private final MethodHandle invoker;
+    private final long windowMillis;
+    private final int maxSize;
+    private final ScheduledExecutorService timer;
+    private final Executor executor;
+
+    /**
+     * Receives each event once its batch has been processed, rejected or dropped.
+     */
+    private final Consumer<Event> completionHandler;
+
+    private List<Event> buffer = new ArrayList<>();
+    private ScheduledFuture<?> window;
+
+    HandlerBatcher(final String name, final MethodHandle invoker, final long windowMillis, final int maxSize,
+                   final ScheduledExecutorService timer, final Executor executor,
+                   final Consumer<Event> completionHandler) {
+        this.name = name;
+        this.invoker = invoker;
+        this.windowMillis = windowMillis;
+        this.maxSize = maxSize;
+        this.timer = timer;
+        this.executor = executor;
+        this.completionHandler = completionHandler;
+    }
+
+    /**
+     * Add events. Full batches, or all events if there's no window, are delivered before returning.
+     */
+    void add(final List<Event> events) {
+        final List<List<Event>> batches = new ArrayList<>();
+        synchronized (this) {
+            buffer.addAll(events);
+            while (buffer.size() >= maxSize) {
+                batches.add(new ArrayList<>(buffer.subList(0, maxSize)));
+                buffer.subList(0, maxSize).clear();
+            }
+            if (windowMillis <= 0) {
+                takeBuffer(batches);
+            } else if (!buffer.isEmpty() && window == null) {
+                window = timer.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        batches.forEach(this::deliver);
+    }
+
+    /**
+     * Deliver buffered events now.
+     */
+    void flush() {
+        final List<List<Event>> batches = new ArrayList<>(1);
+        synchronized (this) {
+            takeBuffer(batches);
+        }
+        batches.forEach(this::deliver);
+    }
+
+    private void takeBuffer(final List<List<Event>> batches) {
+        if (window != null) {
+            window.cancel(false);
+            window = null;
+        }
+        if (!buffer.isEmpty()) {
+            batches.add(buffer);
+            buffer = new ArrayList<>();
+        }
+    }
+
+    private void deliver(final List<Event> batch) {
+        try {
+            executor.execute(new Delivery(batch));
+        } catch (RejectedExecutionException e) {
+            log.warn("Batch handler {} rejected {} events: {}", name, batch.size(), e.getMessage());
+            batch.forEach(completionHandler);
+        }
+    }
+
+    /**
+     * A batch on its way to the handler method. Events are passed to
+     * {@link AsyncEventDispatcher#setDroppedEventHandler(Consumer)} instead if it's dropped from the queue.
+     */
+    private final class Delivery implements AsyncEventDispatcher.EventsTask {
+        private final List<Event> batch;
+
+        Delivery(final List<Event> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public List<Event> getEvents() {
+            return batch;
+        }
+
+        @Override
+        public void run() {
+            try {
+                final Object ignored = (Object) invoker.invokeExact(batch);
+            } catch (Throwable t) {
+                log.error("Batch handler {} failed for {} events.", name, batch.size(), t);
+            } finally {
+                batch.forEach(completionHandler);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return batch.size() + " events of batch handler " + name;
+        }
+    }
+
+    /**
+     * Create a timer shared by batchers for windows.
+     */
+    static ScheduledThreadPoolExecutor newTimer() {
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("line-bot-batch-timer-");
+        threadFactory.setDaemon(true);
+        final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, threadFactory);
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.spring.boot.annotation.Bulkhead;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runtime of {@link Bulkhead @Bulkhead} on a handler method.
+ */
+@Slf4j
+public class HandlerBulkhead {
+    private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService timer;
+    private final long timeoutMillis;
+
+    /**
+     * {@code (Event, Throwable)Object}. {@code null} if no fallback.
+     */
+    private final MethodHandle fallback;
+
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+
+    HandlerBulkhead(final String name, final Bulkhead bulkhead, final MethodHandle fallback,
+                    final ScheduledExecutorService timer) {
+        this.name = name;
+        this.fallback = fallback;
+        this.timer = timer;
+        timeoutMillis = bulkhead.timeoutMillis();
+
+        final BlockingQueue<Runnable> queue = bulkhead.queueSize() > 0
+                                              ? new ArrayBlockingQueue<>(bulkhead.queueSize())
+                                              : new SynchronousQueue<>();
+        executor = new ThreadPoolExecutor(bulkhead.maxConcurrency(), bulkhead.maxConcurrency(),
+                                          IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, queue,
+                                          new CustomizableThreadFactory("line-bot-bulkhead-" + name + '-'));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Run {@code invoker} on the bulkhead, and pass the result to {@code resultConsumer}. The fallback
+     * result is passed to {@code resultConsumer} instead if the event is rejected or timed out.
+     *
+     * @param completionHandler called once after the result is consumed, or the event is dropped.
+     */
+    void execute(final Event event, final MethodHandle invoker, final Consumer<Object> resultConsumer,
+                 final Runnable completionHandler) {
+        // Either the handler or the timeout wins, so that the result is consumed only once.
+        final AtomicBoolean completed = new AtomicBoolean();
+        final AtomicBoolean finished = new AtomicBoolean();
+        final Runnable finish = () -> {
+            if (finished.compareAndSet(false, true)) {
+                completionHandler.run();
+            }
+        };
+        final AtomicReference<ScheduledFuture<?>> timeout = new AtomicReference<>();
+        final Future<?> future;
+        try {
+            future = executor.submit(() -> {
+                try {
+                    final Object returnValue = (Object) invoker.invokeExact(event);
+                    if (completed.compareAndSet(false, true)) {
+                        resultConsumer.accept(returnValue);
+                    }
+                } catch (Throwable t) {
+                    if (t instanceof InterruptedException && completed.get()) {
+                        log.debug("Handler {} interrupted by timeout.", name);
+                    } else {
+                        log.error(t.getMessage(), t);
+                    }
+                } finally {
+                    completed.set(true);
+                    final ScheduledFuture<?> scheduledFuture = timeout.get();
+                    if (scheduledFuture != null) {
+                        scheduledFuture.cancel(false);
+                    }
+                    finish.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            fallback(event, e, resultConsumer);
+            finish.run();
+            return;
+        }
+
+        if (timeoutMillis > 0) {
+            timeout.set(timer.schedule(() -> {
+                if (!completed.compareAndSet(false, true)) {
+                    return;
+                }
+                future.cancel(true);
+                // Free the queue slot if it's still waiting.
+                executor.remove((Runnable) future);
+                timeoutCount.increment();
+                fallback(event, new TimeoutException("Handler timed out after " + timeoutMillis + "ms"),
+                         resultConsumer);
+                finish.run();
+            }, timeoutMillis, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void fallback(final Event event, final Exception cause, final Consumer<Object> resultConsumer) {
+        if (fallback == null) {
+            log.warn("Bulkhead of {} dropped event: {}", name, event, cause);
+            return;
+        }
+        try {
+            resultConsumer.accept((Object) fallback.invokeExact(event, (Throwable) cause));
+        } catch (Throwable t) {
+            log.error("Fallback of {} failed.", name, t);
+        }
+    }
+
+    /**
+     * Returns name of the handler method.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns number of events being processed.
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Returns number of events waiting for a thread.
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Returns number of events rejected because the bulkhead was full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Returns number of events timed out.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Create a timer shared by bulkheads for timeouts.
+     */
+    static ScheduledThreadPoolExecutor newTimer() {
+        final CustomizableThreadFactory threadFactory =
+                new CustomizableThreadFactory("line-bot-bulkhead-timer-");
+        threadFactory.setDaemon(true);
+        final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, threadFactory);
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.message.MessageContent;
+import com.linecorp.bot.spring.boot.support.LineMessageHandlerSupport.HandlerMethod;
+
+/**
+ * Lookup table from (event class, message content class) to {@link HandlerMethod}.
+ *
+ * <p>Resolution result is memoized per concrete class by {@link ClassValue}, so the cost of dispatch
+ * doesn't depend on the number of handler methods.
+ */
+class HandlerDispatchTable {
+    /**
+     * Handler methods in priority order.
+     */
+    private final List<HandlerMethod> handlerMethods;
+
+    private final ClassValue<EventTypeEntry> entries = new ClassValue<EventTypeEntry>() {
+        @Override
+        protected EventTypeEntry computeValue(final Class<?> eventType) {
+            return new EventTypeEntry(eventType);
+        }
+    };
+
+    HandlerDispatchTable(final List<HandlerMethod> handlerMethods) {
+        this.handlerMethods = handlerMethods;
+    }
+
+    /**
+     * Returns the handler method with the highest priority which supports given event.
+     */
+    Optional<HandlerMethod> lookup(final Event event) {
+        final EventTypeEntry entry = entries.get(event.getClass());
+        if (entry.byContentType == null) {
+            return entry.handlerMethod;
+        }
+
+        final MessageContent content = ((MessageEvent<?>) event).getMessage();
+        if (content == null) {
+            return entry.handlerMethod;
+        }
+        return entry.byContentType.get(content.getClass());
+    }
+
+    private Optional<HandlerMethod> resolve(final Class<?> eventType, final Class<?> contentType) {
+        for (HandlerMethod handlerMethod : handlerMethods) {
+            if (handlerMethod.getSupportType().test(eventType, contentType)) {
+                return Optional.of(handlerMethod);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private class EventTypeEntry {
+        /**
+         * Resolved handler method ignoring message content.
+         */
+        private final Optional<HandlerMethod> handlerMethod;
+
+        /**
+         * Resolved handler methods per message content type.
+         * {@code null} if no handler method of this event type depends on message content.
+         */
+        private final ClassValue<Optional<HandlerMethod>> byContentType;
+
+        EventTypeEntry(final Class<?> eventType) {
+            handlerMethod = resolve(eventType, null);
+
+            final boolean contentSensitive =
+                    MessageEvent.class.isAssignableFrom(eventType)
+                    && handlerMethods.stream()
+                                     .map(HandlerMethod::getSupportType)
+                                     .anyMatch(predicate -> predicate.dependsOnMessageContent(eventType));
+            byContentType = contentSensitive ? new ClassValue<Optional<HandlerMethod>>() {
+                @Override
+                protected Optional<HandlerMethod> computeValue(final Class<?> contentType) {
+                    return resolve(eventType, contentType);
+                }
+            } : null;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link EventDeduplicationStore} in memory of this process.
+ *
+ * <p>Fingerprints are kept in two generations of concurrent sets. A new generation starts when the current one
+ * gets older than the window, and the previous one is discarded. So a fingerprint is remembered for between
+ * one and two windows, without locks or per-entry expiration.
+ *
+ * <p>Memory is bounded by {@code maxEntries}. If more fingerprints arrive in a window, a new generation starts
+ * early, and old fingerprints are forgotten before the window elapses.
+ */
+public class InMemoryEventDeduplicationStore implements EventDeduplicationStore {
+    private final long windowNanos;
+    private final int maxEntriesPerGeneration;
+    private final LongSupplier nanoTime;
+    private final AtomicReference<Generations> generations;
+
+    /**
+     * Create new instance.
+     *
+     * @param window minimum time to remember a fingerprint.
+     * @param maxEntries maximum number of fingerprints to remember.
+     */
+    public InMemoryEventDeduplicationStore(final Duration window, final int maxEntries) {
+        this(window, maxEntries, System::nanoTime);
+    }
+
+    InMemoryEventDeduplicationStore(final Duration window, final int maxEntries, final LongSupplier nanoTime) {
+        if (window.isNegative() || window.isZero() || maxEntries < 2) {
+            throw new IllegalArgumentException("Invalid window = " + window + " or maxEntries = " + maxEntries);
+        }
+        windowNanos = window.toNanos();
+        maxEntriesPerGeneration = maxEntries / 2;
+        this.nanoTime = nanoTime;
+        generations = new AtomicReference<>(
+                new Generations(newSet(), Collections.emptySet(), nanoTime.getAsLong()));
+    }
+
+    @Override
+    public boolean markSeen(final String fingerprint) {
+        final Generations current = current();
+        return !current.previous.contains(fingerprint) && current.current.add(fingerprint);
+    }
+
+    @Override
+    public void forget(final String fingerprint) {
+        final Generations current = generations.get();
+        current.current.remove(fingerprint);
+        current.previous.remove(fingerprint);
+    }
+
+    /**
+     * Returns the number of remembered fingerprints.
+     */
+    public int size() {
+        final Generations current = generations.get();
+        return current.current.size() + current.previous.size();
+    }
+
+    private Generations current() {
+        final long now = nanoTime.getAsLong();
+        for (;;) {
+            final Generations current = generations.get();
+            final long age = now - current.startNanos;
+            if (age < windowNanos && current.current.size() < maxEntriesPerGeneration) {
+                return current;
+            }
+
+            // The current generation is still visible as the previous one, so fingerprints added to it
+            // by other threads during the rotation aren't lost.
+            final Set<String> previous = age < windowNanos * 2 ? current.current : Collections.emptySet();
+            final Generations next = new Generations(newSet(), previous, now);
+            if (generations.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private static Set<String> newSet() {
+        return ConcurrentHashMap.newKeySet();
+    }
+
+    private static final class Generations {
+        final Set<String> current;
+        final Set<String> previous;
+        final long startNanos;
+
+        Generations(final Set<String> current, final Set<String> previous, final long startNanos) {
+            this.current = current;
+            this.previous = previous;
+            this.startNanos = startNanos;
+        }
+    }
+}
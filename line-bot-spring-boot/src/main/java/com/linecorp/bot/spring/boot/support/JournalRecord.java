@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.time.Instant;
+
+import lombok.ToString;
+import lombok.Value;
+
+/**
+ * A webhook request body recorded in {@link WebhookJournal}.
+ */
+@Value
+public class JournalRecord {
+    /**
+     * Sequence number of the record, starting from {@code 1}.
+     */
+    long sequence;
+
+    /**
+     * Time when the webhook was received.
+     */
+    Instant timestamp;
+
+    /**
+     * Channel ID of the webhook. {@code null} if it's sent to the channel of {@code line.bot.channel-secret}.
+     */
+    String channelId;
+
+    /**
+     * Request body, i.e. JSON of {@code CallbackRequest}. Its signature has been validated.
+     */
+    @ToString.Exclude
+    byte[] body;
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies in fixed millisecond buckets.
+ */
+public class LatencyHistogram {
+    private static final long[] BUCKET_BOUNDS_MILLIS = {
+            10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 30_000, 60_000
+    };
+
+    /**
+     * One more than bounds, for latencies over the last bound.
+     */
+    private final LongAdder[] counts = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+    private final LongAdder sumMillis = new LongAdder();
+
+    LatencyHistogram() {
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    void record(final Duration latency) {
+        final long millis = Math.max(0, latency.toMillis());
+        int index = Arrays.binarySearch(BUCKET_BOUNDS_MILLIS, millis);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        counts[index].increment();
+        sumMillis.add(millis);
+    }
+
+    /**
+     * Returns inclusive upper bounds of buckets in milliseconds. The last bucket of {@link #getCounts()}
+     * has no upper bound.
+     */
+    public long[] getBucketBoundsMillis() {
+        return BUCKET_BOUNDS_MILLIS.clone();
+    }
+
+    /**
+     * Returns number of records per bucket. Length is {@code getBucketBoundsMillis().length + 1}.
+     */
+    public long[] getCounts() {
+        final long[] snapshot = new long[counts.length];
+        for (int i = 0; i < counts.length; ++i) {
+            snapshot[i] = counts[i].sum();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns total number of records.
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Returns sum of recorded latencies.
+     */
+    public Duration getTotal() {
+        return Duration.ofMillis(sumMillis.sum());
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.message.MessageContent;
+import com.linecorp.bot.spring.boot.annotation.EventMapping;
+import com.linecorp.bot.spring.boot.annotation.LineMessageHandler;
+import com.linecorp.bot.spring.boot.annotation.PostbackMapping;
+import com.linecorp.bot.spring.boot.annotation.TextMapping;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Handler methods of a {@link LineMessageHandler} class, generated at compile time.
+ *
+ * <p>Add {@code line-bot-spring-boot-processor} to the annotation processor path, and
+ * {@code <class name>_LineMessageHandlerRegistry} is generated for each {@link LineMessageHandler} class.
+ * {@link LineMessageHandlerSupport} maps only the registered methods instead of scanning all methods of the
+ * class, and calls them through registered {@link Invoker}s. Mappings of methods which are annotated directly
+ * are registered as {@link Mapping}s too, so that their annotations and generic parameter types aren't read
+ * by reflection. Handler classes without a generated registry are scanned by reflection as before.
+ *
+ * @param <T> type of the handler class.
+ */
+public interface LineMessageHandlerRegistry<T> {
+    /**
+     * Suffix of generated class name. {@code $} of nested class names is replaced with {@code _}.
+     */
+    String CLASS_NAME_SUFFIX = "_LineMessageHandlerRegistry";
+
+    /**
+     * Register handler methods of given handler bean.
+     */
+    void register(T handler, Registrar registrar);
+
+    /**
+     * Receives handler methods.
+     */
+    @FunctionalInterface
+    interface Registrar {
+        /**
+         * Add a handler method.
+         *
+         * @param invoker calls the method with an event. {@code null} if it can't be called directly, e.g. it's
+         *                private or takes other than an event.
+         */
+        void add(String methodName, Class<?>[] parameterTypes, Invoker invoker);
+
+        /**
+         * Add a handler method with its mapping.
+         *
+         * @param mapping mapping of the method. {@code null} if it's resolved by reflection, e.g. it's
+         *                mapped by a meta-annotation or it's a batch handler.
+         */
+        default void add(String methodName, Class<?>[] parameterTypes, Invoker invoker, Mapping mapping) {
+            add(methodName, parameterTypes, invoker);
+        }
+    }
+
+    /**
+     * Calls a handler method taking an event.
+     */
+    @FunctionalInterface
+    interface Invoker {
+        /**
+         * Returns the return value of the handler method, or {@code null} if it's {@code void}.
+         */
+        Object invoke(Event event) throws Throwable;
+    }
+
+    /**
+     * Mapping of a handler method, resolved at compile time.
+     */
+    @Value
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    class Mapping {
+        /**
+         * Kind of mapping annotations.
+         */
+        public enum Kind {
+            EVENT,
+            TEXT,
+            POSTBACK
+        }
+
+        Kind kind;
+
+        /**
+         * Priority of the mapping. Default priority of {@link EventMapping} is resolved by the event type.
+         */
+        int priority;
+
+        /**
+         * Raw type of the event parameter. {@code null} in case of {@link PostbackMapping}.
+         */
+        Class<? extends Event> eventType;
+
+        /**
+         * Type argument of {@code MessageEvent<T>} parameter. {@code null} if there's none.
+         */
+        Class<? extends MessageContent> messageContentType;
+
+        /**
+         * Patterns of {@link TextMapping}, or conditions of {@link PostbackMapping}. Empty in case of
+         * {@link EventMapping}.
+         */
+        String[] prefix;
+        String[] contains;
+        String[] regex;
+        String[] conditions;
+
+        /**
+         * Mapping of {@link EventMapping}.
+         */
+        public static Mapping event(final int priority, final Class<? extends Event> eventType,
+                                    final Class<? extends MessageContent> messageContentType) {
+            return new Mapping(Kind.EVENT, priority, eventType, messageContentType,
+                               new String[0], new String[0], new String[0], new String[0]);
+        }
+
+        /**
+         * Mapping of {@link TextMapping}.
+         */
+        public static Mapping text(final int priority, final Class<? extends Event> eventType,
+                                   final Class<? extends MessageContent> messageContentType,
+                                   final String[] prefix, final String[] contains, final String[] regex) {
+            return new Mapping(Kind.TEXT, priority, eventType, messageContentType,
+                               prefix, contains, regex, new String[0]);
+        }
+
+        /**
+         * Mapping of {@link PostbackMapping}.
+         */
+        public static Mapping postback(final int priority, final String[] conditions) {
+            return new Mapping(Kind.POSTBACK, priority, null, null,
+                               new String[0], new String[0], new String[0], conditions);
+        }
+    }
+}
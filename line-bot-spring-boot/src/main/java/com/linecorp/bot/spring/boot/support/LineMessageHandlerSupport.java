@@ -16,24 +16,45 @@
 
 package com.linecorp.bot.spring.boot.support;
 
-import java.lang.reflect.InvocationTargetException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -44,11 +65,26 @@ import com.google.common.base.Preconditions;
 
 import com.linecorp.bot.model.event.Event;
 import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.PostbackEvent;
 import com.linecorp.bot.model.event.ReplyEvent;
 import com.linecorp.bot.model.event.message.MessageContent;
+import com.linecorp.bot.model.event.message.TextMessageContent;
+import com.linecorp.bot.model.event.postback.PostbackContent;
+import com.linecorp.bot.model.event.postback.PostbackData;
+import com.linecorp.bot.servlet.WebhookMetrics;
+import com.linecorp.bot.servlet.WebhookMetrics.Stage;
+import com.linecorp.bot.spring.boot.LineBotProperties.ReplyDeadline.ExpiredReplyPolicy;
+import com.linecorp.bot.spring.boot.annotation.Bulkhead;
+import com.linecorp.bot.spring.boot.annotation.EventBatch;
 import com.linecorp.bot.spring.boot.annotation.EventMapping;
 import com.linecorp.bot.spring.boot.annotation.LineBotMessages;
 import com.linecorp.bot.spring.boot.annotation.LineMessageHandler;
+import com.linecorp.bot.spring.boot.annotation.PostbackMapping;
+import com.linecorp.bot.spring.boot.annotation.PostbackParam;
+import com.linecorp.bot.spring.boot.annotation.TextMapping;
+import com.linecorp.bot.spring.boot.support.LineMessageHandlerRegistry.Invoker;
+import com.linecorp.bot.spring.boot.support.LineMessageHandlerRegistry.Mapping;
+import com.linecorp.bot.spring.boot.support.LineMessageHandlerRegistry.Registrar;
 
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
@@ -68,19 +104,101 @@ import lombok.extern.slf4j.Slf4j;
  * <li>Class annotated with {@link LineMessageHandler}</li>
  * <li>Method annotated with {@link EventMapping}.</li>
  * </ul>
+ *
+ * <p>A handler method annotated with {@link Bulkhead} is run on its own {@link HandlerBulkhead}.
+ *
+ * <p>A handler method taking {@code List} of events receives matched events in batches.
+ * See {@link EventBatch}.
+ *
+ * <p>Text messages are routed to methods annotated with {@link TextMapping} first, if any pattern matches.
+ * Postback events are routed to methods annotated with {@link PostbackMapping} first in the same way.
+ *
+ * <p>A handler method can be a Kotlin {@code suspend} function. It's started as a coroutine on the
+ * {@code CoroutineContext} bean named {@value #COROUTINE_CONTEXT_BEAN_NAME}, and its return value is replied
+ * when the coroutine completes, without blocking a thread.
+ *
+ * <p>If a handler class has {@link LineMessageHandlerRegistry} generated by line-bot-spring-boot-processor,
+ * only its registered methods are mapped. Otherwise all methods of the class are scanned by reflection.
  */
 @Slf4j
 @Beta
 @RestController
 @Import(ReplyByReturnValueConsumer.Factory.class)
 @ConditionalOnProperty(name = "line.bot.handler.enabled", havingValue = "true", matchIfMissing = true)
-public class LineMessageHandlerSupport {
+@ConditionalOnClass(name = "org.springframework.web.servlet.DispatcherServlet")
+public class LineMessageHandlerSupport implements DisposableBean {
+    /**
+     * Name of {@code CoroutineContext} bean to run {@code suspend} handler methods on, e.g.
+     * {@code Dispatchers.IO}. {@code Dispatchers.Default} is used if there's no such bean.
+     */
+    public static final String COROUTINE_CONTEXT_BEAN_NAME = "lineBotCoroutineContext";
+    private static final String CONTINUATION_CLASS_NAME = "kotlin.coroutines.Continuation";
+    private static final long REPLAY_RETRY_MILLIS = 10;
+    private static final long MAX_REPLAY_RETRY_MILLIS = 1000;
     private static final Comparator<HandlerMethod> HANDLER_METHOD_PRIORITY_COMPARATOR =
             Comparator.comparing(HandlerMethod::getPriority).reversed();
+
+    /**
+     * {@link LineMessageHandlerRegistry.Invoker#invoke(Event)} of {@code (Invoker, Event)Object} type.
+     */
+    private static final MethodHandle INVOKER_INVOKE;
+
+    /**
+     * {@link #invoke(Method, MethodHandle, Event)} of
+     * {@code (LineMessageHandlerSupport, Method, MethodHandle, Event)Object} type.
+     */
+    private static final MethodHandle TIMED_INVOKE;
+
+    /**
+     * {@link #invokeBatch(Method, MethodHandle, List)} of
+     * {@code (LineMessageHandlerSupport, Method, MethodHandle, List)Object} type.
+     */
+    private static final MethodHandle TIMED_INVOKE_BATCH;
+
+    static {
+        try {
+            INVOKER_INVOKE = MethodHandles.publicLookup().findVirtual(
+                    LineMessageHandlerRegistry.Invoker.class, "invoke",
+                    MethodType.methodType(Object.class, Event.class));
+            TIMED_INVOKE = MethodHandles.lookup().findVirtual(
+                    LineMessageHandlerSupport.class, "invoke",
+                    MethodType.methodType(Object.class, Method.class, MethodHandle.class, Event.class));
+            TIMED_INVOKE_BATCH = MethodHandles.lookup().findVirtual(
+                    LineMessageHandlerSupport.class, "invokeBatch",
+                    MethodType.methodType(Object.class, Method.class, MethodHandle.class, List.class));
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
     private final ReplyByReturnValueConsumer.Factory returnValueConsumerFactory;
     private final ConfigurableApplicationContext applicationContext;
 
     volatile List<HandlerMethod> eventConsumerList;
+    private volatile HandlerDispatchTable dispatchTable;
+
+    /**
+     * {@code null} if there's no {@link TextMapping} method.
+     */
+    private volatile TextCommandRouter<HandlerMethod> textRouter;
+
+    /**
+     * {@code null} if there's no {@link PostbackMapping} method.
+     */
+    private volatile PostbackRouter<PostbackHandler> postbackRouter;
+    private AsyncEventDispatcher asyncEventDispatcher;
+    private ReplyDeadlineTracker replyDeadlineTracker;
+    private EventDeduplicator eventDeduplicator;
+    private SenderThrottle senderThrottle;
+    private WebhookJournal webhookJournal;
+    private ChannelClientResolver channelClientResolver;
+    private LoadShedder loadShedder;
+    private WebhookMetrics webhookMetrics = WebhookMetrics.NOOP;
+    private volatile Map<String, HandlerBulkhead> handlerBulkheads = Collections.emptyMap();
+    private ScheduledThreadPoolExecutor bulkheadTimer;
+    private volatile List<HandlerBatcher> handlerBatchers = Collections.emptyList();
+    private final List<Consumer<Map<String, HandlerBulkhead>>> handlerBulkheadListeners =
+            new CopyOnWriteArrayList<>();
+    private ScheduledThreadPoolExecutor batchTimer;
 
     @Autowired
     public LineMessageHandlerSupport(
@@ -92,6 +210,7 @@ public class LineMessageHandlerSupport {
         applicationContext.addApplicationListener(event -> {
             if (event instanceof ContextRefreshedEvent) {
                 refresh();
+                replayJournal();
             }
         });
     }
@@ -101,42 +220,465 @@ public class LineMessageHandlerSupport {
         final Map<String, Object> handlerBeanMap =
                 applicationContext.getBeansWithAnnotation(LineMessageHandler.class);
 
-        final List<HandlerMethod> collect = handlerBeanMap
-                .values().stream()
-                .flatMap((Object bean) -> {
-                    final Method[] uniqueDeclaredMethods =
-                            ReflectionUtils.getUniqueDeclaredMethods(bean.getClass());
-
-                    return Arrays.stream(uniqueDeclaredMethods)
-                                 .map(method -> getMethodHandlerMethodFunction(bean, method))
-                                 .filter(Objects::nonNull);
-                })
-                .sorted(HANDLER_METHOD_PRIORITY_COMPARATOR)
-                .collect(Collectors.toList());
+        final List<HandlerMethod> collect = new ArrayList<>();
+        final TextCommandRouter.Builder<HandlerMethod> textRoutes = TextCommandRouter.builder();
+        final List<HandlerMethod> textHandlers = new ArrayList<>();
+        final PostbackRouter.Builder<PostbackHandler> postbackRoutes = PostbackRouter.builder();
+        final List<PostbackHandler> postbackHandlers = new ArrayList<>();
+        for (Object bean : handlerBeanMap.values()) {
+            findHandlerMethods(bean).forEach((method, registration) -> {
+                final HandlerMethod handlerMethod = getMethodHandlerMethodFunction(bean, method, registration);
+                if (handlerMethod != null) {
+                    collect.add(handlerMethod);
+                }
+                final HandlerMethod textHandler = addTextRoutes(textRoutes, bean, method, registration);
+                if (textHandler != null) {
+                    textHandlers.add(textHandler);
+                }
+                final PostbackHandler postbackHandler =
+                        addPostbackRoute(postbackRoutes, bean, method, registration);
+                if (postbackHandler != null) {
+                    postbackHandlers.add(postbackHandler);
+                }
+            });
+        }
+        collect.sort(HANDLER_METHOD_PRIORITY_COMPARATOR);
 
         log.info("Registered LINE Messaging API event handler: count = {}", collect.size());
         collect.forEach(item -> log.info("Mapped \"{}\" onto {}",
                                          item.getSupportType(), item.getHandler().toGenericString()));
 
+        final Map<String, HandlerBulkhead> bulkheads = new LinkedHashMap<>();
+        Stream.concat(Stream.concat(collect.stream(), textHandlers.stream()).map(HandlerMethod::getBulkhead),
+                      postbackHandlers.stream().map(PostbackHandler::getBulkhead))
+              .filter(Objects::nonNull)
+              .forEach(bulkhead -> bulkheads.put(bulkhead.getName(), bulkhead));
+
+        final List<HandlerBatcher> batchers = collect.stream()
+                                                     .map(HandlerMethod::getBatcher)
+                                                     .filter(Objects::nonNull)
+                                                     .collect(Collectors.toList());
+
+        final Map<String, HandlerBulkhead> oldBulkheads = handlerBulkheads;
+        final List<HandlerBatcher> oldBatchers = handlerBatchers;
         eventConsumerList = collect;
+        dispatchTable = new HandlerDispatchTable(collect);
+        textRouter = textRoutes.isEmpty() ? null : textRoutes.build();
+        postbackRouter = postbackRoutes.isEmpty() ? null : postbackRoutes.build();
+        handlerBulkheads = Collections.unmodifiableMap(bulkheads);
+        handlerBatchers = batchers;
+        oldBulkheads.values().forEach(HandlerBulkhead::shutdown);
+        oldBatchers.forEach(HandlerBatcher::flush);
+        handlerBulkheadListeners.forEach(listener -> listener.accept(handlerBulkheads));
+    }
+
+    /**
+     * Returns {@link HandlerBulkhead}s of handler methods annotated with {@link Bulkhead}, keyed by name.
+     */
+    public Map<String, HandlerBulkhead> getHandlerBulkheads() {
+        return handlerBulkheads;
+    }
+
+    /**
+     * Add a listener called with {@link #getHandlerBulkheads()} now and whenever handler methods are
+     * refreshed, e.g. to publish metrics of new bulkheads.
+     */
+    public void addHandlerBulkheadListener(final Consumer<Map<String, HandlerBulkhead>> listener) {
+        handlerBulkheadListeners.add(listener);
+        listener.accept(handlerBulkheads);
     }
 
-    private HandlerMethod getMethodHandlerMethodFunction(Object consumer, Method method) {
+    @Override
+    public void destroy() {
+        handlerBatchers.forEach(HandlerBatcher::flush);
+        if (batchTimer != null) {
+            batchTimer.shutdownNow();
+        }
+        handlerBulkheads.values().forEach(HandlerBulkhead::shutdown);
+        if (bulkheadTimer != null) {
+            bulkheadTimer.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns candidate handler methods of given bean, mapped to registrations of its generated
+     * {@link LineMessageHandlerRegistry}. If there's no generated registry, all methods of the bean are
+     * returned with {@link Registration#NONE}.
+     */
+    private static Map<Method, Registration> findHandlerMethods(final Object bean) {
+        final Class<?> userClass = ClassUtils.getUserClass(bean);
+        final LineMessageHandlerRegistry<Object> registry = findRegistry(userClass);
+        final Map<Method, Registration> methods = new LinkedHashMap<>();
+        if (registry == null) {
+            for (Method method : ReflectionUtils.getUniqueDeclaredMethods(bean.getClass())) {
+                methods.put(method, Registration.NONE);
+            }
+            return methods;
+        }
+
+        log.debug("Found generated handler registry of {}", userClass.getName());
+        registry.register(bean, new Registrar() {
+            @Override
+            public void add(final String methodName, final Class<?>[] parameterTypes, final Invoker invoker) {
+                add(methodName, parameterTypes, invoker, null);
+            }
+
+            @Override
+            public void add(final String methodName, final Class<?>[] parameterTypes, final Invoker invoker,
+                            final Mapping mapping) {
+                // The method itself is looked up for metrics, logs, @Bulkhead and @EventBatch.
+                final Method method = ReflectionUtils.findMethod(userClass, methodName, parameterTypes);
+                Preconditions.checkState(method != null, "Handler method not found: %s#%s",
+                                         userClass.getName(), methodName);
+                methods.put(method, new Registration(invoker != null ? INVOKER_INVOKE.bindTo(invoker) : null,
+                                                     mapping));
+            }
+        });
+        return methods;
+    }
+
+    /**
+     * Returns the generated {@link LineMessageHandlerRegistry} of given class. {@code null} if there's none.
+     */
+    @VisibleForTesting
+    @SuppressWarnings("unchecked")
+    static LineMessageHandlerRegistry<Object> findRegistry(final Class<?> handlerClass) {
+        final String name = handlerClass.getName();
+        final int simpleNameStart = name.lastIndexOf('.') + 1;
+        final String registryName = name.substring(0, simpleNameStart)
+                                    + name.substring(simpleNameStart).replace('$', '_')
+                                    + LineMessageHandlerRegistry.CLASS_NAME_SUFFIX;
+        final Class<?> registryClass;
+        try {
+            registryClass = Class.forName(registryName, true, handlerClass.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+
+        Preconditions.checkState(LineMessageHandlerRegistry.class.isAssignableFrom(registryClass),
+                                 "Not a LineMessageHandlerRegistry: %s", registryName);
+        try {
+            return (LineMessageHandlerRegistry<Object>) registryClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't create generated handler registry: " + registryName, e);
+        }
+    }
+
+    /**
+     * Add patterns of given method if it's annotated with {@link TextMapping}.
+     *
+     * @return handler method of the patterns. {@code null} if it's not annotated.
+     */
+    private HandlerMethod addTextRoutes(final TextCommandRouter.Builder<HandlerMethod> textRoutes,
+                                        final Object consumer, final Method method,
+                                        final Registration registration) {
+        final Mapping generated = registration.getMapping();
+        if (generated != null) {
+            if (generated.getKind() != Mapping.Kind.TEXT) {
+                return null;
+            }
+            Preconditions.checkState(generated.getEventType().isAssignableFrom(MessageEvent.class),
+                                     "@TextMapping method should take MessageEvent<TextMessageContent>: %s",
+                                     method);
+            final HandlerMethod handlerMethod =
+                    new HandlerMethod(new EventPredicate(generated.getEventType(),
+                                                         generated.getMessageContentType()),
+                                      consumer, method,
+                                      createEventInvoker(consumer, method, registration.getInvoker()),
+                                      generated.getPriority(),
+                                      createBulkhead(consumer, method, generated.getEventType()), null);
+            addTextPatterns(textRoutes, handlerMethod, generated.getPriority(), generated.getPrefix(),
+                            generated.getContains(), generated.getRegex());
+            log.info("Mapped text {} onto {}", generated, method.toGenericString());
+            return handlerMethod;
+        }
+
+        final TextMapping mapping = AnnotatedElementUtils.getMergedAnnotation(method, TextMapping.class);
+        if (mapping == null) {
+            return null;
+        }
+
+        Preconditions.checkState(!AnnotatedElementUtils.hasAnnotation(method, EventMapping.class),
+                                 "@TextMapping method can't have @EventMapping: %s", method);
+        Preconditions.checkState(method.getParameterCount() == (isSuspending(method) ? 2 : 1)
+                                 && method.getParameterTypes()[0].isAssignableFrom(MessageEvent.class),
+                                 "@TextMapping method should take MessageEvent<TextMessageContent>: %s",
+                                 method);
+
+        final Type type = method.getGenericParameterTypes()[0];
+        final HandlerMethod handlerMethod =
+                new HandlerMethod(new EventPredicate(type), consumer, method,
+                                  createEventInvoker(consumer, method, registration.getInvoker()),
+                                  mapping.priority(), createBulkhead(consumer, method, type), null);
+        addTextPatterns(textRoutes, handlerMethod, mapping.priority(), mapping.prefix(), mapping.contains(),
+                        mapping.regex());
+        log.info("Mapped text {} onto {}", mapping, method.toGenericString());
+        return handlerMethod;
+    }
+
+    private static void addTextPatterns(final TextCommandRouter.Builder<HandlerMethod> textRoutes,
+                                        final HandlerMethod handlerMethod, final int priority,
+                                        final String[] prefixes, final String[] keywords,
+                                        final String[] regexes) {
+        for (String prefix : prefixes) {
+            textRoutes.add(TextCommandRouter.Kind.PREFIX, prefix, priority, handlerMethod);
+        }
+        for (String keyword : keywords) {
+            textRoutes.add(TextCommandRouter.Kind.CONTAINS, keyword, priority, handlerMethod);
+        }
+        for (String regex : regexes) {
+            textRoutes.add(TextCommandRouter.Kind.REGEX, regex, priority, handlerMethod);
+        }
+    }
+
+    /**
+     * Add conditions of given method if it's annotated with {@link PostbackMapping}.
+     *
+     * @return handler of the conditions. {@code null} if it's not annotated.
+     */
+    private PostbackHandler addPostbackRoute(final PostbackRouter.Builder<PostbackHandler> postbackRoutes,
+                                             final Object consumer, final Method method,
+                                             final Registration registration) {
+        final Mapping generated = registration.getMapping();
+        final String[] conditions;
+        final int priority;
+        if (generated != null) {
+            if (generated.getKind() != Mapping.Kind.POSTBACK) {
+                return null;
+            }
+            conditions = generated.getConditions();
+            priority = generated.getPriority();
+        } else {
+            final PostbackMapping mapping =
+                    AnnotatedElementUtils.getMergedAnnotation(method, PostbackMapping.class);
+            if (mapping == null) {
+                return null;
+            }
+            Preconditions.checkState(!AnnotatedElementUtils.hasAnnotation(method, EventMapping.class),
+                                     "@PostbackMapping method can't have @EventMapping: %s", method);
+            conditions = mapping.value();
+            priority = mapping.priority();
+        }
+
+        final PostbackHandler postbackHandler =
+                new PostbackHandler(method, createPostbackInvoker(consumer, method),
+                                    createBulkhead(consumer, method, PostbackEvent.class));
+        postbackRoutes.add(conditions, priority, postbackHandler);
+        log.info("Mapped postback {} onto {}", Arrays.toString(conditions), method.toGenericString());
+        return postbackHandler;
+    }
+
+    /**
+     * Create {@link MethodHandle} of {@code (Event, PostbackData)Object} type, which passes the event, the
+     * data or values of {@link PostbackParam} to each parameter of the {@link PostbackMapping} method.
+     */
+    private static MethodHandle createPostbackInvoker(final Object consumer, final Method method) {
+        ReflectionUtils.makeAccessible(method);
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            final MethodHandle getParam = lookup.findVirtual(
+                    PostbackData.class, "get", MethodType.methodType(String.class, String.class));
+
+            // Replace each parameter with (Event, PostbackData) and pass the same two to all of them.
+            MethodHandle invoker = lookup.unreflect(method).bindTo(consumer);
+            final Parameter[] parameters = method.getParameters();
+            final int[] reorder = new int[parameters.length * 2];
+            for (int i = parameters.length - 1; i >= 0; --i) {
+                final Class<?> type = parameters[i].getType();
+                final PostbackParam param = parameters[i].getAnnotation(PostbackParam.class);
+                final MethodHandle argument;
+                if (param != null) {
+                    Preconditions.checkState(type == String.class,
+                                             "@PostbackParam parameter should be String: %s", method);
+                    argument = MethodHandles.dropArguments(
+                            MethodHandles.insertArguments(getParam, 1, param.value()), 0, Event.class);
+                } else if (type == PostbackData.class) {
+                    argument = MethodHandles.dropArguments(
+                            MethodHandles.identity(PostbackData.class), 0, Event.class);
+                } else {
+                    Preconditions.checkState(type.isAssignableFrom(PostbackEvent.class),
+                                             "Unsupported parameter of @PostbackMapping method: %s", method);
+                    final MethodHandle event = MethodHandles.identity(Event.class)
+                                                            .asType(MethodType.methodType(type, Event.class));
+                    argument = MethodHandles.dropArguments(event, 1, PostbackData.class);
+                }
+                invoker = MethodHandles.collectArguments(invoker, i, argument);
+                reorder[i * 2 + 1] = 1;
+            }
+            final MethodType invokerType = MethodType.methodType(Object.class, Event.class, PostbackData.class);
+            if (parameters.length == 0) {
+                invoker = MethodHandles.dropArguments(invoker, 0, Event.class, PostbackData.class);
+            } else {
+                invoker = MethodHandles.permuteArguments(
+                        invoker, invokerType.changeReturnType(invoker.type().returnType()), reorder);
+            }
+            return invoker.asType(invokerType);
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            throw new IllegalStateException("Can't access handler method: " + method, e);
+        }
+    }
+
+    private HandlerMethod getMethodHandlerMethodFunction(Object consumer, Method method,
+                                                         Registration registration) {
+        final Mapping generated = registration.getMapping();
+        if (generated != null) {
+            if (generated.getKind() != Mapping.Kind.EVENT) {
+                return null;
+            }
+            final EventPredicate predicate =
+                    new EventPredicate(generated.getEventType(), generated.getMessageContentType());
+            return new HandlerMethod(predicate, consumer, method,
+                                     createEventInvoker(consumer, method, registration.getInvoker()),
+                                     generated.getPriority(),
+                                     createBulkhead(consumer, method, generated.getEventType()), null);
+        }
+
         final EventMapping mapping = AnnotatedElementUtils.getMergedAnnotation(method, EventMapping.class);
         if (mapping == null) {
             return null;
         }
 
-        Preconditions.checkState(method.getParameterCount() == 1,
+        Preconditions.checkState(method.getParameterCount() == (isSuspending(method) ? 2 : 1),
                                  "Number of parameter should be 1. But {}",
                                  (Object[]) method.getParameterTypes());
         // TODO: Support more than 1 argument. Like MVC's argument resolver?
 
         final Type type = method.getGenericParameterTypes()[0];
+        if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == List.class) {
+            Preconditions.checkState(!isSuspending(method), "Batch handler can't be suspend: %s", method);
+            return getBatchHandlerMethod(consumer, method, mapping,
+                                         ((ParameterizedType) type).getActualTypeArguments()[0]);
+        }
 
-        final Predicate<Event> predicate = new EventPredicate(type);
+        final EventPredicate predicate = new EventPredicate(type);
         return new HandlerMethod(predicate, consumer, method,
-                                 getPriority(mapping, type));
+                                 createEventInvoker(consumer, method, registration.getInvoker()),
+                                 getPriority(mapping, type), createBulkhead(consumer, method, type), null);
+    }
+
+    /**
+     * Create {@link HandlerMethod} of a handler method taking {@code List<E>}. Events are matched by
+     * {@code E}.
+     */
+    private HandlerMethod getBatchHandlerMethod(final Object consumer, final Method method,
+                                                final EventMapping mapping, final Type elementType) {
+        Preconditions.checkState(elementType instanceof Class || elementType instanceof ParameterizedType,
+                                 "Element type of batch handler should be an Event type. But %s", elementType);
+        Preconditions.checkState(!AnnotatedElementUtils.hasAnnotation(method, Bulkhead.class),
+                                 "Batch handler can't have @Bulkhead: %s", method);
+
+        final EventBatch eventBatch = AnnotatedElementUtils.getMergedAnnotation(method, EventBatch.class);
+        final long windowMillis = eventBatch != null ? eventBatch.windowMillis() : 0;
+        final int maxSize = eventBatch != null ? eventBatch.maxSize() : EventBatch.DEFAULT_MAX_SIZE;
+        Preconditions.checkState(maxSize > 0, "Invalid batch size on %s", method);
+        if (windowMillis > 0 && batchTimer == null) {
+            batchTimer = HandlerBatcher.newTimer();
+        }
+
+        final String name = method.getDeclaringClass().getSimpleName() + '.' + method.getName();
+        final Executor executor = asyncEventDispatcher != null ? asyncEventDispatcher::execute : Runnable::run;
+        final MethodHandle invoker = TIMED_INVOKE_BATCH.bindTo(this).bindTo(method)
+                                                       .bindTo(createInvoker(consumer, method, List.class));
+        final HandlerBatcher batcher = new HandlerBatcher(name, invoker,
+                                                          windowMillis, maxSize, batchTimer, executor,
+                                                          this::completeJournal);
+        return new HandlerMethod(new EventPredicate(elementType), consumer, method, null,
+                                 getPriority(mapping, elementType), null, batcher);
+    }
+
+    private HandlerBulkhead createBulkhead(final Object consumer, final Method method, final Type type) {
+        final Bulkhead bulkhead = AnnotatedElementUtils.getMergedAnnotation(method, Bulkhead.class);
+        if (bulkhead == null) {
+            return null;
+        }
+
+        Preconditions.checkState(bulkhead.maxConcurrency() > 0 && bulkhead.queueSize() >= 0,
+                                 "Invalid bulkhead configuration on %s", method);
+        if (bulkhead.timeoutMillis() > 0 && bulkheadTimer == null) {
+            bulkheadTimer = HandlerBulkhead.newTimer();
+        }
+
+        final String name = method.getDeclaringClass().getSimpleName() + '.' + method.getName();
+        final MethodHandle fallback = bulkhead.fallback().isEmpty()
+                                      ? null
+                                      : createFallback(consumer, bulkhead.fallback(), type);
+        return new HandlerBulkhead(name, bulkhead, fallback, bulkheadTimer);
+    }
+
+    /**
+     * Create {@link MethodHandle} of {@code (Event, Throwable)Object} type for {@link Bulkhead#fallback()}.
+     */
+    private static MethodHandle createFallback(final Object consumer, final String name, final Type type) {
+        final Class<?> eventType = ResolvableType.forType(type).resolve(Event.class);
+        Method method = ReflectionUtils.findMethod(consumer.getClass(), name, eventType, Throwable.class);
+        final boolean takesCause = method != null;
+        if (!takesCause) {
+            method = ReflectionUtils.findMethod(consumer.getClass(), name, eventType);
+        }
+        Preconditions.checkState(method != null, "Bulkhead fallback method not found: %s#%s(%s)",
+                                 consumer.getClass().getName(), name, eventType.getSimpleName());
+
+        ReflectionUtils.makeAccessible(method);
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(consumer);
+            if (!takesCause) {
+                handle = MethodHandles.dropArguments(handle, 1, Throwable.class);
+            }
+            return handle.asType(MethodType.methodType(Object.class, Event.class, Throwable.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Can't access bulkhead fallback method: " + method, e);
+        }
+    }
+
+    /**
+     * Create {@link MethodHandle} of {@code (Event)Object} type for a handler method taking an event.
+     * Kotlin {@code suspend} functions are started as coroutines and return {@link CompletableFuture}.
+     *
+     * @param generatedInvoker invoker of {@link LineMessageHandlerRegistry}, which is returned as is.
+     *                         {@code null} if there's none.
+     */
+    private MethodHandle createEventInvoker(final Object consumer, final Method method,
+                                            final MethodHandle generatedInvoker) {
+        if (generatedInvoker != null) {
+            return generatedInvoker;
+        }
+        if (!isSuspending(method)) {
+            return createInvoker(consumer, method, Event.class);
+        }
+
+        final Object coroutineContext = applicationContext.containsBean(COROUTINE_CONTEXT_BEAN_NAME)
+                                        ? applicationContext.getBean(COROUTINE_CONTEXT_BEAN_NAME)
+                                        : null;
+        ReflectionUtils.makeAccessible(method);
+        return SuspendHandlerInvoker.create(consumer, method, coroutineContext);
+    }
+
+    /**
+     * Returns {@code true} if given method is a Kotlin {@code suspend} function, whose last parameter is
+     * {@code Continuation}. Kotlin classes are not referred here, because Kotlin is optional.
+     */
+    private static boolean isSuspending(final Method method) {
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        return parameterTypes.length > 0
+               && CONTINUATION_CLASS_NAME.equals(parameterTypes[parameterTypes.length - 1].getName());
+    }
+
+    /**
+     * Create {@link MethodHandle} of {@code (Event)Object} type, or {@code (List)Object} type for batch
+     * handlers, bound to the handler bean.
+     * It's faster than reflective {@link Method#invoke(Object, Object...)} for every event.
+     */
+    private static MethodHandle createInvoker(final Object consumer, final Method method,
+                                              final Class<?> parameterType) {
+        ReflectionUtils.makeAccessible(method);
+        try {
+            return MethodHandles.lookup()
+                                .unreflect(method)
+                                .bindTo(consumer)
+                                .asType(MethodType.methodType(Object.class, parameterType));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Can't access handler method: " + method, e);
+        }
     }
 
     private int getPriority(final EventMapping mapping, final Type type) {
@@ -163,47 +705,525 @@ public class LineMessageHandlerSupport {
 
     @Value
     static class HandlerMethod {
-        Predicate<Event> supportType;
+        EventPredicate supportType;
         Object object;
         Method handler;
+
+        /**
+         * {@code null} for batch handlers.
+         */
+        MethodHandle invoker;
         int priority;
+
+        /**
+         * {@code null} if the handler method isn't annotated with {@link Bulkhead}.
+         */
+        HandlerBulkhead bulkhead;
+
+        /**
+         * {@code null} unless the handler method takes {@code List} of events.
+         */
+        HandlerBatcher batcher;
     }
 
-    @PostMapping("${line.bot.handler.path:/callback}")
-    public void callback(@LineBotMessages List<Event> events) {
-        events.forEach(this::dispatch);
+    /**
+     * Handler method routed for an event, so that batched dispatch doesn't route it again.
+     */
+    @Value
+    static class Route {
+        /**
+         * {@code null} if routed to {@link #postbackHandler} or there's no handler method.
+         */
+        HandlerMethod handlerMethod;
+
+        /**
+         * {@code null} unless a {@link PostbackMapping} handler matches.
+         */
+        PostbackHandler postbackHandler;
+        PostbackData postbackData;
+    }
+
+    @Value
+    static class PostbackHandler {
+        Method handler;
+
+        /**
+         * {@code (Event, PostbackData)Object} type.
+         */
+        MethodHandle invoker;
+
+        /**
+         * {@code null} if the handler method isn't annotated with {@link Bulkhead}.
+         */
+        HandlerBulkhead bulkhead;
+    }
+
+    /**
+     * A handler method registered by {@link LineMessageHandlerRegistry}.
+     */
+    @Value
+    static class Registration {
+        /**
+         * Registration of a method found by reflection.
+         */
+        static final Registration NONE = new Registration(null, null);
+
+        /**
+         * {@code (Event)Object} type. {@code null} if the method isn't called directly by generated code.
+         */
+        MethodHandle invoker;
+
+        /**
+         * {@code null} if the mapping is resolved by reflection.
+         */
+        Mapping mapping;
+    }
+
+    /**
+     * Set {@link AsyncEventDispatcher} to process events after acknowledging the webhook request.
+     * Events are processed on the calling thread if it's not set.
+     */
+    @Autowired(required = false)
+    public void setAsyncEventDispatcher(final AsyncEventDispatcher asyncEventDispatcher) {
+        this.asyncEventDispatcher = asyncEventDispatcher;
+        asyncEventDispatcher.setDroppedEventHandler(this::completeJournal);
+    }
+
+    /**
+     * Set {@link ReplyDeadlineTracker} to skip handler methods of events whose reply token has expired,
+     * in case of {@link ExpiredReplyPolicy#SKIP_HANDLER}.
+     */
+    @Autowired(required = false)
+    public void setReplyDeadlineTracker(final ReplyDeadlineTracker replyDeadlineTracker) {
+        this.replyDeadlineTracker = replyDeadlineTracker;
+    }
+
+    /**
+     * Set {@link EventDeduplicator} to drop redelivered events before dispatching them.
+     */
+    @Autowired(required = false)
+    public void setEventDeduplicator(final EventDeduplicator eventDeduplicator) {
+        this.eventDeduplicator = eventDeduplicator;
+    }
+
+    /**
+     * Set {@link SenderThrottle} to limit events per sender before dispatching them.
+     */
+    @Autowired(required = false)
+    public void setSenderThrottle(final SenderThrottle senderThrottle) {
+        this.senderThrottle = senderThrottle;
+    }
+
+    /**
+     * Set {@link WebhookJournal} to checkpoint processed events, and to replay unprocessed ones on startup.
+     */
+    @Autowired(required = false)
+    public void setWebhookJournal(final WebhookJournal webhookJournal) {
+        this.webhookJournal = webhookJournal;
+    }
+
+    /**
+     * Set {@link ChannelClientResolver} to bind replayed events to their channels.
+     */
+    @Autowired(required = false)
+    public void setChannelClientResolver(final ChannelClientResolver channelClientResolver) {
+        this.channelClientResolver = channelClientResolver;
+    }
+
+    /**
+     * Set {@link LoadShedder} to report latency of handler methods.
+     */
+    @Autowired(required = false)
+    public void setLoadShedder(final LoadShedder loadShedder) {
+        this.loadShedder = loadShedder;
+    }
+
+    /**
+     * Set {@link WebhookMetrics} to record timings of dispatching events and of handler methods.
+     */
+    @Autowired(required = false)
+    public void setWebhookMetrics(final WebhookMetrics webhookMetrics) {
+        this.webhookMetrics = webhookMetrics;
+    }
+
+    @PostMapping({ "${line.bot.handler.path:/callback}", "${line.bot.handler.path:/callback}/{channelId}" })
+    public void callback(@LineBotMessages List<Event> webhookEvents) {
+        callback(webhookEvents, false);
+    }
+
+    /**
+     * Dispatch events of a webhook request.
+     *
+     * @param replayed {@code true} if the request is replayed from {@link WebhookJournal}.
+     */
+    private void callback(final List<Event> webhookEvents, final boolean replayed) {
+        final long startNanos = System.nanoTime();
+        try {
+            callbackInternal(webhookEvents, replayed);
+        } finally {
+            webhookMetrics.recordStage(Stage.DISPATCH, System.nanoTime() - startNanos);
+        }
+    }
+
+    private void callbackInternal(final List<Event> webhookEvents, final boolean replayed) {
+        // Replayed events were deduplicated and throttled when they were received, and they are already
+        // marked as seen in a shared EventDeduplicationStore. Filtering them again would lose them.
+        final List<Event> uniqueEvents = eventDeduplicator != null && !replayed
+                                         ? eventDeduplicator.filter(webhookEvents) : webhookEvents;
+        if (webhookJournal != null && uniqueEvents.size() != webhookEvents.size()) {
+            completeJournal(webhookEvents, uniqueEvents);
+        }
+        final List<Event> events =
+                senderThrottle != null && !replayed
+                ? senderThrottle.filter(uniqueEvents, this::dispatchDelayed, this::completeJournal)
+                : uniqueEvents;
+        final Map<Event, Route> routes = handlerBatchers.isEmpty() ? null : new IdentityHashMap<>();
+        final List<Event> singleEvents = routes == null ? events : dispatchBatches(events, routes);
+        final Consumer<Event> handler = routes == null ? this::dispatch
+                                                       : event -> dispatch(event, routes.get(event));
+        if (asyncEventDispatcher == null) {
+            singleEvents.forEach(handler);
+            return;
+        }
+        if (replayed) {
+            dispatchReplayed(singleEvents, handler);
+            return;
+        }
+
+        try {
+            asyncEventDispatcher.dispatch(singleEvents, handler);
+        } catch (RejectedExecutionException e) {
+            log.warn("Rejected webhook request: {}", e.getMessage());
+            // LINE platform redelivers them.
+            singleEvents.forEach(this::completeJournal);
+            if (eventDeduplicator != null) {
+                // Process them on redelivery.
+                eventDeduplicator.forget(singleEvents);
+            }
+            throw new WebhookRejectedException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Dispatch replayed events one by one, waiting for room in the queue instead of rejecting them, because
+     * they are never redelivered. If the dispatcher is shut down meanwhile, the rest are left in
+     * {@link WebhookJournal} for the next startup.
+     */
+    private void dispatchReplayed(final List<Event> events, final Consumer<Event> handler) {
+        for (int i = 0; i < events.size(); ++i) {
+            final List<Event> single = Collections.singletonList(events.get(i));
+            long retryMillis = REPLAY_RETRY_MILLIS;
+            while (true) {
+                try {
+                    asyncEventDispatcher.dispatch(single, handler);
+                    break;
+                } catch (RejectedExecutionException e) {
+                    if (asyncEventDispatcher.isShutdown()) {
+                        log.warn("Left {} replayed events in the journal: {}", events.size() - i,
+                                 e.getMessage());
+                        return;
+                    }
+                }
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Left {} replayed events in the journal: interrupted", events.size() - i);
+                    return;
+                }
+                retryMillis = Math.min(retryMillis * 2, MAX_REPLAY_RETRY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Checkpoint events which are dropped by {@link EventDeduplicator}.
+     */
+    private void completeJournal(final List<Event> webhookEvents, final List<Event> uniqueEvents) {
+        final Set<Event> unique = Collections.newSetFromMap(new IdentityHashMap<>());
+        unique.addAll(uniqueEvents);
+        for (Event event : webhookEvents) {
+            if (!unique.contains(event)) {
+                webhookJournal.complete(event);
+            }
+        }
+    }
+
+    /**
+     * Checkpoint an event which has been processed or dropped, if {@link WebhookJournal} is enabled.
+     */
+    private void completeJournal(final Event event) {
+        if (webhookJournal != null) {
+            webhookJournal.complete(event);
+        }
+    }
+
+    /**
+     * Dispatch events recorded in {@link WebhookJournal} but not processed before the last shutdown.
+     */
+    @VisibleForTesting
+    void replayJournal() {
+        if (webhookJournal == null) {
+            return;
+        }
+        try {
+            webhookJournal.replay((record, events) -> {
+                if (record.getChannelId() != null && channelClientResolver != null) {
+                    channelClientResolver.bind(record.getChannelId(), events);
+                }
+                callback(events, true);
+            });
+        } catch (IOException e) {
+            log.error("Failed to replay the webhook journal", e);
+        }
+    }
+
+    /**
+     * Dispatch an event delayed by {@link SenderThrottle}, on {@link AsyncEventDispatcher} if available.
+     */
+    private void dispatchDelayed(final Event event) {
+        final List<Event> single = Collections.singletonList(event);
+        final Map<Event, Route> routes = handlerBatchers.isEmpty() ? null : new IdentityHashMap<>();
+        final List<Event> events = routes == null ? single : dispatchBatches(single, routes);
+        final Consumer<Event> handler = routes == null ? this::dispatch
+                                                       : e -> dispatch(e, routes.get(e));
+        if (asyncEventDispatcher == null) {
+            events.forEach(handler);
+            return;
+        }
+        try {
+            asyncEventDispatcher.dispatch(events, handler);
+        } catch (RejectedExecutionException e) {
+            log.warn("Dropped delayed event: {}", e.getMessage());
+            events.forEach(this::completeJournal);
+        }
+    }
+
+    /**
+     * Pass events of batch handlers to their {@link HandlerBatcher}s, grouped per handler.
+     *
+     * @param routes receives routes of other events, to dispatch them without routing again.
+     * @return other events.
+     */
+    private List<Event> dispatchBatches(final List<Event> events, final Map<Event, Route> routes) {
+        final Map<HandlerBatcher, List<Event>> batches = new LinkedHashMap<>();
+        final List<Event> others = new ArrayList<>(events.size());
+        for (Event event : events) {
+            final Route route = route(event);
+            final HandlerBatcher batcher = route.getHandlerMethod() != null
+                                           ? route.getHandlerMethod().getBatcher() : null;
+            if (batcher != null) {
+                batches.computeIfAbsent(batcher, key -> new ArrayList<>()).add(event);
+            } else {
+                routes.put(event, route);
+                others.add(event);
+            }
+        }
+        batches.forEach(HandlerBatcher::add);
+        return others;
     }
 
     @VisibleForTesting
     void dispatch(Event event) {
+        dispatch(event, null);
+    }
+
+    /**
+     * Dispatch an event to its handler method.
+     *
+     * @param route {@code null} to route the event here.
+     */
+    private void dispatch(final Event event, final Route route) {
+        final long startNanos = loadShedder != null ? System.nanoTime() : 0;
+        boolean handedOver = false;
+        try {
+            handedOver = dispatchUnlessExpired(event, route);
+        } finally {
+            if (loadShedder != null) {
+                loadShedder.recordHandlerLatency(System.nanoTime() - startNanos);
+            }
+            if (!handedOver) {
+                completeJournal(event);
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if the event has been handed over to a {@link HandlerBatcher} or a
+     * {@link HandlerBulkhead}, which checkpoints it when it's processed.
+     */
+    private boolean dispatchUnlessExpired(final Event event, final Route route) {
+        if (replyDeadlineTracker != null
+            && replyDeadlineTracker.getExpiredReplyPolicy() == ExpiredReplyPolicy.SKIP_HANDLER
+            && replyDeadlineTracker.isExpired(event)) {
+            replyDeadlineTracker.recordExpired();
+            log.debug("Skipped handler. Reply token has expired: {}", event);
+            return false;
+        }
+
+        try {
+            return dispatchInternal(event, route != null ? route : route(event));
+        } catch (Throwable t) {
+            log.error(t.getMessage(), t);
+            return false;
+        }
+    }
+
+    private boolean dispatchInternal(final Event event, final Route route) throws Throwable {
+        if (route.getPostbackHandler() != null) {
+            return dispatchPostback(event, route.getPostbackData(), route.getPostbackHandler());
+        }
+
+        final HandlerMethod handlerMethod = route.getHandlerMethod();
+        if (handlerMethod == null) {
+            throw new UnsupportedOperationException("Unsupported event type. " + event);
+        }
+        if (handlerMethod.getBatcher() != null) {
+            handlerMethod.getBatcher().add(Collections.singletonList(event));
+            return true;
+        }
+        if (handlerMethod.getBulkhead() != null) {
+            final Method handler = handlerMethod.getHandler();
+            handlerMethod.getBulkhead().execute(event, timed(handler, handlerMethod.getInvoker()),
+                                                returnValue -> handleReturnValue(handler, event, returnValue),
+                                                () -> completeJournal(event));
+            return true;
+        }
+
+        final Object returnValue = invoke(handlerMethod.getHandler(), handlerMethod.getInvoker(), event);
+
+        handleReturnValue(handlerMethod.getHandler(), event, returnValue);
+        return false;
+    }
+
+    private boolean dispatchPostback(final Event event, final PostbackData data,
+                                     final PostbackHandler postbackHandler) throws Throwable {
+        final Method handler = postbackHandler.getHandler();
+        if (postbackHandler.getBulkhead() != null) {
+            postbackHandler.getBulkhead().execute(
+                    event, timed(handler, MethodHandles.insertArguments(postbackHandler.getInvoker(), 1, data)),
+                    returnValue -> handleReturnValue(handler, event, returnValue),
+                    () -> completeJournal(event));
+            return true;
+        }
+
+        final long startNanos = System.nanoTime();
+        final Object returnValue;
         try {
-            dispatchInternal(event);
-        } catch (InvocationTargetException e) {
-            log.error("InvocationTargetException occurred.", e);
-        } catch (Error | Exception e) {
-            log.error(e.getMessage(), e);
+            returnValue = (Object) postbackHandler.getInvoker().invokeExact(event, data);
+        } catch (Throwable t) {
+            webhookMetrics.recordHandler(handler, event.getClass(), System.nanoTime() - startNanos, t);
+            throw t;
         }
+        recordHandler(handler, event.getClass(), startNanos, returnValue);
+
+        handleReturnValue(handler, event, returnValue);
+        return false;
     }
 
-    private void dispatchInternal(final Event event) throws Exception {
-        final HandlerMethod handlerMethod = eventConsumerList
-                .stream()
-                .filter(consumer -> consumer.getSupportType().test(event))
-                .findFirst()
-                .orElseThrow(() -> new UnsupportedOperationException("Unsupported event type. " + event));
-        final Object returnValue = handlerMethod.getHandler().invoke(handlerMethod.getObject(), event);
+    /**
+     * Invoke {@code (Event)Object} type handler method, and record its latency to {@link WebhookMetrics}.
+     */
+    private Object invoke(final Method handler, final MethodHandle invoker, final Event event)
+            throws Throwable {
+        final long startNanos = System.nanoTime();
+        final Object returnValue;
+        try {
+            returnValue = (Object) invoker.invokeExact(event);
+        } catch (Throwable t) {
+            webhookMetrics.recordHandler(handler, event.getClass(), System.nanoTime() - startNanos, t);
+            throw t;
+        }
+        recordHandler(handler, event.getClass(), startNanos, returnValue);
+        return returnValue;
+    }
 
-        handleReturnValue(event, returnValue);
+    /**
+     * Invoke {@code (List)Object} type batch handler method, and record its latency to {@link WebhookMetrics}
+     * by the type of the first event.
+     */
+    private Object invokeBatch(final Method handler, final MethodHandle invoker, final List<Event> batch)
+            throws Throwable {
+        final Class<? extends Event> eventType = batch.get(0).getClass();
+        final long startNanos = System.nanoTime();
+        final Object returnValue;
+        try {
+            returnValue = (Object) invoker.invokeExact(batch);
+        } catch (Throwable t) {
+            webhookMetrics.recordHandler(handler, eventType, System.nanoTime() - startNanos, t);
+            throw t;
+        }
+        recordHandler(handler, eventType, startNanos, returnValue);
+        return returnValue;
+    }
+
+    /**
+     * Returns {@code (Event)Object} type invoker which runs {@link #invoke(Method, MethodHandle, Event)}, for
+     * handler methods run on a {@link HandlerBulkhead}.
+     */
+    private MethodHandle timed(final Method handler, final MethodHandle invoker) {
+        return TIMED_INVOKE.bindTo(this).bindTo(handler).bindTo(invoker);
     }
 
-    private void handleReturnValue(final Event event, final Object returnValue) {
-        if (returnValue != null) {
-            returnValueConsumerFactory.createForEvent(event)
-                                      .accept(returnValue);
+    /**
+     * Record latency of a handler method which returned normally. A suspend function or a handler method
+     * returning {@link CompletableFuture} is recorded when the future completes.
+     */
+    private void recordHandler(final Method handler, final Class<? extends Event> eventType,
+                               final long startNanos, final Object returnValue) {
+        if (returnValue instanceof CompletableFuture) {
+            ((CompletableFuture<?>) returnValue).whenComplete(
+                    (result, t) -> webhookMetrics.recordHandler(handler, eventType,
+                                                                System.nanoTime() - startNanos, t));
+        } else {
+            webhookMetrics.recordHandler(handler, eventType, System.nanoTime() - startNanos, null);
         }
     }
 
-    private static class EventPredicate implements Predicate<Event> {
+    private static PostbackData parsePostbackData(final PostbackEvent event) {
+        final PostbackContent content = event.getPostbackContent();
+        return PostbackData.parse(content != null ? content.getData() : null);
+    }
+
+    /**
+     * Find the handler method of given event. {@link PostbackMapping} handlers take precedence.
+     */
+    private Route route(final Event event) {
+        final PostbackRouter<PostbackHandler> postbackRouter = this.postbackRouter;
+        if (postbackRouter != null && event instanceof PostbackEvent) {
+            final PostbackData postbackData = parsePostbackData((PostbackEvent) event);
+            final PostbackHandler postbackHandler = postbackRouter.route(postbackData);
+            if (postbackHandler != null) {
+                return new Route(null, postbackHandler, postbackData);
+            }
+        }
+        return new Route(lookup(event).orElse(null), null, null);
+    }
+
+    private Optional<HandlerMethod> lookup(final Event event) {
+        final TextCommandRouter<HandlerMethod> textRouter = this.textRouter;
+        if (textRouter != null && event instanceof MessageEvent) {
+            final MessageContent content = ((MessageEvent<?>) event).getMessage();
+            if (content instanceof TextMessageContent && ((TextMessageContent) content).getText() != null) {
+                final HandlerMethod handlerMethod = textRouter.route(((TextMessageContent) content).getText());
+                if (handlerMethod != null) {
+                    return Optional.of(handlerMethod);
+                }
+            }
+        }
+        return dispatchTable.lookup(event);
+    }
+
+    private void handleReturnValue(final Method handler, final Event event, final Object returnValue) {
+        // Null is passed as well, to tell ReplyCoalescer that the handler method completed.
+        if (returnValue != null || returnValueConsumerFactory.isCoalescing(event)) {
+            final ReplyByReturnValueConsumer consumer = returnValueConsumerFactory.createForEvent(event);
+            consumer.setHandler(handler);
+            consumer.accept(returnValue);
+        }
+    }
+
+    static class EventPredicate implements Predicate<Event> {
         private final Class<?> supportEvent;
         private final Class<? extends MessageContent> messageContentType;
 
@@ -227,17 +1247,41 @@ public class LineMessageHandlerSupport {
             }
         }
 
+        /**
+         * Create by classes resolved at compile time by {@link LineMessageHandlerRegistry}.
+         */
+        EventPredicate(final Class<? extends Event> supportEvent,
+                       final Class<? extends MessageContent> messageContentType) {
+            this.supportEvent = supportEvent;
+            this.messageContentType = messageContentType;
+        }
+
         @Override
         public boolean test(final Event event) {
-            return supportEvent.isAssignableFrom(event.getClass())
-                   && (messageContentType == null
-                       || event instanceof MessageEvent
-                          && filterByType(messageContentType, ((MessageEvent<?>) event).getMessage()));
+            final MessageContent content =
+                    event instanceof MessageEvent ? ((MessageEvent<?>) event).getMessage() : null;
+            return test(event.getClass(), content != null ? content.getClass() : null);
         }
 
-        private static boolean filterByType(final Class<?> clazz, final Object content) {
+        /**
+         * Test by classes of event and message content.
+         *
+         * @param contentType class of message content. {@code null} if the event isn't a {@link MessageEvent}.
+         */
+        boolean test(final Class<?> eventType, final Class<?> contentType) {
+            return supportEvent.isAssignableFrom(eventType)
+                   && (messageContentType == null
+                       || MessageEvent.class.isAssignableFrom(eventType)
+                          && contentType != null
+                          && messageContentType.isAssignableFrom(contentType));
+        }
 
-            return clazz.isAssignableFrom(content.getClass());
+        /**
+         * Returns {@code true} if the result of {@link #test(Class, Class)} for given event type depends on
+         * message content type.
+         */
+        boolean dependsOnMessageContent(final Class<?> eventType) {
+            return messageContentType != null && supportEvent.isAssignableFrom(eventType);
         }
 
         @Override
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+import com.linecorp.bot.spring.boot.LineBotProperties.LoadShedding;
+
+/**
+ * Admission control of webhook requests, rejecting them with {@code 503} before parsing when the bot is
+ * overloaded. LINE platform redelivers rejected webhooks later if redelivery is enabled for the channel.
+ *
+ * <p>The pressure is the maximum of three ratios to their limits in {@link LoadShedding}:
+ * <ul>
+ *     <li>Webhook requests in flight, i.e. admitted and not completed yet.</li>
+ *     <li>Events waiting in the queue of {@link AsyncEventDispatcher}, if any.</li>
+ *     <li>Recent latency of handler methods, as a moving average of 1/8 weight. It's regarded as zero
+ *         if no handler method completed within {@link LoadShedding#getLatencyWindowMillis()}, so that the bot
+ *         recovers even if all requests have been rejected.</li>
+ * </ul>
+ *
+ * <p>Requests are admitted while the pressure is below {@link LoadShedding#getSheddingThreshold()}.
+ * Above it, they are rejected with a probability rising linearly to {@code 1} at pressure {@code 1}, so that
+ * the load is reduced and restored gradually instead of flipping between all and nothing.
+ *
+ * <p>{@link #getPressure()} is published as {@code line.bot.webhook.pressure} gauge by
+ * {@link MicrometerWebhookGauges} if Micrometer is available, e.g. to scale out before requests are rejected.
+ *
+ * <p>Enabled by {@code line.bot.handler.load-shedding.enabled=true}.
+ */
+public class LoadShedder {
+    private final int maxInFlightRequests;
+    private final int maxQueueDepth;
+    private final long maxHandlerLatencyNanos;
+    private final long latencyWindowNanos;
+    private final double sheddingThreshold;
+
+    /**
+     * {@code null} unless {@link AsyncEventDispatcher} is available.
+     */
+    private final IntSupplier queueDepth;
+    private final LongSupplier nanoTime;
+    private final DoubleSupplier random;
+
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final AtomicLong handlerLatencyNanos = new AtomicLong();
+    private volatile long lastLatencySampleNanos;
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * Create new instance.
+     *
+     * @param asyncEventDispatcher {@code null} if handler methods are invoked on webhook request threads.
+     */
+    public LoadShedder(final LoadShedding properties, final AsyncEventDispatcher asyncEventDispatcher) {
+        this(properties, asyncEventDispatcher != null ? asyncEventDispatcher::getQueueSize : null,
+             System::nanoTime, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    LoadShedder(final LoadShedding properties, final IntSupplier queueDepth, final LongSupplier nanoTime,
+                final DoubleSupplier random) {
+        maxInFlightRequests = properties.getMaxInFlightRequests();
+        maxQueueDepth = properties.getMaxQueueDepth();
+        maxHandlerLatencyNanos = TimeUnit.MILLISECONDS.toNanos(properties.getMaxHandlerLatencyMillis());
+        latencyWindowNanos = TimeUnit.MILLISECONDS.toNanos(properties.getLatencyWindowMillis());
+        sheddingThreshold = properties.getSheddingThreshold();
+        this.queueDepth = queueDepth;
+        this.nanoTime = nanoTime;
+        this.random = random;
+        lastLatencySampleNanos = nanoTime.getAsLong() - latencyWindowNanos;
+    }
+
+    /**
+     * Admit a webhook request. {@link #release()} must be called when an admitted request completes.
+     *
+     * @return {@code false} if the request should be rejected.
+     */
+    public boolean tryAcquire() {
+        final double pressure = getPressure();
+        if (pressure >= 1
+            || pressure >= sheddingThreshold
+               && random.getAsDouble() < (pressure - sheddingThreshold) / (1 - sheddingThreshold)) {
+            rejectedCount.increment();
+            return false;
+        }
+        inFlightRequests.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Complete a webhook request admitted by {@link #tryAcquire()}.
+     */
+    public void release() {
+        inFlightRequests.decrementAndGet();
+    }
+
+    /**
+     * Record how long a handler method took to process an event.
+     */
+    public void recordHandlerLatency(final long latencyNanos) {
+        final long now = nanoTime.getAsLong();
+        if (now - lastLatencySampleNanos >= latencyWindowNanos) {
+            // Previous samples are stale. Start over.
+            handlerLatencyNanos.set(latencyNanos);
+        } else {
+            handlerLatencyNanos.accumulateAndGet(latencyNanos,
+                                                 (average, sample) -> average + (sample - average) / 8);
+        }
+        lastLatencySampleNanos = now;
+    }
+
+    /**
+     * Returns the current pressure. {@code 0} if idle, {@code 1} or more if all requests are rejected.
+     */
+    public double getPressure() {
+        double pressure = (double) inFlightRequests.get() / maxInFlightRequests;
+        if (queueDepth != null) {
+            pressure = Math.max(pressure, (double) queueDepth.getAsInt() / maxQueueDepth);
+        }
+        return Math.max(pressure, (double) getHandlerLatencyNanos() / maxHandlerLatencyNanos);
+    }
+
+    /**
+     * Returns the current state of the pressure.
+     */
+    public State getState() {
+        final double pressure = getPressure();
+        if (pressure >= 1) {
+            return State.OVERLOADED;
+        }
+        return pressure >= sheddingThreshold ? State.SHEDDING : State.NORMAL;
+    }
+
+    /**
+     * Returns number of webhook requests in flight.
+     */
+    public int getInFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    /**
+     * Returns recent latency of handler methods. {@link Duration#ZERO} if none completed recently.
+     */
+    public Duration getHandlerLatency() {
+        return Duration.ofNanos(getHandlerLatencyNanos());
+    }
+
+    private long getHandlerLatencyNanos() {
+        if (nanoTime.getAsLong() - lastLatencySampleNanos >= latencyWindowNanos) {
+            return 0;
+        }
+        return handlerLatencyNanos.get();
+    }
+
+    /**
+     * Returns number of rejected webhook requests.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public enum State {
+        /**
+         * All requests are admitted.
+         */
+        NORMAL,
+
+        /**
+         * Some requests are rejected.
+         */
+        SHEDDING,
+
+        /**
+         * All requests are rejected.
+         */
+        OVERLOADED,
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+
+/**
+ * Publishes the state of webhook components to a Micrometer {@link MeterRegistry} as gauges and counters.
+ *
+ * <ul>
+ *     <li>{@link LoadShedder}: {@code line.bot.webhook.pressure}, {@code line.bot.webhook.in.flight} and
+ *         {@code line.bot.webhook.shed}.</li>
+ *     <li>{@link AsyncEventDispatcher}: {@code line.bot.handler.queue.size},
+ *         {@code line.bot.handler.queue.oldest.age}, {@code line.bot.handler.active},
+ *         {@code line.bot.handler.rejected} and {@code line.bot.handler.dropped}.</li>
+ *     <li>{@link ReplyDeadlineTracker}: {@code line.bot.webhook.reply.expired}. Latency of replies is
+ *         published by {@link MicrometerWebhookMetrics}.</li>
+ *     <li>{@link HandlerBulkhead}s: {@code line.bot.handler.bulkhead.active},
+ *         {@code line.bot.handler.bulkhead.queue.size}, {@code line.bot.handler.bulkhead.rejected} and
+ *         {@code line.bot.handler.bulkhead.timeout}, tagged by {@code bulkhead}.</li>
+ * </ul>
+ *
+ * <p>Meters read the components when the registry is scraped, so nothing is done on request threads.
+ */
+public class MicrometerWebhookGauges {
+    static final String PRESSURE = "line.bot.webhook.pressure";
+    static final String IN_FLIGHT = "line.bot.webhook.in.flight";
+    static final String SHED = "line.bot.webhook.shed";
+    static final String QUEUE_SIZE = "line.bot.handler.queue.size";
+    static final String QUEUE_OLDEST_AGE = "line.bot.handler.queue.oldest.age";
+    static final String ACTIVE = "line.bot.handler.active";
+    static final String REJECTED = "line.bot.handler.rejected";
+    static final String DROPPED = "line.bot.handler.dropped";
+    static final String REPLY_EXPIRED = "line.bot.webhook.reply.expired";
+    static final String BULKHEAD_ACTIVE = "line.bot.handler.bulkhead.active";
+    static final String BULKHEAD_QUEUE_SIZE = "line.bot.handler.bulkhead.queue.size";
+    static final String BULKHEAD_REJECTED = "line.bot.handler.bulkhead.rejected";
+    static final String BULKHEAD_TIMEOUT = "line.bot.handler.bulkhead.timeout";
+
+    private final MeterRegistry meterRegistry;
+
+    public MicrometerWebhookGauges(final MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void bindTo(final LoadShedder loadShedder) {
+        Gauge.builder(PRESSURE, loadShedder, LoadShedder::getPressure)
+             .register(meterRegistry);
+        Gauge.builder(IN_FLIGHT, loadShedder, LoadShedder::getInFlightRequests)
+             .register(meterRegistry);
+        FunctionCounter.builder(SHED, loadShedder, LoadShedder::getRejectedCount)
+                       .register(meterRegistry);
+    }
+
+    public void bindTo(final AsyncEventDispatcher dispatcher) {
+        Gauge.builder(QUEUE_SIZE, dispatcher, AsyncEventDispatcher::getQueueSize)
+             .register(meterRegistry);
+        TimeGauge.builder(QUEUE_OLDEST_AGE, dispatcher, TimeUnit.NANOSECONDS,
+                          it -> it.getOldestEventAge().toNanos())
+                 .register(meterRegistry);
+        Gauge.builder(ACTIVE, dispatcher, AsyncEventDispatcher::getActiveCount)
+             .register(meterRegistry);
+        FunctionCounter.builder(REJECTED, dispatcher, AsyncEventDispatcher::getRejectedCount)
+                       .register(meterRegistry);
+        FunctionCounter.builder(DROPPED, dispatcher, AsyncEventDispatcher::getDroppedCount)
+                       .register(meterRegistry);
+    }
+
+    public void bindTo(final ReplyDeadlineTracker replyDeadlineTracker) {
+        FunctionCounter.builder(REPLY_EXPIRED, replyDeadlineTracker, ReplyDeadlineTracker::getExpiredCount)
+                       .register(meterRegistry);
+    }
+
+    /**
+     * Bind {@link HandlerBulkhead}s of given support, including ones created when handler methods are
+     * refreshed.
+     */
+    public void bindTo(final LineMessageHandlerSupport lineMessageHandlerSupport) {
+        lineMessageHandlerSupport.addHandlerBulkheadListener(
+                bulkheads -> bulkheads.keySet().forEach(
+                        name -> bindBulkhead(lineMessageHandlerSupport, name)));
+    }
+
+    /**
+     * Bind a bulkhead by name, so the meters follow the bulkhead replacing it on refresh. Registering the same
+     * name again does nothing.
+     */
+    private void bindBulkhead(final LineMessageHandlerSupport support, final String name) {
+        Gauge.builder(BULKHEAD_ACTIVE, support, bulkhead(name, HandlerBulkhead::getActiveCount))
+             .tag("bulkhead", name)
+             .register(meterRegistry);
+        Gauge.builder(BULKHEAD_QUEUE_SIZE, support, bulkhead(name, HandlerBulkhead::getQueueSize))
+             .tag("bulkhead", name)
+             .register(meterRegistry);
+        FunctionCounter.builder(BULKHEAD_REJECTED, support, bulkhead(name, HandlerBulkhead::getRejectedCount))
+                       .tag("bulkhead", name)
+                       .register(meterRegistry);
+        FunctionCounter.builder(BULKHEAD_TIMEOUT, support, bulkhead(name, HandlerBulkhead::getTimeoutCount))
+                       .tag("bulkhead", name)
+                       .register(meterRegistry);
+    }
+
+    private static ToDoubleFunction<LineMessageHandlerSupport> bulkhead(
+            final String name, final ToDoubleFunction<HandlerBulkhead> function) {
+        return support -> {
+            final HandlerBulkhead bulkhead = support.getHandlerBulkheads().get(name);
+            return bulkhead != null ? function.applyAsDouble(bulkhead) : 0;
+        };
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.servlet.WebhookMetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * {@link WebhookMetrics} publishing timers to a Micrometer {@link MeterRegistry}.
+ *
+ * <ul>
+ *     <li>{@code line.bot.webhook.stage} tagged by {@code stage}.</li>
+ *     <li>{@code line.bot.webhook.handler} tagged by {@code handler}, {@code event} and {@code outcome},
+ *         with a percentile histogram.</li>
+ *     <li>{@code line.bot.webhook.reply} tagged by {@code handler}, {@code event} and {@code outcome}.
+ *         {@code handler} is {@code none} if the handler method is unknown.</li>
+ *     <li>{@code line.bot.webhook.reply.latency} from the timestamp of events, tagged by {@code event}, with a
+ *         percentile histogram.</li>
+ * </ul>
+ *
+ * <p>{@code event} is the simple class name of the event, and {@code outcome} is {@code success} or
+ * {@code error}. Timers are looked up once per tag combination and cached.
+ *
+ * <p>Used automatically if Micrometer is on the classpath and there's a {@link MeterRegistry} bean.
+ */
+public class MicrometerWebhookMetrics implements WebhookMetrics {
+    static final String STAGE_TIMER = "line.bot.webhook.stage";
+    static final String HANDLER_TIMER = "line.bot.webhook.handler";
+    static final String REPLY_TIMER = "line.bot.webhook.reply";
+    static final String REPLY_LATENCY_TIMER = "line.bot.webhook.reply.latency";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+
+    /**
+     * Timers of success and error, per handler method and event type.
+     */
+    private final ConcurrentMap<Method, ConcurrentMap<Class<?>, Timer[]>> handlerTimers =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Timers of success and error, per event type, of replies whose handler method is unknown.
+     */
+    private final ConcurrentMap<Class<?>, Timer[]> replyTimers = new ConcurrentHashMap<>();
+
+    /**
+     * Timers of success and error, per handler method and event type.
+     */
+    private final ConcurrentMap<Method, ConcurrentMap<Class<?>, Timer[]>> handlerReplyTimers =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, Timer> replyLatencyTimers = new ConcurrentHashMap<>();
+
+    public MicrometerWebhookMetrics(final MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder(STAGE_TIMER)
+                                        .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                                        .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public void recordStage(final Stage stage, final long durationNanos) {
+        stageTimers.get(stage).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordHandler(final Method handler, final Class<? extends Event> eventType,
+                              final long durationNanos, final Throwable error) {
+        final Timer[] timers =
+                handlerTimers.computeIfAbsent(handler, key -> new ConcurrentHashMap<>())
+                             .computeIfAbsent(eventType, key -> createHandlerTimers(handler, eventType));
+        timers[error == null ? 0 : 1].record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordReply(final Class<? extends Event> eventType, final long durationNanos,
+                            final Throwable error) {
+        recordReply(null, eventType, durationNanos, error);
+    }
+
+    @Override
+    public void recordReply(final Method handler, final Class<? extends Event> eventType,
+                            final long durationNanos, final Throwable error) {
+        final ConcurrentMap<Class<?>, Timer[]> timersByEvent =
+                handler == null ? replyTimers
+                                : handlerReplyTimers.computeIfAbsent(handler, key -> new ConcurrentHashMap<>());
+        final Timer[] timers =
+                timersByEvent.computeIfAbsent(eventType, key -> createReplyTimers(handler, eventType));
+        timers[error == null ? 0 : 1].record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordReplyLatency(final Class<? extends Event> eventType, final long latencyNanos) {
+        replyLatencyTimers.computeIfAbsent(eventType, key -> Timer.builder(REPLY_LATENCY_TIMER)
+                                                                  .tag("event", key.getSimpleName())
+                                                                  .publishPercentileHistogram()
+                                                                  .register(meterRegistry))
+                          .record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer[] createHandlerTimers(final Method handler, final Class<?> eventType) {
+        final Timer[] timers = new Timer[2];
+        for (int i = 0; i < timers.length; ++i) {
+            timers[i] = Timer.builder(HANDLER_TIMER)
+                             .tag("handler", handlerName(handler))
+                             .tag("event", eventType.getSimpleName())
+                             .tag("outcome", i == 0 ? "success" : "error")
+                             .publishPercentileHistogram()
+                             .register(meterRegistry);
+        }
+        return timers;
+    }
+
+    private Timer[] createReplyTimers(final Method handler, final Class<?> eventType) {
+        final Timer[] timers = new Timer[2];
+        for (int i = 0; i < timers.length; ++i) {
+            timers[i] = Timer.builder(REPLY_TIMER)
+                             .tag("handler", handler != null ? handlerName(handler) : "none")
+                             .tag("event", eventType.getSimpleName())
+                             .tag("outcome", i == 0 ? "success" : "error")
+                             .register(meterRegistry);
+        }
+        return timers;
+    }
+
+    private static String handlerName(final Method handler) {
+        return handler.getDeclaringClass().getSimpleName() + '.' + handler.getName();
+    }
+}
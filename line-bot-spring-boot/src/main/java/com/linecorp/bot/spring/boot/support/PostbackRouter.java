@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+
+import com.linecorp.bot.model.event.postback.PostbackData;
+import com.linecorp.bot.spring.boot.annotation.PostbackMapping;
+
+/**
+ * Routes {@link PostbackData} to the target of the best matching conditions.
+ *
+ * <p>Each mapping is indexed by its first {@code name=value} condition, so routing costs a hash lookup per
+ * distinct indexed name, e.g. one for {@code action}, instead of testing every mapping.
+ *
+ * @param <T> type of routing target.
+ * @see PostbackMapping
+ */
+class PostbackRouter<T> {
+    private static final Comparator<Route<?>> RANK_ORDER =
+            Comparator.<Route<?>>comparingInt(route -> -route.priority)
+                    .thenComparingInt(route -> -route.names.length)
+                    .thenComparingInt(route -> route.order);
+
+    /**
+     * Distinct names of indexed conditions.
+     */
+    private final String[] indexedNames;
+
+    /**
+     * Routes per value of {@link #indexedNames}, in rank order.
+     */
+    private final List<Map<String, List<Route<T>>>> indexes;
+
+    /**
+     * Routes without {@code name=value} condition, in rank order.
+     */
+    private final List<Route<T>> unindexed;
+
+    private PostbackRouter(final List<Route<T>> routes) {
+        final Map<String, Map<String, List<Route<T>>>> byName = new LinkedHashMap<>();
+        unindexed = new ArrayList<>();
+        for (int rank = 0; rank < routes.size(); ++rank) {
+            final Route<T> route = routes.get(rank);
+            route.rank = rank;
+            if (route.indexedName() == null) {
+                unindexed.add(route);
+            } else {
+                byName.computeIfAbsent(route.indexedName(), name -> new HashMap<>())
+                      .computeIfAbsent(route.indexedValue(), value -> new ArrayList<>())
+                      .add(route);
+            }
+        }
+        indexedNames = byName.keySet().toArray(new String[0]);
+        indexes = new ArrayList<>(byName.values());
+    }
+
+    static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Returns the target of the best matching mapping. {@code null} if no mapping matches.
+     */
+    T route(final PostbackData data) {
+        Route<T> best = null;
+        for (int i = 0; i < indexedNames.length; ++i) {
+            final String value = data.get(indexedNames[i]);
+            if (value == null) {
+                continue;
+            }
+            final List<Route<T>> candidates = indexes.get(i).get(value);
+            if (candidates != null) {
+                best = firstMatch(candidates, data, best);
+            }
+        }
+        best = firstMatch(unindexed, data, best);
+        return best != null ? best.target : null;
+    }
+
+    private static <T> Route<T> firstMatch(final List<Route<T>> candidates, final PostbackData data,
+                                           final Route<T> best) {
+        for (Route<T> candidate : candidates) {
+            if (best != null && candidate.rank >= best.rank) {
+                return best;
+            }
+            if (candidate.matches(data)) {
+                return candidate;
+            }
+        }
+        return best;
+    }
+
+    private static final class Route<T> {
+        private final String[] names;
+
+        /**
+         * {@code null} element for existence condition.
+         */
+        private final String[] values;
+        private final int priority;
+        private final int order;
+        private final T target;
+        private int rank;
+
+        Route(final String[] names, final String[] values, final int priority, final int order,
+              final T target) {
+            this.names = names;
+            this.values = values;
+            this.priority = priority;
+            this.order = order;
+            this.target = target;
+        }
+
+        String indexedName() {
+            for (int i = 0; i < names.length; ++i) {
+                if (values[i] != null) {
+                    return names[i];
+                }
+            }
+            return null;
+        }
+
+        String indexedValue() {
+            for (String value : values) {
+                if (value != null) {
+                    return value;
+                }
+            }
+            return null;
+        }
+
+        boolean matches(final PostbackData data) {
+            for (int i = 0; i < names.length; ++i) {
+                final String value = data.get(names[i]);
+                if (value == null || values[i] != null && !values[i].equals(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class Builder<T> {
+        private final List<Route<T>> routes = new ArrayList<>();
+
+        /**
+         * Add a mapping.
+         *
+         * @param conditions {@code name=value} or {@code name}.
+         */
+        Builder<T> add(final String[] conditions, final int priority, final T target) {
+            Preconditions.checkArgument(conditions.length > 0, "No postback condition for %s", target);
+            final String[] names = new String[conditions.length];
+            final String[] values = new String[conditions.length];
+            for (int i = 0; i < conditions.length; ++i) {
+                final int separator = conditions[i].indexOf('=');
+                names[i] = separator >= 0 ? conditions[i].substring(0, separator) : conditions[i];
+                values[i] = separator >= 0 ? conditions[i].substring(separator + 1) : null;
+                Preconditions.checkArgument(!names[i].isEmpty(), "Empty postback condition for %s", target);
+            }
+            routes.add(new Route<>(names, values, priority, routes.size(), target));
+            return this;
+        }
+
+        boolean isEmpty() {
+            return routes.isEmpty();
+        }
+
+        PostbackRouter<T> build() {
+            final List<Route<T>> sorted = new ArrayList<>(routes);
+            sorted.sort(RANK_ORDER);
+            return new PostbackRouter<>(sorted);
+        }
+    }
+}
@@ -16,9 +16,12 @@
 
 package com.linecorp.bot.spring.boot.support;
 
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 
+import java.lang.reflect.Method;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
@@ -29,11 +32,15 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 
 import com.linecorp.bot.client.LineMessagingClient;
+import com.linecorp.bot.model.PushMessage;
 import com.linecorp.bot.model.ReplyMessage;
 import com.linecorp.bot.model.event.Event;
 import com.linecorp.bot.model.event.ReplyEvent;
+import com.linecorp.bot.model.event.source.Source;
 import com.linecorp.bot.model.message.Message;
 import com.linecorp.bot.model.response.BotApiResponse;
+import com.linecorp.bot.servlet.WebhookMetrics;
+import com.linecorp.bot.spring.boot.LineBotProperties.ReplyDeadline.ExpiredReplyPolicy;
 
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
@@ -42,32 +49,93 @@ import lombok.extern.slf4j.Slf4j;
  * Internal class to send message as reply.
  *
  * <p>Basically, message contents are from return value of handler method.
+ * If {@link ReplyCoalescer} is available, messages are passed to it instead of being replied directly.
  *
- * @see LineMessageHandlerSupport#handleReturnValue(Event, Object)
+ * @see LineMessageHandlerSupport#handleReturnValue(Method, Event, Object)
  */
 @Slf4j
 @Builder
 class ReplyByReturnValueConsumer implements Consumer<Object> {
     private final LineMessagingClient lineMessagingClient;
     private final Event originalEvent;
+    private final ReplyCoalescer replyCoalescer;
+    private final ReplyDeadlineTracker replyDeadlineTracker;
+    @Builder.Default
+    private final WebhookMetrics webhookMetrics = WebhookMetrics.NOOP;
+
+    /**
+     * Handler method which returned the messages, for {@link WebhookMetrics}. {@code null} if unknown.
+     */
+    private Method handler;
 
     @Component
     static class Factory {
+        /**
+         * {@code null} if only {@code line.bot.channels} are configured.
+         */
         private final LineMessagingClient lineMessagingClient;
+        private ReplyCoalescer replyCoalescer;
+        private ReplyDeadlineTracker replyDeadlineTracker;
+        private ChannelClientResolver channelClientResolver;
+        private WebhookMetrics webhookMetrics = WebhookMetrics.NOOP;
 
         @Autowired
+        Factory(final Optional<LineMessagingClient> lineMessagingClient) {
+            this.lineMessagingClient = lineMessagingClient.orElse(null);
+        }
+
         Factory(final LineMessagingClient lineMessagingClient) {
-            this.lineMessagingClient = lineMessagingClient;
+            this(Optional.of(lineMessagingClient));
+        }
+
+        @Autowired(required = false)
+        void setReplyCoalescer(final ReplyCoalescer replyCoalescer) {
+            this.replyCoalescer = replyCoalescer;
+        }
+
+        @Autowired(required = false)
+        void setReplyDeadlineTracker(final ReplyDeadlineTracker replyDeadlineTracker) {
+            this.replyDeadlineTracker = replyDeadlineTracker;
+        }
+
+        @Autowired(required = false)
+        void setChannelClientResolver(final ChannelClientResolver channelClientResolver) {
+            this.channelClientResolver = channelClientResolver;
+        }
+
+        @Autowired(required = false)
+        void setWebhookMetrics(final WebhookMetrics webhookMetrics) {
+            this.webhookMetrics = webhookMetrics;
+        }
+
+        /**
+         * Returns {@code true} if replies to given event are passed to {@link ReplyCoalescer}, which must be
+         * told that the handler method completed even if it returned nothing.
+         */
+        boolean isCoalescing(final Event event) {
+            return replyCoalescer != null && event instanceof ReplyEvent;
         }
 
         ReplyByReturnValueConsumer createForEvent(final Event event) {
+            final ReplyCoalescer replyCoalescer = isCoalescing(event) ? this.replyCoalescer : null;
             return builder()
-                    .lineMessagingClient(lineMessagingClient)
+                    // Only needed if the reply isn't coalesced.
+                    .lineMessagingClient(replyCoalescer == null
+                                         ? ChannelClientResolver.resolve(channelClientResolver, event,
+                                                                         lineMessagingClient)
+                                         : null)
                     .originalEvent(event)
+                    .replyCoalescer(replyCoalescer)
+                    .replyDeadlineTracker(replyDeadlineTracker)
+                    .webhookMetrics(webhookMetrics)
                     .build();
         }
     }
 
+    void setHandler(final Method handler) {
+        this.handler = handler;
+    }
+
     @Override
     public void accept(final Object returnValue) {
         if (returnValue instanceof CompletableFuture) {
@@ -83,6 +151,9 @@ class ReplyByReturnValueConsumer implements Consumer<Object> {
     private void whenComplete(final Object futureResult, final Throwable throwable) {
         if (throwable != null) {
             log.error("Method return value waited but exception occurred in CompletedFuture", throwable);
+            if (replyCoalescer != null) {
+                replyCoalescer.complete(originalEvent, emptyList());
+            }
             return;
         }
 
@@ -90,26 +161,55 @@ class ReplyByReturnValueConsumer implements Consumer<Object> {
     }
 
     private void acceptResult(final Object returnValue) {
+        final List<Message> messages = toMessages(returnValue);
+        if (replyCoalescer != null) {
+            replyCoalescer.complete(originalEvent, messages);
+        } else if (!messages.isEmpty()) {
+            reply(messages);
+        }
+    }
+
+    private static List<Message> toMessages(final Object returnValue) {
         if (returnValue instanceof Message) {
-            reply(singletonList((Message) returnValue));
-        } else if (returnValue instanceof List) {
-            List<?> returnValueAsList = (List<?>) returnValue;
+            return singletonList((Message) returnValue);
+        }
+        if (returnValue instanceof List) {
+            return checkListContents((List<?>) returnValue);
+        }
+        return emptyList();
+    }
 
-            if (returnValueAsList.isEmpty()) {
+    private void reply(final List<Message> messages) {
+        if (replyDeadlineTracker != null) {
+            if (replyDeadlineTracker.isExpired(originalEvent)) {
+                replyDeadlineTracker.recordExpired();
+                pushInsteadOfReply(messages);
                 return;
             }
-
-            reply(checkListContents(returnValueAsList));
+            replyDeadlineTracker.recordReply(originalEvent);
         }
-    }
 
-    private void reply(final List<Message> messages) {
         final ReplyEvent replyEvent = (ReplyEvent) originalEvent;
+        final long startNanos = System.nanoTime();
         lineMessagingClient.replyMessage(new ReplyMessage(replyEvent.getReplyToken(), messages))
-                           .whenComplete(this::logging);
+                           .whenComplete((response, throwable) -> {
+                               webhookMetrics.recordReply(handler, originalEvent.getClass(),
+                                                          System.nanoTime() - startNanos, throwable);
+                               logging(response, throwable);
+                           });
         // DO NOT BLOCK HERE, otherwise, next message processing will be BLOCKED.
     }
 
+    private void pushInsteadOfReply(final List<Message> messages) {
+        final Source source = originalEvent.getSource();
+        if (replyDeadlineTracker.getExpiredReplyPolicy() != ExpiredReplyPolicy.PUSH || source == null) {
+            log.debug("Dropped reply. Reply token has expired: {}", originalEvent);
+            return;
+        }
+        lineMessagingClient.pushMessage(new PushMessage(source.getSenderId(), messages))
+                           .whenComplete(this::logging);
+    }
+
     private void logging(final BotApiResponse botApiResponse, final Throwable throwable) {
         if (throwable == null) {
             log.debug("Reply message success. response = {}", botApiResponse);
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.linecorp.bot.client.LineMessagingClient;
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.ReplyMessage;
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.ReplyEvent;
+import com.linecorp.bot.model.message.Message;
+import com.linecorp.bot.model.response.BotApiResponse;
+import com.linecorp.bot.spring.boot.LineBotProperties.ReplyDeadline.ExpiredReplyPolicy;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Merges messages for the same reply token into one reply API call.
+ *
+ * <p>A reply token can be used only once, for up to {@value #MAX_MESSAGES_PER_REQUEST} messages.
+ * Messages from the return value of the handler method, including a {@code CompletableFuture}, and from
+ * {@link ReplySink}s are collected until the handler method completes and all sinks are closed, or until
+ * the window elapses. Then the first {@value #MAX_MESSAGES_PER_REQUEST} messages are sent as a reply, and
+ * the rest are pushed to the source of the event. Messages arriving later are pushed as well.
+ *
+ * <p>Enabled by {@code line.bot.handler.reply-coalescing=true}. Handler methods can inject this bean to
+ * get a {@link ReplySink}:
+ *
+ * <pre>
+ * &#64;EventMapping
+ * public CompletableFuture&lt;Message&gt; handle(MessageEvent&lt;TextMessageContent&gt; event) {
+ *     final ReplySink sink = replyCoalescer.sinkFor(event);
+ *     pipeline.onProgress(progress -&gt; sink.add(new TextMessage(progress)));
+ *     return pipeline.result().whenComplete((result, cause) -&gt; sink.close());
+ * }
+ * </pre>
+ */
+@Slf4j
+public class ReplyCoalescer {
+    static final int MAX_MESSAGES_PER_REQUEST = 5;
+
+    /**
+     * How long to remember a used reply token, so that late messages are pushed instead of being replied
+     * with the used token.
+     */
+    private static final long USED_TOKEN_RETENTION_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * {@code null} if only {@code line.bot.channels} are configured.
+     */
+    private final LineMessagingClient lineMessagingClient;
+    private final long windowMillis;
+
+    /**
+     * {@code null} if reply deadlines are not tracked.
+     */
+    private final ReplyDeadlineTracker replyDeadlineTracker;
+    private final ScheduledThreadPoolExecutor timer;
+    private final ConcurrentMap<String, Aggregation> aggregations = new ConcurrentHashMap<>();
+    private final LongAdder replyCount = new LongAdder();
+    private final LongAdder pushCount = new LongAdder();
+    private ChannelClientResolver channelClientResolver;
+
+    /**
+     * Create new instance.
+     *
+     * @param window maximum time to hold a reply, from the first message or sink of the reply token.
+     */
+    public ReplyCoalescer(final LineMessagingClient lineMessagingClient, final Duration window) {
+        this(lineMessagingClient, window, null);
+    }
+
+    /**
+     * Create new instance which doesn't reply with expired reply tokens.
+     *
+     * @param window maximum time to hold a reply, from the first message or sink of the reply token.
+     * @param replyDeadlineTracker nullable.
+     */
+    public ReplyCoalescer(final LineMessagingClient lineMessagingClient, final Duration window,
+                          final ReplyDeadlineTracker replyDeadlineTracker) {
+        this.lineMessagingClient = lineMessagingClient;
+        windowMillis = window.toMillis();
+        this.replyDeadlineTracker = replyDeadlineTracker;
+
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("line-bot-reply-");
+        threadFactory.setDaemon(true);
+        timer = new ScheduledThreadPoolExecutor(1, threadFactory);
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Send replies of events to the channels they're sent to, when {@code line.bot.channels} are configured.
+     */
+    @Autowired(required = false)
+    void setChannelClientResolver(final ChannelClientResolver channelClientResolver) {
+        this.channelClientResolver = channelClientResolver;
+    }
+
+    /**
+     * Open a {@link ReplySink} for the reply token of given event.
+     *
+     * <p>Open it before the handler method returns. Otherwise the reply may have been sent already,
+     * and messages are pushed.
+     */
+    public ReplySink sinkFor(final ReplyEvent event) {
+        final Aggregation aggregation = aggregation((Event) event);
+        aggregation.acquire();
+        return new ReplySink() {
+            private boolean closed;
+
+            @Override
+            public void add(final List<? extends Message> messages) {
+                aggregation.add(messages);
+            }
+
+            @Override
+            public synchronized void close() {
+                if (!closed) {
+                    closed = true;
+                    aggregation.release();
+                }
+            }
+        };
+    }
+
+    /**
+     * Complete the handler method of given event with messages of its return value.
+     */
+    void complete(final Event event, final List<Message> messages) {
+        final String replyToken = ((ReplyEvent) event).getReplyToken();
+        Aggregation aggregation = replyToken != null ? aggregations.get(replyToken) : null;
+        if (aggregation == null) {
+            if (messages.isEmpty()) {
+                return;
+            }
+            aggregation = aggregation(event);
+        }
+        aggregation.add(messages);
+        aggregation.release();
+    }
+
+    private Aggregation aggregation(final Event event) {
+        final String replyToken = ((ReplyEvent) event).getReplyToken();
+        if (replyToken == null) {
+            // Nothing to coalesce. Push messages as they arrive.
+            final Aggregation aggregation = new Aggregation(null, event);
+            aggregation.flushed = true;
+            aggregation.replied = true;
+            return aggregation;
+        }
+        return aggregations.computeIfAbsent(replyToken, token -> {
+            final Aggregation aggregation = new Aggregation(token, event);
+            aggregation.window = timer.schedule(aggregation::flush, windowMillis, TimeUnit.MILLISECONDS);
+            return aggregation;
+        });
+    }
+
+    /**
+     * Returns number of reply API calls.
+     */
+    public long getReplyCount() {
+        return replyCount.sum();
+    }
+
+    /**
+     * Returns number of push API calls for messages which didn't fit in the reply.
+     */
+    public long getPushCount() {
+        return pushCount.sum();
+    }
+
+    /**
+     * Send all held replies and stop the timer.
+     */
+    public void shutdown() {
+        aggregations.values().forEach(Aggregation::flush);
+        timer.shutdownNow();
+    }
+
+    /**
+     * Messages for a reply token.
+     */
+    private class Aggregation {
+        private final String replyToken;
+        private final Event event;
+        private final String to;
+        private final List<Message> messages = new ArrayList<>();
+
+        /**
+         * Handler method and open sinks. The handler method is counted from the beginning, because sinks
+         * are opened before it completes.
+         */
+        private int pending = 1;
+        private boolean flushed;
+        private boolean replied;
+        private volatile ScheduledFuture<?> window;
+
+        Aggregation(final String replyToken, final Event event) {
+            this.replyToken = replyToken;
+            this.event = event;
+            to = event.getSource() != null ? event.getSource().getSenderId() : null;
+        }
+
+        synchronized void acquire() {
+            ++pending;
+        }
+
+        synchronized void release() {
+            if (--pending == 0) {
+                flush();
+            }
+        }
+
+        synchronized void add(final List<? extends Message> newMessages) {
+            if (flushed) {
+                send(new ArrayList<>(newMessages));
+            } else {
+                messages.addAll(newMessages);
+            }
+        }
+
+        synchronized void flush() {
+            if (flushed) {
+                return;
+            }
+            flushed = true;
+            final ScheduledFuture<?> window = this.window;
+            if (window != null) {
+                window.cancel(false);
+            }
+            if (!timer.isShutdown()) {
+                timer.schedule(() -> aggregations.remove(replyToken, this),
+                               USED_TOKEN_RETENTION_MILLIS, TimeUnit.MILLISECONDS);
+            }
+
+            send(messages);
+            messages.clear();
+        }
+
+        private void send(final List<Message> messages) {
+            final LineMessagingClient client =
+                    ChannelClientResolver.resolve(channelClientResolver, event, lineMessagingClient);
+            int from = 0;
+            if (!replied && !messages.isEmpty()) {
+                replied = true;
+                if (replyDeadlineTracker != null && replyDeadlineTracker.isExpired(event)) {
+                    replyDeadlineTracker.recordExpired();
+                    if (replyDeadlineTracker.getExpiredReplyPolicy() != ExpiredReplyPolicy.PUSH) {
+                        log.debug("Dropped reply. Reply token has expired: {}", event);
+                        return;
+                    }
+                    // Push all.
+                } else {
+                    from = Math.min(messages.size(), MAX_MESSAGES_PER_REQUEST);
+                    replyCount.increment();
+                    if (replyDeadlineTracker != null) {
+                        replyDeadlineTracker.recordReply(event);
+                    }
+                    final List<Message> chunk = new ArrayList<>(messages.subList(0, from));
+                    client.replyMessage(new ReplyMessage(replyToken, chunk))
+                          .whenComplete(ReplyCoalescer::logging);
+                }
+            }
+            if (from < messages.size() && to == null) {
+                log.warn("Dropped {} messages exceeding the reply. No source to push.", messages.size() - from);
+                return;
+            }
+            for (; from < messages.size(); from += MAX_MESSAGES_PER_REQUEST) {
+                final int end = Math.min(messages.size(), from + MAX_MESSAGES_PER_REQUEST);
+                pushCount.increment();
+                final List<Message> chunk = new ArrayList<>(messages.subList(from, end));
+                client.pushMessage(new PushMessage(to, chunk))
+                      .whenComplete(ReplyCoalescer::logging);
+            }
+        }
+    }
+
+    private static void logging(final BotApiResponse botApiResponse, final Throwable throwable) {
+        if (throwable == null) {
+            log.debug("Send message success. response = {}", botApiResponse);
+        } else {
+            log.warn("Send message failed: {}", throwable.getMessage(), throwable);
+        }
+    }
+}
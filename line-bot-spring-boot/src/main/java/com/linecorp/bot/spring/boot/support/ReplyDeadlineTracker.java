@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.ReplyEvent;
+import com.linecorp.bot.servlet.WebhookMetrics;
+import com.linecorp.bot.spring.boot.LineBotProperties.ReplyDeadline;
+import com.linecorp.bot.spring.boot.LineBotProperties.ReplyDeadline.ExpiredReplyPolicy;
+
+/**
+ * Tracks the deadline of reply tokens, computed from the timestamp of events.
+ *
+ * <p>Replies which can't succeed anymore are not sent, or are pushed instead according to
+ * {@link ExpiredReplyPolicy}. Latency of replies from the event timestamp is recorded in
+ * {@link #getReplyLatency()}.
+ *
+ * <p>Enabled by {@code line.bot.handler.reply-deadline.enabled=true}.
+ */
+public class ReplyDeadlineTracker {
+    private final Duration tokenTtl;
+    private final Duration safetyMargin;
+    private final ExpiredReplyPolicy expiredReplyPolicy;
+    private final Clock clock;
+    private final LatencyHistogram replyLatency = new LatencyHistogram();
+    private final LongAdder expiredCount = new LongAdder();
+    private WebhookMetrics webhookMetrics = WebhookMetrics.NOOP;
+
+    /**
+     * Create new instance.
+     */
+    public ReplyDeadlineTracker(final ReplyDeadline properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    ReplyDeadlineTracker(final ReplyDeadline properties, final Clock clock) {
+        tokenTtl = Duration.ofMillis(properties.getTokenTtlMillis());
+        safetyMargin = Duration.ofMillis(properties.getSafetyMarginMillis());
+        expiredReplyPolicy = properties.getExpiredReplyPolicy();
+        this.clock = clock;
+    }
+
+    /**
+     * Publish reply latency in addition to {@link #getReplyLatency()}.
+     */
+    @Autowired(required = false)
+    public void setWebhookMetrics(final WebhookMetrics webhookMetrics) {
+        this.webhookMetrics = webhookMetrics;
+    }
+
+    /**
+     * Returns the deadline of the reply token of given event. {@code null} if it's not a {@link ReplyEvent}
+     * or has no timestamp.
+     */
+    public Instant getDeadline(final Event event) {
+        if (!(event instanceof ReplyEvent) || event.getTimestamp() == null) {
+            return null;
+        }
+        return event.getTimestamp().plus(tokenTtl);
+    }
+
+    /**
+     * Returns {@code true} if a reply to given event can't be completed before the deadline.
+     */
+    public boolean isExpired(final Event event) {
+        final Instant deadline = getDeadline(event);
+        return deadline != null && clock.instant().plus(safetyMargin).isAfter(deadline);
+    }
+
+    ExpiredReplyPolicy getExpiredReplyPolicy() {
+        return expiredReplyPolicy;
+    }
+
+    void recordReply(final Event event) {
+        if (event.getTimestamp() != null) {
+            final Duration latency = Duration.between(event.getTimestamp(), clock.instant());
+            replyLatency.record(latency);
+            webhookMetrics.recordReplyLatency(event.getClass(), latency.toNanos());
+        }
+    }
+
+    void recordExpired() {
+        expiredCount.increment();
+    }
+
+    /**
+     * Returns latency of replies from the timestamp of events.
+     */
+    public LatencyHistogram getReplyLatency() {
+        return replyLatency;
+    }
+
+    /**
+     * Returns number of expired replies, which were pushed, dropped or whose handler was skipped.
+     */
+    public long getExpiredCount() {
+        return expiredCount.sum();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static java.util.Collections.singletonList;
+
+import java.util.List;
+
+import com.linecorp.bot.model.message.Message;
+
+/**
+ * Collects messages for a reply token, to be sent together with the return value of the handler method.
+ *
+ * <p>The reply is held until all sinks of the reply token are closed and the handler method completes,
+ * or until the coalescing window elapses. Close the sink when no more messages are added.
+ *
+ * @see ReplyCoalescer#sinkFor(com.linecorp.bot.model.event.ReplyEvent)
+ */
+public interface ReplySink extends AutoCloseable {
+    /**
+     * Add messages. Messages added after the reply has been sent are pushed instead.
+     */
+    void add(List<? extends Message> messages);
+
+    /**
+     * Add a message. Messages added after the reply has been sent are pushed instead.
+     */
+    default void add(final Message message) {
+        add(singletonList(message));
+    }
+
+    /**
+     * Declare no more messages are added by this sink.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.PostbackEvent;
+import com.linecorp.bot.model.event.source.Source;
+import com.linecorp.bot.spring.boot.LineBotProperties.Throttle;
+import com.linecorp.bot.spring.boot.LineBotProperties.Throttle.OverLimitPolicy;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Limits {@link MessageEvent}s and {@link PostbackEvent}s per sender, i.e. user, group or room, so that a
+ * single sender can't monopolize handler methods.
+ *
+ * <p>Each sender has a token bucket of {@link Throttle#getBurst()} events, refilled at
+ * {@link Throttle#getEventsPerSecond()}. A bucket is a single {@code long} of the time when it's full again
+ * (GCRA), so events of known senders are checked without allocation. Buckets which are full again are removed
+ * lazily by the thread checking an event, about every minute.
+ *
+ * <p>Events over the limit are handled according to {@link OverLimitPolicy}.
+ *
+ * <p>Enabled by {@code line.bot.handler.throttle.enabled=true}.
+ */
+@Slf4j
+public class SenderThrottle {
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final long maxDelayNanos;
+    private final OverLimitPolicy overLimitPolicy;
+    private final LongSupplier nanoTime;
+
+    /**
+     * {@code null} unless {@link OverLimitPolicy#DELAY}.
+     */
+    private final ScheduledThreadPoolExecutor timer;
+    private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepNanos;
+    private final LongAdder overLimitCount = new LongAdder();
+    private ThrottledEventHandler throttledEventHandler;
+
+    /**
+     * Create new instance.
+     */
+    public SenderThrottle(final Throttle properties) {
+        this(properties, System::nanoTime);
+    }
+
+    SenderThrottle(final Throttle properties, final LongSupplier nanoTime) {
+        if (properties.getEventsPerSecond() <= 0 || properties.getBurst() < 1) {
+            throw new IllegalArgumentException("Invalid throttle: " + properties);
+        }
+        intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / properties.getEventsPerSecond());
+        burstNanos = intervalNanos * (properties.getBurst() - 1);
+        overLimitPolicy = properties.getOverLimitPolicy();
+        maxDelayNanos = overLimitPolicy == OverLimitPolicy.DELAY
+                        ? TimeUnit.MILLISECONDS.toNanos(properties.getMaxDelayMillis()) : 0;
+        this.nanoTime = nanoTime;
+        nextSweepNanos = new AtomicLong(nanoTime.getAsLong() + SWEEP_INTERVAL_NANOS);
+
+        if (overLimitPolicy == OverLimitPolicy.DELAY) {
+            final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("line-bot-throttle-");
+            threadFactory.setDaemon(true);
+            timer = new ScheduledThreadPoolExecutor(1, threadFactory);
+        } else {
+            timer = null;
+        }
+    }
+
+    /**
+     * Set {@link ThrottledEventHandler} to handle events over the limit, in case of
+     * {@link OverLimitPolicy#FALLBACK}. They are dropped if it's not set.
+     */
+    @Autowired(required = false)
+    public void setThrottledEventHandler(final ThrottledEventHandler throttledEventHandler) {
+        this.throttledEventHandler = throttledEventHandler;
+    }
+
+    /**
+     * Returns events within the limit. Others are dropped, delayed or passed to {@link ThrottledEventHandler}.
+     *
+     * @param delayedDispatcher dispatches delayed events later.
+     * @return {@code events} itself if all of them are within the limit.
+     */
+    public List<Event> filter(final List<Event> events, final Consumer<Event> delayedDispatcher) {
+        return filter(events, delayedDispatcher, event -> {});
+    }
+
+    /**
+     * Returns events within the limit. Others are dropped, delayed or passed to {@link ThrottledEventHandler}.
+     *
+     * @param delayedDispatcher dispatches delayed events later.
+     * @param discardedHandler receives events which are dropped or passed to {@link ThrottledEventHandler},
+     *                         i.e. never dispatched to handler methods.
+     * @return {@code events} itself if all of them are within the limit.
+     */
+    public List<Event> filter(final List<Event> events, final Consumer<Event> delayedDispatcher,
+                              final Consumer<Event> discardedHandler) {
+        List<Event> allowed = null;
+        for (int i = 0; i < events.size(); ++i) {
+            final Event event = events.get(i);
+            final String senderId = getSenderId(event);
+            final long delayNanos = senderId != null ? reserve(senderId) : 0;
+            if (delayNanos == 0) {
+                if (allowed != null) {
+                    allowed.add(event);
+                }
+                continue;
+            }
+
+            if (allowed == null) {
+                allowed = new ArrayList<>(events.subList(0, i));
+            }
+            overLimitCount.increment();
+            if (delayNanos > 0) {
+                timer.schedule(() -> delayedDispatcher.accept(event), delayNanos, TimeUnit.NANOSECONDS);
+                continue;
+            }
+            if (overLimitPolicy == OverLimitPolicy.FALLBACK && throttledEventHandler != null) {
+                try {
+                    throttledEventHandler.handle(event);
+                } catch (RuntimeException e) {
+                    log.error("ThrottledEventHandler failed: {}", event, e);
+                }
+            } else {
+                log.debug("Dropped event over the limit of sender {}: {}", senderId, event);
+            }
+            discardedHandler.accept(event);
+        }
+        return allowed != null ? allowed : events;
+    }
+
+    private static String getSenderId(final Event event) {
+        if (!(event instanceof MessageEvent || event instanceof PostbackEvent)) {
+            return null;
+        }
+        final Source source = event.getSource();
+        return source != null ? source.getSenderId() : null;
+    }
+
+    /**
+     * Take a token of given sender.
+     *
+     * @return {@code 0} if taken now, nanoseconds to wait for the reserved token, or {@code -1} if over the
+     *         limit.
+     */
+    @VisibleForTesting
+    long reserve(final String senderId) {
+        final long now = nanoTime.getAsLong();
+        sweepIfNeeded(now);
+
+        AtomicLong bucket = buckets.get(senderId);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(senderId, key -> new AtomicLong(now));
+        }
+        for (;;) {
+            final long fullAt = bucket.get();
+            final long start = fullAt - now > 0 ? fullAt : now;
+            final long waitNanos = start - burstNanos - now;
+            if (waitNanos > maxDelayNanos) {
+                return -1;
+            }
+            if (bucket.compareAndSet(fullAt, start + intervalNanos)) {
+                return Math.max(0, waitNanos);
+            }
+        }
+    }
+
+    private void sweepIfNeeded(final long now) {
+        final long next = nextSweepNanos.get();
+        if (now - next < 0 || !nextSweepNanos.compareAndSet(next, now + SWEEP_INTERVAL_NANOS)) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    /**
+     * Returns number of senders tracked. Senders idle long enough are removed lazily.
+     */
+    public int getSenderCount() {
+        return buckets.size();
+    }
+
+    /**
+     * Returns number of events over the limit.
+     */
+    public long getOverLimitCount() {
+        return overLimitCount.sum();
+    }
+
+    /**
+     * Discard delayed events.
+     */
+    public void shutdown() {
+        if (timer != null) {
+            final int discarded = timer.shutdownNow().size();
+            if (discarded > 0) {
+                log.warn("{} delayed events are discarded.", discarded);
+            }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.source.Source;
+import com.linecorp.bot.spring.boot.LineBotProperties.AsyncExecutor.QueueFullPolicy;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serial lanes of events partitioned by {@link Source#getSenderId()}.
+ *
+ * <p>Events of one conversation (user, group or room) are processed one by one in arrival order, while
+ * events of different partitions are processed concurrently by the shared executor. A lane is created
+ * when an event arrives, and removed when it becomes empty.
+ *
+ * <p>Each lane has its own bounded queue, so a hot conversation only blocks, rejects or drops its own
+ * events. A lane yields its thread after {@link #DRAIN_BATCH_SIZE} events, so it doesn't starve others.
+ */
+@Slf4j
+class SourceOrderedLanes {
+    static final int DRAIN_BATCH_SIZE = 16;
+
+    private final Executor executor;
+    private final int partitions;
+    private final int laneCapacity;
+    private final QueueFullPolicy queueFullPolicy;
+    private final LongAdder rejectedCount;
+    private final LongAdder droppedCount;
+    private final Consumer<Runnable> droppedTaskHandler;
+    private final ConcurrentMap<Integer, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    SourceOrderedLanes(final Executor executor, final int partitions, final int laneCapacity,
+                       final QueueFullPolicy queueFullPolicy,
+                       final LongAdder rejectedCount, final LongAdder droppedCount,
+                       final Consumer<Runnable> droppedTaskHandler) {
+        this.executor = executor;
+        this.partitions = partitions;
+        this.laneCapacity = laneCapacity;
+        this.queueFullPolicy = queueFullPolicy;
+        this.rejectedCount = rejectedCount;
+        this.droppedCount = droppedCount;
+        this.droppedTaskHandler = droppedTaskHandler;
+    }
+
+    static String partitionKey(final Event event) {
+        final Source source = event.getSource();
+        if (source == null) {
+            return null;
+        }
+        return source.getSenderId() != null ? source.getSenderId() : source.getUserId();
+    }
+
+    int partitionOf(final Event event) {
+        final String key = partitionKey(event);
+        return key == null ? 0 : Math.floorMod(key.hashCode(), partitions);
+    }
+
+    /**
+     * Enqueue all tasks, or none of them if the policy is {@link QueueFullPolicy#REJECT REJECT} and some
+     * lane doesn't have room.
+     *
+     * <p>In case of REJECT, room for all tasks is reserved in their lanes first, so concurrent requests
+     * can't take it between the check and the enqueue. More tasks than the lane capacity are accepted only
+     * while the lane has no waiting task, otherwise such a request could never be accepted.
+     */
+    void execute(final List<? extends EventTask> tasks) {
+        if (queueFullPolicy != QueueFullPolicy.REJECT) {
+            for (EventTask task : tasks) {
+                enqueue(task);
+            }
+            return;
+        }
+
+        final Map<Integer, Integer> required = new HashMap<>();
+        for (EventTask task : tasks) {
+            required.merge(partitionOf(task.getEvent()), 1, Integer::sum);
+        }
+        final Map<Integer, Lane> reserved = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entry : required.entrySet()) {
+            final Lane lane = reserve(entry.getKey(), entry.getValue());
+            if (lane == null) {
+                reserved.forEach((partition, reservedLane) -> cancel(reservedLane, required.get(partition)));
+                rejectedCount.increment();
+                throw new RejectedExecutionException("Event queue of partition is full");
+            }
+            reserved.put(entry.getKey(), lane);
+        }
+        for (int i = 0; i < tasks.size(); ++i) {
+            try {
+                add(reserved.get(partitionOf(tasks.get(i).getEvent())), tasks.get(i));
+            } catch (RejectedExecutionException e) {
+                // Shutting down. Release the room reserved for the rest.
+                for (EventTask rest : tasks.subList(i + 1, tasks.size())) {
+                    cancel(reserved.get(partitionOf(rest.getEvent())), 1);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Reserve room for {@code count} tasks in the lane of given partition.
+     *
+     * @return the lane, or {@code null} if it doesn't have room.
+     */
+    private Lane reserve(final int partition, final int count) {
+        while (true) {
+            final Lane lane = lanes.computeIfAbsent(partition, Lane::new);
+            synchronized (lane) {
+                if (lane.removed) {
+                    continue;
+                }
+                final boolean empty = lane.tasks.isEmpty() && lane.reserved == 0;
+                if (lane.tasks.size() + lane.reserved + count > laneCapacity && !empty) {
+                    removeIfIdle(lane);
+                    return null;
+                }
+                lane.reserved += count;
+                return lane;
+            }
+        }
+    }
+
+    private void cancel(final Lane lane, final int count) {
+        synchronized (lane) {
+            lane.reserved -= count;
+            removeIfIdle(lane);
+        }
+    }
+
+    private void removeIfIdle(final Lane lane) {
+        if (!lane.scheduled && lane.tasks.isEmpty() && lane.reserved == 0) {
+            lane.removed = true;
+            lanes.remove(lane.partition, lane);
+        }
+    }
+
+    /**
+     * Add a task to a lane which has reserved room for it.
+     */
+    private void add(final Lane lane, final EventTask task) {
+        final boolean schedule;
+        synchronized (lane) {
+            lane.reserved--;
+            lane.tasks.add(task);
+            pendingCount.incrementAndGet();
+            schedule = !lane.scheduled;
+            lane.scheduled = true;
+        }
+        if (schedule) {
+            schedule(lane, task);
+        }
+    }
+
+    private void enqueue(final EventTask task) {
+        final int partition = partitionOf(task.getEvent());
+        while (true) {
+            final Lane lane = lanes.computeIfAbsent(partition, Lane::new);
+            final boolean schedule;
+            synchronized (lane) {
+                if (lane.removed) {
+                    // Lost a race with a lane becoming idle. Retry on a new lane.
+                    continue;
+                }
+                makeRoom(lane);
+                lane.tasks.add(task);
+                pendingCount.incrementAndGet();
+                schedule = !lane.scheduled;
+                lane.scheduled = true;
+            }
+            if (schedule) {
+                schedule(lane, task);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Run a lane which got its first task. The task is taken back if the executor rejects the lane.
+     */
+    private void schedule(final Lane lane, final EventTask task) {
+        try {
+            executor.execute(lane);
+        } catch (RejectedExecutionException e) {
+            // Shutting down.
+            synchronized (lane) {
+                if (lane.tasks.remove(task)) {
+                    pendingCount.decrementAndGet();
+                }
+                lane.scheduled = false;
+                removeIfIdle(lane);
+            }
+            throw e;
+        }
+    }
+
+    private void makeRoom(final Lane lane) {
+        while (lane.tasks.size() + lane.reserved >= laneCapacity) {
+            switch (queueFullPolicy) {
+                case BLOCK:
+                    try {
+                        lane.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for queue", e);
+                    }
+                    break;
+                case REJECT:
+                    rejectedCount.increment();
+                    throw new RejectedExecutionException("Event queue of partition is full");
+                case DROP_OLDEST:
+                    final EventTask dropped = lane.tasks.poll();
+                    pendingCount.decrementAndGet();
+                    droppedCount.increment();
+                    log.warn("Event queue of partition is full. Dropped oldest event: {}", dropped);
+                    droppedTaskHandler.accept(dropped);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown queue full policy: " + queueFullPolicy);
+            }
+        }
+    }
+
+    /**
+     * Returns number of events waiting in lanes.
+     */
+    int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Returns number of lanes which have waiting or running events.
+     */
+    int getLaneCount() {
+        return lanes.size();
+    }
+
+    Duration getOldestEventAge() {
+        final long now = System.nanoTime();
+        long oldest = 0;
+        for (Lane lane : lanes.values()) {
+            synchronized (lane) {
+                final EventTask head = lane.tasks.peek();
+                if (head != null) {
+                    oldest = Math.max(oldest, now - head.getEnqueuedAt());
+                }
+            }
+        }
+        return Duration.ofNanos(oldest);
+    }
+
+    private final class Lane implements Runnable {
+        private final Integer partition;
+        private final ArrayDeque<EventTask> tasks = new ArrayDeque<>();
+
+        /**
+         * {@code true} while this lane is in the executor's queue or being drained.
+         */
+        private boolean scheduled;
+
+        /**
+         * {@code true} once this lane is removed from {@link #lanes}. No task can be added any more.
+         */
+        private boolean removed;
+
+        /**
+         * Number of tasks which are going to be added by {@link #add(Lane, EventTask)}. The lane is kept
+         * while there are reservations.
+         */
+        private int reserved;
+
+        Lane(final Integer partition) {
+            this.partition = partition;
+        }
+
+        @Override
+        public void run() {
+            boolean yieldThread = true;
+            while (true) {
+                for (int i = 0; i < DRAIN_BATCH_SIZE; ++i) {
+                    final EventTask task;
+                    synchronized (this) {
+                        task = tasks.poll();
+                        if (task == null) {
+                            scheduled = false;
+                            removeIfIdle(this);
+                            return;
+                        }
+                        pendingCount.decrementAndGet();
+                        // Wake up producers blocked by BLOCK policy.
+                        notifyAll();
+                    }
+                    try {
+                        task.run();
+                    } catch (RuntimeException | Error e) {
+                        // Keep draining. Otherwise the lane stays scheduled and its source is stuck forever.
+                        log.error("Event handler threw an exception: {}", task, e);
+                    }
+                }
+
+                if (yieldThread) {
+                    // Yield the thread to other lanes.
+                    try {
+                        executor.execute(this);
+                        return;
+                    } catch (RejectedExecutionException e) {
+                        // Executor is shutting down. Drain the rest on this thread.
+                        yieldThread = false;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+import com.linecorp.bot.model.event.Event;
+
+import kotlin.coroutines.Continuation;
+import kotlin.coroutines.CoroutineContext;
+import kotlinx.coroutines.CoroutineStart;
+import kotlinx.coroutines.Dispatchers;
+import kotlinx.coroutines.GlobalScope;
+import kotlinx.coroutines.future.FutureKt;
+
+/**
+ * Starts a Kotlin {@code suspend} handler method as a coroutine.
+ *
+ * <p>This is the only class which refers Kotlin classes. It's loaded only if there's a {@code suspend}
+ * handler method, so Kotlin and kotlinx-coroutines are optional dependencies.
+ */
+final class SuspendHandlerInvoker {
+    private static final MethodHandle INVOKE;
+
+    static {
+        try {
+            INVOKE = MethodHandles.lookup().findVirtual(SuspendHandlerInvoker.class, "invoke",
+                                                        MethodType.methodType(Object.class, Event.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * {@code (Event, Continuation)Object} type.
+     */
+    private final MethodHandle handler;
+    private final CoroutineContext coroutineContext;
+
+    private SuspendHandlerInvoker(final MethodHandle handler, final CoroutineContext coroutineContext) {
+        this.handler = handler;
+        this.coroutineContext = coroutineContext;
+    }
+
+    /**
+     * Create {@link MethodHandle} of {@code (Event)Object} type, which starts given {@code suspend} method
+     * and returns {@link CompletableFuture} of its result.
+     *
+     * @param coroutineContext {@code CoroutineContext} to run the method on. {@code null} for
+     *         {@link Dispatchers#getDefault()}.
+     */
+    static MethodHandle create(final Object consumer, final Method method, final Object coroutineContext) {
+        Preconditions.checkState(coroutineContext == null || coroutineContext instanceof CoroutineContext,
+                                 "%s should be a CoroutineContext. But %s",
+                                 LineMessageHandlerSupport.COROUTINE_CONTEXT_BEAN_NAME, coroutineContext);
+        final MethodType handlerType = MethodType.methodType(Object.class, Event.class, Continuation.class);
+        final MethodHandle handler;
+        try {
+            handler = MethodHandles.lookup()
+                                   .unreflect(method)
+                                   .bindTo(consumer)
+                                   .asType(handlerType);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Can't access handler method: " + method, e);
+        }
+
+        final CoroutineContext context = coroutineContext != null ? (CoroutineContext) coroutineContext
+                                                                  : Dispatchers.getDefault();
+        return INVOKE.bindTo(new SuspendHandlerInvoker(handler, context));
+    }
+
+    Object invoke(final Event event) {
+        // The lambda is called with the Continuation of the coroutine, like a compiled suspend lambda.
+        return FutureKt.future(GlobalScope.INSTANCE, coroutineContext, CoroutineStart.DEFAULT,
+                               (scope, continuation) -> invokeHandler(event, continuation));
+    }
+
+    private Object invokeHandler(final Event event, final Continuation<?> continuation) {
+        try {
+            return (Object) handler.invokeExact(event, continuation);
+        } catch (Throwable t) {
+            Throwables.throwIfUnchecked(t);
+            throw new IllegalStateException(t);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.google.common.base.Preconditions;
+
+import com.linecorp.bot.spring.boot.annotation.TextMapping;
+
+/**
+ * Routes text to the target of the best matching pattern, scanning the text once.
+ *
+ * <p>Prefixes and keywords share one trie. Prefixes are matched by walking the trie from the root, and
+ * keywords by the Aho-Corasick automaton built on the trie. Regular expressions are combined into one
+ * alternation ordered by rank, so the first alternative matching the whole text is the best one. They're
+ * matched one by one instead if they can't be combined, e.g. two of them define the same named group.
+ *
+ * @param <T> type of routing target.
+ * @see TextMapping
+ */
+class TextCommandRouter<T> {
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+    private static final Pattern NUMBERED_BACK_REFERENCE = Pattern.compile("\\\\[1-9]");
+
+    /**
+     * Targets in rank order. Smaller rank is better.
+     */
+    private final List<T> targets;
+    private final Node root;
+    private final int bestContainsRank;
+
+    /**
+     * Combined regular expression. {@code null} if there's no regex or they can't be combined.
+     */
+    private final Pattern combinedRegex;
+
+    /**
+     * Group number in {@link #combinedRegex} of each regex.
+     */
+    private final int[] regexGroups;
+
+    /**
+     * Regular expressions matched one by one if they can't be combined.
+     */
+    private final Pattern[] regexes;
+    private final int[] regexRanks;
+
+    private TextCommandRouter(final List<Route<T>> routes) {
+        targets = new ArrayList<>(routes.size());
+        root = new Node();
+        int bestContainsRank = NO_MATCH;
+        final List<String> regexSources = new ArrayList<>();
+        final List<Integer> regexRankList = new ArrayList<>();
+        for (int rank = 0; rank < routes.size(); ++rank) {
+            final Route<T> route = routes.get(rank);
+            targets.add(route.target);
+            switch (route.kind) {
+                case PREFIX:
+                    final Node prefixNode = root.insert(route.pattern);
+                    prefixNode.prefixRank = Math.min(prefixNode.prefixRank, rank);
+                    break;
+                case CONTAINS:
+                    final Node containsNode = root.insert(route.pattern);
+                    containsNode.containsRank = Math.min(containsNode.containsRank, rank);
+                    bestContainsRank = Math.min(bestContainsRank, rank);
+                    break;
+                case REGEX:
+                    regexSources.add(route.pattern);
+                    regexRankList.add(rank);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown kind: " + route.kind);
+            }
+        }
+        this.bestContainsRank = bestContainsRank;
+        root.freeze();
+        root.buildAsciiChildren();
+        buildFailureLinks(root);
+
+        regexRanks = regexRankList.stream().mapToInt(Integer::intValue).toArray();
+        final Pattern[] patterns = regexSources.stream().map(Pattern::compile).toArray(Pattern[]::new);
+        regexGroups = new int[patterns.length];
+        combinedRegex = combine(patterns, regexGroups);
+        regexes = combinedRegex == null ? patterns : new Pattern[0];
+    }
+
+    /**
+     * Combine regular expressions into one alternation, and set the group number of each to {@code groups}.
+     * Returns {@code null} if there's no regex or they can't be combined.
+     */
+    private static Pattern combine(final Pattern[] patterns, final int[] groups) {
+        if (patterns.length == 0) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder();
+        int group = 1;
+        for (int i = 0; i < patterns.length; ++i) {
+            final String source = patterns[i].pattern();
+            if (NUMBERED_BACK_REFERENCE.matcher(source).find()) {
+                // Group numbers are shifted in the alternation.
+                return null;
+            }
+            if (i > 0) {
+                sb.append('|');
+            }
+            sb.append('(').append(source).append(')');
+            groups[i] = group;
+            group += 1 + patterns[i].matcher("").groupCount();
+        }
+        try {
+            return Pattern.compile(sb.toString());
+        } catch (PatternSyntaxException e) {
+            // e.g. the same named group is defined in more than one regex.
+            return null;
+        }
+    }
+
+    static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Returns the target of the best matching pattern. {@code null} if no pattern matches.
+     */
+    T route(final CharSequence text) {
+        int best = matchPrefix(text);
+        if (bestContainsRank < best) {
+            best = Math.min(best, matchContains(text, best));
+        }
+        if (regexRanks.length > 0 && regexRanks[0] < best) {
+            best = Math.min(best, matchRegex(text));
+        }
+        return best == NO_MATCH ? null : targets.get(best);
+    }
+
+    private int matchPrefix(final CharSequence text) {
+        int best = NO_MATCH;
+        Node node = root;
+        for (int i = 0; i < text.length() && node != null; ++i) {
+            node = node.child(text.charAt(i));
+            if (node != null) {
+                best = Math.min(best, node.prefixRank);
+            }
+        }
+        return best;
+    }
+
+    private int matchContains(final CharSequence text, final int bound) {
+        int best = bound;
+        Node node = root;
+        for (int i = 0; i < text.length(); ++i) {
+            final char c = text.charAt(i);
+            Node next = node.child(c);
+            while (next == null && node != root) {
+                node = node.fail;
+                next = node.child(c);
+            }
+            node = next != null ? next : root;
+            if (node.containsRank < best) {
+                best = node.containsRank;
+                if (best == bestContainsRank) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private int matchRegex(final CharSequence text) {
+        if (combinedRegex != null) {
+            final Matcher matcher = combinedRegex.matcher(text);
+            if (!matcher.matches()) {
+                return NO_MATCH;
+            }
+            for (int i = 0; i < regexGroups.length; ++i) {
+                if (matcher.start(regexGroups[i]) >= 0) {
+                    return regexRanks[i];
+                }
+            }
+            return NO_MATCH;
+        }
+        for (int i = 0; i < regexes.length; ++i) {
+            if (regexes[i].matcher(text).matches()) {
+                return regexRanks[i];
+            }
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * Set failure links in breadth first order, and merge keyword ranks along them, so that each node
+     * knows the best keyword ending at it.
+     */
+    private static void buildFailureLinks(final Node root) {
+        final Queue<Node> queue = new ArrayDeque<>();
+        root.fail = root;
+        for (Node child : root.children) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            final Node node = queue.poll();
+            for (int i = 0; i < node.labels.length; ++i) {
+                final Node child = node.children[i];
+                Node fail = node.fail;
+                Node failChild = fail.child(node.labels[i]);
+                while (failChild == null && fail != root) {
+                    fail = fail.fail;
+                    failChild = fail.child(node.labels[i]);
+                }
+                child.fail = failChild != null && failChild != child ? failChild : root;
+                child.containsRank = Math.min(child.containsRank, child.fail.containsRank);
+                queue.add(child);
+            }
+        }
+    }
+
+    private static final class Node {
+        private static final char[] NO_LABELS = {};
+        private static final Node[] NO_CHILDREN = {};
+        private static final int ASCII_SIZE = 128;
+        private static final int LINEAR_SEARCH_THRESHOLD = 8;
+
+        /**
+         * Used while building. {@code null} after {@link #freeze()}.
+         */
+        private Map<Character, Node> building = new TreeMap<>();
+
+        /**
+         * Sorted labels of children.
+         */
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+
+        /**
+         * Direct lookup table of ASCII children. Only the root has it, because most characters of text
+         * are looked up from the root.
+         */
+        private Node[] asciiChildren;
+        private Node fail;
+        private int prefixRank = NO_MATCH;
+
+        /**
+         * Best rank of keywords ending at this node, including ones reachable by failure links.
+         */
+        private int containsRank = NO_MATCH;
+
+        Node insert(final String pattern) {
+            Node node = this;
+            for (int i = 0; i < pattern.length(); ++i) {
+                node = node.building.computeIfAbsent(pattern.charAt(i), c -> new Node());
+            }
+            return node;
+        }
+
+        void freeze() {
+            if (!building.isEmpty()) {
+                labels = new char[building.size()];
+                children = new Node[building.size()];
+                int i = 0;
+                for (Map.Entry<Character, Node> entry : building.entrySet()) {
+                    labels[i] = entry.getKey();
+                    children[i] = entry.getValue();
+                    entry.getValue().freeze();
+                    ++i;
+                }
+            }
+            building = null;
+        }
+
+        void buildAsciiChildren() {
+            asciiChildren = new Node[ASCII_SIZE];
+            for (int i = 0; i < labels.length; ++i) {
+                if (labels[i] < ASCII_SIZE) {
+                    asciiChildren[labels[i]] = children[i];
+                }
+            }
+        }
+
+        Node child(final char c) {
+            if (asciiChildren != null && c < ASCII_SIZE) {
+                return asciiChildren[c];
+            }
+            final char[] labels = this.labels;
+            if (labels.length <= LINEAR_SEARCH_THRESHOLD) {
+                for (int i = 0; i < labels.length; ++i) {
+                    if (labels[i] == c) {
+                        return children[i];
+                    }
+                }
+                return null;
+            }
+            final int index = Arrays.binarySearch(labels, c);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+
+    enum Kind {
+        PREFIX, CONTAINS, REGEX
+    }
+
+    private static final class Route<T> {
+        private final Kind kind;
+        private final String pattern;
+        private final int priority;
+        private final int order;
+        private final T target;
+
+        Route(final Kind kind, final String pattern, final int priority, final int order, final T target) {
+            this.kind = kind;
+            this.pattern = pattern;
+            this.priority = priority;
+            this.order = order;
+            this.target = target;
+        }
+
+        int specificity() {
+            return kind == Kind.REGEX ? 0 : pattern.length();
+        }
+    }
+
+    static final class Builder<T> {
+        private static final Comparator<Route<?>> RANK_ORDER =
+                Comparator.<Route<?>>comparingInt(route -> -route.priority)
+                        .thenComparing(route -> route.kind)
+                        .thenComparingInt(route -> -route.specificity())
+                        .thenComparingInt(route -> route.order);
+
+        private final List<Route<T>> routes = new ArrayList<>();
+
+        /**
+         * Add a pattern.
+         */
+        Builder<T> add(final Kind kind, final String pattern, final int priority, final T target) {
+            Preconditions.checkArgument(!pattern.isEmpty(), "Empty %s pattern for %s", kind, target);
+            if (kind == Kind.REGEX) {
+                // Fail fast on invalid expressions.
+                Pattern.compile(pattern);
+            }
+            routes.add(new Route<>(kind, pattern, priority, routes.size(), target));
+            return this;
+        }
+
+        boolean isEmpty() {
+            return routes.isEmpty();
+        }
+
+        TextCommandRouter<T> build() {
+            final List<Route<T>> sorted = new ArrayList<>(routes);
+            sorted.sort(RANK_ORDER);
+            return new TextCommandRouter<>(sorted);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.spring.boot.LineBotProperties.Throttle.OverLimitPolicy;
+
+/**
+ * Handles events over the limit of {@link SenderThrottle} instead of handler methods, in case of
+ * {@link OverLimitPolicy#FALLBACK}.
+ *
+ * <p>It's called on the webhook request thread, so keep it cheap, e.g. count the event or reply once with
+ * a fixed message.
+ */
+@FunctionalInterface
+public interface ThrottledEventHandler {
+    void handle(Event event);
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Access to virtual threads (Java 21+) by reflection, so that this library keeps running on Java 8.
+ */
+@Slf4j
+@UtilityClass
+class VirtualThreads {
+    /**
+     * Returns a {@link ThreadFactory} creating virtual threads named {@code prefix + N},
+     * or {@link Optional#empty()} if the JVM doesn't support virtual threads.
+     */
+    Optional<ThreadFactory> threadFactory(final String prefix) {
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            final Method name = builderClass.getMethod("name", String.class, long.class);
+            final Method factory = builderClass.getMethod("factory");
+            return Optional.of((ThreadFactory) factory.invoke(name.invoke(builder, prefix, 0L)));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // NoSuchMethodException before Java 19. Preview feature not enabled on Java 19 and 20.
+            log.debug("Virtual threads are not available.", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns an {@link ExecutorService} starting a new virtual thread named {@code prefix + N} for each task,
+     * or {@link Optional#empty()} if the JVM doesn't support virtual threads.
+     */
+    Optional<ExecutorService> newThreadPerTaskExecutor(final String prefix) {
+        return threadFactory(prefix).flatMap(factory -> {
+            try {
+                final Method method =
+                        Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                return Optional.of((ExecutorService) method.invoke(null, factory));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                log.debug("Thread per task executor is not available.", e);
+                return Optional.empty();
+            }
+        });
+    }
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static com.linecorp.bot.spring.boot.support.WebhookJournalReader.CHECKPOINT_FILE;
+import static com.linecorp.bot.spring.boot.support.WebhookJournalReader.HEADER_FIELDS;
+import static com.linecorp.bot.spring.boot.support.WebhookJournalReader.LENGTH_FIELDS;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.collect.MapMaker;
+
+import com.linecorp.bot.model.event.CallbackRequest;
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.objectmapper.ModelCodecRegistry;
+import com.linecorp.bot.spring.boot.LineBotProperties.Journal;
+import com.linecorp.bot.spring.boot.LineBotProperties.Journal.FsyncPolicy;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only log of webhook request bodies, so that events acknowledged but not processed yet, e.g. queued
+ * in {@code line.bot.handler.async} executor, are processed again after the application restarts.
+ *
+ * <p>Verified request bodies are appended to memory-mapped segment files of
+ * {@link Journal#getSegmentSizeBytes()}. Records survive a crash of the process as soon as they're appended.
+ * {@link FsyncPolicy} controls when they're forced to the disk, to survive a crash of the OS. In case of
+ * {@link FsyncPolicy#ALWAYS}, concurrent webhook requests wait for one force (group commit).
+ *
+ * <p>When all events of a record have been dispatched to handler methods, the record is checkpointed.
+ * Records after the checkpoint are replayed on startup. Segments whose records are all checkpointed are
+ * deleted after {@link Journal#getRetentionMillis()}, and can be read by {@link WebhookJournalReader} until
+ * then.
+ *
+ * <p>An event is regarded as processed when its handler method returns, even if it returns a
+ * {@code CompletableFuture}. Events passed to batch handlers, bulkheads or delayed by {@link SenderThrottle}
+ * are checkpointed when they're processed there. Events dropped by the queue full policy or by
+ * {@link SenderThrottle} are checkpointed when they're dropped. Replayed events aren't rejected by a full
+ * queue, but wait for room.
+ *
+ * <p>Enabled by {@code line.bot.handler.journal.enabled=true}.
+ */
+@Slf4j
+public class WebhookJournal implements Closeable {
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long flushIntervalMillis;
+    private final long retentionMillis;
+    private final Clock clock;
+    private final ObjectReader callbackRequestReader;
+
+    // Guarded by this.
+    private MappedByteBuffer segment;
+    private int position;
+    private long nextSequence;
+
+    /**
+     * Records before this sequence were appended before startup, and are replayed.
+     */
+    private final long replayUntil;
+    private final AtomicBoolean replayed = new AtomicBoolean();
+
+    // Guarded by checkpointBuffer.
+    private final MappedByteBuffer checkpointBuffer;
+    private final TreeSet<Long> completedAboveCheckpoint = new TreeSet<>();
+    private long checkpoint;
+
+    /**
+     * Records of events being processed. Events are compared by identity.
+     */
+    private final ConcurrentMap<Event, Entry> entries = new MapMaker().weakKeys().makeMap();
+
+    private final Object flushLock = new Object();
+    // Guarded by flushLock.
+    private long appendedSequence;
+    private long flushedSequence;
+
+    private volatile boolean closed;
+
+    /**
+     * {@code null} in case of {@link FsyncPolicy#NEVER}.
+     */
+    private final Thread flusher;
+
+    /**
+     * Open journal in {@link Journal#getDirectory()}.
+     */
+    public WebhookJournal(final Journal properties) throws IOException {
+        this(properties, false);
+    }
+
+    /**
+     * Open journal in {@link Journal#getDirectory()}.
+     *
+     * @param fastEventParsing {@code true} to parse replayed requests by
+     *                         {@link ModelCodecRegistry#fastEventReaderFor(java.lang.reflect.Type)}.
+     */
+    public WebhookJournal(final Journal properties, final boolean fastEventParsing) throws IOException {
+        this(properties, fastEventParsing, Clock.systemUTC());
+    }
+
+    WebhookJournal(final Journal properties, final boolean fastEventParsing, final Clock clock)
+            throws IOException {
+        directory = Paths.get(properties.getDirectory());
+        segmentSize = (int) properties.getSegmentSizeBytes();
+        fsyncPolicy = properties.getFsyncPolicy();
+        flushIntervalMillis = properties.getFlushIntervalMillis();
+        retentionMillis = properties.getRetentionMillis();
+        this.clock = clock;
+        callbackRequestReader = fastEventParsing
+                                ? ModelCodecRegistry.getInstance().fastEventReaderFor(CallbackRequest.class)
+                                : ModelCodecRegistry.getInstance().readerFor(CallbackRequest.class);
+
+        Files.createDirectories(directory);
+        try (FileChannel channel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                                                    StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE)) {
+            checkpointBuffer = channel.map(MapMode.READ_WRITE, 0, Long.BYTES);
+        }
+        checkpoint = checkpointBuffer.getLong(0);
+
+        final List<Path> segments = WebhookJournalReader.listSegments(directory);
+        if (segments.isEmpty()) {
+            nextSequence = checkpoint + 1;
+            segment = createSegment(nextSequence, segmentSize);
+        } else {
+            final Path last = segments.get(segments.size() - 1);
+            final long[] lastSequence = { WebhookJournalReader.firstSequence(last) - 1 };
+            position = (int) WebhookJournalReader.scan(last, record -> lastSequence[0] = record.getSequence());
+            nextSequence = lastSequence[0] + 1;
+            try (FileChannel channel = FileChannel.open(last, StandardOpenOption.READ,
+                                                        StandardOpenOption.WRITE)) {
+                segment = channel.map(MapMode.READ_WRITE, 0, channel.size());
+            }
+        }
+        replayUntil = nextSequence;
+        deleteExpiredSegments();
+
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            flusher = new Thread(this::flushLoop, "line-bot-journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Append a verified webhook request body, and track its events until they're processed.
+     *
+     * @param channelId nullable.
+     * @return sequence of the record.
+     */
+    public long append(final String channelId, final byte[] body, final List<Event> events)
+            throws IOException {
+        final byte[] channelIdBytes = channelId != null ? channelId.getBytes(StandardCharsets.UTF_8) : null;
+        final int length = HEADER_FIELDS + (channelIdBytes != null ? channelIdBytes.length : 0) + body.length;
+
+        final long sequence;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            if (position + LENGTH_FIELDS + length > segment.capacity()) {
+                rotate(LENGTH_FIELDS + length);
+            }
+            sequence = nextSequence++;
+
+            final ByteBuffer payload = segment.duplicate();
+            payload.position(position + LENGTH_FIELDS);
+            payload.limit(position + LENGTH_FIELDS + length);
+            payload.putLong(sequence)
+                   .putLong(clock.millis())
+                   .putShort(channelIdBytes != null ? (short) channelIdBytes.length : -1);
+            if (channelIdBytes != null) {
+                payload.put(channelIdBytes);
+            }
+            payload.put(body);
+            payload.position(position + LENGTH_FIELDS);
+
+            // Length is written last, so that a torn record isn't read.
+            segment.putInt(position + Integer.BYTES, WebhookJournalReader.crc32(payload));
+            segment.putInt(position, length);
+            position += LENGTH_FIELDS + length;
+        }
+
+        track(sequence, events);
+        awaitFlush(sequence);
+        return sequence;
+    }
+
+    /**
+     * Mark given event as processed.
+     */
+    public void complete(final Event event) {
+        final Entry entry = entries.remove(event);
+        if (entry != null && entry.pending.decrementAndGet() == 0) {
+            markCompleted(entry.sequence);
+        }
+    }
+
+    /**
+     * Pass events of records appended before startup and not processed yet to {@code dispatcher}.
+     * Only the first call replays.
+     *
+     * @return number of replayed records.
+     */
+    public int replay(final BiConsumer<JournalRecord, List<Event>> dispatcher) throws IOException {
+        if (!replayed.compareAndSet(false, true)) {
+            return 0;
+        }
+        final long from;
+        synchronized (checkpointBuffer) {
+            from = checkpoint + 1;
+        }
+        if (from >= replayUntil) {
+            return 0;
+        }
+
+        final int[] count = { 0 };
+        WebhookJournalReader.open(directory).read(from, record -> {
+            if (record.getSequence() >= replayUntil) {
+                return;
+            }
+            final List<Event> events;
+            try {
+                events = callbackRequestReader.<CallbackRequest>readValue(record.getBody()).getEvents();
+            } catch (IOException | RuntimeException e) {
+                log.error("Skipped broken journal record: {}", record, e);
+                markCompleted(record.getSequence());
+                return;
+            }
+            track(record.getSequence(), events);
+            ++count[0];
+            dispatcher.accept(record, events);
+        });
+        log.info("Replayed {} webhook requests from the journal.", count[0]);
+        return count[0];
+    }
+
+    /**
+     * Returns the sequence of the last record whose events have been processed, or {@code 0}.
+     */
+    public long getCheckpoint() {
+        synchronized (checkpointBuffer) {
+            return checkpoint;
+        }
+    }
+
+    /**
+     * Force records and the checkpoint to the disk, and stop appending.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (flushLock) {
+            closed = true;
+            flushLock.notifyAll();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        force();
+    }
+
+    private void track(final long sequence, final List<Event> events) {
+        final Entry entry = new Entry(sequence);
+        for (Event event : events) {
+            if (entries.put(event, entry) == null) {
+                entry.pending.incrementAndGet();
+            }
+        }
+        if (entry.pending.get() == 0) {
+            markCompleted(sequence);
+        }
+    }
+
+    private void markCompleted(final long sequence) {
+        synchronized (checkpointBuffer) {
+            if (sequence <= checkpoint) {
+                return;
+            }
+            completedAboveCheckpoint.add(sequence);
+            final long before = checkpoint;
+            while (completedAboveCheckpoint.remove(checkpoint + 1)) {
+                ++checkpoint;
+            }
+            if (checkpoint != before) {
+                checkpointBuffer.putLong(0, checkpoint);
+            }
+        }
+    }
+
+    private void awaitFlush(final long sequence) throws InterruptedIOException {
+        if (fsyncPolicy != FsyncPolicy.ALWAYS) {
+            return;
+        }
+        synchronized (flushLock) {
+            appendedSequence = Math.max(appendedSequence, sequence);
+            flushLock.notifyAll();
+            while (flushedSequence < sequence && !closed) {
+                try {
+                    flushLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while flushing the journal");
+                }
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            final long target;
+            synchronized (flushLock) {
+                try {
+                    if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                        while (appendedSequence <= flushedSequence && !closed) {
+                            flushLock.wait();
+                        }
+                    } else if (!closed) {
+                        flushLock.wait(flushIntervalMillis);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed) {
+                    return;
+                }
+                target = appendedSequence;
+            }
+
+            force();
+            synchronized (flushLock) {
+                flushedSequence = Math.max(flushedSequence, target);
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    private void force() {
+        final MappedByteBuffer current;
+        synchronized (this) {
+            current = segment;
+        }
+        current.force();
+        checkpointBuffer.force();
+    }
+
+    /**
+     * Start a new segment. Must be called with the lock of this.
+     */
+    private void rotate(final int minSize) throws IOException {
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            segment.force();
+        }
+        segment = createSegment(nextSequence, Math.max(segmentSize, minSize));
+        position = 0;
+        deleteExpiredSegments();
+    }
+
+    private MappedByteBuffer createSegment(final long firstSequence, final int size) throws IOException {
+        final Path file = directory.resolve(WebhookJournalReader.segmentFileName(firstSequence));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                                                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * Delete segments whose records are all checkpointed, and which are older than the retention.
+     */
+    private void deleteExpiredSegments() throws IOException {
+        final long checkpoint = getCheckpoint();
+        final long expiry = clock.millis() - retentionMillis;
+        final List<Path> segments = WebhookJournalReader.listSegments(directory);
+        // The last segment is the current one.
+        for (int i = 0; i + 1 < segments.size(); ++i) {
+            final Path segment = segments.get(i);
+            if (WebhookJournalReader.firstSequence(segments.get(i + 1)) - 1 > checkpoint) {
+                break;
+            }
+            if (Files.getLastModifiedTime(segment).toMillis() <= expiry) {
+                Files.delete(segment);
+                log.debug("Deleted journal segment: {}", segment);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final long sequence;
+        final AtomicInteger pending = new AtomicInteger();
+
+        Entry(final long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Reads records of a {@link WebhookJournal} directory, e.g. to reprocess webhooks offline.
+ *
+ * <pre>
+ * WebhookJournalReader.open(Paths.get("line-bot-journal"))
+ *                     .read(1, record -&gt; reprocess(record.getBody()));
+ * </pre>
+ *
+ * <p>A segment file {@code <first sequence>.journal} consists of records of the following layout, followed by
+ * zeros.
+ *
+ * <pre>
+ * int   length of the rest of the record
+ * int   CRC32 of the following fields
+ * long  sequence
+ * long  timestamp in epoch milliseconds
+ * short length of channel ID, -1 if null
+ * byte[] channel ID in UTF-8
+ * byte[] request body
+ * </pre>
+ */
+public final class WebhookJournalReader {
+    static final String SEGMENT_SUFFIX = ".journal";
+    static final String CHECKPOINT_FILE = "checkpoint";
+    static final int LENGTH_FIELDS = Integer.BYTES * 2;
+    static final int HEADER_FIELDS = Long.BYTES * 2 + Short.BYTES;
+
+    private final Path directory;
+
+    private WebhookJournalReader(final Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Open journal in given directory.
+     */
+    public static WebhookJournalReader open(final Path directory) {
+        return new WebhookJournalReader(directory);
+    }
+
+    /**
+     * Returns the sequence of the last record whose events have been processed, or {@code 0}.
+     */
+    public long getCheckpoint() throws IOException {
+        try {
+            final byte[] bytes = Files.readAllBytes(directory.resolve(CHECKPOINT_FILE));
+            return bytes.length >= Long.BYTES ? ByteBuffer.wrap(bytes).getLong() : 0;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Read records from given sequence in order. Records deleted by retention are skipped.
+     */
+    public void read(final long fromSequence, final Consumer<JournalRecord> consumer) throws IOException {
+        final List<Path> segments = listSegments(directory);
+        for (int i = 0; i < segments.size(); ++i) {
+            if (i + 1 < segments.size() && firstSequence(segments.get(i + 1)) <= fromSequence) {
+                continue;
+            }
+            scan(segments.get(i), record -> {
+                if (record.getSequence() >= fromSequence) {
+                    consumer.accept(record);
+                }
+            });
+        }
+    }
+
+    static List<Path> listSegments(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                        .sorted((a, b) -> Long.compare(firstSequence(a), firstSequence(b)))
+                        .collect(Collectors.toList());
+        }
+    }
+
+    static long firstSequence(final Path segment) {
+        final String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    static String segmentFileName(final long firstSequence) {
+        return String.format("%020d%s", firstSequence, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Pass records of given segment to the consumer.
+     *
+     * @return position of the end of the last valid record.
+     */
+    static long scan(final Path segment, final Consumer<JournalRecord> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            final ByteBuffer lengths = ByteBuffer.allocate(LENGTH_FIELDS);
+            long position = 0;
+            while (true) {
+                lengths.clear();
+                if (channel.read(lengths, position) < LENGTH_FIELDS) {
+                    return position;
+                }
+                lengths.flip();
+                final int length = lengths.getInt();
+                final int crc = lengths.getInt();
+                if (length < HEADER_FIELDS || position + LENGTH_FIELDS + length > channel.size()) {
+                    // End of records, or a record torn by a crash.
+                    return position;
+                }
+
+                final ByteBuffer payload = ByteBuffer.allocate(length);
+                channel.read(payload, position + LENGTH_FIELDS);
+                payload.flip();
+                if (crc32(payload) != crc) {
+                    return position;
+                }
+                consumer.accept(decode(payload));
+                position += LENGTH_FIELDS + length;
+            }
+        }
+    }
+
+    static int crc32(final ByteBuffer payload) {
+        final CRC32 crc32 = new CRC32();
+        crc32.update(payload.duplicate());
+        return (int) crc32.getValue();
+    }
+
+    private static JournalRecord decode(final ByteBuffer payload) {
+        final long sequence = payload.getLong();
+        final Instant timestamp = Instant.ofEpochMilli(payload.getLong());
+        final short channelIdLength = payload.getShort();
+        String channelId = null;
+        if (channelIdLength >= 0) {
+            final byte[] channelIdBytes = new byte[channelIdLength];
+            payload.get(channelIdBytes);
+            channelId = new String(channelIdBytes, StandardCharsets.UTF_8);
+        }
+        final byte[] body = new byte[payload.remaining()];
+        payload.get(body);
+        return new JournalRecord(sequence, timestamp, channelId, body);
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a webhook request can't be accepted for now, e.g. the queue of {@link AsyncEventDispatcher} is
+ * full. Responded with {@code 503 Service Unavailable}, so that LINE platform redelivers it.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class WebhookRejectedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public WebhookRejectedException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -101,4 +101,34 @@ public class BotPropertiesValidatorTest {
                             .isEqualTo("channelToken should be null if channelTokenSupplyMode = SUPPLIER");
                 });
     }
+
+    @Test
+    public void okForChannelsTest() {
+        // Do
+        Set<ConstraintViolation<LineBotProperties>> constraintViolations =
+                VALIDATOR.validate(new LineBotProperties() {{
+                    final Channel channel = new Channel();
+                    channel.setChannelId("1");
+                    channel.setChannelSecret("SECRET");
+                    channel.setChannelToken("TOKEN");
+                    getChannels().add(channel);
+                }});
+
+        //Verify
+        assertThat(constraintViolations).isEmpty();
+    }
+
+    @Test
+    public void ngForNoChannelTest() {
+        // Do
+        Set<ConstraintViolation<LineBotProperties>> constraintViolations =
+                VALIDATOR.validate(new LineBotProperties());
+
+        //Verify
+        assertThat(constraintViolations)
+                .filteredOn("propertyPath", createPathFromString("channelSecret"))
+                .hasOnlyOneElementSatisfying(violation -> {
+                    assertThat(violation.getMessage()).isEqualTo("channelSecret is null");
+                });
+    }
 }
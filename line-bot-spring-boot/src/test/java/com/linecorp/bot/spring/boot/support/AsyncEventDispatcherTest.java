@@ -0,0 +1,387 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.message.TextMessageContent;
+import com.linecorp.bot.model.event.source.UserSource;
+import com.linecorp.bot.spring.boot.LineBotProperties.AsyncExecutor;
+import com.linecorp.bot.spring.boot.LineBotProperties.AsyncExecutor.QueueFullPolicy;
+import com.linecorp.bot.spring.boot.LineBotProperties.AsyncExecutor.ThreadType;
+import com.linecorp.bot.spring.boot.test.EventTestUtil;
+
+public class AsyncEventDispatcherTest {
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch blocker = new CountDownLatch(1);
+    private final List<Event> handled = new CopyOnWriteArrayList<>();
+    private final Consumer<Event> blockingHandler = event -> {
+        started.countDown();
+        try {
+            blocker.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        handled.add(event);
+    };
+
+    private AsyncEventDispatcher target;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        blocker.countDown();
+        target.shutdown();
+    }
+
+    @Test
+    public void dispatchTest() throws InterruptedException {
+        target = create(QueueFullPolicy.BLOCK, 10);
+        final List<Event> events = Arrays.asList(EventTestUtil.createTextMessage("1"),
+                                                 EventTestUtil.createTextMessage("2"));
+
+        // Do
+        target.dispatch(events, blockingHandler);
+
+        // Verify
+        assertThat(handled).isEmpty();
+        blocker.countDown();
+        target.shutdown();
+        assertThat(handled).containsExactlyElementsOf(events);
+    }
+
+    @Test
+    public void rejectTest() throws InterruptedException {
+        target = create(QueueFullPolicy.REJECT, 1);
+        target.dispatch(singletonList(EventTestUtil.createTextMessage("running")), blockingHandler);
+        started.await();
+        target.dispatch(singletonList(EventTestUtil.createTextMessage("queued")), blockingHandler);
+
+        // Do
+        assertThatThrownBy(() -> target.dispatch(singletonList(EventTestUtil.createTextMessage("rejected")),
+                                                 blockingHandler))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        // Verify
+        assertThat(target.getRejectedCount()).isEqualTo(1);
+        assertThat(target.getQueueSize()).isEqualTo(1);
+        assertThat(target.getOldestEventAge()).isGreaterThan(Duration.ZERO);
+    }
+
+    @Test
+    public void rejectWholeRequestTest() throws InterruptedException {
+        target = create(QueueFullPolicy.REJECT, 3);
+        target.dispatch(singletonList(EventTestUtil.createTextMessage("running")), blockingHandler);
+        started.await();
+        target.dispatch(singletonList(EventTestUtil.createTextMessage("queued")), blockingHandler);
+        final List<Event> events = Arrays.asList(EventTestUtil.createTextMessage("1"),
+                                                 EventTestUtil.createTextMessage("2"),
+                                                 EventTestUtil.createTextMessage("3"));
+
+        // Do
+        assertThatThrownBy(() -> target.dispatch(events, blockingHandler))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        // Verify: no event of the rejected request is enqueued, and the room is still available.
+        assertThat(target.getQueueSize()).isEqualTo(1);
+        target.dispatch(events.subList(0, 2), blockingHandler);
+        assertThat(target.getQueueSize()).isEqualTo(3);
+    }
+
+    @Test
+    public void rejectRequestLargerThanCapacityTest() throws InterruptedException {
+        target = create(QueueFullPolicy.REJECT, 2);
+        final List<Event> events = Arrays.asList(EventTestUtil.createTextMessage("1"),
+                                                 EventTestUtil.createTextMessage("2"),
+                                                 EventTestUtil.createTextMessage("3"));
+
+        // Do: accepted while the queue is empty, rejected otherwise.
+        target.dispatch(events, blockingHandler);
+        started.await();
+        assertThatThrownBy(() -> target.dispatch(events, blockingHandler))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        // Verify
+        assertThat(target.getQueueSize()).isEqualTo(2);
+        blocker.countDown();
+        target.shutdown();
+        assertThat(handled).containsExactlyElementsOf(events);
+    }
+
+    @Test
+    public void dropOldestTest() throws InterruptedException {
+        target = create(QueueFullPolicy.DROP_OLDEST, 1);
+        target.dispatch(singletonList(EventTestUtil.createTextMessage("running")), blockingHandler);
+        started.await();
+        target.dispatch(singletonList(EventTestUtil.createTextMessage("dropped")), blockingHandler);
+
+        // Do
+        target.dispatch(singletonList(EventTestUtil.createTextMessage("queued")), blockingHandler);
+
+        // Verify
+        assertThat(target.getDroppedCount()).isEqualTo(1);
+        blocker.countDown();
+        target.shutdown();
+        assertThat(handled).containsExactly(EventTestUtil.createTextMessage("running"),
+                                            EventTestUtil.createTextMessage("queued"));
+    }
+
+    @Test
+    public void orderedBySourceTest() throws InterruptedException {
+        target = createOrdered(QueueFullPolicy.BLOCK, 100);
+        final List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            events.add(createTextMessage("user" + i % 5, String.valueOf(i)));
+        }
+        final Map<String, List<Integer>> handledBySource = new ConcurrentHashMap<>();
+
+        // Do
+        target.dispatch(events, event -> {
+            final MessageEvent<?> messageEvent = (MessageEvent<?>) event;
+            final String text = ((TextMessageContent) messageEvent.getMessage()).getText();
+            handledBySource.computeIfAbsent(event.getSource().getSenderId(),
+                                            key -> new CopyOnWriteArrayList<>())
+                           .add(Integer.valueOf(text));
+            Thread.yield();
+        });
+        target.shutdown();
+
+        // Verify
+        assertThat(handledBySource).hasSize(5);
+        handledBySource.values().forEach(list -> assertThat(list).hasSize(20).isSorted());
+        assertThat(target.getActiveLaneCount()).isZero();
+    }
+
+    @Test
+    public void hotSourceDoesNotBlockOthersTest() throws InterruptedException {
+        target = createOrdered(QueueFullPolicy.REJECT, 1);
+        final Event hot = createTextMessage("hot", "running");
+        final CountDownLatch otherHandled = new CountDownLatch(1);
+        target.dispatch(singletonList(hot), blockingHandler);
+        started.await();
+        target.dispatch(singletonList(createTextMessage("hot", "queued")), blockingHandler);
+
+        // Do
+        assertThatThrownBy(() -> target.dispatch(singletonList(createTextMessage("hot", "rejected")),
+                                                 blockingHandler))
+                .isInstanceOf(RejectedExecutionException.class);
+        target.dispatch(singletonList(createTextMessage("other", "handled")),
+                        event -> otherHandled.countDown());
+
+        // Verify
+        assertThat(otherHandled.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(target.getRejectedCount()).isEqualTo(1);
+        assertThat(target.getQueueSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void orderedBySourceRejectWholeRequestTest() throws InterruptedException {
+        target = createOrdered(QueueFullPolicy.REJECT, 1);
+        target.dispatch(singletonList(createTextMessage("hot", "running")), blockingHandler);
+        started.await();
+        target.dispatch(singletonList(createTextMessage("hot", "queued")), blockingHandler);
+
+        // Do
+        assertThatThrownBy(() -> target.dispatch(Arrays.asList(createTextMessage("other", "1"),
+                                                               createTextMessage("hot", "2")),
+                                                 blockingHandler))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        // Verify: the event of the other source isn't enqueued either.
+        assertThat(target.getQueueSize()).isEqualTo(1);
+        assertThat(target.getActiveLaneCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void orderedBySourceRejectRequestLargerThanCapacityTest() throws InterruptedException {
+        target = createOrdered(QueueFullPolicy.REJECT, 1);
+        final List<Event> events = Arrays.asList(createTextMessage("hot", "1"),
+                                                 createTextMessage("hot", "2"),
+                                                 createTextMessage("hot", "3"));
+
+        // Do: accepted while the lane has no waiting event, rejected otherwise.
+        target.dispatch(events, blockingHandler);
+        started.await();
+        assertThatThrownBy(() -> target.dispatch(events, blockingHandler))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        // Verify
+        assertThat(target.getQueueSize()).isEqualTo(2);
+        blocker.countDown();
+        target.shutdown();
+        assertThat(handled).containsExactlyElementsOf(events);
+    }
+
+    @Test
+    public void orderedBySourceRejectAfterShutdownTest() throws InterruptedException {
+        target = createOrdered(QueueFullPolicy.REJECT, 10);
+        target.shutdown();
+
+        // Do
+        assertThatThrownBy(() -> target.dispatch(Arrays.asList(createTextMessage("user1", "1"),
+                                                               createTextMessage("user2", "2")),
+                                                 blockingHandler))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        // Verify: neither the rejected event nor the room reserved for the other one is left.
+        assertThat(target.getQueueSize()).isZero();
+        assertThat(target.getActiveLaneCount()).isZero();
+    }
+
+    @Test
+    public void orderedBySourceHandlerExceptionTest() throws InterruptedException {
+        target = createOrdered(QueueFullPolicy.BLOCK, 10);
+        final List<Event> events = Arrays.asList(createTextMessage("user", "throws"),
+                                                 createTextMessage("user", "handled"));
+
+        // Do
+        target.dispatch(events, event -> {
+            if (event == events.get(0)) {
+                throw new IllegalStateException("handler failure");
+            }
+            handled.add(event);
+        });
+        target.shutdown();
+
+        // Verify: the lane keeps draining after the failure.
+        assertThat(handled).containsExactly(events.get(1));
+        assertThat(target.getActiveLaneCount()).isZero();
+    }
+
+    @Test
+    public void virtualThreadTypeTest() throws InterruptedException {
+        final AsyncExecutor properties = new AsyncExecutor();
+        properties.setThreadType(ThreadType.VIRTUAL);
+        target = new AsyncEventDispatcher(properties);
+        final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+        // Do
+        target.dispatch(singletonList(EventTestUtil.createTextMessage("text")),
+                        event -> threads.add(Thread.currentThread()));
+        target.shutdown();
+
+        // Verify: virtual threads are used only if the JVM supports them.
+        assertThat(threads).hasSize(1);
+        assertThat(target.isVirtualThreads())
+                .isEqualTo(VirtualThreads.threadFactory("test-").isPresent())
+                .isEqualTo(isVirtual(threads.get(0)));
+    }
+
+    @Test
+    public void threadPerTaskTest() throws InterruptedException {
+        final AsyncExecutor properties = new AsyncExecutor();
+        properties.setThreads(2);
+        // Stands in for the thread per task executor of virtual threads.
+        target = new AsyncEventDispatcher(properties, Optional.of(Executors.newCachedThreadPool()));
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 20; ++i) {
+            events.add(EventTestUtil.createTextMessage(String.valueOf(i)));
+        }
+
+        // Do
+        target.dispatch(events, event -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.yield();
+            running.decrementAndGet();
+            handled.add(event);
+        });
+        target.shutdown();
+
+        // Verify
+        assertThat(target.isVirtualThreads()).isTrue();
+        assertThat(handled).containsExactlyInAnyOrderElementsOf(events);
+        assertThat(maxRunning.get()).isBetween(1, 2);
+    }
+
+    @Test
+    public void threadPerTaskDropOldestTest() throws InterruptedException {
+        final AsyncExecutor properties = new AsyncExecutor();
+        properties.setThreads(1);
+        properties.setQueueCapacity(1);
+        properties.setQueueFullPolicy(QueueFullPolicy.DROP_OLDEST);
+        target = new AsyncEventDispatcher(properties, Optional.of(Executors.newCachedThreadPool()));
+        target.dispatch(singletonList(EventTestUtil.createTextMessage("running")), blockingHandler);
+        started.await();
+        target.dispatch(singletonList(EventTestUtil.createTextMessage("dropped")), blockingHandler);
+
+        // Do
+        target.dispatch(singletonList(EventTestUtil.createTextMessage("queued")), blockingHandler);
+
+        // Verify
+        assertThat(target.getDroppedCount()).isEqualTo(1);
+        assertThat(target.getActiveCount()).isEqualTo(1);
+        blocker.countDown();
+        target.shutdown();
+        assertThat(handled).containsExactly(EventTestUtil.createTextMessage("running"),
+                                            EventTestUtil.createTextMessage("queued"));
+    }
+
+    private static boolean isVirtual(final Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    private static MessageEvent<TextMessageContent> createTextMessage(final String userId, final String text) {
+        return new MessageEvent<>("replyToken", new UserSource(userId),
+                                  new TextMessageContent("id", text), Instant.EPOCH);
+    }
+
+    private static AsyncEventDispatcher createOrdered(final QueueFullPolicy policy, final int laneCapacity) {
+        final AsyncExecutor properties = new AsyncExecutor();
+        properties.setThreads(4);
+        properties.setOrderedBySource(true);
+        properties.setPartitions(16);
+        properties.setLaneCapacity(laneCapacity);
+        properties.setQueueFullPolicy(policy);
+        return new AsyncEventDispatcher(properties);
+    }
+
+    private static AsyncEventDispatcher create(final QueueFullPolicy policy, final int queueCapacity) {
+        final AsyncExecutor properties = new AsyncExecutor();
+        properties.setThreads(1);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setQueueFullPolicy(policy);
+        return new AsyncEventDispatcher(properties);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.FollowEvent;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.source.UserSource;
+import com.linecorp.bot.spring.boot.test.EventTestUtil;
+
+public class EventDeduplicatorTest {
+    private static final MessageEvent EVENT = EventTestUtil.createTextMessage("text");
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final InMemoryEventDeduplicationStore store =
+            new InMemoryEventDeduplicationStore(Duration.ofMinutes(1), 4, nanoTime::get);
+    private final EventDeduplicator target = new EventDeduplicator(store);
+
+    @Test
+    public void fingerprintTest() {
+        final Event follow = new FollowEvent("replyToken", new UserSource("userId"), Instant.EPOCH);
+
+        assertThat(EventDeduplicator.fingerprint(follow))
+                .isEqualTo(EventDeduplicator.fingerprint(
+                        new FollowEvent("replyToken", new UserSource("userId"), Instant.EPOCH)))
+                .isNotEqualTo(EventDeduplicator.fingerprint(
+                        new FollowEvent("replyToken2", new UserSource("userId"), Instant.EPOCH)))
+                .isNotEqualTo(EventDeduplicator.fingerprint(EVENT));
+    }
+
+    @Test
+    public void dropDuplicateTest() {
+        final Event follow = new FollowEvent("replyToken", new UserSource("userId"), Instant.EPOCH);
+
+        assertThat(target.filter(Arrays.asList(EVENT, follow))).containsExactly(EVENT, follow);
+        assertThat(target.filter(Arrays.asList(EVENT, follow))).isEmpty();
+        assertThat(target.getDuplicateCount()).isEqualTo(2);
+
+        // Forgotten events are processed again.
+        target.forget(Arrays.asList(follow));
+        assertThat(target.filter(Arrays.asList(EVENT, follow))).containsExactly(follow);
+    }
+
+    @Test
+    public void windowTest() {
+        assertThat(store.markSeen("1")).isTrue();
+
+        // Remembered in the previous generation.
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(90));
+        assertThat(store.markSeen("1")).isFalse();
+        assertThat(store.markSeen("2")).isTrue();
+
+        // Forgotten after 2 windows.
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertThat(store.markSeen("1")).isTrue();
+        assertThat(store.markSeen("2")).isFalse();
+    }
+
+    @Test
+    public void maxEntriesTest() {
+        assertThat(store.markSeen("1")).isTrue();
+        assertThat(store.markSeen("2")).isTrue();
+        assertThat(store.markSeen("3")).isTrue();
+        assertThat(store.markSeen("4")).isTrue();
+        assertThat(store.size()).isEqualTo(4);
+
+        // The oldest generation is discarded.
+        assertThat(store.markSeen("5")).isTrue();
+        assertThat(store.size()).isEqualTo(3);
+        assertThat(store.markSeen("3")).isFalse();
+        assertThat(store.markSeen("1")).isTrue();
+    }
+}
@@ -16,43 +16,92 @@
 
 package com.linecorp.bot.spring.boot.support;
 
+import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
 
 import com.google.common.collect.ImmutableMap;
 
+import com.linecorp.bot.model.event.BeaconEvent;
 import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.FollowEvent;
 import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.PostbackEvent;
 import com.linecorp.bot.model.event.ReplyEvent;
+import com.linecorp.bot.model.event.message.StickerMessageContent;
 import com.linecorp.bot.model.event.message.TextMessageContent;
+import com.linecorp.bot.model.event.postback.PostbackContent;
+import com.linecorp.bot.model.event.postback.PostbackData;
+import com.linecorp.bot.model.event.source.UserSource;
 import com.linecorp.bot.model.message.TextMessage;
+import com.linecorp.bot.servlet.WebhookMetrics;
+import com.linecorp.bot.spring.boot.LineBotProperties.AsyncExecutor;
+import com.linecorp.bot.spring.boot.LineBotProperties.AsyncExecutor.QueueFullPolicy;
+import com.linecorp.bot.spring.boot.LineBotProperties.Journal;
+import com.linecorp.bot.spring.boot.LineBotProperties.Journal.FsyncPolicy;
+import com.linecorp.bot.spring.boot.LineBotProperties.ReplyDeadline;
+import com.linecorp.bot.spring.boot.LineBotProperties.ReplyDeadline.ExpiredReplyPolicy;
+import com.linecorp.bot.spring.boot.annotation.Bulkhead;
+import com.linecorp.bot.spring.boot.annotation.EventBatch;
 import com.linecorp.bot.spring.boot.annotation.EventMapping;
 import com.linecorp.bot.spring.boot.annotation.LineMessageHandler;
+import com.linecorp.bot.spring.boot.annotation.PostbackMapping;
+import com.linecorp.bot.spring.boot.annotation.PostbackParam;
+import com.linecorp.bot.spring.boot.annotation.TextMapping;
 import com.linecorp.bot.spring.boot.support.LineMessageHandlerSupport.HandlerMethod;
 import com.linecorp.bot.spring.boot.test.EventTestUtil;
 
+import kotlin.coroutines.Continuation;
+import kotlin.coroutines.intrinsics.IntrinsicsKt;
 import lombok.AllArgsConstructor;
 
 public class LineMessageHandlerSupportTest {
     @Rule
     public final MockitoRule mockitoRule = MockitoJUnit.rule();
 
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Mock
     private ConfigurableApplicationContext applicationContext;
 
@@ -131,6 +180,434 @@ public class LineMessageHandlerSupportTest {
         verify(replyByReturnValueConsumer, times(1)).accept(new TextMessage("Message from Handler method"));
     }
 
+    @Test
+    public void dispatchByEventAndMessageContentTypeTest() {
+        final RecordingHandler handler = new RecordingHandler();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", handler));
+
+        target.refresh();
+
+        // Do
+        target.dispatch(EventTestUtil.createTextMessage("text"));
+        target.dispatch(new MessageEvent<>("replyToken", new UserSource("userId"),
+                                           new StickerMessageContent("id", "1", "2"), Instant.EPOCH));
+        target.dispatch(new FollowEvent("replyToken", new UserSource("userId"), Instant.EPOCH));
+        target.dispatch(EventTestUtil.createTextMessage("text"));
+
+        // Verify
+        assertThat(handler.calls).containsExactly("text", "message", "event", "text");
+    }
+
+    @Test
+    public void dispatchHandlerExceptionTest() {
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", new ThrowingHandler()));
+
+        target.refresh();
+
+        // Do
+        target.dispatch(EventTestUtil.createTextMessage("text"));
+
+        // Verify
+        verify(replyByReturnValueConsumerFactory, never()).createForEvent(any());
+    }
+
+    @Test
+    public void asyncCallbackRejectedTest() {
+        final AsyncEventDispatcher asyncEventDispatcher = mock(AsyncEventDispatcher.class);
+        doThrow(new RejectedExecutionException("Event queue is full"))
+                .when(asyncEventDispatcher).dispatch(any(), any());
+        target.setAsyncEventDispatcher(asyncEventDispatcher);
+
+        // Do
+        assertThatThrownBy(() -> target.callback(singletonList(EventTestUtil.createTextMessage("text"))))
+                .isInstanceOf(WebhookRejectedException.class);
+        assertThat(WebhookRejectedException.class.getAnnotation(ResponseStatus.class).value())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    public void dropOldestWithJournalTest() throws Exception {
+        final BlockingHandler handler = new BlockingHandler();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("handler", handler));
+        target.refresh();
+
+        final AsyncExecutor asyncExecutor = new AsyncExecutor();
+        asyncExecutor.setThreads(1);
+        asyncExecutor.setQueueCapacity(1);
+        asyncExecutor.setQueueFullPolicy(QueueFullPolicy.DROP_OLDEST);
+        final AsyncEventDispatcher asyncEventDispatcher = new AsyncEventDispatcher(asyncExecutor);
+        target.setAsyncEventDispatcher(asyncEventDispatcher);
+
+        final Journal journalProperties = new Journal();
+        journalProperties.setDirectory(temporaryFolder.getRoot().getPath());
+        journalProperties.setFsyncPolicy(FsyncPolicy.NEVER);
+        try (WebhookJournal journal = new WebhookJournal(journalProperties)) {
+            target.setWebhookJournal(journal);
+
+            // Do
+            for (String text : Arrays.asList("1", "2", "3")) {
+                final Event event = EventTestUtil.createTextMessage(text);
+                journal.append(null, "{}".getBytes(StandardCharsets.UTF_8), singletonList(event));
+                target.callback(singletonList(event));
+                // "1" is running, "2" is queued and then dropped by "3".
+                assertThat(handler.started.await(1, TimeUnit.SECONDS)).isTrue();
+            }
+            handler.release.countDown();
+            asyncEventDispatcher.shutdown();
+
+            // Verify
+            assertThat(asyncEventDispatcher.getDroppedCount()).isEqualTo(1);
+            assertThat(handler.texts).containsExactly("1", "3");
+            assertThat(journal.getCheckpoint()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    public void replayJournalWithSharedDeduplicationStoreTest() throws Exception {
+        final RecordingHandler handler = new RecordingHandler();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("handler", handler));
+        target.refresh();
+
+        final EventDeduplicator eventDeduplicator =
+                new EventDeduplicator(new InMemoryEventDeduplicationStore(Duration.ofMinutes(10), 100));
+        target.setEventDeduplicator(eventDeduplicator);
+
+        final Journal journalProperties = new Journal();
+        journalProperties.setDirectory(temporaryFolder.getRoot().getPath());
+        journalProperties.setFsyncPolicy(FsyncPolicy.NEVER);
+        final Event event = EventTestUtil.createTextMessage("replayed");
+        final String body = "{\"events\":[{\"type\":\"message\",\"replyToken\":\"replyToken\","
+                            + "\"source\":{\"type\":\"user\",\"userId\":\"userId\"},"
+                            + "\"timestamp\":1479513600000,"
+                            + "\"message\":{\"type\":\"text\",\"id\":\"id\",\"text\":\"replayed\"}}]}";
+        try (WebhookJournal journal = new WebhookJournal(journalProperties)) {
+            journal.append(null, body.getBytes(StandardCharsets.UTF_8), singletonList(event));
+            // Marked as seen in the shared store, but the process stopped before handling it.
+            assertThat(eventDeduplicator.filter(singletonList(event))).containsExactly(event);
+        }
+
+        try (WebhookJournal journal = new WebhookJournal(journalProperties)) {
+            target.setWebhookJournal(journal);
+
+            // Do
+            target.replayJournal();
+
+            // Verify
+            assertThat(handler.calls).containsExactly("text");
+            assertThat(eventDeduplicator.getDuplicateCount()).isZero();
+            assertThat(journal.getCheckpoint()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void dispatchByTextMappingTest() {
+        final TextHandler handler = new TextHandler();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", handler));
+
+        target.refresh();
+
+        // Do
+        target.dispatch(EventTestUtil.createTextMessage("/help me"));
+        target.dispatch(EventTestUtil.createTextMessage("thanks a lot"));
+        target.dispatch(EventTestUtil.createTextMessage("hello"));
+        target.dispatch(new FollowEvent("replyToken", new UserSource("userId"), Instant.EPOCH));
+
+        // Verify
+        assertThat(handler.calls).containsExactly("help", "thanks", "text", "event");
+    }
+
+    @Test
+    public void dispatchByPostbackMappingTest() {
+        final PostbackHandler handler = new PostbackHandler();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", handler));
+
+        target.refresh();
+
+        // Do
+        target.dispatch(createPostback("action=buy&itemId=12%203"));
+        target.dispatch(createPostback("action=cancel&orderId=9"));
+        target.dispatch(createPostback("action=sell"));
+
+        // Verify
+        assertThat(handler.calls).containsExactly("buy:12 3", "cancel:9:cancel", "event");
+        verify(replyByReturnValueConsumer).accept(new TextMessage("12 3"));
+    }
+
+    private static PostbackEvent createPostback(final String data) {
+        return new PostbackEvent("replyToken", new UserSource("userId"), new PostbackContent(data, null),
+                                 Instant.EPOCH);
+    }
+
+    @Test
+    public void suspendHandlerTest() throws Exception {
+        final SuspendHandler handler = new SuspendHandler();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", handler));
+
+        target.refresh();
+
+        // Do
+        target.dispatch(EventTestUtil.createTextMessage("text"));
+
+        // Verify
+        final ArgumentCaptor<Object> returnValue = ArgumentCaptor.forClass(Object.class);
+        verify(replyByReturnValueConsumer).accept(returnValue.capture());
+        assertThat(returnValue.getValue()).isInstanceOf(CompletableFuture.class);
+        final CompletableFuture<?> future = (CompletableFuture<?>) returnValue.getValue();
+
+        assertThat(handler.suspended.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(future).isNotDone();
+        handler.continuation.resumeWith(new TextMessage("resumed"));
+        assertThat(future.get(1, TimeUnit.SECONDS)).isEqualTo(new TextMessage("resumed"));
+    }
+
+    @Test
+    public void suspendHandlerMetricsTest() throws Exception {
+        final WebhookMetrics webhookMetrics = mock(WebhookMetrics.class);
+        target.setWebhookMetrics(webhookMetrics);
+        final SuspendHandler handler = new SuspendHandler();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", handler));
+
+        target.refresh();
+
+        // Do
+        target.dispatch(EventTestUtil.createTextMessage("text"));
+
+        // Verify
+        final Method method = SuspendHandler.class.getMethod("handle", MessageEvent.class, Continuation.class);
+        assertThat(handler.suspended.await(1, TimeUnit.SECONDS)).isTrue();
+        verify(webhookMetrics, never()).recordHandler(any(), any(), anyLong(), any());
+        verify(replyByReturnValueConsumer).setHandler(method);
+
+        handler.continuation.resumeWith(new TextMessage("resumed"));
+        verify(webhookMetrics, timeout(1000))
+                .recordHandler(eq(method), eq(MessageEvent.class), anyLong(), isNull());
+    }
+
+    @Test
+    public void bulkheadAndBatchHandlerMetricsTest() throws Exception {
+        final WebhookMetrics webhookMetrics = mock(WebhookMetrics.class);
+        target.setWebhookMetrics(webhookMetrics);
+        final BulkheadHandler bulkheadHandler = new BulkheadHandler();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", bulkheadHandler));
+
+        target.refresh();
+
+        // Do
+        target.dispatch(EventTestUtil.createTextMessage("text"));
+        bulkheadHandler.started.await();
+
+        // Verify
+        verify(webhookMetrics, never()).recordHandler(any(), any(), anyLong(), any());
+        bulkheadHandler.blocker.countDown();
+        verify(webhookMetrics, timeout(1000))
+                .recordHandler(eq(BulkheadHandler.class.getMethod("handle", MessageEvent.class)),
+                               eq(MessageEvent.class), anyLong(), isNull());
+
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", new BatchHandler()));
+        target.refresh();
+
+        // Do
+        target.callback(Arrays.asList(EventTestUtil.createTextMessage("1"),
+                                      EventTestUtil.createTextMessage("2")));
+
+        // Verify
+        verify(webhookMetrics).recordHandler(eq(BatchHandler.class.getMethod("handleTexts", List.class)),
+                                             eq(MessageEvent.class), anyLong(), isNull());
+        target.destroy();
+    }
+
+    @Test
+    public void batchHandlerPerRequestTest() {
+        final BatchHandler handler = new BatchHandler();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", handler));
+
+        target.refresh();
+
+        // Do
+        final FollowEvent followEvent = new FollowEvent("replyToken", new UserSource("userId"), Instant.EPOCH);
+        target.callback(Arrays.asList(EventTestUtil.createTextMessage("1"), followEvent,
+                                      EventTestUtil.createTextMessage("2")));
+
+        // Verify
+        assertThat(handler.batches).hasSize(1);
+        assertThat(handler.batches.get(0)).extracting(event -> event.getMessage().getText())
+                                          .containsExactly("1", "2");
+        assertThat(handler.others).containsExactly(followEvent);
+    }
+
+    @Test
+    public void batchHandlerWithMappingsTest() {
+        final MixedBatchHandler handler = new MixedBatchHandler();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", handler));
+
+        target.refresh();
+
+        // Do
+        target.callback(Arrays.asList(EventTestUtil.createTextMessage("/help"),
+                                      createPostback("action=buy&itemId=1"),
+                                      createPostback("action=sell")));
+
+        // Verify: routed once, and dispatched by the route.
+        assertThat(handler.calls).containsExactly("help", "buy:1");
+        assertThat(handler.batches).hasSize(1);
+        assertThat(handler.batches.get(0)).hasSize(1);
+    }
+
+    @Test
+    public void batchHandlerWindowTest() throws InterruptedException {
+        final WindowBatchHandler handler = new WindowBatchHandler();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", handler));
+
+        target.refresh();
+
+        // Do
+        target.callback(Arrays.asList(EventTestUtil.createTextMessage("1"),
+                                      EventTestUtil.createTextMessage("2")));
+        target.callback(Arrays.asList(EventTestUtil.createTextMessage("3"),
+                                      EventTestUtil.createTextMessage("4")));
+
+        // Verify: full batch is delivered immediately, and the rest after the window.
+        assertThat(handler.batchSizes).containsExactly(3);
+        assertThat(handler.delivered.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(handler.batchSizes).containsExactly(3, 1);
+        target.destroy();
+    }
+
+    @Test
+    public void skipHandlerOfExpiredReplyTokenTest() {
+        final RecordingHandler handler = new RecordingHandler();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", handler));
+        final ReplyDeadline replyDeadline = new ReplyDeadline();
+        replyDeadline.setExpiredReplyPolicy(ExpiredReplyPolicy.SKIP_HANDLER);
+        final ReplyDeadlineTracker tracker = new ReplyDeadlineTracker(replyDeadline);
+        target.setReplyDeadlineTracker(tracker);
+
+        target.refresh();
+
+        // Do
+        target.dispatch(EventTestUtil.createTextMessage("text"));
+        target.dispatch(new MessageEvent<>("replyToken", new UserSource("userId"),
+                                           new TextMessageContent("id", "text"), Instant.now()));
+
+        // Verify
+        assertThat(handler.calls).containsExactly("text");
+        assertThat(tracker.getExpiredCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void bulkheadRejectionFallbackTest() throws InterruptedException {
+        final BulkheadHandler handler = new BulkheadHandler();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", handler));
+
+        target.refresh();
+
+        // Do
+        target.dispatch(EventTestUtil.createTextMessage("1"));
+        handler.started.await();
+        target.dispatch(EventTestUtil.createTextMessage("2"));
+
+        // Verify
+        final HandlerBulkhead bulkhead = target.getHandlerBulkheads().get("BulkheadHandler.handle");
+        assertThat(bulkhead.getActiveCount()).isEqualTo(1);
+        assertThat(bulkhead.getRejectedCount()).isEqualTo(1);
+        verify(replyByReturnValueConsumer).accept(new TextMessage("busy: RejectedExecutionException"));
+
+        handler.blocker.countDown();
+        verify(replyByReturnValueConsumer, timeout(1000)).accept(new TextMessage("done"));
+        target.destroy();
+    }
+
+    @Test
+    public void bulkheadTimeoutFallbackTest() {
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bean", new TimeoutHandler()));
+
+        target.refresh();
+
+        // Do
+        target.dispatch(EventTestUtil.createTextMessage("text"));
+
+        // Verify
+        verify(replyByReturnValueConsumer, timeout(1000)).accept(new TextMessage("timeout"));
+        assertThat(target.getHandlerBulkheads().get("TimeoutHandler.handle").getTimeoutCount())
+                .isEqualTo(1);
+        target.destroy();
+    }
+
+    @Test
+    public void generatedRegistryTest() {
+        assertThat(LineMessageHandlerSupport.findRegistry(ReplyHandler.class)).isNotNull();
+        // Private classes can't be referred from generated code. Their methods are collected by reflection.
+        assertThat(LineMessageHandlerSupport.findRegistry(PrivateHandler.class)).isNull();
+
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(ImmutableMap.of("generated", new ReplyHandler("generated"),
+                                            "reflection", new PrivateHandler()));
+
+        target.refresh();
+
+        // Do
+        target.dispatch(EventTestUtil.createTextMessage("text"));
+        target.dispatch(new FollowEvent("replyToken", new UserSource("userId"), Instant.EPOCH));
+
+        // Verify
+        assertThat(target.eventConsumerList).extracting(handlerMethod -> handlerMethod.getHandler().getName())
+                                            .containsExactly("follow", "reply");
+        verify(replyByReturnValueConsumer).accept(new TextMessage("generated"));
+        verify(replyByReturnValueConsumer).accept(new TextMessage("reflection"));
+    }
+
+    @Test
+    public void generatedMappingTest() {
+        assertThat(LineMessageHandlerSupport.findRegistry(MappingHandler.class)).isNotNull();
+        assertThat(LineMessageHandlerSupport.findRegistry(ReflectedMappingHandler.class)).isNull();
+
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("generated", new MappingHandler()));
+        target.refresh();
+        final List<String> generated = describe(target.eventConsumerList);
+
+        // Do
+        target.dispatch(EventTestUtil.createTextMessage("/help"));
+        target.dispatch(createPostback("action=buy"));
+
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("reflection", new ReflectedMappingHandler()));
+        target.refresh();
+
+        // Verify
+        assertThat(generated).containsExactly("beacon:1000:[BeaconEvent]",
+                                              "text:300:[MessageEvent<TextMessageContent>]",
+                                              "message:200:[MessageEvent]",
+                                              "event:0:[Event]");
+        assertThat(describe(target.eventConsumerList)).isEqualTo(generated);
+        verify(replyByReturnValueConsumer).accept(new TextMessage("help"));
+        verify(replyByReturnValueConsumer).accept(new TextMessage("buy"));
+    }
+
+    private static List<String> describe(final List<HandlerMethod> handlerMethods) {
+        return handlerMethods.stream()
+                             .map(handlerMethod -> handlerMethod.getHandler().getName() + ':'
+                                                   + handlerMethod.getPriority() + ':'
+                                                   + handlerMethod.getSupportType())
+                             .collect(Collectors.toList());
+    }
+
     @LineMessageHandler
     public static class MessageHandler {
         @EventMapping
@@ -149,6 +626,193 @@ public class LineMessageHandlerSupportTest {
         }
     }
 
+    @LineMessageHandler
+    public static class RecordingHandler {
+        private final List<String> calls = new ArrayList<>();
+
+        @EventMapping
+        public void handleText(MessageEvent<TextMessageContent> event) {
+            calls.add("text");
+        }
+
+        @EventMapping
+        public void handleMessage(MessageEvent event) {
+            calls.add("message");
+        }
+
+        @EventMapping
+        public void handleEvent(Event event) {
+            calls.add("event");
+        }
+    }
+
+    @LineMessageHandler
+    public static class BlockingHandler {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> texts = new CopyOnWriteArrayList<>();
+
+        @EventMapping
+        public void handleText(final MessageEvent<TextMessageContent> event) throws InterruptedException {
+            started.countDown();
+            release.await();
+            texts.add(event.getMessage().getText());
+        }
+    }
+
+    @LineMessageHandler
+    public static class ThrowingHandler {
+        @EventMapping
+        public TextMessage handle(Event event) {
+            throw new IllegalStateException("Handler failure");
+        }
+    }
+
+    @LineMessageHandler
+    public static class TextHandler {
+        private final List<String> calls = new ArrayList<>();
+
+        @TextMapping(prefix = "/help")
+        public void help(MessageEvent<TextMessageContent> event) {
+            calls.add("help");
+        }
+
+        @TextMapping(contains = { "thanks", "thank you" })
+        public void thanks(MessageEvent<TextMessageContent> event) {
+            calls.add("thanks");
+        }
+
+        @EventMapping
+        public void handleText(MessageEvent<TextMessageContent> event) {
+            calls.add("text");
+        }
+
+        @EventMapping
+        public void handleEvent(Event event) {
+            calls.add("event");
+        }
+    }
+
+    @LineMessageHandler
+    public static class PostbackHandler {
+        private final List<String> calls = new ArrayList<>();
+
+        @PostbackMapping("action=buy")
+        public TextMessage buy(PostbackEvent event, @PostbackParam("itemId") String itemId) {
+            calls.add("buy:" + itemId);
+            return new TextMessage(itemId);
+        }
+
+        @PostbackMapping({ "action=cancel", "orderId" })
+        public void cancel(@PostbackParam("orderId") String orderId, PostbackData data, Event event) {
+            calls.add("cancel:" + orderId + ':' + data.get("action"));
+        }
+
+        @EventMapping
+        public void handleEvent(Event event) {
+            calls.add("event");
+        }
+    }
+
+    @LineMessageHandler
+    public static class SuspendHandler {
+        private final CountDownLatch suspended = new CountDownLatch(1);
+        private volatile Continuation<? super TextMessage> continuation;
+
+        /**
+         * Same as compiled {@code suspend fun handle(event: MessageEvent<TextMessageContent>): TextMessage}.
+         */
+        @EventMapping
+        public Object handle(MessageEvent<TextMessageContent> event,
+                             Continuation<? super TextMessage> continuation) {
+            this.continuation = continuation;
+            suspended.countDown();
+            return IntrinsicsKt.getCOROUTINE_SUSPENDED();
+        }
+    }
+
+    @LineMessageHandler
+    public static class BatchHandler {
+        private final List<List<MessageEvent<TextMessageContent>>> batches = new ArrayList<>();
+        private final List<Event> others = new ArrayList<>();
+
+        @EventMapping
+        public void handleTexts(List<MessageEvent<TextMessageContent>> events) {
+            batches.add(events);
+        }
+
+        @EventMapping
+        public void handleEvent(Event event) {
+            others.add(event);
+        }
+    }
+
+    @LineMessageHandler
+    public static class MixedBatchHandler {
+        private final List<String> calls = new ArrayList<>();
+        private final List<List<Event>> batches = new ArrayList<>();
+
+        @TextMapping(prefix = "/help")
+        public void help(MessageEvent<TextMessageContent> event) {
+            calls.add("help");
+        }
+
+        @PostbackMapping("action=buy")
+        public void buy(PostbackEvent event, @PostbackParam("itemId") String itemId) {
+            calls.add("buy:" + itemId);
+        }
+
+        @EventMapping
+        public void handleEvents(List<Event> events) {
+            batches.add(events);
+        }
+    }
+
+    @LineMessageHandler
+    public static class WindowBatchHandler {
+        private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        private final CountDownLatch delivered = new CountDownLatch(2);
+
+        @EventMapping
+        @EventBatch(windowMillis = 100, maxSize = 3)
+        public void handle(List<Event> events) {
+            batchSizes.add(events.size());
+            delivered.countDown();
+        }
+    }
+
+    @LineMessageHandler
+    public static class BulkheadHandler {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch blocker = new CountDownLatch(1);
+
+        @EventMapping
+        @Bulkhead(maxConcurrency = 1, fallback = "busy")
+        public TextMessage handle(MessageEvent<TextMessageContent> event) throws InterruptedException {
+            started.countDown();
+            blocker.await();
+            return new TextMessage("done");
+        }
+
+        public TextMessage busy(MessageEvent<TextMessageContent> event, Throwable cause) {
+            return new TextMessage("busy: " + cause.getClass().getSimpleName());
+        }
+    }
+
+    @LineMessageHandler
+    public static class TimeoutHandler {
+        @EventMapping
+        @Bulkhead(maxConcurrency = 1, timeoutMillis = 100, fallback = "timeout")
+        public TextMessage handle(Event event) throws InterruptedException {
+            new CountDownLatch(1).await();
+            return new TextMessage("done");
+        }
+
+        public TextMessage timeout(Event event) {
+            return new TextMessage("timeout");
+        }
+    }
+
     @LineMessageHandler
     @AllArgsConstructor
     public static class ReplyHandler {
@@ -159,4 +823,48 @@ public class LineMessageHandlerSupportTest {
             return new TextMessage(replyMessage);
         }
     }
+
+    @LineMessageHandler
+    public static class MappingHandler {
+        @EventMapping
+        public void event(final Event event) {
+        }
+
+        @EventMapping
+        public void message(final MessageEvent event) {
+        }
+
+        @EventMapping
+        public void text(final MessageEvent<TextMessageContent> event) {
+        }
+
+        @EventMapping(priority = 1000)
+        public void beacon(final BeaconEvent event) {
+        }
+
+        @TextMapping(prefix = "/help")
+        public TextMessage help(final MessageEvent<TextMessageContent> event) {
+            return new TextMessage("help");
+        }
+
+        @PostbackMapping("action=buy")
+        public TextMessage buy(final PostbackEvent event) {
+            return new TextMessage("buy");
+        }
+    }
+
+    /**
+     * Same mappings as {@link MappingHandler}, which are resolved by reflection.
+     */
+    @LineMessageHandler
+    private static class ReflectedMappingHandler extends MappingHandler {
+    }
+
+    @LineMessageHandler
+    private static class PrivateHandler {
+        @EventMapping
+        public TextMessage follow(final FollowEvent event) {
+            return new TextMessage("reflection");
+        }
+    }
 }
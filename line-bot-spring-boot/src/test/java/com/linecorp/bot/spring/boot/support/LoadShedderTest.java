@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.linecorp.bot.spring.boot.LineBotProperties.LoadShedding;
+import com.linecorp.bot.spring.boot.support.LoadShedder.State;
+
+public class LoadShedderTest {
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    @Test
+    public void inFlightRequestsTest() {
+        final LoadShedder target = create(0.5);
+
+        assertThat(target.tryAcquire()).isTrue();
+        assertThat(target.tryAcquire()).isTrue();
+        assertThat(target.getState()).isEqualTo(State.NORMAL);
+
+        assertThat(target.tryAcquire()).isTrue();
+        assertThat(target.getState()).isEqualTo(State.SHEDDING);
+
+        // Rejection probability is 0.2 at pressure 0.6, and 0.6 at pressure 0.8. Random is 0.5.
+        assertThat(target.tryAcquire()).isTrue();
+        assertThat(target.tryAcquire()).isFalse();
+        assertThat(target.getInFlightRequests()).isEqualTo(4);
+
+        target.release();
+        assertThat(target.tryAcquire()).isTrue();
+        assertThat(target.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void queueDepthTest() {
+        final LoadShedder target = create(0);
+
+        queueDepth.set(100);
+        assertThat(target.getState()).isEqualTo(State.OVERLOADED);
+        assertThat(target.tryAcquire()).isFalse();
+
+        queueDepth.set(10);
+        assertThat(target.getPressure()).isEqualTo(0.1);
+        assertThat(target.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void handlerLatencyTest() {
+        final LoadShedder target = create(0);
+
+        target.recordHandlerLatency(TimeUnit.SECONDS.toNanos(2));
+        assertThat(target.getHandlerLatency()).isEqualTo(Duration.ofSeconds(2));
+        assertThat(target.tryAcquire()).isFalse();
+
+        // Moving average.
+        target.recordHandlerLatency(0);
+        assertThat(target.getHandlerLatency()).isEqualTo(Duration.ofMillis(1750));
+        assertThat(target.getState()).isEqualTo(State.SHEDDING);
+
+        // Recovers if no handler completes, e.g. all requests are rejected.
+        target.recordHandlerLatency(TimeUnit.SECONDS.toNanos(10));
+        assertThat(target.getState()).isEqualTo(State.OVERLOADED);
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertThat(target.getHandlerLatency()).isEqualTo(Duration.ZERO);
+        assertThat(target.getState()).isEqualTo(State.NORMAL);
+    }
+
+    private LoadShedder create(final double random) {
+        final LoadShedding properties = new LoadShedding();
+        properties.setMaxInFlightRequests(5);
+        properties.setMaxQueueDepth(100);
+        properties.setMaxHandlerLatencyMillis(2000);
+        properties.setSheddingThreshold(0.5);
+        return new LoadShedder(properties, queueDepth::get, nanoTime::get, () -> random);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class MicrometerWebhookGaugesTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MicrometerWebhookGauges target = new MicrometerWebhookGauges(meterRegistry);
+
+    @Test
+    public void loadShedderTest() {
+        final LoadShedder loadShedder = mock(LoadShedder.class);
+        when(loadShedder.getInFlightRequests()).thenReturn(3);
+        when(loadShedder.getRejectedCount()).thenReturn(2L);
+
+        // Do
+        target.bindTo(loadShedder);
+
+        // Verify
+        assertThat(meterRegistry.get(MicrometerWebhookGauges.IN_FLIGHT).gauge().value()).isEqualTo(3);
+        assertThat(meterRegistry.get(MicrometerWebhookGauges.SHED).functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void pressureTest() {
+        final LoadShedder loadShedder = mock(LoadShedder.class);
+        when(loadShedder.getPressure()).thenReturn(0.75);
+
+        // Do
+        target.bindTo(loadShedder);
+
+        // Verify
+        assertThat(meterRegistry.get(MicrometerWebhookGauges.PRESSURE).gauge().value()).isEqualTo(0.75);
+    }
+
+    @Test
+    public void asyncEventDispatcherTest() {
+        final AsyncEventDispatcher dispatcher = mock(AsyncEventDispatcher.class);
+        when(dispatcher.getQueueSize()).thenReturn(5);
+        when(dispatcher.getOldestEventAge()).thenReturn(Duration.ofMillis(300));
+        when(dispatcher.getActiveCount()).thenReturn(4);
+        when(dispatcher.getRejectedCount()).thenReturn(2L);
+        when(dispatcher.getDroppedCount()).thenReturn(1L);
+
+        // Do
+        target.bindTo(dispatcher);
+
+        // Verify
+        assertThat(meterRegistry.get(MicrometerWebhookGauges.QUEUE_SIZE).gauge().value()).isEqualTo(5);
+        assertThat(meterRegistry.get(MicrometerWebhookGauges.QUEUE_OLDEST_AGE).timeGauge()
+                                .value(TimeUnit.MILLISECONDS)).isEqualTo(300);
+        assertThat(meterRegistry.get(MicrometerWebhookGauges.ACTIVE).gauge().value()).isEqualTo(4);
+        assertThat(meterRegistry.get(MicrometerWebhookGauges.REJECTED).functionCounter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get(MicrometerWebhookGauges.DROPPED).functionCounter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void replyDeadlineTrackerTest() {
+        final ReplyDeadlineTracker tracker = mock(ReplyDeadlineTracker.class);
+        when(tracker.getExpiredCount()).thenReturn(7L);
+
+        // Do
+        target.bindTo(tracker);
+
+        // Verify
+        assertThat(meterRegistry.get(MicrometerWebhookGauges.REPLY_EXPIRED).functionCounter().count())
+                .isEqualTo(7);
+    }
+
+    @Test
+    public void bulkheadTest() {
+        final LineMessageHandlerSupport support = mock(LineMessageHandlerSupport.class);
+        final HandlerBulkhead bulkhead = mock(HandlerBulkhead.class);
+        when(bulkhead.getActiveCount()).thenReturn(1);
+        when(bulkhead.getRejectedCount()).thenReturn(4L);
+        final Map<String, HandlerBulkhead> bulkheads = singletonMap("Handler.handle", bulkhead);
+        when(support.getHandlerBulkheads()).thenReturn(bulkheads);
+
+        // Do
+        target.bindTo(support);
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<Consumer<Map<String, HandlerBulkhead>>> listener =
+                ArgumentCaptor.forClass(Consumer.class);
+        verify(support).addHandlerBulkheadListener(listener.capture());
+        listener.getValue().accept(bulkheads);
+
+        // Verify
+        assertThat(meterRegistry.get(MicrometerWebhookGauges.BULKHEAD_ACTIVE)
+                                .tag("bulkhead", "Handler.handle")
+                                .gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get(MicrometerWebhookGauges.BULKHEAD_REJECTED)
+                                .tag("bulkhead", "Handler.handle")
+                                .functionCounter().count()).isEqualTo(4);
+
+        // Removed on refresh.
+        when(support.getHandlerBulkheads()).thenReturn(singletonMap("Other.handle", bulkhead));
+        assertThat(meterRegistry.get(MicrometerWebhookGauges.BULKHEAD_ACTIVE)
+                                .tag("bulkhead", "Handler.handle")
+                                .gauge().value()).isZero();
+    }
+}
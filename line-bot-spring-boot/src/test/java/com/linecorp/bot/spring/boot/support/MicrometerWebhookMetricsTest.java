@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.linecorp.bot.model.event.FollowEvent;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.servlet.WebhookMetrics.Stage;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class MicrometerWebhookMetricsTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MicrometerWebhookMetrics target = new MicrometerWebhookMetrics(meterRegistry);
+
+    @Test
+    public void stageTest() {
+        target.recordStage(Stage.VERIFY, TimeUnit.MILLISECONDS.toNanos(3));
+
+        final Timer timer = meterRegistry.get(MicrometerWebhookMetrics.STAGE_TIMER)
+                                         .tag("stage", "verify")
+                                         .timer();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(3);
+        assertThat(meterRegistry.get(MicrometerWebhookMetrics.STAGE_TIMER)
+                                .tag("stage", "parse")
+                                .timer().count()).isZero();
+    }
+
+    @Test
+    public void handlerTest() throws Exception {
+        final Method handler = MicrometerWebhookMetricsTest.class.getMethod("handlerTest");
+        target.recordHandler(handler, MessageEvent.class, 100, null);
+        target.recordHandler(handler, MessageEvent.class, 100, null);
+        target.recordHandler(handler, FollowEvent.class, 100, new IllegalStateException());
+
+        assertThat(meterRegistry.get(MicrometerWebhookMetrics.HANDLER_TIMER)
+                                .tag("handler", "MicrometerWebhookMetricsTest.handlerTest")
+                                .tag("event", "MessageEvent")
+                                .tag("outcome", "success")
+                                .timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(MicrometerWebhookMetrics.HANDLER_TIMER)
+                                .tag("event", "FollowEvent")
+                                .tag("outcome", "error")
+                                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void replyTest() {
+        target.recordReply(MessageEvent.class, 100, new IllegalStateException());
+
+        assertThat(meterRegistry.get(MicrometerWebhookMetrics.REPLY_TIMER)
+                                .tag("event", "MessageEvent")
+                                .tag("outcome", "error")
+                                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void replyByHandlerTest() throws Exception {
+        final Method handler = MicrometerWebhookMetricsTest.class.getMethod("replyByHandlerTest");
+        target.recordReply(handler, MessageEvent.class, 100, null);
+        target.recordReply(MessageEvent.class, 100, null);
+
+        assertThat(meterRegistry.get(MicrometerWebhookMetrics.REPLY_TIMER)
+                                .tag("handler", "MicrometerWebhookMetricsTest.replyByHandlerTest")
+                                .tag("event", "MessageEvent")
+                                .tag("outcome", "success")
+                                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(MicrometerWebhookMetrics.REPLY_TIMER)
+                                .tag("handler", "none")
+                                .tag("outcome", "success")
+                                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void replyLatencyTest() {
+        target.recordReplyLatency(MessageEvent.class, TimeUnit.SECONDS.toNanos(2));
+
+        final Timer timer = meterRegistry.get(MicrometerWebhookMetrics.REPLY_LATENCY_TIMER)
+                                         .tag("event", "MessageEvent")
+                                         .timer();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(timer.totalTime(TimeUnit.SECONDS)).isEqualTo(2);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import com.linecorp.bot.model.event.postback.PostbackData;
+
+public class PostbackRouterTest {
+    @Test
+    public void routeTest() {
+        final PostbackRouter<String> target = PostbackRouter.<String>builder()
+                .add(new String[] { "action=buy" }, 0, "buy")
+                .add(new String[] { "action=buy", "itemId" }, 0, "buyItem")
+                .add(new String[] { "action=cancel" }, 0, "cancel")
+                .add(new String[] { "menu" }, 0, "menu")
+                .build();
+
+        assertThat(target.route(PostbackData.parse("action=buy"))).isEqualTo("buy");
+        // More conditions win.
+        assertThat(target.route(PostbackData.parse("itemId=1&action=buy"))).isEqualTo("buyItem");
+        assertThat(target.route(PostbackData.parse("action=cancel&menu"))).isEqualTo("cancel");
+        assertThat(target.route(PostbackData.parse("menu=top"))).isEqualTo("menu");
+        assertThat(target.route(PostbackData.parse("action=sell"))).isNull();
+        assertThat(target.route(PostbackData.parse(""))).isNull();
+    }
+
+    @Test
+    public void priorityTest() {
+        final PostbackRouter<String> target = PostbackRouter.<String>builder()
+                .add(new String[] { "action=buy", "itemId" }, 0, "buyItem")
+                .add(new String[] { "action" }, 10, "anyAction")
+                .add(new String[] { "type=a" }, 0, "typeA")
+                .add(new String[] { "type=a" }, 0, "typeA2")
+                .build();
+
+        assertThat(target.route(PostbackData.parse("action=buy&itemId=1"))).isEqualTo("anyAction");
+        // First registered one wins within the same rank.
+        assertThat(target.route(PostbackData.parse("type=a"))).isEqualTo("typeA");
+    }
+}
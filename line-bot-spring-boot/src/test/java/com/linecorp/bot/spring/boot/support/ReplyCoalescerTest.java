@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import com.linecorp.bot.client.LineMessagingClient;
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.ReplyMessage;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.message.TextMessageContent;
+import com.linecorp.bot.model.event.source.UserSource;
+import com.linecorp.bot.model.message.Message;
+import com.linecorp.bot.model.message.TextMessage;
+import com.linecorp.bot.model.response.BotApiResponse;
+import com.linecorp.bot.spring.boot.test.EventTestUtil;
+
+public class ReplyCoalescerTest {
+    private static final MessageEvent EVENT = EventTestUtil.createTextMessage("text");
+
+    @Rule
+    public final MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private LineMessagingClient lineMessagingClient;
+
+    private ReplyCoalescer target;
+    private ReplyByReturnValueConsumer.Factory consumerFactory;
+
+    @Before
+    public void setUp() {
+        final CompletableFuture<BotApiResponse> success =
+                CompletableFuture.completedFuture(new BotApiResponse("success", null));
+        when(lineMessagingClient.replyMessage(any())).thenReturn(success);
+        when(lineMessagingClient.pushMessage(any())).thenReturn(success);
+
+        target = new ReplyCoalescer(lineMessagingClient, Duration.ofMillis(100));
+        consumerFactory = new ReplyByReturnValueConsumer.Factory(lineMessagingClient);
+        consumerFactory.setReplyCoalescer(target);
+    }
+
+    @After
+    public void tearDown() {
+        target.shutdown();
+    }
+
+    @Test
+    public void mergeSinkAndReturnValueTest() {
+        final ReplySink sink = target.sinkFor(EVENT);
+        sink.add(new TextMessage("1"));
+
+        // Do
+        final CompletableFuture<Message> returnValue = new CompletableFuture<>();
+        consumerFactory.createForEvent(EVENT).accept(returnValue);
+        sink.add(new TextMessage("2"));
+        returnValue.complete(new TextMessage("3"));
+
+        // Verify: held until the sink is closed.
+        verify(lineMessagingClient, never()).replyMessage(any());
+
+        sink.close();
+        verify(lineMessagingClient).replyMessage(new ReplyMessage(EVENT.getReplyToken(), asList(
+                new TextMessage("1"), new TextMessage("2"), new TextMessage("3"))));
+        assertThat(target.getReplyCount()).isEqualTo(1);
+        assertThat(target.getPushCount()).isZero();
+    }
+
+    @Test
+    public void spillOverToPushTest() {
+        final List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 7; ++i) {
+            messages.add(new TextMessage(String.valueOf(i)));
+        }
+
+        // Do
+        consumerFactory.createForEvent(EVENT).accept(messages);
+
+        // Verify
+        verify(lineMessagingClient).replyMessage(new ReplyMessage(EVENT.getReplyToken(),
+                                                                  messages.subList(0, 5)));
+        verify(lineMessagingClient).pushMessage(new PushMessage(EVENT.getSource().getSenderId(),
+                                                                messages.subList(5, 7)));
+    }
+
+    @Test
+    public void flushOnWindowTest() {
+        final ReplySink sink = target.sinkFor(EVENT);
+        sink.add(new TextMessage("partial"));
+        consumerFactory.createForEvent(EVENT).accept(null);
+
+        // Verify: the sink is never closed.
+        verify(lineMessagingClient, timeout(1000)).replyMessage(
+                new ReplyMessage(EVENT.getReplyToken(), singletonList(new TextMessage("partial"))));
+
+        // Do: late message
+        sink.add(new TextMessage("late"));
+
+        // Verify
+        verify(lineMessagingClient).pushMessage(new PushMessage(EVENT.getSource().getSenderId(),
+                                                                singletonList(new TextMessage("late"))));
+    }
+
+    @Test
+    public void noMessageTest() {
+        // Do
+        consumerFactory.createForEvent(EVENT).accept(null);
+
+        // Verify
+        verify(lineMessagingClient, never()).replyMessage(any());
+        verify(lineMessagingClient, never()).pushMessage(any());
+    }
+
+    @Test
+    public void nullReplyTokenTest() {
+        final MessageEvent<TextMessageContent> event =
+                new MessageEvent<>(null, new UserSource("userId"), new TextMessageContent("id", "text"),
+                                   Instant.EPOCH);
+        final ReplySink sink = target.sinkFor(event);
+
+        // Do
+        sink.add(new TextMessage("sink"));
+        consumerFactory.createForEvent(event).accept(new TextMessage("returned"));
+        sink.close();
+
+        // Verify: nothing to reply with, so messages are pushed.
+        verify(lineMessagingClient, never()).replyMessage(any());
+        verify(lineMessagingClient).pushMessage(new PushMessage("userId",
+                                                                singletonList(new TextMessage("sink"))));
+        verify(lineMessagingClient).pushMessage(new PushMessage("userId",
+                                                                singletonList(new TextMessage("returned"))));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.linecorp.bot.client.LineMessagingClient;
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.event.FollowEvent;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.UnfollowEvent;
+import com.linecorp.bot.model.event.source.UserSource;
+import com.linecorp.bot.model.message.TextMessage;
+import com.linecorp.bot.model.response.BotApiResponse;
+import com.linecorp.bot.servlet.WebhookMetrics;
+import com.linecorp.bot.spring.boot.LineBotProperties.ReplyDeadline;
+import com.linecorp.bot.spring.boot.test.EventTestUtil;
+
+public class ReplyDeadlineTrackerTest {
+    private static final MessageEvent EVENT = EventTestUtil.createTextMessage("text");
+
+    @Test
+    public void deadlineTest() {
+        final ReplyDeadlineTracker target = create(Duration.ofSeconds(57));
+
+        // Verify: 1 minute TTL with 2 seconds safety margin.
+        assertThat(target.getDeadline(EVENT)).isEqualTo(EVENT.getTimestamp().plus(Duration.ofMinutes(1)));
+        assertThat(target.isExpired(EVENT)).isFalse();
+        assertThat(create(Duration.ofSeconds(59)).isExpired(EVENT)).isTrue();
+        assertThat(target.isExpired(new UnfollowEvent(new UserSource("userId"), EVENT.getTimestamp())))
+                .isFalse();
+    }
+
+    @Test
+    public void replyLatencyTest() {
+        final ReplyDeadlineTracker target = create(Duration.ofMillis(300));
+
+        // Do
+        target.recordReply(EVENT);
+        target.recordReply(new FollowEvent("replyToken", new UserSource("userId"), EVENT.getTimestamp()));
+
+        // Verify
+        final LatencyHistogram histogram = target.getReplyLatency();
+        assertThat(histogram.getCount()).isEqualTo(2);
+        assertThat(histogram.getTotal()).isEqualTo(Duration.ofMillis(600));
+        assertThat(histogram.getCounts()[5]).isEqualTo(2);
+        assertThat(histogram.getBucketBoundsMillis()[5]).isEqualTo(500);
+    }
+
+    @Test
+    public void replyLatencyMetricsTest() {
+        final ReplyDeadlineTracker target = create(Duration.ofMillis(300));
+        final WebhookMetrics webhookMetrics = mock(WebhookMetrics.class);
+        target.setWebhookMetrics(webhookMetrics);
+
+        // Do
+        target.recordReply(EVENT);
+
+        // Verify
+        verify(webhookMetrics).recordReplyLatency(MessageEvent.class, TimeUnit.MILLISECONDS.toNanos(300));
+    }
+
+    @Test
+    public void expiredReplyIsPushedTest() {
+        final LineMessagingClient lineMessagingClient = mock(LineMessagingClient.class);
+        when(lineMessagingClient.pushMessage(any()))
+                .thenReturn(CompletableFuture.completedFuture(new BotApiResponse("success", null)));
+        final ReplyDeadlineTracker tracker = create(Duration.ofMinutes(2));
+        final ReplyByReturnValueConsumer.Factory factory =
+                new ReplyByReturnValueConsumer.Factory(lineMessagingClient);
+        factory.setReplyDeadlineTracker(tracker);
+
+        // Do
+        factory.createForEvent(EVENT).accept(new TextMessage("late"));
+
+        // Verify
+        verify(lineMessagingClient, never()).replyMessage(any());
+        verify(lineMessagingClient).pushMessage(new PushMessage("userId",
+                                                                singletonList(new TextMessage("late"))));
+        assertThat(tracker.getExpiredCount()).isEqualTo(1);
+        assertThat(tracker.getReplyLatency().getCount()).isZero();
+    }
+
+    private static ReplyDeadlineTracker create(final Duration elapsed) {
+        return new ReplyDeadlineTracker(new ReplyDeadline(),
+                                        Clock.fixed(EVENT.getTimestamp().plus(elapsed), ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.FollowEvent;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.source.UserSource;
+import com.linecorp.bot.spring.boot.LineBotProperties.Throttle;
+import com.linecorp.bot.spring.boot.LineBotProperties.Throttle.OverLimitPolicy;
+import com.linecorp.bot.spring.boot.test.EventTestUtil;
+
+public class SenderThrottleTest {
+    private static final MessageEvent EVENT = EventTestUtil.createTextMessage("text");
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    @Test
+    public void burstTest() {
+        final SenderThrottle target = create(OverLimitPolicy.DROP);
+
+        // Verify: burst of 3, then 1 event per second.
+        assertThat(target.reserve("user1")).isZero();
+        assertThat(target.reserve("user1")).isZero();
+        assertThat(target.reserve("user1")).isZero();
+        assertThat(target.reserve("user1")).isNegative();
+        assertThat(target.reserve("user2")).isZero();
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(target.reserve("user1")).isZero();
+        assertThat(target.reserve("user1")).isNegative();
+    }
+
+    @Test
+    public void filterTest() {
+        final SenderThrottle target = create(OverLimitPolicy.DROP);
+        final List<Event> events = Arrays.asList(EVENT, EVENT, EVENT);
+
+        // Same list if all are allowed.
+        assertThat(target.filter(events, event -> {})).isSameAs(events);
+
+        final Event follow = new FollowEvent("replyToken", new UserSource("userId"), Instant.EPOCH);
+        assertThat(target.filter(Arrays.asList(EVENT, follow), event -> {})).containsExactly(follow);
+        assertThat(target.getOverLimitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void fallbackTest() {
+        final SenderThrottle target = create(OverLimitPolicy.FALLBACK);
+        final List<Event> throttled = new ArrayList<>();
+        target.setThrottledEventHandler(throttled::add);
+
+        assertThat(target.filter(Arrays.asList(EVENT, EVENT, EVENT, EVENT), event -> {})).hasSize(3);
+        assertThat(throttled).containsExactly(EVENT);
+    }
+
+    @Test
+    public void delayTest() {
+        final SenderThrottle target = create(OverLimitPolicy.DELAY);
+        try {
+            target.reserve("user1");
+            target.reserve("user1");
+            target.reserve("user1");
+
+            // Verify: wait for 1 and 2 seconds, but not for 3 seconds.
+            assertThat(target.reserve("user1")).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+            assertThat(target.reserve("user1")).isEqualTo(TimeUnit.SECONDS.toNanos(2));
+            assertThat(target.reserve("user1")).isNegative();
+        } finally {
+            target.shutdown();
+        }
+    }
+
+    @Test
+    public void sweepTest() {
+        final SenderThrottle target = create(OverLimitPolicy.DROP);
+        target.reserve("user1");
+        assertThat(target.getSenderCount()).isEqualTo(1);
+
+        nanoTime.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        target.reserve("user2");
+        assertThat(target.getSenderCount()).isEqualTo(1);
+    }
+
+    private SenderThrottle create(final OverLimitPolicy overLimitPolicy) {
+        final Throttle properties = new Throttle();
+        properties.setEventsPerSecond(1);
+        properties.setBurst(3);
+        properties.setOverLimitPolicy(overLimitPolicy);
+        properties.setMaxDelayMillis(2500);
+        return new SenderThrottle(properties, nanoTime::get);
+    }
+}
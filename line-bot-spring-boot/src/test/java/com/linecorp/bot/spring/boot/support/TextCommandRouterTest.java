@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import com.linecorp.bot.spring.boot.support.TextCommandRouter.Kind;
+
+public class TextCommandRouterTest {
+    @Test
+    public void prefixTest() {
+        final TextCommandRouter<String> target = TextCommandRouter.<String>builder()
+                .add(Kind.PREFIX, "/help", 0, "help")
+                .add(Kind.PREFIX, "/help me", 0, "helpMe")
+                .add(Kind.PREFIX, "/profile", 0, "profile")
+                .build();
+
+        assertThat(target.route("/help")).isEqualTo("help");
+        assertThat(target.route("/help me now")).isEqualTo("helpMe");
+        assertThat(target.route("/profile")).isEqualTo("profile");
+        assertThat(target.route("/hel")).isNull();
+        assertThat(target.route("say /help")).isNull();
+        assertThat(target.route("")).isNull();
+    }
+
+    @Test
+    public void containsTest() {
+        final TextCommandRouter<String> target = TextCommandRouter.<String>builder()
+                .add(Kind.CONTAINS, "he", 0, "he")
+                .add(Kind.CONTAINS, "she", 0, "she")
+                .add(Kind.CONTAINS, "hers", 0, "hers")
+                .add(Kind.CONTAINS, "thank you", 0, "thanks")
+                .build();
+
+        // Longer keyword wins, wherever it's found.
+        assertThat(target.route("ushers")).isEqualTo("hers");
+        assertThat(target.route("ushe")).isEqualTo("she");
+        assertThat(target.route("the")).isEqualTo("he");
+        assertThat(target.route("ok, thank you!")).isEqualTo("thanks");
+        assertThat(target.route("thank yo")).isNull();
+    }
+
+    @Test
+    public void regexTest() {
+        final TextCommandRouter<String> target = TextCommandRouter.<String>builder()
+                .add(Kind.REGEX, "(\\d+)\\+(\\d+)", 0, "add")
+                .add(Kind.REGEX, "\\d+", 0, "number")
+                .add(Kind.REGEX, "(a)\\1", 0, "backReference")
+                .build();
+
+        assertThat(target.route("1+2")).isEqualTo("add");
+        assertThat(target.route("12")).isEqualTo("number");
+        assertThat(target.route("aa")).isEqualTo("backReference");
+        assertThat(target.route("12a")).isNull();
+
+        final TextCommandRouter<String> combined = TextCommandRouter.<String>builder()
+                .add(Kind.REGEX, "(\\d+)\\+(\\d+)", 0, "add")
+                .add(Kind.REGEX, "(\\d+)", 0, "number")
+                .add(Kind.REGEX, "[a-z]+", 0, "word")
+                .build();
+
+        assertThat(combined.route("1+2")).isEqualTo("add");
+        assertThat(combined.route("12")).isEqualTo("number");
+        assertThat(combined.route("abc")).isEqualTo("word");
+    }
+
+    @Test
+    public void sameNamedGroupTest() {
+        final TextCommandRouter<String> target = TextCommandRouter.<String>builder()
+                .add(Kind.REGEX, "order (?<id>\\d+)", 0, "order")
+                .add(Kind.REGEX, "cancel (?<id>\\d+)", 0, "cancel")
+                .build();
+
+        assertThat(target.route("order 12")).isEqualTo("order");
+        assertThat(target.route("cancel 34")).isEqualTo("cancel");
+        assertThat(target.route("order")).isNull();
+    }
+
+    @Test
+    public void rankTest() {
+        final TextCommandRouter<String> target = TextCommandRouter.<String>builder()
+                .add(Kind.REGEX, "/weather .*", 0, "regex")
+                .add(Kind.CONTAINS, "weather", 0, "contains")
+                .add(Kind.PREFIX, "/weather", 0, "prefix")
+                .add(Kind.CONTAINS, "urgent", 10, "priority")
+                .build();
+
+        assertThat(target.route("/weather tokyo")).isEqualTo("prefix");
+        assertThat(target.route("how is the weather")).isEqualTo("contains");
+        assertThat(target.route("/weather tokyo, urgent")).isEqualTo("priority");
+    }
+}
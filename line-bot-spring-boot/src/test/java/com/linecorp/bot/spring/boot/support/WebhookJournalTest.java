@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.UnfollowEvent;
+import com.linecorp.bot.spring.boot.LineBotProperties.Journal;
+import com.linecorp.bot.spring.boot.LineBotProperties.Journal.FsyncPolicy;
+import com.linecorp.bot.spring.boot.test.EventTestUtil;
+
+public class WebhookJournalTest {
+    private static final byte[] BODY =
+            ("{\"events\":[{\"type\":\"unfollow\",\"source\":{\"type\":\"user\",\"userId\":\"userId\"},"
+             + "\"timestamp\":1462629479859}]}").getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void replayTest() throws Exception {
+        final Journal properties = properties(FsyncPolicy.ALWAYS);
+        final Event event1 = EventTestUtil.createTextMessage("1");
+        final Event event2 = EventTestUtil.createTextMessage("2");
+        try (WebhookJournal journal = new WebhookJournal(properties)) {
+            assertThat(journal.append(null, BODY, singletonList(event1))).isEqualTo(1);
+            assertThat(journal.append("channel", BODY, singletonList(event2))).isEqualTo(2);
+            assertThat(journal.append(null, BODY, emptyList())).isEqualTo(3);
+
+            journal.complete(event1);
+            assertThat(journal.getCheckpoint()).isEqualTo(1);
+        }
+
+        // Restart. Record 3 is replayed as well, because the checkpoint stopped at record 1.
+        final List<JournalRecord> replayed = new ArrayList<>();
+        try (WebhookJournal journal = new WebhookJournal(properties)) {
+            assertThat(journal.replay((record, events) -> {
+                replayed.add(record);
+                assertThat(events).hasOnlyElementsOfType(UnfollowEvent.class);
+                events.forEach(journal::complete);
+            })).isEqualTo(2);
+            assertThat(journal.getCheckpoint()).isEqualTo(3);
+            assertThat(journal.append(null, BODY, emptyList())).isEqualTo(4);
+        }
+        assertThat(replayed).extracting(JournalRecord::getSequence).containsExactly(2L, 3L);
+        assertThat(replayed).extracting(JournalRecord::getChannelId).containsExactly("channel", null);
+    }
+
+    @Test
+    public void rotationTest() throws Exception {
+        final Journal properties = properties(FsyncPolicy.NEVER);
+        properties.setSegmentSizeBytes(BODY.length * 2 + 100);
+        try (WebhookJournal journal = new WebhookJournal(properties)) {
+            for (int i = 0; i < 10; ++i) {
+                journal.append(null, BODY, emptyList());
+            }
+        }
+
+        final Path directory = temporaryFolder.getRoot().toPath();
+        assertThat(WebhookJournalReader.listSegments(directory)).hasSize(5);
+        final List<JournalRecord> records = new ArrayList<>();
+        WebhookJournalReader.open(directory).read(4, records::add);
+        assertThat(records).extracting(JournalRecord::getSequence).containsExactly(4L, 5L, 6L, 7L, 8L, 9L, 10L);
+        assertThat(records.get(0).getBody()).isEqualTo(BODY);
+        assertThat(WebhookJournalReader.open(directory).getCheckpoint()).isEqualTo(10);
+    }
+
+    @Test
+    public void retentionTest() throws Exception {
+        final Journal properties = properties(FsyncPolicy.INTERVAL);
+        properties.setSegmentSizeBytes(BODY.length * 2 + 100);
+        properties.setRetentionMillis(0);
+        final Event event = EventTestUtil.createTextMessage("pending");
+        try (WebhookJournal journal = new WebhookJournal(properties)) {
+            journal.append(null, BODY, emptyList());
+            journal.append(null, BODY, emptyList());
+            journal.append(null, BODY, singletonList(event));
+            for (int i = 0; i < 7; ++i) {
+                journal.append(null, BODY, emptyList());
+            }
+        }
+
+        // Segments after the pending record are retained.
+        final Path directory = temporaryFolder.getRoot().toPath();
+        assertThat(WebhookJournalReader.listSegments(directory)).hasSize(4);
+        final List<JournalRecord> records = new ArrayList<>();
+        WebhookJournalReader.open(directory).read(1, records::add);
+        assertThat(records.get(0).getSequence()).isEqualTo(3);
+    }
+
+    private Journal properties(final FsyncPolicy fsyncPolicy) {
+        final Journal properties = new Journal();
+        properties.setDirectory(temporaryFolder.getRoot().getPath());
+        properties.setFsyncPolicy(fsyncPolicy);
+        properties.setFlushIntervalMillis(10);
+        return properties;
+    }
+}
@@ -33,8 +33,9 @@ fun main(args: Array<String>) {
 @SpringBootApplication
 @LineMessageHandler
 open class EchoApplication {
+    // suspend functions are started as coroutines, and the returned message is replied when they complete.
     @EventMapping
-    fun handleTextMessageEvent(event: MessageEvent<TextMessageContent>): Message {
+    suspend fun handleTextMessageEvent(event: MessageEvent<TextMessageContent>): Message {
         println("event: $event")
         val originalMessageText = event.message.text
         return TextMessage(originalMessageText)